@@ -28,6 +28,10 @@ import org.jclouds.rest.internal.BaseHttpApiMetadata;
 import java.net.URI;
 import java.util.Properties;
 
+import static org.jclouds.aliyun.ecs.compute.config.ECSComputeServiceProperties.PAGES_IN_FLIGHT;
+import static org.jclouds.aliyun.ecs.compute.config.ECSComputeServiceProperties.REGION_LISTING_TIMEOUT;
+import static org.jclouds.aliyun.ecs.compute.config.ECSComputeServiceProperties.REGION_REQUESTS_PER_SECOND;
+import static org.jclouds.aliyun.ecs.compute.config.ECSComputeServiceProperties.THROTTLED_REQUESTS_PER_SECOND;
 import static org.jclouds.compute.config.ComputeServiceProperties.TEMPLATE;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_NODE_RUNNING;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_NODE_SUSPENDED;
@@ -50,6 +54,10 @@ public class ECSServiceApiMetadata extends BaseHttpApiMetadata<ECSComputeService
       properties.put(TEMPLATE, "osFamily=CENTOS,os64Bit=true,osVersionMatches=7.*");
       properties.put(TIMEOUT_NODE_RUNNING, 900000); // 15 mins
       properties.put(TIMEOUT_NODE_SUSPENDED, 900000); // 15 mins
+      properties.put(REGION_REQUESTS_PER_SECOND, 10);
+      properties.put(REGION_LISTING_TIMEOUT, 300000); // 5 mins
+      properties.put(THROTTLED_REQUESTS_PER_SECOND, 20);
+      properties.put(PAGES_IN_FLIGHT, 4);
       return properties;
    }
 
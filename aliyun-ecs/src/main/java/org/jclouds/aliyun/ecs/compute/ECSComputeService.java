@@ -16,17 +16,19 @@
  */
 package org.jclouds.aliyun.ecs.compute;
 
+import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
+import com.google.common.collect.FluentIterable;
 import com.google.common.collect.Iterables;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import org.jclouds.Constants;
-import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
 import org.jclouds.aliyun.ecs.compute.strategy.CleanupResources;
+import org.jclouds.aliyun.ecs.compute.strategy.NetworkResourceDirectory;
+import org.jclouds.aliyun.ecs.domain.Instance;
 import org.jclouds.aliyun.ecs.domain.SecurityGroup;
 import org.jclouds.aliyun.ecs.domain.VSwitch;
-import org.jclouds.aliyun.ecs.domain.options.ListVSwitchesOptions;
 import org.jclouds.aliyun.ecs.domain.regionscoped.RegionAndId;
 import org.jclouds.collect.Memoized;
 import org.jclouds.compute.ComputeServiceContext;
@@ -34,6 +36,7 @@ import org.jclouds.compute.callables.RunScriptOnNode;
 import org.jclouds.compute.domain.Hardware;
 import org.jclouds.compute.domain.Image;
 import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
 import org.jclouds.compute.domain.TemplateBuilder;
 import org.jclouds.compute.extensions.ImageExtension;
 import org.jclouds.compute.extensions.SecurityGroupExtension;
@@ -52,6 +55,7 @@ import org.jclouds.compute.strategy.ResumeNodeStrategy;
 import org.jclouds.compute.strategy.SuspendNodeStrategy;
 import org.jclouds.domain.Credentials;
 import org.jclouds.domain.Location;
+import org.jclouds.domain.LoginCredentials;
 import org.jclouds.scriptbuilder.functions.InitAdminAccess;
 
 import javax.annotation.Nullable;
@@ -59,6 +63,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -67,10 +72,16 @@ import java.util.concurrent.atomic.AtomicReference;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_NODE_RUNNING;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_NODE_SUSPENDED;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_NODE_TERMINATED;
+import static org.jclouds.compute.predicates.NodePredicates.inGroup;
 
 @Singleton
 public class ECSComputeService extends BaseComputeService {
+
+   private final Map<String, Credentials> credentialStore;
    private final CleanupResources cleanupResources;
+   private final NetworkResourceDirectory networkResourceDirectory;
+   private final ECSComputeServiceAdapter adapter;
+   private final Function<Instance, NodeMetadata> instanceToNodeMetadata;
 
    @Inject
    protected ECSComputeService(ComputeServiceContext context, Map<String, Credentials> credentialStore,
@@ -88,7 +99,9 @@ public class ECSComputeService extends BaseComputeService {
                                RunScriptOnNode.Factory runScriptOnNodeFactory, InitAdminAccess initAdminAccess,
                                PersistNodeCredentials persistNodeCredentials,
                                @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
-                               CleanupResources cleanupResources, Optional<ImageExtension> imageExtension,
+                               CleanupResources cleanupResources, NetworkResourceDirectory networkResourceDirectory,
+                               ECSComputeServiceAdapter adapter, Function<Instance, NodeMetadata> instanceToNodeMetadata,
+                               Optional<ImageExtension> imageExtension,
                                Optional<SecurityGroupExtension> securityGroupExtension,
                                DelegatingImageExtension.Factory delegatingImageExtension) {
       super(context, credentialStore, images, sizes, locations, listNodesStrategy, getImageStrategy,
@@ -96,7 +109,39 @@ public class ECSComputeService extends BaseComputeService {
               startNodeStrategy, stopNodeStrategy, templateBuilderProvider, templateOptionsProvider, nodeRunning,
               nodeTerminated, nodeSuspended, initScriptRunnerFactory, initAdminAccess, runScriptOnNodeFactory,
               persistNodeCredentials, userExecutor, imageExtension, securityGroupExtension, delegatingImageExtension);
+      this.credentialStore = credentialStore;
       this.cleanupResources = cleanupResources;
+      this.networkResourceDirectory = networkResourceDirectory;
+      this.adapter = adapter;
+      this.instanceToNodeMetadata = instanceToNodeMetadata;
+   }
+
+   /**
+    * Lists the nodes of a group by their group tag and by their name, instead of listing every instance of every
+    * region, so that nodes created before instances carried a group tag are found too.
+    */
+   public Set<? extends NodeMetadata> listNodesDetailsInGroup(String group) {
+      logger.trace(">> listing node details in group(%s)", group);
+      Set<NodeMetadata> nodes = FluentIterable.from(adapter.listNodesInGroup(group))
+            .transform(new Function<Instance, NodeMetadata>() {
+               @Override
+               public NodeMetadata apply(Instance instance) {
+                  return withLoginCredentials(instanceToNodeMetadata.apply(instance));
+               }
+            })
+            .filter(inGroup(group))
+            .copyInto(new LinkedHashSet<NodeMetadata>());
+      logger.trace("<< list(%d)", nodes.size());
+      return nodes;
+   }
+
+   private NodeMetadata withLoginCredentials(NodeMetadata node) {
+      Credentials credentials = credentialStore.get("node#" + node.getId());
+      if (credentials == null) {
+         return node;
+      }
+      return NodeMetadataBuilder.fromNodeMetadata(node).credentials(LoginCredentials.fromCredentials(credentials))
+            .build();
    }
 
    @Override
@@ -105,7 +150,7 @@ public class ECSComputeService extends BaseComputeService {
          RegionAndId regionAndId = RegionAndId.fromSlashEncoded(deadNode.getId());
          Set<String> tags = deadNode.getTags();
          String vSwitchId = extractVSwitchId(tags);
-         VSwitch vSwitch = context.unwrapApi(ECSComputeServiceApi.class).vSwitchApi().list(deadNode.getLocation().getId(), ListVSwitchesOptions.Builder.vSwitchId(vSwitchId)).first().orNull();
+         VSwitch vSwitch = networkResourceDirectory.vSwitch(deadNode.getLocation().getId(), vSwitchId).orNull();
          String vpcId = vSwitch.vpcId();
 
          try {
@@ -17,28 +17,38 @@
 package org.jclouds.aliyun.ecs.compute;
 
 import com.google.common.base.Function;
+import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Supplier;
+import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimaps;
 import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
 import org.jclouds.aliyun.ecs.compute.strategy.CleanupResources;
-import org.jclouds.aliyun.ecs.domain.AvailableResource;
-import org.jclouds.aliyun.ecs.domain.AvailableZone;
+import org.jclouds.aliyun.ecs.compute.strategy.GroupProvisioning;
+import org.jclouds.aliyun.ecs.compute.strategy.ImageCatalog;
+import org.jclouds.aliyun.ecs.compute.strategy.InstanceTagIndex;
+import org.jclouds.aliyun.ecs.compute.strategy.InstanceTypeAvailability;
+import org.jclouds.aliyun.ecs.compute.strategy.RegionAndZoneDirectory;
+import org.jclouds.aliyun.ecs.compute.strategy.RegionFanOut;
 import org.jclouds.aliyun.ecs.domain.Image;
 import org.jclouds.aliyun.ecs.domain.Instance;
 import org.jclouds.aliyun.ecs.domain.InstanceRequest;
 import org.jclouds.aliyun.ecs.domain.InstanceType;
 import org.jclouds.aliyun.ecs.domain.Region;
-import org.jclouds.aliyun.ecs.domain.SupportedResource;
+import org.jclouds.aliyun.ecs.domain.Tag;
 import org.jclouds.aliyun.ecs.domain.options.CreateInstanceOptions;
 import org.jclouds.aliyun.ecs.domain.options.ListImagesOptions;
 import org.jclouds.aliyun.ecs.domain.options.ListInstancesOptions;
+import org.jclouds.aliyun.ecs.domain.options.PaginationOptions;
 import org.jclouds.aliyun.ecs.domain.options.TagOptions;
 import org.jclouds.aliyun.ecs.domain.regionscoped.ImageInRegion;
 import org.jclouds.aliyun.ecs.domain.regionscoped.RegionAndId;
@@ -49,7 +59,6 @@ import org.jclouds.compute.reference.ComputeServiceConstants;
 import org.jclouds.compute.util.ComputeServiceUtils;
 import org.jclouds.logging.Logger;
 
-import javax.annotation.Nullable;
 import javax.annotation.Resource;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -58,10 +67,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
-import static com.google.common.collect.Iterables.contains;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.lang.String.format;
+import static org.jclouds.aliyun.ecs.compute.strategy.InstanceTagIndex.listInstances;
+import static org.jclouds.aliyun.ecs.domain.options.ListInstancesOptions.MAX_INSTANCE_IDS;
+import static org.jclouds.aliyun.ecs.domain.options.TagOptions.MAX_TAGS;
 import static org.jclouds.aliyun.ecs.domain.regionscoped.RegionAndId.fromSlashEncoded;
 import static org.jclouds.aliyun.ecs.domain.regionscoped.RegionAndId.slashEncodeRegionAndId;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_NODE_SUSPENDED;
@@ -73,11 +85,24 @@ import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_NODE_S
 @Singleton
 public class ECSComputeServiceAdapter implements ComputeServiceAdapter<Instance, InstanceType, ImageInRegion, Region> {
 
+   /**
+    * The vSwitch and group tags of a node take two of the tags an instance can be created with, which leaves three
+    * for the tags and user metadata of the template. The vSwitch tag cannot be dropped, as it is how the vSwitch of a
+    * destroyed node is found to clean it up.
+    */
+   private static final int MAX_USER_TAGS = MAX_TAGS - 2;
+
    private final ECSComputeServiceApi api;
    private final Predicate<String> instanceSuspendedPredicate;
 
    private final Supplier<Set<String>> regionIds;
    private final CleanupResources cleanupResources;
+   private final RegionAndZoneDirectory regionAndZoneDirectory;
+   private final RegionFanOut regionFanOut;
+   private final ImageCatalog imageCatalog;
+   private final InstanceTypeAvailability instanceTypeAvailability;
+   private final GroupProvisioning groupProvisioning;
+   private final InstanceTagIndex instanceTagIndex;
 
    @Resource
    @Named(ComputeServiceConstants.COMPUTE_LOGGER)
@@ -87,15 +112,40 @@ public class ECSComputeServiceAdapter implements ComputeServiceAdapter<Instance,
    ECSComputeServiceAdapter(ECSComputeServiceApi api,
                             @Named(TIMEOUT_NODE_SUSPENDED) Predicate<String> instanceSuspendedPredicate,
                             @org.jclouds.location.Region Supplier<Set<String>> regionIds,
-                            CleanupResources cleanupResources) {
+                            CleanupResources cleanupResources,
+                            RegionAndZoneDirectory regionAndZoneDirectory,
+                            RegionFanOut regionFanOut,
+                            ImageCatalog imageCatalog,
+                            InstanceTypeAvailability instanceTypeAvailability,
+                            GroupProvisioning groupProvisioning,
+                            InstanceTagIndex instanceTagIndex) {
       this.api = api;
       this.instanceSuspendedPredicate = instanceSuspendedPredicate;
       this.regionIds = regionIds;
       this.cleanupResources = cleanupResources;
+      this.regionAndZoneDirectory = regionAndZoneDirectory;
+      this.regionFanOut = regionFanOut;
+      this.imageCatalog = imageCatalog;
+      this.instanceTypeAvailability = instanceTypeAvailability;
+      this.groupProvisioning = groupProvisioning;
+      this.instanceTagIndex = instanceTagIndex;
    }
 
    @Override
    public NodeAndInitialCredentials<Instance> createNodeWithGroupEncodedIntoName(String group, String name, Template template) {
+      String regionId = template.getLocation().getId();
+      String instanceId = createAndPowerOn(group, name, template);
+      // described together with the nodes of the group that are powered on at the same time
+      Instance instance = groupProvisioning.refresh(regionId, instanceId);
+
+      // Safe to pass null credentials here, as jclouds will default populate
+      // the node with the default credentials from the image, or the ones in
+      // the options, if provided.
+      return new NodeAndInitialCredentials(instance,
+              slashEncodeRegionAndId(regionId, instanceId), null);
+   }
+
+   private String createAndPowerOn(String group, String name, Template template) {
       String instanceType = template.getHardware().getId();
       String regionId = template.getLocation().getId();
       String imageId = template.getImage().getId();
@@ -110,9 +160,16 @@ public class ECSComputeServiceAdapter implements ComputeServiceAdapter<Instance,
       String instanceChargeType = templateOptions.getInstanceChargeType();
 
       Map<String, String> tags = ComputeServiceUtils.metadataAndTagsAsValuesOfEmptyString(templateOptions);
-      tags = new ImmutableMap.Builder()
+      checkArgument(!tags.containsKey(Tag.NODE_GROUP), "the %s tag is reserved for the group of the node",
+              Tag.NODE_GROUP);
+      checkArgument(tags.size() <= MAX_USER_TAGS,
+              "at most %s tags and user metadata entries can be set on a node, as the vSwitch and group tags take "
+                      + "the rest of its %s tags", MAX_USER_TAGS, MAX_TAGS);
+      tags = new ImmutableMap.Builder<String, String>()
               .putAll(tags)
               .put(vSwitchId, "")
+              // lets group-scoped listings look the instances of the group up by tag
+              .put(Tag.NODE_GROUP, group)
               .build();
       TagOptions tagOptions = TagOptions.Builder.tags(tags);
 
@@ -127,89 +184,70 @@ public class ECSComputeServiceAdapter implements ComputeServiceAdapter<Instance,
                       .tagOptions(tagOptions)
       );
 
-      String regionAndInstanceId = slashEncodeRegionAndId(regionId, instanceRequest.getInstanceId());
-      if (!instanceSuspendedPredicate.apply(regionAndInstanceId)) {
-         final String message = format("Instance %s was not created correctly. The associated resources created for it will be destroyed", instanceRequest.getInstanceId());
+      String instanceId = instanceRequest.getInstanceId();
+      instanceTagIndex.add(regionId, tags, instanceId);
+      if (!instanceSuspendedPredicate.apply(slashEncodeRegionAndId(regionId, instanceId))) {
+         final String message = format("Instance %s was not created correctly. The associated resources created for it will be destroyed", instanceId);
          logger.warn(message);
-         cleanupResources.cleanupNode(RegionAndId.create(regionId, instanceRequest.getInstanceId()));
+         cleanupResources.cleanupNode(RegionAndId.create(regionId, instanceId));
          cleanupResources.cleanupSecurityGroupIfOrphaned(regionId, securityGroupId);
+         throw new IllegalStateException(message);
       }
 
-      api.instanceApi().allocatePublicIpAddress(regionId, instanceRequest.getInstanceId());
-      api.instanceApi().powerOn(instanceRequest.getInstanceId());
-      Instance instance = Iterables.get(api.instanceApi().list(regionId, ListInstancesOptions.Builder.instanceIds(instanceRequest.getInstanceId())), 0);
-
-      // Safe to pass null credentials here, as jclouds will default populate
-      // the node with the default credentials from the image, or the ones in
-      // the options, if provided.
-      return new NodeAndInitialCredentials(instance,
-              slashEncodeRegionAndId(regionId, instanceRequest.getInstanceId()), null);
+      // each node is set up as soon as its own instance is ready, without waiting for the rest of the group
+      api.instanceApi().allocatePublicIpAddress(regionId, instanceId);
+      api.instanceApi().powerOn(instanceId);
+      return instanceId;
    }
 
    @Override
    public Iterable<InstanceType> listHardwareProfiles() {
-      final ImmutableSet.Builder<String> instanceTypeIdsBuilder = ImmutableSet.builder();
-      for (String regionId : getAvailableLocationNames()) {
-         instanceTypeIdsBuilder.addAll(getInstanceTypeIds(regionId));
-      }
-      final Set<String> ids = instanceTypeIdsBuilder.build();
-
-      List<InstanceType> instanceTypes = FluentIterable.from(api.instanceApi().listTypes())
-              .filter(new Predicate<InstanceType>() {
-                 @Override
-                 public boolean apply(@Nullable InstanceType input) {
-                    return contains(ids, input.id());
-                 }
-              }).toList();
-
-      return instanceTypes;
-   }
+      // the hardware and image catalogs are memoized, so a region that fails must fail them rather than be left out
+      final Set<String> ids = regionFanOut.listAll(getAvailableLocationNames(), new Function<String, Set<String>>() {
+         @Override
+         public Set<String> apply(String regionId) {
+            return instanceTypeAvailability.get(regionId).availableInstanceTypes();
+         }
+      }).toSet();
 
-   private List<String> getInstanceTypeIds(String regionId) {
-      List<String> instanceTypeIds = Lists.newArrayList();
-      for (AvailableZone availableZone : api.instanceApi().listInstanceTypesByAvailableZone(regionId)) {
-         for (AvailableResource availableResource : availableZone.availableResources().get("AvailableResource")) {
-            for (SupportedResource supportedResource : availableResource.supportedResources()
-                    .get("SupportedResource")) {
-               if (SupportedResource.Status.AVAILABLE == supportedResource.status()) {
-                  instanceTypeIds.add(supportedResource.value());
-               }
-            }
+      ImmutableList.Builder<InstanceType> instanceTypes = ImmutableList.builder();
+      for (InstanceType instanceType : instanceTypeAvailability.instanceTypes().values()) {
+         if (ids.contains(instanceType.id())) {
+            instanceTypes.add(instanceType);
          }
       }
-      return instanceTypeIds;
+      return instanceTypes.build();
    }
 
    @Override
    public Iterable<ImageInRegion> listImages() {
-      final ImmutableList.Builder<ImageInRegion> imagesInRegion = ImmutableList.builder();
-
-      for (final String regionId : getAvailableLocationNames()) {
-               imagesInRegion.addAll(api.imageApi().list(regionId).concat()
-                       .transform(new Function<Image, ImageInRegion>() {
-                           @Override
-                           public ImageInRegion apply(Image image) {
-                              return ImageInRegion.create(regionId, image);
-                           }
-                        })
-               );
-      }
-      return imagesInRegion.build();
+      return regionFanOut.listAll(getAvailableLocationNames(), new Function<String, Iterable<ImageInRegion>>() {
+         @Override
+         public Iterable<ImageInRegion> apply(String regionId) {
+            return imageCatalog.get(regionId).images();
+         }
+      }).toList();
    }
 
    @Override
    public ImageInRegion getImage(final String id) {
+      Optional<ImageInRegion> cached = imageCatalog.getImage(id);
+      if (cached.isPresent()) {
+         return cached.get();
+      }
+      // not in the catalog yet, for example an image that has just been created
       RegionAndId regionAndId = fromSlashEncoded(id);
       Image image = api.imageApi().list(regionAndId.regionId(), ListImagesOptions.Builder.imageIds(regionAndId.id()))
               .firstMatch(Predicates.<Image>notNull())
               .orNull();
       if (image == null) return null;
+      imageCatalog.refresh(regionAndId.regionId());
       return ImageInRegion.create(regionAndId.regionId(), image);
    }
 
    @Override
    public Iterable<Region> listLocations() {
-      return FluentIterable.from(api.regionAndZoneApi().describeRegions()).filter(new Predicate<Region>() {
+      return FluentIterable.from(regionAndZoneDirectory.regions()).filter(new Predicate<Region>() {
          @Override
          public boolean apply(Region region) {
             return regionIds.get().isEmpty() ? true : regionIds.get().contains(region.id());
@@ -228,7 +266,9 @@ public class ECSComputeServiceAdapter implements ComputeServiceAdapter<Instance,
 
    @Override
    public void destroyNode(String id) {
-      checkState(cleanupResources.cleanupNode(RegionAndId.fromSlashEncoded(id)), "server(%s) and its resources still there after deleting!?", id);
+      RegionAndId regionAndId = RegionAndId.fromSlashEncoded(id);
+      checkState(cleanupResources.cleanupNode(regionAndId), "server(%s) and its resources still there after deleting!?", id);
+      instanceTagIndex.remove(regionAndId.regionId(), regionAndId.id());
    }
 
    @Override
@@ -248,21 +288,61 @@ public class ECSComputeServiceAdapter implements ComputeServiceAdapter<Instance,
 
    @Override
    public Iterable<Instance> listNodes() {
-      final ImmutableList.Builder<Instance> instances = ImmutableList.builder();
-      for (String regionId : getAvailableLocationNames()) {
-         instances.addAll(api.instanceApi().list(regionId).concat());
-      }
-      return instances.build();
+      return regionFanOut.list(getAvailableLocationNames(), new Function<String, Iterable<Instance>>() {
+         @Override
+         public Iterable<Instance> apply(String regionId) {
+            return api.instanceApi().list(regionId).concat();
+         }
+      });
    }
 
    @Override
    public Iterable<Instance> listNodesByIds(final Iterable<String> ids) {
-
-      final ImmutableList.Builder<Instance> instancesBuilder = ImmutableList.builder();
-      for (String regionId : getAvailableLocationNames()) {
-         instancesBuilder.addAll(api.instanceApi().list(regionId, ListInstancesOptions.Builder.instanceIds(Iterables.toArray(ids, String.class))));
+      // ids are slash-encoded, so only the regions they belong to are queried
+      ListMultimap<String, String> instanceIdsByRegion = ArrayListMultimap.create();
+      for (String id : ids) {
+         RegionAndId regionAndId = fromSlashEncoded(id);
+         instanceIdsByRegion.put(regionAndId.regionId(), regionAndId.id());
       }
-      return instancesBuilder.build();
+      ImmutableListMultimap.Builder<String, List<String>> chunksByRegion = ImmutableListMultimap.builder();
+      for (Map.Entry<String, List<String>> regionIds : Multimaps.asMap(instanceIdsByRegion).entrySet()) {
+         chunksByRegion.putAll(regionIds.getKey(), Lists.partition(regionIds.getValue(), MAX_INSTANCE_IDS));
+      }
+      // a chunk that cannot be listed must fail the lookup, or its instances would be reported as missing
+      return regionFanOut.listAll(chunksByRegion.build(), new Function<Map.Entry<String, List<String>>, Iterable<Instance>>() {
+         @Override
+         public Iterable<Instance> apply(Map.Entry<String, List<String>> chunk) {
+            return api.instanceApi().list(chunk.getKey(), ListInstancesOptions.Builder
+                    .instanceIds(Iterables.toArray(chunk.getValue(), String.class))
+                    .paginationOptions(PaginationOptions.Builder.pageSize(MAX_INSTANCE_IDS)));
+         }
+      });
+   }
+
+   /**
+    * Lists the instances of a group by their group tag, merged with the instances whose name starts with the group,
+    * instead of listing every instance of every region. The name lookup finds the instances created before instances
+    * were tagged with their group, so a group mixing both kinds is listed whole. The name is matched by prefix, so
+    * callers still keep only the instances of the group.
+    */
+   public Iterable<Instance> listNodesInGroup(final String group) {
+      final Tag groupTag = Tag.create(Tag.NODE_GROUP, group);
+      return regionFanOut.listAll(getAvailableLocationNames(), new Function<String, Iterable<Instance>>() {
+         @Override
+         public Iterable<Instance> apply(String regionId) {
+            Map<String, Instance> instances = Maps.newLinkedHashMap();
+            for (Instance instance : instanceTagIndex.instancesTagged(regionId, groupTag)) {
+               instances.put(instance.id(), instance);
+            }
+            for (Instance instance : listInstances(api, regionId,
+                    ListInstancesOptions.Builder.instanceName(group + "*")).concat()) {
+               if (!instances.containsKey(instance.id())) {
+                  instances.put(instance.id(), instance);
+               }
+            }
+            return instances.values();
+         }
+      });
    }
 
    private List<String> getAvailableLocationNames() {
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.config;
+
+/**
+ * Configuration properties specific to the Aliyun ECS compute service.
+ */
+public final class ECSComputeServiceProperties {
+
+   /**
+    * Maximum number of listing requests per second started against a single region.
+    */
+   public static final String REGION_REQUESTS_PER_SECOND = "jclouds.aliyun.ecs.region.requests-per-second";
+
+   /**
+    * Time, in milliseconds, a region has to answer a request of a multi-region listing before it is left out of it.
+    * The time is counted from when the rate limiter lets the request through.
+    */
+   public static final String REGION_LISTING_TIMEOUT = "jclouds.aliyun.ecs.region.listing-timeout";
+
+   /**
+    * Rate, in requests per second, to which an action in a region is limited once the API has throttled it. The
+    * rate is halved on every further throttling response and recovers while no request is throttled.
+    */
+   public static final String THROTTLED_REQUESTS_PER_SECOND = "jclouds.aliyun.ecs.throttled-requests-per-second";
+
+   /**
+    * Number of pages of a list call requested ahead of the page being read, once the first page has told how many
+    * pages there are.
+    */
+   public static final String PAGES_IN_FLIGHT = "jclouds.aliyun.ecs.pages-in-flight";
+
+   private ECSComputeServiceProperties() {
+      throw new AssertionError("Intentionally unimplemented");
+   }
+}
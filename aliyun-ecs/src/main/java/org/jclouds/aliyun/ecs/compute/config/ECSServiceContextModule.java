@@ -19,10 +19,10 @@ package org.jclouds.aliyun.ecs.compute.config;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Provides;
 import com.google.inject.TypeLiteral;
 import com.google.inject.name.Named;
-import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
 import org.jclouds.aliyun.ecs.compute.ECSComputeService;
 import org.jclouds.aliyun.ecs.compute.ECSComputeServiceAdapter;
 import org.jclouds.aliyun.ecs.compute.functions.ImageInRegionToImage;
@@ -31,6 +31,7 @@ import org.jclouds.aliyun.ecs.compute.functions.InstanceToNodeMetadata;
 import org.jclouds.aliyun.ecs.compute.functions.InstanceTypeToHardware;
 import org.jclouds.aliyun.ecs.compute.functions.RegionToLocation;
 import org.jclouds.aliyun.ecs.compute.strategy.CreateResourcesThenCreateNodes;
+import org.jclouds.aliyun.ecs.compute.strategy.InstanceStatusPoller;
 import org.jclouds.aliyun.ecs.domain.Instance;
 import org.jclouds.aliyun.ecs.domain.InstanceStatus;
 import org.jclouds.aliyun.ecs.domain.InstanceType;
@@ -38,7 +39,6 @@ import org.jclouds.aliyun.ecs.domain.Region;
 import org.jclouds.aliyun.ecs.domain.regionscoped.ImageInRegion;
 import org.jclouds.aliyun.ecs.domain.regionscoped.RegionAndId;
 import org.jclouds.aliyun.ecs.compute.options.ECSServiceTemplateOptions;
-import org.jclouds.aliyun.ecs.predicates.InstanceStatusPredicate;
 import org.jclouds.compute.ComputeService;
 import org.jclouds.compute.ComputeServiceAdapter;
 import org.jclouds.compute.config.ComputeServiceAdapterContextModule;
@@ -51,11 +51,14 @@ import org.jclouds.compute.reference.ComputeServiceConstants;
 import org.jclouds.compute.strategy.CreateNodesInGroupThenAddToSet;
 import org.jclouds.domain.Location;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_NODE_RUNNING;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_NODE_SUSPENDED;
 import static org.jclouds.compute.config.ComputeServiceProperties.TIMEOUT_NODE_TERMINATED;
-import static org.jclouds.util.Predicates2.retry;
 
 public class ECSServiceContextModule extends ComputeServiceAdapterContextModule<Instance, InstanceType, ImageInRegion, Region> {
 
@@ -86,75 +89,82 @@ public class ECSServiceContextModule extends ComputeServiceAdapterContextModule<
 
    @Provides
    @Named(TIMEOUT_NODE_RUNNING)
-   protected Predicate<String> provideInstanceRunningPredicate(final ECSComputeServiceApi api,
-                                                               ComputeServiceConstants.Timeouts timeouts, ComputeServiceConstants.PollPeriod pollPeriod) {
-      return retry(new InstanceInStatusPredicate(api, InstanceStatus.Status.RUNNING), timeouts.nodeRunning,
-              pollPeriod.pollInitialPeriod, pollPeriod.pollMaxPeriod);
+   protected Predicate<String> provideInstanceRunningPredicate(final InstanceStatusPoller poller,
+                                                               ComputeServiceConstants.Timeouts timeouts) {
+      return new InstanceInStatusPredicate(poller, InstanceStatus.Status.RUNNING, timeouts.nodeRunning);
    }
 
    @Provides
    @Named(TIMEOUT_NODE_SUSPENDED)
-   protected Predicate<String> provideInstanceSuspendedPredicate(final ECSComputeServiceApi api,
-                                                                 ComputeServiceConstants.Timeouts timeouts, ComputeServiceConstants.PollPeriod pollPeriod) {
-      return retry(new InstanceInStatusPredicate(api, InstanceStatus.Status.STOPPED), timeouts.nodeSuspended,
-              pollPeriod.pollInitialPeriod, pollPeriod.pollMaxPeriod);
+   protected Predicate<String> provideInstanceSuspendedPredicate(final InstanceStatusPoller poller,
+                                                                 ComputeServiceConstants.Timeouts timeouts) {
+      return new InstanceInStatusPredicate(poller, InstanceStatus.Status.STOPPED, timeouts.nodeSuspended);
    }
 
    @Provides
    @Named(TIMEOUT_NODE_TERMINATED)
-   protected Predicate<String> provideInstanceTerminatedPredicate(final ECSComputeServiceApi api,
-                                                                  ComputeServiceConstants.Timeouts timeouts, ComputeServiceConstants.PollPeriod pollPeriod) {
-      return retry(new InstanceTerminatedPredicate(api), timeouts.nodeTerminated, pollPeriod.pollInitialPeriod,
-              pollPeriod.pollMaxPeriod);
+   protected Predicate<String> provideInstanceTerminatedPredicate(final InstanceStatusPoller poller,
+                                                                  ComputeServiceConstants.Timeouts timeouts) {
+      return new InstanceTerminatedPredicate(poller, timeouts.nodeTerminated);
    }
 
    @VisibleForTesting
    static class InstanceInStatusPredicate implements Predicate<String> {
 
-      private final ECSComputeServiceApi api;
+      private final InstanceStatusPoller poller;
       private final InstanceStatus.Status desiredStatus;
+      private final long timeout;
 
-      public InstanceInStatusPredicate(ECSComputeServiceApi api, InstanceStatus.Status desiredStatus) {
-         this.api = checkNotNull(api, "api must not be null");
+      public InstanceInStatusPredicate(InstanceStatusPoller poller, InstanceStatus.Status desiredStatus, long timeout) {
+         this.poller = checkNotNull(poller, "poller must not be null");
          this.desiredStatus = checkNotNull(desiredStatus, "instance status must not be null");
+         this.timeout = timeout;
       }
 
       @Override
       public boolean apply(String id) {
          checkNotNull(id, "id");
-         RegionAndId regionAndId = RegionAndId.fromSlashEncoded(id);
-         String regionId = regionAndId.regionId();
-         String instanceId = regionAndId.id();
-         InstanceStatus instanceStatus = api.instanceApi().listInstanceStatus(regionId)
-                 .concat()
-                 .firstMatch(new InstanceStatusPredicate(instanceId))
-                 .orNull();
-         return instanceStatus != null && desiredStatus == instanceStatus.status();
+         return await(poller.awaitStatus(RegionAndId.fromSlashEncoded(id), desiredStatus, timeout), timeout);
       }
    }
 
    @VisibleForTesting
    static class InstanceTerminatedPredicate implements Predicate<String> {
 
-      private final ECSComputeServiceApi api;
+      private final InstanceStatusPoller poller;
+      private final long timeout;
 
-      public InstanceTerminatedPredicate(ECSComputeServiceApi api) {
-         this.api = checkNotNull(api, "api must not be null");
+      public InstanceTerminatedPredicate(InstanceStatusPoller poller, long timeout) {
+         this.poller = checkNotNull(poller, "poller must not be null");
+         this.timeout = timeout;
       }
 
       @Override
       public boolean apply(String id) {
          checkNotNull(id, "id");
-         RegionAndId regionAndId = RegionAndId.fromSlashEncoded(id);
-         String regionId = regionAndId.regionId();
-         final String instanceId = regionAndId.id();
-         InstanceStatus instanceStatus = api.instanceApi().listInstanceStatus(regionId)
-                 .concat()
-                 .firstMatch(new InstanceStatusPredicate(instanceId))
-                 .orNull();
-         return instanceStatus == null;
+         return await(poller.awaitTerminated(RegionAndId.fromSlashEncoded(id), timeout), timeout);
       }
 
    }
 
+   /**
+    * Waits for a poll at most for its timeout, as the retrying predicates this replaces did. A poll that fails, does
+    * not complete in time or is interrupted counts as the status not being reached.
+    */
+   @VisibleForTesting
+   static boolean await(ListenableFuture<Boolean> poll, long timeout) {
+      try {
+         return poll.get(timeout, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         return false;
+      } catch (ExecutionException e) {
+         return false;
+      } catch (TimeoutException e) {
+         return false;
+      } finally {
+         poll.cancel(false);
+      }
+   }
+
 }
@@ -20,6 +20,8 @@ import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import org.jclouds.aliyun.ecs.compute.functions.internal.OperatingSystems;
@@ -32,6 +34,7 @@ import org.jclouds.compute.domain.OsFamily;
 import org.jclouds.domain.Location;
 import org.jclouds.location.predicates.LocationPredicates;
 
+import javax.inject.Singleton;
 import java.util.Map;
 import java.util.Set;
 
@@ -40,10 +43,17 @@ import static com.google.common.collect.Iterables.tryFind;
 import static java.util.Arrays.asList;
 import static org.jclouds.compute.domain.OperatingSystem.builder;
 
+@Singleton
 public class ImageInRegionToImage implements Function<ImageInRegion, Image> {
 
    private final Supplier<Set<? extends Location>> locations;
 
+   /**
+    * Converted images, keyed by identity. The image catalog keeps the instances of unchanged images across reloads,
+    * so an image is converted once for as long as it does not change.
+    */
+   private final Cache<ImageInRegion, Image> converted = CacheBuilder.newBuilder().weakKeys().build();
+
    private static final Map<String, OsFamily> OTHER_OS_MAP = ImmutableMap.<String, OsFamily>builder()
          .put("Aliyun", OsFamily.LINUX).build();
 
@@ -77,6 +87,15 @@ public class ImageInRegionToImage implements Function<ImageInRegion, Image> {
 
    @Override
    public Image apply(ImageInRegion from) {
+      Image image = converted.getIfPresent(from);
+      if (image == null) {
+         image = convert(from);
+         converted.put(from, image);
+      }
+      return image;
+   }
+
+   private Image convert(ImageInRegion from) {
       ImageBuilder builder = new ImageBuilder();
       builder.id(RegionAndId.slashEncodeRegionAndId(from.regionId(), from.image().id()));
       builder.providerId(from.image().id());
@@ -106,7 +106,10 @@ public class InstanceToNodeMetadata implements Function<Instance, NodeMetadata>
       if (from.tags() != null && !from.tags().isEmpty()) {
          ImmutableMap.Builder tagsBuilder = new ImmutableMap.Builder();
          for (Tag tag : from.tags().entrySet().iterator().next().getValue()) {
-            tagsBuilder.put(tag.key(), tag.value());
+            // the group is already known from the name
+            if (!Tag.NODE_GROUP.equals(tag.key())) {
+               tagsBuilder.put(tag.key(), tag.value());
+            }
          }
          addMetadataAndParseTagsFromValuesOfEmptyString(builder, tagsBuilder.build());
       }
@@ -16,19 +16,17 @@
  */
 package org.jclouds.aliyun.ecs.compute.strategy;
 
+import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterables;
+import com.google.common.collect.ImmutableSet;
 import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
 import org.jclouds.aliyun.ecs.domain.InstanceStatus;
 import org.jclouds.aliyun.ecs.domain.SecurityGroup;
 import org.jclouds.aliyun.ecs.domain.Tag;
 import org.jclouds.aliyun.ecs.domain.regionscoped.RegionAndId;
-import org.jclouds.aliyun.ecs.predicates.InstanceStatusPredicate;
 import org.jclouds.compute.reference.ComputeServiceConstants;
 import org.jclouds.logging.Logger;
 
-import javax.annotation.Nullable;
 import javax.annotation.Resource;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -54,15 +52,21 @@ public class CleanupResources {
    private final ECSComputeServiceApi api;
    private final Predicate<String> instanceSuspendedPredicate;
    private final Predicate<String> instanceTerminatedPredicate;
+   private final InstanceStatusPoller instanceStatusPoller;
+   private final NetworkResourceDirectory networkResourceDirectory;
 
    @Inject
    public CleanupResources(ECSComputeServiceApi api,
                            @Named(TIMEOUT_NODE_SUSPENDED) Predicate<String> instanceSuspendedPredicate,
-                           @Named(TIMEOUT_NODE_TERMINATED) Predicate<String> instanceTerminatedPredicate
+                           @Named(TIMEOUT_NODE_TERMINATED) Predicate<String> instanceTerminatedPredicate,
+                           InstanceStatusPoller instanceStatusPoller,
+                           NetworkResourceDirectory networkResourceDirectory
    ) {
       this.api = api;
       this.instanceSuspendedPredicate = instanceSuspendedPredicate;
       this.instanceTerminatedPredicate = instanceTerminatedPredicate;
+      this.instanceStatusPoller = instanceStatusPoller;
+      this.networkResourceDirectory = networkResourceDirectory;
    }
 
    /**
@@ -71,10 +75,9 @@ public class CleanupResources {
     */
    public boolean cleanupNode(final RegionAndId regionAndId) {
       String instanceId = regionAndId.id();
-      InstanceStatus instanceStatus = Iterables.tryFind(api.instanceApi().listInstanceStatus(regionAndId.regionId()).concat(),
-              new InstanceStatusPredicate(instanceId)).orNull();
-      if (instanceStatus == null) return true;
-      if (InstanceStatus.Status.STOPPED != instanceStatus.status()) {
+      Optional<InstanceStatus.Status> instanceStatus = instanceStatusPoller.currentStatus(regionAndId);
+      if (!instanceStatus.isPresent()) return true;
+      if (InstanceStatus.Status.STOPPED != instanceStatus.get()) {
          logger.debug(">> powering off %s ...", RegionAndId.slashEncodeRegionAndId(regionAndId));
          api.instanceApi().powerOff(instanceId);
          instanceSuspendedPredicate.apply(RegionAndId.slashEncodeRegionAndId(regionAndId));
@@ -85,24 +88,24 @@ public class CleanupResources {
    }
 
    public List<SecurityGroup> findOrphanedSecurityGroups(final String regionId, final String group) {
-      return api.securityGroupApi().list(regionId).concat().filter(new Predicate<SecurityGroup>() {
-         @Override
-         public boolean apply(@Nullable SecurityGroup input) {
-            List<Tag> actual = input.tags().entrySet().iterator().next().getValue();
-            List<Tag> expected = ImmutableList.of(
-                    Tag.create(Tag.DEFAULT_OWNER_KEY, Tag.DEFAULT_OWNER_VALUE), Tag.create(Tag.GROUP, group)
-            );
-            return actual.containsAll(expected) && expected.containsAll(actual);
-         }
-      }).toList();
+      return networkResourceDirectory.securityGroupsTagged(regionId, ImmutableSet.of(
+              Tag.create(Tag.DEFAULT_OWNER_KEY, Tag.DEFAULT_OWNER_VALUE), Tag.create(Tag.GROUP, group)));
    }
 
    public boolean cleanupSecurityGroupIfOrphaned(final String regionId, String securityGroupId) {
-      return api.securityGroupApi().delete(regionId, securityGroupId) != null;
+      try {
+         return api.securityGroupApi().delete(regionId, securityGroupId) != null;
+      } finally {
+         networkResourceDirectory.invalidateSecurityGroups(regionId);
+      }
    }
 
    public boolean cleanupVSwitchIfOrphaned(final String regionId, String vSwitchId) {
-      return api.vSwitchApi().delete(regionId, vSwitchId) != null;
+      try {
+         return api.vSwitchApi().delete(regionId, vSwitchId) != null;
+      } finally {
+         networkResourceDirectory.invalidateVSwitches(regionId);
+      }
    }
 
    public boolean cleanupVPCIfOrphaned(final String regionId, String vpcId) {
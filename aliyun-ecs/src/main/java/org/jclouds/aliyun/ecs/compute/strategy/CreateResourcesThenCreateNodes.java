@@ -42,7 +42,6 @@ import org.jclouds.aliyun.ecs.domain.Zone;
 import org.jclouds.aliyun.ecs.domain.options.CreateSecurityGroupOptions;
 import org.jclouds.aliyun.ecs.domain.options.CreateVPCOptions;
 import org.jclouds.aliyun.ecs.domain.options.CreateVSwitchOptions;
-import org.jclouds.aliyun.ecs.domain.options.ListVSwitchesOptions;
 import org.jclouds.aliyun.ecs.domain.options.TagOptions;
 import org.jclouds.compute.config.CustomizationResponse;
 import org.jclouds.compute.domain.NodeMetadata;
@@ -70,6 +69,7 @@ import java.security.spec.RSAPublicKeySpec;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.Iterables.get;
@@ -89,6 +89,10 @@ public class CreateResourcesThenCreateNodes extends CreateNodesWithGroupEncodedI
    protected static final String VPC_PREFIX = "vpc";
 
    private final ECSComputeServiceApi api;
+   private final RegionAndZoneDirectory regionAndZoneDirectory;
+   private final InstanceTypeAvailability instanceTypeAvailability;
+   private final KeyPairIndex keyPairIndex;
+   private final NetworkResourceDirectory networkResourceDirectory;
 
    @Resource
    @Named(ComputeServiceConstants.COMPUTE_LOGGER)
@@ -99,10 +103,17 @@ public class CreateResourcesThenCreateNodes extends CreateNodesWithGroupEncodedI
                                           ListNodesStrategy listNodesStrategy, GroupNamingConvention.Factory namingConvention,
                                           @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
                                           CustomizeNodeAndAddToGoodMapOrPutExceptionIntoBadMap.Factory customizeNodeAndAddToGoodMapOrPutExceptionIntoBadMapFactory,
-                                          ECSComputeServiceApi api) {
+                                          ECSComputeServiceApi api, RegionAndZoneDirectory regionAndZoneDirectory,
+                                          InstanceTypeAvailability instanceTypeAvailability,
+                                          KeyPairIndex keyPairIndex,
+                                          NetworkResourceDirectory networkResourceDirectory) {
       super(addNodeWithGroupStrategy, listNodesStrategy, namingConvention, userExecutor,
             customizeNodeAndAddToGoodMapOrPutExceptionIntoBadMapFactory);
       this.api = api;
+      this.regionAndZoneDirectory = regionAndZoneDirectory;
+      this.instanceTypeAvailability = instanceTypeAvailability;
+      this.keyPairIndex = keyPairIndex;
+      this.networkResourceDirectory = networkResourceDirectory;
    }
 
    @Override
@@ -135,7 +146,8 @@ public class CreateResourcesThenCreateNodes extends CreateNodesWithGroupEncodedI
             vpcId = vSwitch.vpcId();
          } else {
             vpcId = createDefaultVPC(regionId, group);
-            String vSwitchId = createDefaultVSwitch(regionId, vpcId, group);
+            String vSwitchId = createDefaultVSwitch(regionId, vpcId, group,
+                  template.getHardware() == null ? null : template.getHardware().getId());
             options.vSwitchId(vSwitchId);
          }
          String createdSecurityGroupId = createSecurityGroupForOptions(group, regionId, vpcId, options);
@@ -194,41 +206,53 @@ public class CreateResourcesThenCreateNodes extends CreateNodesWithGroupEncodedI
       return vpcRequest.getVpcId();
    }
 
-   private String createDefaultVSwitch(String regionId, String vpcId, String name) {
+   private String createDefaultVSwitch(String regionId, String vpcId, String name, @Nullable String instanceTypeId) {
       String vSwitchName = String.format("%s-%s", VSWITCH_PREFIX, name);
-      Zone zone = Iterables.getFirst(api.regionAndZoneApi().describeZones(regionId), null);
+      Zone zone = findZoneOffering(regionId, instanceTypeId);
       VSwitchRequest vSwitchRequest = api.vSwitchApi().create(zone.id(), DEFAULT_CIDR_BLOCK, vpcId,
               CreateVSwitchOptions.Builder.vSwitchName(vSwitchName).description(String.format("%s - %s", vSwitchName, DEFAULT_DESCRIPTION_SUFFIX)));
+      networkResourceDirectory.invalidateVSwitches(regionId);
       return vSwitchRequest.getVSwitchId();
    }
 
-   private KeyPair getOrImportKeyPairForPublicKey(ECSServiceTemplateOptions options, String regionId) {
+   /**
+    * Picks the first zone of the region where the instance type is available, or the first zone of the region if the
+    * instance type is not known.
+    */
+   private Zone findZoneOffering(String regionId, @Nullable String instanceTypeId) {
+      List<Zone> zones = regionAndZoneDirectory.zones(regionId);
+      if (instanceTypeId != null) {
+         final Set<String> zoneIds = instanceTypeAvailability.get(regionId).zonesOffering(instanceTypeId);
+         Optional<Zone> zone = Iterables.tryFind(zones, new Predicate<Zone>() {
+            @Override
+            public boolean apply(Zone input) {
+               return zoneIds.contains(input.id());
+            }
+         });
+         if (zone.isPresent()) {
+            return zone.get();
+         }
+         logger.warn(">> instance type %s is not available in any zone of region %s", instanceTypeId, regionId);
+      }
+      return Iterables.getFirst(zones, null);
+   }
+
+   private KeyPair getOrImportKeyPairForPublicKey(final ECSServiceTemplateOptions options, final String regionId) {
       logger.debug(">> checking if the key pair already exists...");
       PublicKey userKey = readPublicKey(options.getPublicKey());
       final String fingerprint = computeFingerprint(userKey);
-      KeyPair keyPair;
-
-      synchronized (CreateResourcesThenCreateNodes.class) {
-         Optional<KeyPair> keyPairOptional = Iterables
-               .tryFind(api.sshKeyPairApi().list(regionId).concat(), new Predicate<KeyPair>() {
-                  @Override
-                  public boolean apply(KeyPair input) {
-                     return input.keyPairFingerPrint().equals(fingerprint.replace(":", ""));
-                  }
-               });
-         if (!keyPairOptional.isPresent()) {
+      return keyPairIndex.getOrImport(regionId, fingerprint.replace(":", ""), new Callable<KeyPair>() {
+         @Override
+         public KeyPair call() {
             logger.debug(">> key pair not found. Importing a new key pair %s ...", fingerprint);
-            keyPair = api.sshKeyPairApi().importKeyPair(
+            KeyPair keyPair = api.sshKeyPairApi().importKeyPair(
                     regionId,
                     options.getPublicKey(),
                     namingConvention.create().uniqueNameForGroup(JCLOUDS_KEYPAIR_IMPORTED));
             logger.debug(">> key pair imported! %s", keyPair);
-         } else {
-            logger.debug(">> key pair found for key %s", fingerprint);
-            keyPair = keyPairOptional.get();
+            return keyPair;
          }
-         return keyPair;
-      }
+      });
    }
 
    private KeyPairRequest generateKeyPair(String regionId, String uniqueNameForGroup) {
@@ -243,19 +267,13 @@ public class CreateResourcesThenCreateNodes extends CreateNodesWithGroupEncodedI
       final String securityGroupId = Iterables.get(securityGroups, 0, null);
 
       if (securityGroupId != null) {
-         return api.securityGroupApi().list(regionId).concat().firstMatch(new Predicate<SecurityGroup>() {
-            @Override
-            public boolean apply(@Nullable SecurityGroup input) {
-               return securityGroupId.equals(input.id());
-            }
-         });
+         return networkResourceDirectory.securityGroup(regionId, securityGroupId);
       }
       return Optional.absent();
    }
 
    private VSwitch tryFindVSwitch(String regionId, String vSwitchId) {
-      ListVSwitchesOptions listVSwitchesOptions = ListVSwitchesOptions.Builder.vSwitchId(vSwitchId);
-      Optional<VSwitch> optionalVSwitch = api.vSwitchApi().list(regionId, listVSwitchesOptions).first();
+      Optional<VSwitch> optionalVSwitch = networkResourceDirectory.vSwitch(regionId, vSwitchId);
       if (!optionalVSwitch.isPresent()) {
          String message = String.format("Cannot find a valid vSwitch with id (%s) within region (%s)",
                  vSwitchId,
@@ -266,8 +284,7 @@ public class CreateResourcesThenCreateNodes extends CreateNodesWithGroupEncodedI
    }
 
    private Optional<VSwitch> tryFindVSwitchInVPC(String regionId, String vpcId, String vSwitchId) {
-      ListVSwitchesOptions listVSwitchesOptions = ListVSwitchesOptions.Builder.vpcId(vpcId).vSwitchId(vSwitchId);
-      return api.vSwitchApi().list(regionId, listVSwitchesOptions).first();
+      return networkResourceDirectory.vSwitchInVPC(regionId, vpcId, vSwitchId);
    }
 
    private String createSecurityGroupForOptions(String group, String regionId, String vpcId,
@@ -293,6 +310,7 @@ public class CreateResourcesThenCreateNodes extends CreateNodesWithGroupEncodedI
               TagOptions.Builder
                       .tag(1, Tag.DEFAULT_OWNER_KEY, Tag.DEFAULT_OWNER_VALUE)
                       .tag(2, Tag.GROUP, group));
+      networkResourceDirectory.invalidateSecurityGroups(regionId);
       return securityGroupRequest.getSecurityGroupId();
    }
 
@@ -322,6 +340,7 @@ public class CreateResourcesThenCreateNodes extends CreateNodesWithGroupEncodedI
             logger.debug(">> cleaning up auto-generated key pairs...");
             try {
                api.sshKeyPairApi().delete(regionId, keyPairName);
+               keyPairIndex.remove(regionId, keyPairName);
             } catch (Exception ex) {
                logger.warn(">> could not delete key pair %s: %s", keyPairName, ex.getMessage());
             }
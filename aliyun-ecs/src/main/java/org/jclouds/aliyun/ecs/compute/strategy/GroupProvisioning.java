@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.strategy;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.SettableFuture;
+import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
+import org.jclouds.aliyun.ecs.domain.Instance;
+import org.jclouds.aliyun.ecs.domain.options.ListInstancesOptions;
+import org.jclouds.aliyun.ecs.domain.options.PaginationOptions;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.collect.Maps.newConcurrentMap;
+import static org.jclouds.aliyun.ecs.domain.options.ListInstancesOptions.MAX_INSTANCE_IDS;
+
+/**
+ * Describes the instances that have just been provisioned, coalescing the requests of the nodes being created at the
+ * same time in a region into a single {@code DescribeInstances} call.
+ * <p>
+ * A node never waits for the rest of its group: the first node to ask describes its instance right away, and the
+ * nodes that ask while that call is in flight are described together by the next call, issued by the thread that
+ * finishes the current one. The nodes of a group become ready on the same status sweep, so most of a group is
+ * described with one call.
+ */
+@Singleton
+public class GroupProvisioning {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final ECSComputeServiceApi api;
+   private final long timeoutMillis;
+   private final ConcurrentMap<String, RegionRefresh> refreshes = newConcurrentMap();
+
+   @Inject
+   GroupProvisioning(ECSComputeServiceApi api, ComputeServiceConstants.Timeouts timeouts) {
+      this(api, timeouts.nodeSuspended);
+   }
+
+   @VisibleForTesting
+   public GroupProvisioning(ECSComputeServiceApi api, long timeoutMillis) {
+      this.api = api;
+      this.timeoutMillis = timeoutMillis;
+   }
+
+   /**
+    * Returns the description of an instance that has just been provisioned.
+    */
+   public Instance refresh(String regionId, String instanceId) {
+      RegionRefresh refresh = refreshes.get(regionId);
+      if (refresh == null) {
+         RegionRefresh created = new RegionRefresh(regionId);
+         refresh = refreshes.putIfAbsent(regionId, created);
+         if (refresh == null) {
+            refresh = created;
+         }
+      }
+      SettableFuture<Instance> refreshed = refresh.add(instanceId);
+      refresh.drain();
+      try {
+         return refreshed.get(timeoutMillis, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+         logger.warn(">> the description of instance %s is taking too long, describing it on its own", instanceId);
+         return describe(regionId, ImmutableList.of(instanceId)).get(instanceId);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IllegalStateException("Interrupted while describing instance " + instanceId, e);
+      } catch (ExecutionException e) {
+         throw new IllegalStateException("Could not describe instance " + instanceId, e.getCause());
+      }
+   }
+
+   private Map<String, Instance> describe(String regionId, Iterable<String> instanceIds) {
+      Map<String, Instance> instances = Maps.newHashMap();
+      for (List<String> chunk : Lists.partition(ImmutableList.copyOf(instanceIds), MAX_INSTANCE_IDS)) {
+         logger.debug(">> describing %d instances in region %s", chunk.size(), regionId);
+         for (Instance instance : api.instanceApi().list(regionId, ListInstancesOptions.Builder
+               .instanceIds(Iterables.toArray(chunk, String.class))
+               .paginationOptions(PaginationOptions.Builder.pageSize(MAX_INSTANCE_IDS)))) {
+            instances.put(instance.id(), instance);
+         }
+      }
+      return instances;
+   }
+
+   /**
+    * The instances of a region waiting to be described. At most one describe call per region is in flight, and it
+    * is issued by one of the threads waiting for it rather than by another executor.
+    */
+   private class RegionRefresh {
+      private final String regionId;
+      private final Queue<Map.Entry<String, SettableFuture<Instance>>> pending =
+            new ConcurrentLinkedQueue<Map.Entry<String, SettableFuture<Instance>>>();
+      private final AtomicBoolean describing = new AtomicBoolean();
+
+      private RegionRefresh(String regionId) {
+         this.regionId = regionId;
+      }
+
+      private SettableFuture<Instance> add(String instanceId) {
+         SettableFuture<Instance> refreshed = SettableFuture.create();
+         pending.add(Maps.immutableEntry(instanceId, refreshed));
+         return refreshed;
+      }
+
+      private void drain() {
+         // an instance added while another thread is describing is picked up by that thread once it is done
+         while (!pending.isEmpty() && describing.compareAndSet(false, true)) {
+            try {
+               Map<String, SettableFuture<Instance>> batch = Maps.newLinkedHashMap();
+               for (Map.Entry<String, SettableFuture<Instance>> entry; (entry = pending.poll()) != null; ) {
+                  batch.put(entry.getKey(), entry.getValue());
+               }
+               if (!batch.isEmpty()) {
+                  describeBatch(batch);
+               }
+            } finally {
+               describing.set(false);
+            }
+         }
+      }
+
+      private void describeBatch(Map<String, SettableFuture<Instance>> batch) {
+         try {
+            Map<String, Instance> instances = describe(regionId, batch.keySet());
+            for (Map.Entry<String, SettableFuture<Instance>> entry : batch.entrySet()) {
+               Instance instance = instances.get(entry.getKey());
+               if (instance != null) {
+                  entry.getValue().set(instance);
+               } else {
+                  entry.getValue().setException(new IllegalStateException("Instance " + entry.getKey() + " not found"));
+               }
+            }
+         } catch (RuntimeException e) {
+            for (SettableFuture<Instance> future : batch.values()) {
+               future.setException(e);
+            }
+         }
+      }
+   }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.strategy;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
+import org.jclouds.aliyun.ecs.domain.Image;
+import org.jclouds.aliyun.ecs.domain.regionscoped.ImageInRegion;
+import org.jclouds.aliyun.ecs.domain.regionscoped.RegionAndId;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+
+/**
+ * Keeps the images of each region in memory, indexed by id.
+ * <p>
+ * A region is loaded the first time it is requested and reloaded in the background once the session interval has
+ * elapsed. Images that did not change across a reload keep their instance, so conversions cached by identity remain
+ * valid.
+ */
+@Singleton
+public class ImageCatalog {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final LoadingCache<String, RegionImages> catalog;
+
+   @Inject
+   ImageCatalog(ECSComputeServiceApi api, @Named(PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+                @Named(PROPERTY_SESSION_INTERVAL) long seconds) {
+      this.catalog = CacheBuilder.newBuilder().refreshAfterWrite(seconds, TimeUnit.SECONDS)
+            .build(new LoadRegionImages(api, userExecutor));
+   }
+
+   /**
+    * Returns the images of the given region, loading them if the region has not been requested yet.
+    */
+   public RegionImages get(String regionId) {
+      checkNotNull(regionId, "regionId");
+      try {
+         return catalog.getUnchecked(regionId);
+      } catch (UncheckedExecutionException e) {
+         throw new IllegalStateException("Could not load the images of region " + regionId, e.getCause());
+      }
+   }
+
+   /**
+    * Looks up an image by its slash-encoded region and image id.
+    */
+   public Optional<ImageInRegion> getImage(String id) {
+      RegionAndId regionAndId = RegionAndId.fromSlashEncoded(id);
+      return Optional.fromNullable(get(regionAndId.regionId()).imagesById().get(regionAndId.id()));
+   }
+
+   /**
+    * Schedules a background reload of a region that has already been loaded, typically after an image has been
+    * created or deleted in it.
+    */
+   public void refresh(String regionId) {
+      if (catalog.getIfPresent(checkNotNull(regionId, "regionId")) != null) {
+         catalog.refresh(regionId);
+      }
+   }
+
+   /**
+    * The images of a region.
+    */
+   public static class RegionImages {
+      private final Map<String, ImageInRegion> imagesById;
+
+      @VisibleForTesting
+      RegionImages(Map<String, ImageInRegion> imagesById) {
+         this.imagesById = ImmutableMap.copyOf(imagesById);
+      }
+
+      public Map<String, ImageInRegion> imagesById() {
+         return imagesById;
+      }
+
+      public Collection<ImageInRegion> images() {
+         return imagesById.values();
+      }
+   }
+
+   private class LoadRegionImages extends CacheLoader<String, RegionImages> {
+      private final ECSComputeServiceApi api;
+      private final ListeningExecutorService userExecutor;
+
+      private LoadRegionImages(ECSComputeServiceApi api, ListeningExecutorService userExecutor) {
+         this.api = api;
+         this.userExecutor = userExecutor;
+      }
+
+      @Override
+      public RegionImages load(String regionId) {
+         return load(regionId, null);
+      }
+
+      @Override
+      public ListenableFuture<RegionImages> reload(final String regionId, final RegionImages previous) {
+         return userExecutor.submit(new Callable<RegionImages>() {
+            @Override
+            public RegionImages call() {
+               return load(regionId, previous);
+            }
+         });
+      }
+
+      private RegionImages load(String regionId, RegionImages previous) {
+         Map<String, ImageInRegion> imagesById = Maps.newLinkedHashMap();
+         boolean changed = false;
+         for (Image image : api.imageApi().list(regionId).concat()) {
+            ImageInRegion known = previous == null ? null : previous.imagesById().get(image.id());
+            if (known != null && known.image().equals(image)) {
+               imagesById.put(image.id(), known);
+            } else {
+               imagesById.put(image.id(), ImageInRegion.create(regionId, image));
+               changed = true;
+            }
+         }
+         if (previous != null && !changed && previous.imagesById().size() == imagesById.size()) {
+            logger.trace(">> images of region %s unchanged", regionId);
+            return previous;
+         }
+         logger.debug(">> loaded %d images of region %s", imagesById.size(), regionId);
+         return new RegionImages(imagesById);
+      }
+   }
+}
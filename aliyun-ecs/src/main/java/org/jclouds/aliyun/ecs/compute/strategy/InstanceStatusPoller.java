@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.strategy;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
+import org.jclouds.aliyun.ecs.domain.InstanceStatus;
+import org.jclouds.aliyun.ecs.domain.regionscoped.RegionAndId;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Maps.newConcurrentMap;
+import static org.jclouds.Constants.PROPERTY_SCHEDULER_THREADS;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+
+/**
+ * Tracks the instances jclouds is waiting on and polls their status with a single
+ * {@code DescribeInstanceStatus} sweep per region and poll tick, regardless of how many instances are pending.
+ * <p>
+ * Only the timer runs on the scheduler pool; the paged sweep itself is issued on the user executor, so that slow
+ * responses do not hold the scheduler threads shared by the rest of jclouds.
+ */
+@Singleton
+public class InstanceStatusPoller {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final ECSComputeServiceApi api;
+   private final ScheduledExecutorService scheduler;
+   private final ExecutorService userExecutor;
+   private final long pollInitialPeriod;
+   private final long pollMaxPeriod;
+   private final ConcurrentMap<String, RegionPoll> polls = newConcurrentMap();
+   private final Cache<String, Map<String, InstanceStatus.Status>> statuses;
+
+   @Inject
+   InstanceStatusPoller(ECSComputeServiceApi api,
+                        @Named(PROPERTY_SCHEDULER_THREADS) ScheduledExecutorService scheduler,
+                        @Named(PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+                        ComputeServiceConstants.PollPeriod pollPeriod) {
+      this(api, scheduler, userExecutor, pollPeriod.pollInitialPeriod, pollPeriod.pollMaxPeriod);
+   }
+
+   @VisibleForTesting
+   InstanceStatusPoller(ECSComputeServiceApi api, ScheduledExecutorService scheduler, ExecutorService userExecutor,
+                        long pollInitialPeriod, long pollMaxPeriod) {
+      this.api = api;
+      this.scheduler = scheduler;
+      this.userExecutor = userExecutor;
+      this.pollInitialPeriod = pollInitialPeriod;
+      this.pollMaxPeriod = pollMaxPeriod;
+      // a sweep is shared by every caller asking for the same region within a poll period
+      this.statuses = CacheBuilder.newBuilder().expireAfterWrite(pollInitialPeriod, TimeUnit.MILLISECONDS).build();
+   }
+
+   /**
+    * Returns the current status of an instance, or absent if the instance does not exist.
+    */
+   public Optional<InstanceStatus.Status> currentStatus(RegionAndId regionAndId) {
+      return Optional.fromNullable(statuses(regionAndId.regionId()).get(regionAndId.id()));
+   }
+
+   /**
+    * Returns a future that completes with {@code true} once the instance reaches the given status, or with
+    * {@code false} if it has not reached it within the timeout.
+    */
+   public ListenableFuture<Boolean> awaitStatus(RegionAndId regionAndId, InstanceStatus.Status status,
+                                                long timeoutMillis) {
+      return await(regionAndId, Optional.of(checkNotNull(status, "status")), timeoutMillis);
+   }
+
+   /**
+    * Returns a future that completes with {@code true} once the instance no longer exists, or with {@code false}
+    * if it still exists after the timeout.
+    */
+   public ListenableFuture<Boolean> awaitTerminated(RegionAndId regionAndId, long timeoutMillis) {
+      return await(regionAndId, Optional.<InstanceStatus.Status>absent(), timeoutMillis);
+   }
+
+   private ListenableFuture<Boolean> await(RegionAndId regionAndId, Optional<InstanceStatus.Status> status,
+                                           long timeoutMillis) {
+      Waiter waiter = new Waiter(regionAndId.id(), status, System.currentTimeMillis() + timeoutMillis);
+      RegionPoll poll = polls.get(regionAndId.regionId());
+      if (poll == null) {
+         RegionPoll created = new RegionPoll(regionAndId.regionId());
+         poll = polls.putIfAbsent(regionAndId.regionId(), created);
+         if (poll == null) {
+            poll = created;
+         }
+      }
+      poll.add(waiter);
+      return waiter.future;
+   }
+
+   @VisibleForTesting
+   Map<String, InstanceStatus.Status> statuses(final String regionId) {
+      try {
+         return statuses.get(regionId, new Callable<Map<String, InstanceStatus.Status>>() {
+            @Override
+            public Map<String, InstanceStatus.Status> call() {
+               ImmutableMap.Builder<String, InstanceStatus.Status> builder = ImmutableMap.builder();
+               for (InstanceStatus instanceStatus : api.instanceApi().listInstanceStatus(regionId).concat()) {
+                  builder.put(instanceStatus.instanceId().toLowerCase(), instanceStatus.status());
+               }
+               return builder.build();
+            }
+         });
+      } catch (ExecutionException e) {
+         throw new IllegalStateException("Could not list the instance status in region " + regionId, e.getCause());
+      } catch (UncheckedExecutionException e) {
+         throw new IllegalStateException("Could not list the instance status in region " + regionId, e.getCause());
+      }
+   }
+
+   private static class Waiter {
+      private final String instanceId;
+      private final Optional<InstanceStatus.Status> status;
+      private final long deadline;
+      private final SettableFuture<Boolean> future = SettableFuture.create();
+
+      private Waiter(String instanceId, Optional<InstanceStatus.Status> status, long deadline) {
+         this.instanceId = instanceId.toLowerCase();
+         this.status = status;
+         this.deadline = deadline;
+      }
+
+      private boolean isReached(Map<String, InstanceStatus.Status> statuses) {
+         InstanceStatus.Status current = statuses.get(instanceId);
+         return status.isPresent() ? status.get() == current : current == null;
+      }
+   }
+
+   /**
+    * The waiters of a region. A tick is scheduled only while there are waiters, and the poll period backs off
+    * from the initial to the maximum period while none of them make progress.
+    */
+   private class RegionPoll implements Runnable {
+      private final String regionId;
+      private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<Waiter>();
+      private final AtomicBoolean scheduled = new AtomicBoolean();
+      private volatile long period = pollInitialPeriod;
+      // fired by the scheduler; hands the sweep over to the user executor
+      private final Runnable tick = new Runnable() {
+         @Override
+         public void run() {
+            try {
+               userExecutor.execute(RegionPoll.this);
+            } catch (RejectedExecutionException e) {
+               logger.debug(">> not polling the instance status in region %s: %s", regionId, e.getMessage());
+               // nothing will poll for them anymore
+               for (Waiter waiter; (waiter = waiters.poll()) != null; ) {
+                  waiter.future.setException(e);
+               }
+               scheduled.set(false);
+               // a waiter added meanwhile gets a tick of its own, which fails it the same way
+               if (!waiters.isEmpty() && scheduled.compareAndSet(false, true)) {
+                  scheduler.schedule(tick, 0, TimeUnit.MILLISECONDS);
+               }
+            }
+         }
+      };
+
+      private RegionPoll(String regionId) {
+         this.regionId = regionId;
+      }
+
+      private void add(Waiter waiter) {
+         waiters.add(waiter);
+         if (scheduled.compareAndSet(false, true)) {
+            period = pollInitialPeriod;
+            scheduler.schedule(tick, pollInitialPeriod, TimeUnit.MILLISECONDS);
+         }
+      }
+
+      @Override
+      public void run() {
+         boolean progress = false;
+         try {
+            Map<String, InstanceStatus.Status> current = statuses(regionId);
+            long now = System.currentTimeMillis();
+            for (Iterator<Waiter> it = waiters.iterator(); it.hasNext(); ) {
+               Waiter waiter = it.next();
+               if (waiter.isReached(current)) {
+                  waiter.future.set(true);
+                  it.remove();
+                  progress = true;
+               } else if (now >= waiter.deadline) {
+                  waiter.future.set(false);
+                  it.remove();
+               }
+            }
+         } catch (RuntimeException e) {
+            logger.warn(e, ">> could not poll the instance status in region %s, will retry", regionId);
+            failExpiredWaiters(e);
+         }
+         period = progress ? pollInitialPeriod : Math.min(period * 2, pollMaxPeriod);
+         scheduled.set(false);
+         // a waiter added while this tick was running must not be left without a scheduled tick
+         if (!waiters.isEmpty() && scheduled.compareAndSet(false, true)) {
+            scheduler.schedule(tick, period, TimeUnit.MILLISECONDS);
+         }
+      }
+
+      private void failExpiredWaiters(RuntimeException e) {
+         long now = System.currentTimeMillis();
+         for (Iterator<Waiter> it = waiters.iterator(); it.hasNext(); ) {
+            Waiter waiter = it.next();
+            if (now >= waiter.deadline) {
+               waiter.future.setException(e);
+               it.remove();
+            }
+         }
+      }
+   }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.strategy;
+
+import com.google.common.base.Function;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
+import org.jclouds.aliyun.ecs.domain.Instance;
+import org.jclouds.aliyun.ecs.domain.Tag;
+import org.jclouds.aliyun.ecs.domain.options.ListInstancesOptions;
+import org.jclouds.aliyun.ecs.domain.options.PaginationOptions;
+import org.jclouds.aliyun.ecs.domain.options.TagOptions;
+import org.jclouds.collect.IterableWithMarker;
+import org.jclouds.collect.PagedIterable;
+import org.jclouds.collect.PagedIterables;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
+import static org.jclouds.aliyun.ecs.domain.options.ListInstancesOptions.MAX_INSTANCE_IDS;
+
+/**
+ * Indexes the instances of each region by tag, so that the instances carrying a tag, such as the group tag, can be
+ * described by id instead of listing the whole region.
+ * <p>
+ * The ids carrying a tag are found with a single listing filtered by that tag, the first time the tag is looked up,
+ * and looked up again once the session interval has elapsed. Instances created or destroyed through the compute
+ * service are added to or dropped from the tags already indexed.
+ */
+@Singleton
+public class InstanceTagIndex {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final ECSComputeServiceApi api;
+   private final LoadingCache<String, Cache<Tag, Set<String>>> regions;
+
+   @Inject
+   public InstanceTagIndex(ECSComputeServiceApi api, @Named(PROPERTY_SESSION_INTERVAL) final long seconds) {
+      this.api = api;
+      this.regions = CacheBuilder.newBuilder().build(new CacheLoader<String, Cache<Tag, Set<String>>>() {
+         @Override
+         public Cache<Tag, Set<String>> load(String regionId) {
+            return CacheBuilder.newBuilder().expireAfterWrite(seconds, TimeUnit.SECONDS).build();
+         }
+      });
+   }
+
+   /**
+    * Returns the instances of the region that carry the given tag.
+    */
+   public List<Instance> instancesTagged(String regionId, Tag tag) {
+      checkNotNull(tag, "tag");
+      Cache<Tag, Set<String>> byTag = regions.getUnchecked(checkNotNull(regionId, "regionId"));
+      Set<String> ids = byTag.getIfPresent(tag);
+      if (ids == null) {
+         return indexTag(regionId, tag, byTag);
+      }
+
+      List<String> indexed;
+      synchronized (ids) {
+         indexed = ImmutableList.copyOf(ids);
+      }
+      ImmutableList.Builder<Instance> instances = ImmutableList.builder();
+      for (List<String> chunk : Lists.partition(indexed, MAX_INSTANCE_IDS)) {
+         Set<String> missing = Sets.newHashSet(chunk);
+         for (Instance instance : api.instanceApi().list(regionId, ListInstancesOptions.Builder
+               .instanceIds(Iterables.toArray(chunk, String.class))
+               .paginationOptions(PaginationOptions.Builder.pageSize(MAX_INSTANCE_IDS)))) {
+            missing.remove(instance.id());
+            instances.add(instance);
+         }
+         // deleted outside of the compute service
+         ids.removeAll(missing);
+      }
+      return instances.build();
+   }
+
+   /**
+    * Adds a new instance to the tags that are already indexed.
+    */
+   public void add(String regionId, Map<String, String> tags, String instanceId) {
+      Cache<Tag, Set<String>> byTag = regions.getIfPresent(checkNotNull(regionId, "regionId"));
+      if (byTag == null) {
+         return;
+      }
+      for (Map.Entry<String, String> tag : tags.entrySet()) {
+         // tags that are not indexed yet will be found by the listing that indexes them
+         Set<String> ids = byTag.getIfPresent(Tag.create(tag.getKey(), tag.getValue()));
+         if (ids != null) {
+            ids.add(instanceId);
+         }
+      }
+   }
+
+   /**
+    * Drops an instance that has been destroyed.
+    */
+   public void remove(String regionId, String instanceId) {
+      Cache<Tag, Set<String>> byTag = regions.getIfPresent(checkNotNull(regionId, "regionId"));
+      if (byTag == null) {
+         return;
+      }
+      for (Set<String> ids : byTag.asMap().values()) {
+         ids.remove(instanceId);
+      }
+   }
+
+   private List<Instance> indexTag(String regionId, Tag tag, Cache<Tag, Set<String>> byTag) {
+      List<Instance> instances = listInstances(api, regionId, ListInstancesOptions.Builder
+            .tagOptions(TagOptions.Builder.tag(1, tag.key(), tag.value()))).concat().toList();
+      Set<String> ids = Collections.synchronizedSet(new LinkedHashSet<String>());
+      for (Instance instance : instances) {
+         ids.add(instance.id());
+      }
+      Set<String> indexed = byTag.asMap().putIfAbsent(tag, ids);
+      if (indexed != null) {
+         // indexed concurrently
+         indexed.addAll(ids);
+      }
+      logger.debug(">> indexed %d instances tagged %s=%s in region %s", ids.size(), tag.key(), tag.value(), regionId);
+      return instances;
+   }
+
+   /**
+    * Lists the instances of a region that match the given options, following every page of the listing.
+    */
+   public static PagedIterable<Instance> listInstances(final ECSComputeServiceApi api, final String regionId,
+                                                       final ListInstancesOptions options) {
+      return PagedIterables.advance(api.instanceApi().list(regionId, options),
+            new Function<Object, IterableWithMarker<Instance>>() {
+               @Override
+               public IterableWithMarker<Instance> apply(Object marker) {
+                  return api.instanceApi().list(regionId, options.page(PaginationOptions.class.cast(marker)));
+               }
+            });
+   }
+}
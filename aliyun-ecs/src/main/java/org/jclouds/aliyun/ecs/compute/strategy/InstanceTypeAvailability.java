@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.strategy;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
+import org.jclouds.aliyun.ecs.domain.AvailableResource;
+import org.jclouds.aliyun.ecs.domain.AvailableZone;
+import org.jclouds.aliyun.ecs.domain.InstanceType;
+import org.jclouds.aliyun.ecs.domain.SupportedResource;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+
+/**
+ * Keeps, for each region, the zones where every instance type is available, together with the instance type
+ * descriptions. Regions are described on first use and refreshed in the background once the session interval has
+ * elapsed, so hardware listing and zone placement do not walk the nested availability response on every call.
+ */
+@Singleton
+public class InstanceTypeAvailability {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final Supplier<Map<String, InstanceType>> instanceTypes;
+   private final LoadingCache<String, RegionAvailability> regions;
+
+   @Inject
+   public InstanceTypeAvailability(final ECSComputeServiceApi api,
+                                   @Named(PROPERTY_USER_THREADS) final ListeningExecutorService userExecutor,
+                                   @Named(PROPERTY_SESSION_INTERVAL) long seconds) {
+      this.instanceTypes = Suppliers.memoizeWithExpiration(new Supplier<Map<String, InstanceType>>() {
+         @Override
+         public Map<String, InstanceType> get() {
+            ImmutableMap.Builder<String, InstanceType> instanceTypes = ImmutableMap.builder();
+            for (InstanceType instanceType : api.instanceApi().listTypes()) {
+               instanceTypes.put(instanceType.id(), instanceType);
+            }
+            return instanceTypes.build();
+         }
+      }, seconds, TimeUnit.SECONDS);
+      this.regions = CacheBuilder.newBuilder().refreshAfterWrite(seconds, TimeUnit.SECONDS)
+            .build(new CacheLoader<String, RegionAvailability>() {
+               @Override
+               public RegionAvailability load(String regionId) {
+                  RegionAvailability availability = new RegionAvailability(
+                        api.instanceApi().listInstanceTypesByAvailableZone(regionId));
+                  logger.debug(">> %d instance types available in region %s",
+                        availability.availableInstanceTypes().size(), regionId);
+                  return availability;
+               }
+
+               @Override
+               public ListenableFuture<RegionAvailability> reload(final String regionId,
+                                                                  RegionAvailability previous) {
+                  return userExecutor.submit(new Callable<RegionAvailability>() {
+                     @Override
+                     public RegionAvailability call() {
+                        return load(regionId);
+                     }
+                  });
+               }
+            });
+   }
+
+   /**
+    * Returns the instance types offered by the provider, indexed by id, in the order they are described.
+    */
+   public Map<String, InstanceType> instanceTypes() {
+      return instanceTypes.get();
+   }
+
+   /**
+    * Returns the availability of the instance types in the given region, describing it if it has not been requested
+    * yet.
+    */
+   public RegionAvailability get(String regionId) {
+      checkNotNull(regionId, "regionId");
+      try {
+         return regions.getUnchecked(regionId);
+      } catch (UncheckedExecutionException e) {
+         throw new IllegalStateException("Could not describe the instance types available in region " + regionId,
+               e.getCause());
+      }
+   }
+
+   /**
+    * The zones of a region where each instance type is available.
+    */
+   public static class RegionAvailability {
+      private final ImmutableSetMultimap<String, String> zonesByAvailableType;
+
+      RegionAvailability(List<AvailableZone> availableZones) {
+         // a type may be listed under several resources of the same zone, which the set multimap collapses
+         ImmutableSetMultimap.Builder<String, String> zonesByAvailableType = ImmutableSetMultimap.builder();
+         for (AvailableZone availableZone : availableZones) {
+            List<AvailableResource> availableResources = availableZone.availableResources().get("AvailableResource");
+            if (availableResources == null) {
+               continue;
+            }
+            for (AvailableResource availableResource : availableResources) {
+               List<SupportedResource> supportedResources = availableResource.supportedResources()
+                     .get("SupportedResource");
+               if (supportedResources == null) {
+                  continue;
+               }
+               for (SupportedResource supportedResource : supportedResources) {
+                  if (SupportedResource.Status.AVAILABLE == supportedResource.status()) {
+                     zonesByAvailableType.put(supportedResource.value(), availableZone.zoneId());
+                  }
+               }
+            }
+         }
+         this.zonesByAvailableType = zonesByAvailableType.build();
+      }
+
+      /**
+       * Returns the instance types available in at least one zone of the region.
+       */
+      public Set<String> availableInstanceTypes() {
+         return zonesByAvailableType.keySet();
+      }
+
+      /**
+       * Returns the zones where the given instance type is available.
+       */
+      public Set<String> zonesOffering(String instanceTypeId) {
+         return zonesByAvailableType.get(instanceTypeId);
+      }
+   }
+}
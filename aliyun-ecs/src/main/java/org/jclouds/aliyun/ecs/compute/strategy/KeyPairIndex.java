@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.strategy;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
+import org.jclouds.aliyun.ecs.domain.KeyPair;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
+
+/**
+ * Indexes the key pairs of each region by fingerprint.
+ * <p>
+ * A region is listed once, the first time one of its key pairs is looked up, and listed again once the session
+ * interval has elapsed. Lookups of different fingerprints do not block each other, and concurrent lookups of the
+ * same missing fingerprint import the key pair only once.
+ */
+@Singleton
+public class KeyPairIndex {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final LoadingCache<String, Cache<String, KeyPair>> regions;
+
+   @Inject
+   public KeyPairIndex(final ECSComputeServiceApi api, @Named(PROPERTY_SESSION_INTERVAL) long seconds) {
+      this.regions = CacheBuilder.newBuilder().expireAfterWrite(seconds, TimeUnit.SECONDS)
+            .build(new CacheLoader<String, Cache<String, KeyPair>>() {
+               @Override
+               public Cache<String, KeyPair> load(String regionId) {
+                  Cache<String, KeyPair> byFingerprint = CacheBuilder.newBuilder().build();
+                  for (KeyPair keyPair : api.sshKeyPairApi().list(regionId).concat()) {
+                     byFingerprint.put(keyPair.keyPairFingerPrint(), keyPair);
+                  }
+                  logger.debug(">> indexed %d key pairs in region %s", byFingerprint.size(), regionId);
+                  return byFingerprint;
+               }
+            });
+   }
+
+   /**
+    * Returns the key pair with the given fingerprint in the region, or imports it with the given callable if the
+    * region has none.
+    */
+   public KeyPair getOrImport(String regionId, String fingerprint, Callable<KeyPair> importKeyPair) {
+      checkNotNull(fingerprint, "fingerprint");
+      try {
+         return byFingerprint(regionId).get(fingerprint, importKeyPair);
+      } catch (ExecutionException e) {
+         throw new IllegalStateException("Could not import the key pair " + fingerprint + " in region " + regionId,
+               e.getCause());
+      } catch (UncheckedExecutionException e) {
+         throw new IllegalStateException("Could not import the key pair " + fingerprint + " in region " + regionId,
+               e.getCause());
+      }
+   }
+
+   /**
+    * Drops a key pair that has been deleted from the region.
+    */
+   public void remove(String regionId, String keyPairName) {
+      Cache<String, KeyPair> byFingerprint = regions.getIfPresent(checkNotNull(regionId, "regionId"));
+      if (byFingerprint == null) {
+         return;
+      }
+      for (Map.Entry<String, KeyPair> entry : byFingerprint.asMap().entrySet()) {
+         if (entry.getValue().name().equals(keyPairName)) {
+            byFingerprint.asMap().remove(entry.getKey(), entry.getValue());
+         }
+      }
+   }
+
+   private Cache<String, KeyPair> byFingerprint(String regionId) {
+      checkNotNull(regionId, "regionId");
+      try {
+         return regions.getUnchecked(regionId);
+      } catch (UncheckedExecutionException e) {
+         throw new IllegalStateException("Could not list the key pairs of region " + regionId, e.getCause());
+      }
+   }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.strategy;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
+import org.jclouds.aliyun.ecs.domain.SecurityGroup;
+import org.jclouds.aliyun.ecs.domain.Tag;
+import org.jclouds.aliyun.ecs.domain.VSwitch;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
+
+/**
+ * Keeps the security groups and the vSwitches of each region in memory, indexed by id, by tags and by VPC.
+ * <p>
+ * A region is listed the first time it is looked up and listed again once the session interval has elapsed, or as
+ * soon as jclouds creates or deletes one of its resources. A lookup by id that misses lists the region again once,
+ * so resources created outside of jclouds are found as well.
+ */
+@Singleton
+public class NetworkResourceDirectory {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final LoadingCache<String, SecurityGroups> securityGroups;
+   private final LoadingCache<String, VSwitches> vSwitches;
+
+   @Inject
+   public NetworkResourceDirectory(final ECSComputeServiceApi api, @Named(PROPERTY_SESSION_INTERVAL) long seconds) {
+      this.securityGroups = CacheBuilder.newBuilder().expireAfterWrite(seconds, TimeUnit.SECONDS)
+            .build(new CacheLoader<String, SecurityGroups>() {
+               @Override
+               public SecurityGroups load(String regionId) {
+                  SecurityGroups securityGroups = new SecurityGroups(api.securityGroupApi().list(regionId).concat());
+                  logger.debug(">> indexed %d security groups in region %s", securityGroups.byId.size(), regionId);
+                  return securityGroups;
+               }
+            });
+      this.vSwitches = CacheBuilder.newBuilder().expireAfterWrite(seconds, TimeUnit.SECONDS)
+            .build(new CacheLoader<String, VSwitches>() {
+               @Override
+               public VSwitches load(String regionId) {
+                  VSwitches vSwitches = new VSwitches(api.vSwitchApi().list(regionId).concat());
+                  logger.debug(">> indexed %d vSwitches in region %s", vSwitches.byId.size(), regionId);
+                  return vSwitches;
+               }
+            });
+   }
+
+   public Optional<SecurityGroup> securityGroup(String regionId, String securityGroupId) {
+      checkNotNull(securityGroupId, "securityGroupId");
+      SecurityGroup securityGroup = get(securityGroups, regionId).byId.get(securityGroupId);
+      if (securityGroup == null) {
+         securityGroups.invalidate(regionId);
+         securityGroup = get(securityGroups, regionId).byId.get(securityGroupId);
+      }
+      return Optional.fromNullable(securityGroup);
+   }
+
+   /**
+    * Returns the security groups of the region whose tags are exactly the given ones.
+    */
+   public List<SecurityGroup> securityGroupsTagged(String regionId, Set<Tag> tags) {
+      return get(securityGroups, regionId).byTags.get(ImmutableSet.copyOf(tags));
+   }
+
+   public Optional<VSwitch> vSwitch(String regionId, String vSwitchId) {
+      checkNotNull(vSwitchId, "vSwitchId");
+      VSwitch vSwitch = get(vSwitches, regionId).byId.get(vSwitchId);
+      if (vSwitch == null) {
+         vSwitches.invalidate(regionId);
+         vSwitch = get(vSwitches, regionId).byId.get(vSwitchId);
+      }
+      return Optional.fromNullable(vSwitch);
+   }
+
+   public Optional<VSwitch> vSwitchInVPC(String regionId, String vpcId, String vSwitchId) {
+      Optional<VSwitch> vSwitch = vSwitch(regionId, vSwitchId);
+      return vSwitch.isPresent() && vSwitch.get().vpcId().equals(vpcId) ? vSwitch : Optional.<VSwitch>absent();
+   }
+
+   public List<VSwitch> vSwitchesInVPC(String regionId, String vpcId) {
+      return get(vSwitches, regionId).byVpcId.get(vpcId);
+   }
+
+   /**
+    * Lists the security groups of the region again on the next lookup, after one of them has been created, changed
+    * or deleted.
+    */
+   public void invalidateSecurityGroups(String regionId) {
+      securityGroups.invalidate(checkNotNull(regionId, "regionId"));
+   }
+
+   /**
+    * Lists the vSwitches of the region again on the next lookup, after one of them has been created or deleted.
+    */
+   public void invalidateVSwitches(String regionId) {
+      vSwitches.invalidate(checkNotNull(regionId, "regionId"));
+   }
+
+   private static <T> T get(LoadingCache<String, T> cache, String regionId) {
+      checkNotNull(regionId, "regionId");
+      try {
+         return cache.getUnchecked(regionId);
+      } catch (UncheckedExecutionException e) {
+         throw new IllegalStateException("Could not list the network resources of region " + regionId, e.getCause());
+      }
+   }
+
+   private static class SecurityGroups {
+      private final Map<String, SecurityGroup> byId;
+      private final ImmutableListMultimap<Set<Tag>, SecurityGroup> byTags;
+
+      private SecurityGroups(Iterable<SecurityGroup> securityGroups) {
+         ImmutableMap.Builder<String, SecurityGroup> byId = ImmutableMap.builder();
+         ImmutableListMultimap.Builder<Set<Tag>, SecurityGroup> byTags = ImmutableListMultimap.builder();
+         for (SecurityGroup securityGroup : securityGroups) {
+            byId.put(securityGroup.id(), securityGroup);
+            // the tags are wrapped in a single entry, as they are in the DescribeSecurityGroups response
+            List<Tag> tags = Iterables.getFirst(securityGroup.tags().values(), ImmutableList.<Tag>of());
+            byTags.put(ImmutableSet.copyOf(tags), securityGroup);
+         }
+         this.byId = byId.build();
+         this.byTags = byTags.build();
+      }
+   }
+
+   private static class VSwitches {
+      private final Map<String, VSwitch> byId;
+      private final ImmutableListMultimap<String, VSwitch> byVpcId;
+
+      private VSwitches(Iterable<VSwitch> vSwitches) {
+         ImmutableMap.Builder<String, VSwitch> byId = ImmutableMap.builder();
+         ImmutableListMultimap.Builder<String, VSwitch> byVpcId = ImmutableListMultimap.builder();
+         for (VSwitch vSwitch : vSwitches) {
+            byId.put(vSwitch.id(), vSwitch);
+            byVpcId.put(vSwitch.vpcId(), vSwitch);
+         }
+         this.byId = byId.build();
+         this.byVpcId = byVpcId.build();
+      }
+   }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.strategy;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
+import org.jclouds.aliyun.ecs.domain.Region;
+import org.jclouds.aliyun.ecs.domain.Zone;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
+
+/**
+ * Keeps the regions and the zones of each region, which rarely change, so that adapter operations and resource
+ * creation do not describe them on every call. Entries are refreshed once the session interval has elapsed.
+ */
+@Singleton
+public class RegionAndZoneDirectory {
+
+   private final Supplier<List<Region>> regions;
+   private final LoadingCache<String, List<Zone>> zones;
+
+   @Inject
+   public RegionAndZoneDirectory(final ECSComputeServiceApi api, @Named(PROPERTY_SESSION_INTERVAL) long seconds) {
+      this.regions = Suppliers.memoizeWithExpiration(new Supplier<List<Region>>() {
+         @Override
+         public List<Region> get() {
+            return ImmutableList.copyOf(api.regionAndZoneApi().describeRegions());
+         }
+      }, seconds, TimeUnit.SECONDS);
+      this.zones = CacheBuilder.newBuilder().expireAfterWrite(seconds, TimeUnit.SECONDS)
+            .build(new CacheLoader<String, List<Zone>>() {
+               @Override
+               public List<Zone> load(String regionId) {
+                  return ImmutableList.copyOf(api.regionAndZoneApi().describeZones(regionId));
+               }
+            });
+   }
+
+   public List<Region> regions() {
+      return regions.get();
+   }
+
+   public List<Zone> zones(String regionId) {
+      return zones.getUnchecked(regionId);
+   }
+
+   /**
+    * Discards the zones known for a region, so that the next lookup describes them again.
+    */
+   public void invalidateZones(String regionId) {
+      zones.invalidate(regionId);
+   }
+}
@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.strategy;
+
+import com.google.common.base.Function;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.google.common.base.Throwables.propagate;
+import static com.google.common.collect.Maps.newConcurrentMap;
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+import static org.jclouds.aliyun.ecs.compute.config.ECSComputeServiceProperties.REGION_LISTING_TIMEOUT;
+import static org.jclouds.aliyun.ecs.compute.config.ECSComputeServiceProperties.REGION_REQUESTS_PER_SECOND;
+
+/**
+ * Runs a listing against several regions concurrently.
+ * <p>
+ * Listings started against the same region are rate limited, and the results are merged in the order the regions
+ * answer. Every request must answer within
+ * {@link org.jclouds.aliyun.ecs.compute.config.ECSComputeServiceProperties#REGION_LISTING_TIMEOUT} of being let
+ * through by the rate limiter, so that requests held back by the limit of a busy region are not taken for requests the
+ * region does not answer. By default a request that fails or does not answer in time is logged and left out, so that
+ * it does not stall or fail the whole listing. Lookups whose callers cannot tell a missing result from a failed
+ * request, such as listing instances by id, use the {@code listAll} variants instead, which fail when any request
+ * does.
+ * <p>
+ * The Joyent provider has a counterpart, {@code DatacenterFanOut}, with the same timeout semantics. Provider modules
+ * do not depend on each other, and the two differ in how they bound the requests they start: ECS throttles its API
+ * per region and action, so requests are rate limited per region here, while Joyent bounds the calls in flight.
+ */
+@Singleton
+public class RegionFanOut {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final ListeningExecutorService userExecutor;
+   private final double requestsPerSecond;
+   private final long timeoutMillis;
+   private final ConcurrentMap<String, RateLimiter> rateLimiters = newConcurrentMap();
+
+   @Inject
+   public RegionFanOut(@Named(PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+                       @Named(REGION_REQUESTS_PER_SECOND) double requestsPerSecond,
+                       @Named(REGION_LISTING_TIMEOUT) long timeoutMillis) {
+      this.userExecutor = userExecutor;
+      this.requestsPerSecond = requestsPerSecond;
+      this.timeoutMillis = timeoutMillis;
+   }
+
+   /**
+    * Starts the listing of every region and returns an iterable that yields the results of each region as soon as
+    * they are available.
+    */
+   public <T> FluentIterable<T> list(Iterable<String> regionIds, Function<String, ? extends Iterable<T>> listing) {
+      return list(byRegion(regionIds), perRegion(listing), true);
+   }
+
+   /**
+    * Like {@link #list(Iterable, Function)}, but iterating the results fails if any region fails or does not answer
+    * in time, instead of leaving its results out.
+    */
+   public <T> FluentIterable<T> listAll(Iterable<String> regionIds, Function<String, ? extends Iterable<T>> listing) {
+      return list(byRegion(regionIds), perRegion(listing), false);
+   }
+
+   /**
+    * Starts every listing request, each one against the region it is keyed by, and returns an iterable that yields
+    * the results of each request as soon as they are available.
+    */
+   public <R, T> FluentIterable<T> list(Multimap<String, R> requestsByRegion,
+                                        final Function<Map.Entry<String, R>, ? extends Iterable<T>> listing) {
+      return list(requestsByRegion, listing, true);
+   }
+
+   /**
+    * Like {@link #list(Multimap, Function)}, but iterating the results fails if any request fails or does not
+    * complete in time, instead of leaving its results out.
+    */
+   public <R, T> FluentIterable<T> listAll(Multimap<String, R> requestsByRegion,
+                                           final Function<Map.Entry<String, R>, ? extends Iterable<T>> listing) {
+      return list(requestsByRegion, listing, false);
+   }
+
+   private static Multimap<String, String> byRegion(Iterable<String> regionIds) {
+      ImmutableListMultimap.Builder<String, String> requests = ImmutableListMultimap.builder();
+      for (String regionId : regionIds) {
+         requests.put(regionId, regionId);
+      }
+      return requests.build();
+   }
+
+   private static <T> Function<Map.Entry<String, String>, Iterable<T>> perRegion(
+         final Function<String, ? extends Iterable<T>> listing) {
+      return new Function<Map.Entry<String, String>, Iterable<T>>() {
+         @Override
+         public Iterable<T> apply(Map.Entry<String, String> request) {
+            return listing.apply(request.getKey());
+         }
+      };
+   }
+
+   private <R, T> FluentIterable<T> list(Multimap<String, R> requestsByRegion,
+                                         Function<Map.Entry<String, R>, ? extends Iterable<T>> listing,
+                                         final boolean skipFailures) {
+      final List<RegionRequest<R, T>> requests = Lists.newArrayList();
+      List<ListenableFuture<List<T>>> futures = Lists.newArrayList();
+      for (Map.Entry<String, R> request : requestsByRegion.entries()) {
+         RegionRequest<R, T> regionRequest = new RegionRequest<R, T>(request, listing, skipFailures);
+         regionRequest.future = userExecutor.submit(regionRequest);
+         requests.add(regionRequest);
+         futures.add(regionRequest.future);
+      }
+      return FluentIterable.from(Futures.inCompletionOrder(futures))
+            .transformAndConcat(new Function<ListenableFuture<List<T>>, List<T>>() {
+               @Override
+               public List<T> apply(ListenableFuture<List<T>> future) {
+                  return skipFailures ? getOrSkip(future, requests) : getOrFail(future, requests);
+               }
+            });
+   }
+
+   private <T> List<T> getOrSkip(ListenableFuture<List<T>> future, List<? extends RegionRequest<?, T>> requests) {
+      while (true) {
+         try {
+            return getUninterruptibly(future, nextDeadline(requests) - System.currentTimeMillis(),
+                  TimeUnit.MILLISECONDS);
+         } catch (ExecutionException e) {
+            logger.warn(e.getCause(), ">> could not list a region, skipping it: %s", e.getCause().getMessage());
+            return ImmutableList.of();
+         } catch (CancellationException e) {
+            // the region was already reported when its request timed out
+            return ImmutableList.of();
+         } catch (TimeoutException e) {
+            for (RegionRequest<?, T> request : requests) {
+               request.expireIfOverdue();
+            }
+         }
+      }
+   }
+
+   private <T> List<T> getOrFail(ListenableFuture<List<T>> future, List<? extends RegionRequest<?, T>> requests) {
+      while (true) {
+         try {
+            return getUninterruptibly(future, nextDeadline(requests) - System.currentTimeMillis(),
+                  TimeUnit.MILLISECONDS);
+         } catch (ExecutionException e) {
+            cancel(requests);
+            throw propagate(e.getCause());
+         } catch (TimeoutException e) {
+            List<String> overdue = Lists.newArrayList();
+            for (RegionRequest<?, T> request : requests) {
+               if (request.isOverdue()) {
+                  overdue.add(request.request.getKey());
+               }
+            }
+            if (!overdue.isEmpty()) {
+               cancel(requests);
+               throw new UncheckedTimeoutException(
+                     String.format("regions %s did not answer within %d ms", overdue, timeoutMillis), e);
+            }
+         }
+      }
+   }
+
+   private long nextDeadline(List<? extends RegionRequest<?, ?>> requests) {
+      long next = System.currentTimeMillis() + timeoutMillis;
+      for (RegionRequest<?, ?> request : requests) {
+         long startedAt = request.startedAt;
+         if (startedAt > 0 && !request.future.isDone()) {
+            next = Math.min(next, startedAt + timeoutMillis);
+         }
+      }
+      return next;
+   }
+
+   private static void cancel(List<? extends RegionRequest<?, ?>> requests) {
+      for (RegionRequest<?, ?> request : requests) {
+         request.future.cancel(true);
+      }
+   }
+
+   private RateLimiter rateLimiter(String regionId) {
+      RateLimiter rateLimiter = rateLimiters.get(regionId);
+      if (rateLimiter == null) {
+         RateLimiter created = RateLimiter.create(requestsPerSecond);
+         rateLimiter = rateLimiters.putIfAbsent(regionId, created);
+         if (rateLimiter == null) {
+            rateLimiter = created;
+         }
+      }
+      return rateLimiter;
+   }
+
+   private class RegionRequest<R, T> implements Callable<List<T>> {
+      private final Map.Entry<String, R> request;
+      private final Function<Map.Entry<String, R>, ? extends Iterable<T>> listing;
+      private final boolean skipFailures;
+      private volatile long startedAt;
+      private volatile ListenableFuture<List<T>> future;
+
+      private RegionRequest(Map.Entry<String, R> request, Function<Map.Entry<String, R>, ? extends Iterable<T>> listing,
+                            boolean skipFailures) {
+         this.request = request;
+         this.listing = listing;
+         this.skipFailures = skipFailures;
+      }
+
+      @Override
+      public List<T> call() {
+         rateLimiter(request.getKey()).acquire();
+         startedAt = System.currentTimeMillis();
+         try {
+            return ImmutableList.copyOf(listing.apply(request));
+         } catch (RuntimeException e) {
+            if (!skipFailures) {
+               throw e;
+            }
+            logger.warn(e, ">> could not list region %s, skipping it: %s", request.getKey(), e.getMessage());
+            return ImmutableList.of();
+         }
+      }
+
+      private boolean isOverdue() {
+         return startedAt > 0 && !future.isDone() && System.currentTimeMillis() - startedAt >= timeoutMillis;
+      }
+
+      private void expireIfOverdue() {
+         if (isOverdue()) {
+            logger.warn(">> region %s did not answer within %d ms, skipping it", request.getKey(), timeoutMillis);
+            future.cancel(true);
+         }
+      }
+   }
+}
@@ -26,6 +26,11 @@ public abstract class Tag {
    public static final String DEFAULT_OWNER_KEY = "owner";
    public static final String DEFAULT_OWNER_VALUE = "jclouds";
    public static final String GROUP = "group";
+   /**
+    * Carries the group of the instances created by the compute service. Reserved, so that it cannot collide with the
+    * tags and user metadata of the nodes.
+    */
+   public static final String NODE_GROUP = "jclouds-group";
 
    Tag() {}
 
@@ -64,6 +64,16 @@ public class ListImagesOptions extends BaseHttpRequestOptions {
       return this;
    }
 
+   /**
+    * Returns a copy of these options asking for the given page.
+    */
+   public ListImagesOptions page(final PaginationOptions paginationOptions) {
+      ListImagesOptions page = new ListImagesOptions();
+      page.queryParameters.putAll(queryParameters);
+      page.queryParameters.removeAll(PaginationOptions.PAGE_NUMBER);
+      return page.paginationOptions(paginationOptions);
+   }
+
    public static final class Builder {
 
       /**
@@ -31,6 +31,16 @@ public class ListInstanceStatusOptions extends BaseHttpRequestOptions {
       return this;
    }
 
+   /**
+    * Returns a copy of these options asking for the given page.
+    */
+   public ListInstanceStatusOptions page(final PaginationOptions paginationOptions) {
+      ListInstanceStatusOptions page = new ListInstanceStatusOptions();
+      page.queryParameters.putAll(queryParameters);
+      page.queryParameters.removeAll(PaginationOptions.PAGE_NUMBER);
+      return page.paginationOptions(paginationOptions);
+   }
+
    public static final class Builder {
 
       /**
@@ -44,6 +44,11 @@ public class ListInstancesOptions extends BaseHttpRequestOptions {
    public static final String STATUS_PARAM = "Status";
    public static final String IO_OPTIMIZED_PARAM = "IoOptimized";
 
+   /**
+    * The maximum number of ids accepted by the {@link #instanceIds(String...)} filter.
+    */
+   public static final int MAX_INSTANCE_IDS = 100;
+
    public ListInstancesOptions vpcId(String vpcId) {
       queryParameters.put(VPC_ID_PARAM, vpcId);
       return this;
@@ -152,6 +157,16 @@ public class ListInstancesOptions extends BaseHttpRequestOptions {
       return this;
    }
 
+   /**
+    * Returns a copy of these options asking for the given page.
+    */
+   public ListInstancesOptions page(final PaginationOptions paginationOptions) {
+      ListInstancesOptions page = new ListInstancesOptions();
+      page.queryParameters.putAll(queryParameters);
+      page.queryParameters.removeAll(PaginationOptions.PAGE_NUMBER);
+      return page.paginationOptions(paginationOptions);
+   }
+
    public ListInstancesOptions tagOptions(final TagOptions tagOptions) {
       this.queryParameters.putAll(tagOptions.buildQueryParameters());
       return this;
@@ -38,6 +38,16 @@ public class ListKeyPairsOptions extends BaseHttpRequestOptions {
       return this;
    }
 
+   /**
+    * Returns a copy of these options asking for the given page.
+    */
+   public ListKeyPairsOptions page(final PaginationOptions paginationOptions) {
+      ListKeyPairsOptions page = new ListKeyPairsOptions();
+      page.queryParameters.putAll(queryParameters);
+      page.queryParameters.removeAll(PaginationOptions.PAGE_NUMBER);
+      return page.paginationOptions(paginationOptions);
+   }
+
    public static final class Builder {
 
       /**
@@ -31,6 +31,16 @@ public class ListSecurityGroupsOptions extends BaseHttpRequestOptions {
       return this;
    }
 
+   /**
+    * Returns a copy of these options asking for the given page.
+    */
+   public ListSecurityGroupsOptions page(final PaginationOptions paginationOptions) {
+      ListSecurityGroupsOptions page = new ListSecurityGroupsOptions();
+      page.queryParameters.putAll(queryParameters);
+      page.queryParameters.removeAll(PaginationOptions.PAGE_NUMBER);
+      return page.paginationOptions(paginationOptions);
+   }
+
    public ListSecurityGroupsOptions tagOptions(final TagOptions tagOptions) {
       this.queryParameters.putAll(tagOptions.buildQueryParameters());
       return this;
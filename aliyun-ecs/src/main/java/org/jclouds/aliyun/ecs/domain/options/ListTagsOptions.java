@@ -37,6 +37,16 @@ public class ListTagsOptions extends BaseHttpRequestOptions {
       return this;
    }
 
+   /**
+    * Returns a copy of these options asking for the given page.
+    */
+   public ListTagsOptions page(final PaginationOptions paginationOptions) {
+      ListTagsOptions page = new ListTagsOptions();
+      page.queryParameters.putAll(queryParameters);
+      page.queryParameters.removeAll(PaginationOptions.PAGE_NUMBER);
+      return page.paginationOptions(paginationOptions);
+   }
+
    public ListTagsOptions tagOptions(final TagOptions tagOptions) {
       this.queryParameters.putAll(tagOptions.buildQueryParameters());
       return this;
@@ -37,6 +37,16 @@ public class ListVPCsOptions extends BaseHttpRequestOptions {
       return this;
    }
 
+   /**
+    * Returns a copy of these options asking for the given page.
+    */
+   public ListVPCsOptions page(final PaginationOptions paginationOptions) {
+      ListVPCsOptions page = new ListVPCsOptions();
+      page.queryParameters.putAll(queryParameters);
+      page.queryParameters.removeAll(PaginationOptions.PAGE_NUMBER);
+      return page.paginationOptions(paginationOptions);
+   }
+
    public static final class Builder {
 
       /**
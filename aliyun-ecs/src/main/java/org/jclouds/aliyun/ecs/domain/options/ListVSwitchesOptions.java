@@ -49,6 +49,16 @@ public class ListVSwitchesOptions extends BaseHttpRequestOptions {
       return this;
    }
 
+   /**
+    * Returns a copy of these options asking for the given page.
+    */
+   public ListVSwitchesOptions page(final PaginationOptions paginationOptions) {
+      ListVSwitchesOptions page = new ListVSwitchesOptions();
+      page.queryParameters.putAll(queryParameters);
+      page.queryParameters.removeAll(PaginationOptions.PAGE_NUMBER);
+      return page.paginationOptions(paginationOptions);
+   }
+
    public static final class Builder {
 
       /**
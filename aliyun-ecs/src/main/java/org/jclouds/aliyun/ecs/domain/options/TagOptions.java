@@ -30,6 +30,8 @@ import static com.google.common.base.Preconditions.checkState;
 
 public class TagOptions extends BaseHttpRequestOptions {
 
+   public static final int MAX_TAGS = 5;
+
    private static final List<String> FORBIDDEN_PREFIX = ImmutableList.of("aliyun", "acs", "http://", "https://");
    private static final String TAG_KEY_TEMPLATE = "Tag.%d.Key";
    private static final String TAG_VALUE_TEMPLATE = "Tag.%d.Value";
@@ -57,7 +59,7 @@ public class TagOptions extends BaseHttpRequestOptions {
    }
 
    public TagOptions keys(Set<String> keys) {
-      checkState(keys.size() <= 5, "keys must be <= 5");
+      checkState(keys.size() <= MAX_TAGS, "keys must be <= " + MAX_TAGS);
       int i = 1;
       for (String key : keys) {
          tag(i, key);
@@ -67,7 +69,7 @@ public class TagOptions extends BaseHttpRequestOptions {
    }
 
    public TagOptions tags(Map<String, String> tags) {
-      checkState(tags.size() <= 5, "tags size must be <= 5");
+      checkState(tags.size() <= MAX_TAGS, "tags size must be <= " + MAX_TAGS);
       int i = 1;
       for (Map.Entry<String, String> entry : tags.entrySet()) {
          tag(i, entry.getKey(), entry.getValue());
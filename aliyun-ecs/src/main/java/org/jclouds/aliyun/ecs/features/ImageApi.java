@@ -28,9 +28,10 @@ import org.jclouds.aliyun.ecs.domain.internal.PaginatedCollection;
 import org.jclouds.aliyun.ecs.domain.options.ListImagesOptions;
 import org.jclouds.aliyun.ecs.domain.options.PaginationOptions;
 import org.jclouds.aliyun.ecs.filters.FormSign;
+import org.jclouds.aliyun.ecs.filters.ThrottleRequests;
+import org.jclouds.aliyun.ecs.functions.ArgsToParallelPagedIterable;
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.collect.PagedIterable;
-import org.jclouds.collect.internal.ArgsToPagedIterable;
 import org.jclouds.http.functions.ParseJson;
 import org.jclouds.json.Json;
 import org.jclouds.rest.annotations.Fallback;
@@ -54,7 +55,7 @@ import java.util.Map;
  * https://www.alibabacloud.com/help/doc-detail/25534.htm?spm=a2c63.p38356.b99.330.79eb59abhmnMDE
  */
 @Consumes(MediaType.APPLICATION_JSON)
-@RequestFilters(FormSign.class)
+@RequestFilters({ ThrottleRequests.class, FormSign.class })
 @QueryParams(keys = {"Version", "Format", "SignatureVersion", "ServiceCode", "SignatureMethod"},
              values = {"{" + Constants.PROPERTY_API_VERSION + "}", "JSON", "1.0", "ecs", "HMAC-SHA1"})
 public interface ImageApi {
@@ -90,7 +91,7 @@ public interface ImageApi {
          }
       }
 
-      private static class ToPagedIterable extends ArgsToPagedIterable<Image, ToPagedIterable> {
+      private static class ToPagedIterable extends ArgsToParallelPagedIterable<Image, ToPagedIterable> {
 
          private final ECSComputeServiceApi api;
 
@@ -110,7 +111,7 @@ public interface ImageApi {
                public IterableWithMarker<Image> apply(Object input) {
                   ListImagesOptions options = original == null ?
                      ListImagesOptions.Builder.paginationOptions(PaginationOptions.class.cast(input)) :
-                     original.paginationOptions(PaginationOptions.class.cast(input));
+                     original.page(PaginationOptions.class.cast(input));
                   return api.imageApi().list(regionId, options);
                }
             };
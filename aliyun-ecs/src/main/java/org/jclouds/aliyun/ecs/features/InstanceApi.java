@@ -36,9 +36,10 @@ import org.jclouds.aliyun.ecs.domain.options.ListInstanceStatusOptions;
 import org.jclouds.aliyun.ecs.domain.options.ListInstancesOptions;
 import org.jclouds.aliyun.ecs.domain.options.PaginationOptions;
 import org.jclouds.aliyun.ecs.filters.FormSign;
+import org.jclouds.aliyun.ecs.filters.ThrottleRequests;
+import org.jclouds.aliyun.ecs.functions.ArgsToParallelPagedIterable;
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.collect.PagedIterable;
-import org.jclouds.collect.internal.ArgsToPagedIterable;
 import org.jclouds.http.functions.ParseJson;
 import org.jclouds.json.Json;
 import org.jclouds.rest.annotations.Fallback;
@@ -65,7 +66,7 @@ import java.util.Map;
  * https://www.alibabacloud.com/help/doc-detail/25500.htm?spm=a2c63.p38356.b99.287.129a44a8RBMBLH
  */
 @Consumes(MediaType.APPLICATION_JSON)
-@RequestFilters(FormSign.class)
+@RequestFilters({ ThrottleRequests.class, FormSign.class })
 @QueryParams(keys = { "Version", "Format", "SignatureVersion", "ServiceCode", "SignatureMethod" },
              values = {"{" + Constants.PROPERTY_API_VERSION + "}", "JSON", "1.0", "ecs", "HMAC-SHA1"})
 public interface InstanceApi {
@@ -189,7 +190,7 @@ public interface InstanceApi {
          }
       }
 
-      private static class ToPagedIterable extends ArgsToPagedIterable<Instance, ToPagedIterable> {
+      private static class ToPagedIterable extends ArgsToParallelPagedIterable<Instance, ToPagedIterable> {
 
          private ECSComputeServiceApi api;
 
@@ -209,7 +210,7 @@ public interface InstanceApi {
                public IterableWithMarker<Instance> apply(Object input) {
                   ListInstancesOptions options = original == null ?
                           ListInstancesOptions.Builder.paginationOptions(PaginationOptions.class.cast(input)) :
-                          original.paginationOptions(PaginationOptions.class.cast(input));
+                          original.page(PaginationOptions.class.cast(input));
                   return api.instanceApi().list(regionId, options);
                }
             };
@@ -233,7 +234,7 @@ public interface InstanceApi {
          }
       }
 
-      private static class ToPagedIterable extends ArgsToPagedIterable<InstanceStatus, ToPagedIterable> {
+      private static class ToPagedIterable extends ArgsToParallelPagedIterable<InstanceStatus, ToPagedIterable> {
 
          private ECSComputeServiceApi api;
 
@@ -253,7 +254,7 @@ public interface InstanceApi {
                public IterableWithMarker<InstanceStatus> apply(Object input) {
                   ListInstanceStatusOptions options = original == null ?
                           ListInstanceStatusOptions.Builder.paginationOptions(PaginationOptions.class.cast(input)) :
-                          original.paginationOptions(PaginationOptions.class.cast(input));
+                          original.page(PaginationOptions.class.cast(input));
                   return api.instanceApi().listInstanceStatus(regionId, options);
                }
             };
@@ -21,6 +21,7 @@ import org.jclouds.Fallbacks;
 import org.jclouds.aliyun.ecs.domain.Region;
 import org.jclouds.aliyun.ecs.domain.Zone;
 import org.jclouds.aliyun.ecs.filters.FormSign;
+import org.jclouds.aliyun.ecs.filters.ThrottleRequests;
 import org.jclouds.rest.annotations.Fallback;
 import org.jclouds.rest.annotations.QueryParams;
 import org.jclouds.rest.annotations.RequestFilters;
@@ -37,7 +38,7 @@ import java.util.List;
  * https://www.alibabacloud.com/help/doc-detail/25609.htm?spm=a2c63.p38356.a1.4.7dd43c1aeoTmzO
  */
 @Consumes(MediaType.APPLICATION_JSON)
-@RequestFilters(FormSign.class)
+@RequestFilters({ ThrottleRequests.class, FormSign.class })
 @QueryParams(keys = { "Version", "Format", "SignatureVersion", "ServiceCode", "SignatureMethod" },
         values = {"{" + Constants.PROPERTY_API_VERSION + "}", "JSON", "1.0", "ecs", "HMAC-SHA1"})
 public interface RegionAndZoneApi {
@@ -33,9 +33,10 @@ import org.jclouds.aliyun.ecs.domain.options.CreateSecurityGroupOptions;
 import org.jclouds.aliyun.ecs.domain.options.ListSecurityGroupsOptions;
 import org.jclouds.aliyun.ecs.domain.options.PaginationOptions;
 import org.jclouds.aliyun.ecs.filters.FormSign;
+import org.jclouds.aliyun.ecs.filters.ThrottleRequests;
+import org.jclouds.aliyun.ecs.functions.ArgsToParallelPagedIterable;
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.collect.PagedIterable;
-import org.jclouds.collect.internal.ArgsToPagedIterable;
 import org.jclouds.http.functions.ParseJson;
 import org.jclouds.json.Json;
 import org.jclouds.rest.annotations.Fallback;
@@ -61,7 +62,7 @@ import java.util.Map;
  * https://www.alibabacloud.com/help/doc-detail/25553.htm?spm=a2c63.p38356.b99.323.1a3b59abPkInRB
  */
 @Consumes(MediaType.APPLICATION_JSON)
-@RequestFilters(FormSign.class)
+@RequestFilters({ ThrottleRequests.class, FormSign.class })
 @QueryParams(keys = {"Version", "Format", "SignatureVersion", "ServiceCode", "SignatureMethod"},
         values = {"{" + Constants.PROPERTY_API_VERSION + "}", "JSON", "1.0", "ecs", "HMAC-SHA1"})
 public interface SecurityGroupApi {
@@ -97,7 +98,7 @@ public interface SecurityGroupApi {
          }
       }
 
-      private static class ToPagedIterable extends ArgsToPagedIterable<SecurityGroup, ToPagedIterable> {
+      private static class ToPagedIterable extends ArgsToParallelPagedIterable<SecurityGroup, ToPagedIterable> {
 
          private final ECSComputeServiceApi api;
 
@@ -117,7 +118,7 @@ public interface SecurityGroupApi {
                public IterableWithMarker<SecurityGroup> apply(Object input) {
                   ListSecurityGroupsOptions options = original == null ?
                           ListSecurityGroupsOptions.Builder.paginationOptions(PaginationOptions.class.cast(input)) :
-                          original.paginationOptions(PaginationOptions.class.cast(input));
+                          original.page(PaginationOptions.class.cast(input));
                   return api.securityGroupApi().list(regionId, options);
                }
             };
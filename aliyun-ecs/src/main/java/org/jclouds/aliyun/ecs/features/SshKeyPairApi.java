@@ -30,10 +30,11 @@ import org.jclouds.aliyun.ecs.domain.internal.PaginatedCollection;
 import org.jclouds.aliyun.ecs.domain.options.ListKeyPairsOptions;
 import org.jclouds.aliyun.ecs.domain.options.PaginationOptions;
 import org.jclouds.aliyun.ecs.filters.FormSign;
+import org.jclouds.aliyun.ecs.filters.ThrottleRequests;
+import org.jclouds.aliyun.ecs.functions.ArgsToParallelPagedIterable;
 import org.jclouds.aliyun.ecs.functions.ArrayToCommaSeparatedString;
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.collect.PagedIterable;
-import org.jclouds.collect.internal.ArgsToPagedIterable;
 import org.jclouds.http.functions.ParseJson;
 import org.jclouds.json.Json;
 import org.jclouds.rest.annotations.Fallback;
@@ -59,7 +60,7 @@ import java.util.Map;
  * https://www.alibabacloud.com/help/doc-detail/51771.htm?spm=a2c63.p38356.b99.338.1da53569DqQAVv
  */
 @Consumes(MediaType.APPLICATION_JSON)
-@RequestFilters(FormSign.class)
+@RequestFilters({ ThrottleRequests.class, FormSign.class })
 @QueryParams(keys = { "Version", "Format", "SignatureVersion", "ServiceCode", "SignatureMethod" },
              values = {"{" + Constants.PROPERTY_API_VERSION + "}", "JSON", "1.0", "ecs", "HMAC-SHA1"})
 public interface SshKeyPairApi {
@@ -95,7 +96,7 @@ public interface SshKeyPairApi {
          }
       }
 
-      private static class ToPagedIterable extends ArgsToPagedIterable<KeyPair, ToPagedIterable> {
+      private static class ToPagedIterable extends ArgsToParallelPagedIterable<KeyPair, ToPagedIterable> {
 
          private final ECSComputeServiceApi api;
 
@@ -115,7 +116,7 @@ public interface SshKeyPairApi {
                public IterableWithMarker<KeyPair> apply(Object input) {
                   ListKeyPairsOptions options = original == null ?
                           ListKeyPairsOptions.Builder.paginationOptions(PaginationOptions.class.cast(input)) :
-                          original.paginationOptions(PaginationOptions.class.cast(input));
+                          original.page(PaginationOptions.class.cast(input));
                   return api.sshKeyPairApi().list(regionId, options);
                }
             };
@@ -31,9 +31,10 @@ import org.jclouds.aliyun.ecs.domain.options.ListTagsOptions;
 import org.jclouds.aliyun.ecs.domain.options.PaginationOptions;
 import org.jclouds.aliyun.ecs.domain.options.TagOptions;
 import org.jclouds.aliyun.ecs.filters.FormSign;
+import org.jclouds.aliyun.ecs.filters.ThrottleRequests;
+import org.jclouds.aliyun.ecs.functions.ArgsToParallelPagedIterable;
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.collect.PagedIterable;
-import org.jclouds.collect.internal.ArgsToPagedIterable;
 import org.jclouds.http.functions.ParseJson;
 import org.jclouds.json.Json;
 import org.jclouds.rest.annotations.Fallback;
@@ -58,7 +59,7 @@ import java.util.Map;
  * https://www.alibabacloud.com/help/doc-detail/25616.htm?spm=a2c63.p38356.b99.382.580b30373FFIDb
  */
 @Consumes(MediaType.APPLICATION_JSON)
-@RequestFilters(FormSign.class)
+@RequestFilters({ ThrottleRequests.class, FormSign.class })
 @QueryParams(keys = { "Version", "Format", "SignatureVersion", "ServiceCode", "SignatureMethod" },
              values = {"{" + Constants.PROPERTY_API_VERSION + "}", "JSON", "1.0", "ecs", "HMAC-SHA1"})
 public interface TagApi {
@@ -94,7 +95,7 @@ public interface TagApi {
          }
       }
 
-      private static class ToPagedIterable extends ArgsToPagedIterable<Tag, ToPagedIterable> {
+      private static class ToPagedIterable extends ArgsToParallelPagedIterable<Tag, ToPagedIterable> {
 
          private final ECSComputeServiceApi api;
 
@@ -114,7 +115,7 @@ public interface TagApi {
                public IterableWithMarker<Tag> apply(Object input) {
                   ListTagsOptions options = original == null ?
                           ListTagsOptions.Builder.paginationOptions(PaginationOptions.class.cast(input)) :
-                          original.paginationOptions(PaginationOptions.class.cast(input));
+                          original.page(PaginationOptions.class.cast(input));
                   return api.tagApi().list(regionId, options);
                }
             };
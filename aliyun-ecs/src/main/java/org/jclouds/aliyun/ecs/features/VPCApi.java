@@ -31,9 +31,10 @@ import org.jclouds.aliyun.ecs.domain.options.CreateVPCOptions;
 import org.jclouds.aliyun.ecs.domain.options.ListVPCsOptions;
 import org.jclouds.aliyun.ecs.domain.options.PaginationOptions;
 import org.jclouds.aliyun.ecs.filters.FormSign;
+import org.jclouds.aliyun.ecs.filters.ThrottleRequests;
+import org.jclouds.aliyun.ecs.functions.ArgsToParallelPagedIterable;
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.collect.PagedIterable;
-import org.jclouds.collect.internal.ArgsToPagedIterable;
 import org.jclouds.http.functions.ParseJson;
 import org.jclouds.json.Json;
 import org.jclouds.rest.annotations.Fallback;
@@ -58,7 +59,7 @@ import java.util.Map;
  * https://www.alibabacloud.com/help/doc-detail/35737.htm?spm=a2c63.p38356.b99.44.2554c880ZhTTkh
  */
 @Consumes(MediaType.APPLICATION_JSON)
-@RequestFilters(FormSign.class)
+@RequestFilters({ ThrottleRequests.class, FormSign.class })
 @QueryParams(keys = { "Version", "Format", "SignatureVersion", "ServiceCode", "SignatureMethod" },
              values = {"{" + Constants.PROPERTY_API_VERSION + "}", "JSON", "1.0", "ecs", "HMAC-SHA1"})
 public interface VPCApi {
@@ -93,7 +94,7 @@ public interface VPCApi {
          super(json, TypeLiteral.get(VPCs.class));
       }
 
-      static class ToPagedIterable extends ArgsToPagedIterable<VPC, ToPagedIterable> {
+      static class ToPagedIterable extends ArgsToParallelPagedIterable<VPC, ToPagedIterable> {
 
          private final ECSComputeServiceApi api;
 
@@ -113,7 +114,7 @@ public interface VPCApi {
                public IterableWithMarker<VPC> apply(Object input) {
                   ListVPCsOptions options = original == null ?
                           ListVPCsOptions.Builder.paginationOptions(PaginationOptions.class.cast(input)) :
-                          original.paginationOptions(PaginationOptions.class.cast(input));
+                          original.page(PaginationOptions.class.cast(input));
                   return api.vpcApi().list(regionId, options);
                }
             };
@@ -31,9 +31,10 @@ import org.jclouds.aliyun.ecs.domain.options.CreateVSwitchOptions;
 import org.jclouds.aliyun.ecs.domain.options.ListVSwitchesOptions;
 import org.jclouds.aliyun.ecs.domain.options.PaginationOptions;
 import org.jclouds.aliyun.ecs.filters.FormSign;
+import org.jclouds.aliyun.ecs.filters.ThrottleRequests;
+import org.jclouds.aliyun.ecs.functions.ArgsToParallelPagedIterable;
 import org.jclouds.collect.IterableWithMarker;
 import org.jclouds.collect.PagedIterable;
-import org.jclouds.collect.internal.ArgsToPagedIterable;
 import org.jclouds.http.functions.ParseJson;
 import org.jclouds.json.Json;
 import org.jclouds.rest.annotations.Fallback;
@@ -58,7 +59,7 @@ import java.util.Map;
  * https://www.alibabacloud.com/help/doc-detail/35745.htm
  */
 @Consumes(MediaType.APPLICATION_JSON)
-@RequestFilters(FormSign.class)
+@RequestFilters({ ThrottleRequests.class, FormSign.class })
 @QueryParams(keys = { "Version", "Format", "SignatureVersion", "ServiceCode", "SignatureMethod" },
              values = {"{" + Constants.PROPERTY_API_VERSION + "}", "JSON", "1.0", "ecs", "HMAC-SHA1"})
 public interface VSwitchApi {
@@ -93,7 +94,7 @@ public interface VSwitchApi {
          super(json, TypeLiteral.get(VSwitches.class));
       }
 
-      static class ToPagedIterable extends ArgsToPagedIterable<VSwitch, ParseVSwitches.ToPagedIterable> {
+      static class ToPagedIterable extends ArgsToParallelPagedIterable<VSwitch, ParseVSwitches.ToPagedIterable> {
 
          private final ECSComputeServiceApi api;
 
@@ -113,7 +114,7 @@ public interface VSwitchApi {
                public IterableWithMarker<VSwitch> apply(Object input) {
                   ListVSwitchesOptions options = original == null ?
                           ListVSwitchesOptions.Builder.paginationOptions(PaginationOptions.class.cast(input)) :
-                          original.paginationOptions(PaginationOptions.class.cast(input));
+                          original.page(PaginationOptions.class.cast(input));
                   return api.vSwitchApi().list(regionId, options);
                }
             };
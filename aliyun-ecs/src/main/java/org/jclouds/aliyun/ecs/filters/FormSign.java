@@ -16,37 +16,32 @@
  */
 package org.jclouds.aliyun.ecs.filters;
 
-import com.google.common.base.Joiner;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Supplier;
-import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
-import com.google.common.io.ByteProcessor;
 import org.jclouds.crypto.Crypto;
 import org.jclouds.domain.Credentials;
 import org.jclouds.http.HttpException;
 import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpRequestFilter;
 import org.jclouds.location.Provider;
-import org.jclouds.util.Strings2;
 
+import javax.crypto.Mac;
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Iterator;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Map;
-import java.util.SimpleTimeZone;
-import java.util.SortedMap;
 import java.util.UUID;
 
 import static com.google.common.base.Charsets.UTF_8;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.io.BaseEncoding.base64;
-import static com.google.common.io.ByteStreams.readBytes;
-import static org.jclouds.crypto.Macs.asByteProcessor;
 import static org.jclouds.http.Uris.uriBuilder;
 import static org.jclouds.http.utils.Queries.queryParser;
-import static org.jclouds.util.Strings2.toInputStream;
 
 @Singleton
 public class FormSign implements HttpRequestFilter {
@@ -54,9 +49,25 @@ public class FormSign implements HttpRequestFilter {
    private static final String SEPARATOR = "&";
    public static final String ECS_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss'Z'";
 
+   private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern(ECS_DATE_FORMAT)
+         .withZone(ZoneOffset.UTC);
+   private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+   private static final Comparator<Map.Entry<String, String>> BY_KEY = new Comparator<Map.Entry<String, String>>() {
+      @Override
+      public int compare(Map.Entry<String, String> left, Map.Entry<String, String> right) {
+         return left.getKey().compareTo(right.getKey());
+      }
+   };
+
    private final Supplier<Credentials> creds;
    private final Crypto crypto;
 
+   /**
+    * The Mac of each thread, initialized with the last secret it signed with. Credentials rarely change, so the key
+    * is almost always reused.
+    */
+   private final ThreadLocal<SigningKey> signingKeys = new ThreadLocal<SigningKey>();
+
    @Inject
    FormSign(@Provider Supplier<Credentials> creds, Crypto crypto) {
       this.creds = creds;
@@ -68,10 +79,7 @@ public class FormSign implements HttpRequestFilter {
 
       Multimap<String, String> decodedParams = queryParser().apply(request.getEndpoint().getQuery());
 
-      SimpleDateFormat df = new SimpleDateFormat(ECS_DATE_FORMAT);
-      df.setTimeZone(new SimpleTimeZone(0, "GMT"));
-
-      String timestamp = df.format(new Date());
+      String timestamp = TIMESTAMP_FORMATTER.format(Instant.now());
       String signatureNonce = UUID.randomUUID().toString();
 
       decodedParams.put("AccessKeyId", currentCreds.identity);
@@ -80,7 +88,7 @@ public class FormSign implements HttpRequestFilter {
 
       String stringToSign = createStringToSign(request.getMethod(), decodedParams);
 
-      String signature = sign(stringToSign, creds.get().credential);
+      String signature = sign(stringToSign, currentCreds.credential);
       decodedParams.put("Signature", signature);
 
       request = request.toBuilder().endpoint(uriBuilder(request.getEndpoint()).query(decodedParams).build()).build();
@@ -88,10 +96,9 @@ public class FormSign implements HttpRequestFilter {
    }
 
    protected String createStringToSign(String method, Multimap<String, String> params) {
-
-      StringBuilder toSign = new StringBuilder();
-      toSign.append(method).append(SEPARATOR).append(Strings2.urlEncode("/")).append(SEPARATOR);
-      toSign.append(getCanonicalizedQueryString(params));
+      StringBuilder toSign = new StringBuilder(256);
+      toSign.append(method).append(SEPARATOR).append("%2F").append(SEPARATOR);
+      appendCanonicalizedQueryString(toSign, params);
       return toSign.toString();
    }
 
@@ -106,29 +113,93 @@ public class FormSign implements HttpRequestFilter {
     * @return A canonicalized form for the specified query string parameters.
     */
    protected String getCanonicalizedQueryString(Multimap<String, String> params) {
-      SortedMap<String, String> sorted = Maps.newTreeMap();
-      if (params == null) {
-         return "";
+      StringBuilder canonicalized = new StringBuilder(256);
+      appendCanonicalizedQueryString(canonicalized, params);
+      return canonicalized.toString();
+   }
+
+   /**
+    * Appends the URI encoded canonicalized query string in a single pass over the sorted parameters. Keys and values
+    * are encoded twice, once as query parameters and once as part of the string to sign, so every escaped character
+    * is written directly as {@code %25XX}. As in a sorted map, only the last value of a repeated key is kept.
+    */
+   private static void appendCanonicalizedQueryString(StringBuilder out, Multimap<String, String> params) {
+      if (params == null || params.isEmpty()) {
+         return;
       }
-      Iterator<Map.Entry<String, String>> pairs = params.entries().iterator();
-      while (pairs.hasNext()) {
-         Map.Entry<String, String> pair = pairs.next();
-         String key = pair.getKey();
-         String value = pair.getValue();
-         sorted.put(Strings2.urlEncode(key), Strings2.urlEncode(value));
+      @SuppressWarnings("unchecked")
+      Map.Entry<String, String>[] entries = params.entries().toArray(new Map.Entry[params.size()]);
+      // the sort is stable, so the last value of a repeated key is the last one of its run
+      Arrays.sort(entries, BY_KEY);
+      boolean first = true;
+      for (int i = 0; i < entries.length; i++) {
+         if (i + 1 < entries.length && entries[i].getKey().equals(entries[i + 1].getKey())) {
+            continue;
+         }
+         if (!first) {
+            out.append("%26");
+         }
+         first = false;
+         appendDoubleEncoded(out, entries[i].getKey());
+         out.append("%3D");
+         appendDoubleEncoded(out, entries[i].getValue());
       }
+   }
 
-      return Strings2.urlEncode(Joiner.on("&").withKeyValueSeparator("=").join(sorted));
+   private static void appendDoubleEncoded(StringBuilder out, String value) {
+      for (int i = 0; i < value.length(); i++) {
+         char c = value.charAt(i);
+         if (isUnreserved(c)) {
+            out.append(c);
+         } else if (c < 0x80) {
+            appendEscaped(out, c);
+         } else {
+            for (byte b : value.substring(i, i + Character.charCount(value.codePointAt(i))).getBytes(UTF_8)) {
+               appendEscaped(out, b & 0xFF);
+            }
+            i += Character.charCount(value.codePointAt(i)) - 1;
+         }
+      }
+   }
+
+   private static void appendEscaped(StringBuilder out, int b) {
+      out.append("%25").append(HEX[b >> 4]).append(HEX[b & 0xF]);
+   }
+
+   private static boolean isUnreserved(char c) {
+      return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+            || c == '-' || c == '_' || c == '.' || c == '~';
    }
 
    public String sign(String toSign, String credentials) {
       try {
-         ByteProcessor<byte[]> hmacSHA1 = asByteProcessor(
-                 crypto.hmacSHA1(String.format("%s&", credentials).getBytes(UTF_8)));
-         return base64().encode(readBytes(toInputStream(toSign), hmacSHA1));
+         return base64().encode(mac(credentials).doFinal(toSign.getBytes(UTF_8)));
       } catch (Exception e) {
          throw new HttpException("error signing request", e);
       }
    }
 
+   private Mac mac(String credentials) throws Exception {
+      SigningKey signingKey = signingKeys.get();
+      if (signingKey == null || !signingKey.credentials.equals(credentials)) {
+         signingKey = new SigningKey(credentials, crypto.hmacSHA1((credentials + "&").getBytes(UTF_8)));
+         signingKeys.set(signingKey);
+      }
+      return signingKey.mac;
+   }
+
+   @VisibleForTesting
+   static String formatTimestamp(Instant instant) {
+      return TIMESTAMP_FORMATTER.format(instant);
+   }
+
+   private static class SigningKey {
+      private final String credentials;
+      private final Mac mac;
+
+      private SigningKey(String credentials, Mac mac) {
+         this.credentials = credentials;
+         this.mac = mac;
+      }
+   }
 }
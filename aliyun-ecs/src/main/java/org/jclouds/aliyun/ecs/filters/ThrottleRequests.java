@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.filters;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Multimap;
+import org.jclouds.aliyun.ecs.handlers.RequestThrottle;
+import org.jclouds.http.HttpException;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpRequestFilter;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import static org.jclouds.http.utils.Queries.queryParser;
+
+/**
+ * Holds back requests for actions the API has been throttling in their region. It must run before {@link FormSign},
+ * so the signature timestamp is taken once the request is allowed through.
+ */
+@Singleton
+public class ThrottleRequests implements HttpRequestFilter {
+
+   private final RequestThrottle requestThrottle;
+
+   @Inject
+   ThrottleRequests(RequestThrottle requestThrottle) {
+      this.requestThrottle = requestThrottle;
+   }
+
+   @Override
+   public HttpRequest filter(HttpRequest request) throws HttpException {
+      Multimap<String, String> params = queryParser().apply(request.getEndpoint().getQuery());
+      requestThrottle.acquire(Iterables.getFirst(params.get("RegionId"), null),
+            Iterables.getFirst(params.get("Action"), null));
+      return request;
+   }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.functions;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Function;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.inject.Inject;
+import org.jclouds.aliyun.ecs.domain.internal.PaginatedCollection;
+import org.jclouds.aliyun.ecs.domain.options.PaginationOptions;
+import org.jclouds.collect.IterableWithMarker;
+import org.jclouds.collect.PagedIterable;
+import org.jclouds.collect.internal.ArgsToPagedIterable;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.rest.internal.GeneratedHttpRequest;
+
+import javax.inject.Named;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Throwables.propagate;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+import static org.jclouds.aliyun.ecs.compute.config.ECSComputeServiceProperties.PAGES_IN_FLIGHT;
+
+/**
+ * Turns the first page of a {@link PaginatedCollection} into a {@link PagedIterable} that fetches the remaining
+ * pages concurrently.
+ * <p>
+ * The first page tells how many pages there are, so instead of waiting for each page to request the next one, pages
+ * ahead of the one being read are requested at once. Nothing is read ahead until the reader asks for the second
+ * page, and from then on the pages read ahead never outnumber the pages already read, up to
+ * {@link org.jclouds.aliyun.ecs.compute.config.ECSComputeServiceProperties#PAGES_IN_FLIGHT}; a reader that stops
+ * early, as {@code firstMatch} does, wastes at most as many requests as it has made. Pages are still returned in
+ * order. A page that has not started when it is needed is fetched by the reading thread, so reading never waits for
+ * a busy executor.
+ */
+public abstract class ArgsToParallelPagedIterable<T, I extends ArgsToParallelPagedIterable<T, I>>
+      extends ArgsToPagedIterable<T, I> {
+
+   @Inject(optional = true)
+   @Named(PROPERTY_USER_THREADS)
+   private ListeningExecutorService userExecutor;
+
+   @Inject(optional = true)
+   @Named(PAGES_IN_FLIGHT)
+   private int pagesInFlight = 4;
+
+   private GeneratedHttpRequest request;
+
+   @Override
+   public PagedIterable<T> apply(IterableWithMarker<T> input) {
+      if (userExecutor == null || pagesInFlight < 1 || !input.nextMarker().isPresent()
+            || !(input instanceof PaginatedCollection) || ((PaginatedCollection<T>) input).getPageSize() < 1) {
+         return super.apply(input);
+      }
+      PaginatedCollection<T> first = (PaginatedCollection<T>) input;
+      int lastPage = (first.getTotalCount() + first.getPageSize() - 1) / first.getPageSize();
+      return new ParallelPagedIterable<T>(first, lastPage, markerToNextForArgs(request.getInvocation().getArgs()),
+            userExecutor, pagesInFlight);
+   }
+
+   @Override
+   public I setContext(HttpRequest request) {
+      this.request = GeneratedHttpRequest.class.cast(request);
+      return super.setContext(request);
+   }
+
+   @VisibleForTesting
+   static class ParallelPagedIterable<T> extends PagedIterable<T> {
+      private final PaginatedCollection<T> first;
+      private final int lastPage;
+      private final Function<Object, IterableWithMarker<T>> fetchPage;
+      private final Executor executor;
+      private final int pagesInFlight;
+
+      ParallelPagedIterable(PaginatedCollection<T> first, int lastPage,
+                            Function<Object, IterableWithMarker<T>> fetchPage, Executor executor, int pagesInFlight) {
+         this.first = first;
+         this.lastPage = lastPage;
+         this.fetchPage = fetchPage;
+         this.executor = executor;
+         this.pagesInFlight = pagesInFlight;
+      }
+
+      @Override
+      public Iterator<IterableWithMarker<T>> iterator() {
+         return new AbstractIterator<IterableWithMarker<T>>() {
+            private final List<PageFetch> fetches = Lists.newArrayList();
+            private int nextPage = first.getPageNumber();
+
+            @Override
+            protected IterableWithMarker<T> computeNext() {
+               if (nextPage == first.getPageNumber()) {
+                  nextPage++;
+                  return first;
+               }
+               if (nextPage > lastPage) {
+                  return endOfData();
+               }
+               int pagesRead = nextPage - first.getPageNumber();
+               if (fetches.size() < pagesRead) {
+                  fetches.add(new PageFetch(nextPage));
+               }
+               PageFetch fetch = fetches.get(pagesRead - 1);
+               startFetchesUpTo(nextPage + Math.min(pagesInFlight, pagesRead));
+               nextPage++;
+               // fetch it in this thread if the executor has not started it yet
+               fetch.run();
+               try {
+                  return Uninterruptibles.getUninterruptibly(fetch.page);
+               } catch (ExecutionException e) {
+                  throw propagate(e.getCause());
+               }
+            }
+
+            private void startFetchesUpTo(int pageNumber) {
+               for (int page = first.getPageNumber() + fetches.size() + 1; page <= Math.min(pageNumber, lastPage);
+                    page++) {
+                  PageFetch fetch = new PageFetch(page);
+                  fetches.add(fetch);
+                  executor.execute(fetch);
+               }
+            }
+         };
+      }
+
+      private class PageFetch implements Runnable {
+         private final int pageNumber;
+         private final AtomicBoolean started = new AtomicBoolean();
+         private final SettableFuture<IterableWithMarker<T>> page = SettableFuture.create();
+
+         private PageFetch(int pageNumber) {
+            this.pageNumber = pageNumber;
+         }
+
+         @Override
+         public void run() {
+            if (!started.compareAndSet(false, true)) {
+               return;
+            }
+            try {
+               page.set(fetchPage.apply(PaginationOptions.Builder.pageNumber(pageNumber)));
+            } catch (Throwable t) {
+               page.setException(t);
+            }
+         }
+      }
+   }
+}
@@ -16,12 +16,13 @@
  */
 package org.jclouds.aliyun.ecs.handlers;
 
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Multimap;
 import com.google.inject.Inject;
 import org.jclouds.aliyun.ecs.domain.ErrorMessage;
 import org.jclouds.http.HttpCommand;
 import org.jclouds.http.HttpResponse;
 import org.jclouds.http.HttpRetryHandler;
-import org.jclouds.http.HttpUtils;
 import org.jclouds.http.annotation.ClientError;
 import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
 import org.jclouds.json.Json;
@@ -30,45 +31,61 @@ import java.io.ByteArrayInputStream;
 import java.util.Set;
 
 import static org.jclouds.http.HttpUtils.closeClientButKeepContentStream;
+import static org.jclouds.http.utils.Queries.queryParser;
 
 /**
- * Handles Retryable responses with error codes in the 4xx range
+ * Handles Retryable responses with error codes in the 4xx range.
+ * <p>
+ * Throttling responses are reported to the {@link RequestThrottle}, so that the following requests for the same
+ * action and region are held back client-side, and are retried like the other retryable codes.
  */
 public class ECSErrorRetryHandler implements HttpRetryHandler {
 
+   private static final String THROTTLING = "Throttling";
+
    private final Json json;
    private final BackoffLimitedRetryHandler backoffLimitedRetryHandler;
+   private final RequestThrottle requestThrottle;
    private final Set<String> retryableCodes;
 
    @Inject
    public ECSErrorRetryHandler(Json json, BackoffLimitedRetryHandler backoffLimitedRetryHandler,
-         @ClientError Set<String> retryableCodes) {
+         RequestThrottle requestThrottle, @ClientError Set<String> retryableCodes) {
       this.json = json;
       this.backoffLimitedRetryHandler = backoffLimitedRetryHandler;
+      this.requestThrottle = requestThrottle;
       this.retryableCodes = retryableCodes;
    }
 
    @Override
    public boolean shouldRetryRequest(HttpCommand command, HttpResponse response) {
-      byte[] content = HttpUtils.closeClientButKeepContentStream(response);
-
-      if (response.getStatusCode() == 400 || response.getStatusCode() == 403 || response.getStatusCode() == 409) {
-         // Content can be null in the case of HEAD requests
-         if (response.getPayload() != null) {
-            closeClientButKeepContentStream(response);
-            ErrorMessage error = json.fromJson(new ByteArrayInputStream(content), ErrorMessage.class);
-            if (error != null) {
-               return shouldRetryRequestOnError(command, response, error);
-            }
-         }
+      int statusCode = response.getStatusCode();
+      if (statusCode != 400 && statusCode != 403 && statusCode != 409 && statusCode != 429) {
+         return false;
       }
-      return false;
+      // the content is buffered once, and stays available to the error handler if the request is not retried
+      byte[] content = closeClientButKeepContentStream(response);
+      // Content can be null in the case of HEAD requests
+      if (content == null) {
+         return false;
+      }
+      ErrorMessage error = json.fromJson(new ByteArrayInputStream(content), ErrorMessage.class);
+      if (error == null || error.code() == null) {
+         return false;
+      }
+      return shouldRetryRequestOnError(command, response, error);
    }
 
    protected boolean shouldRetryRequestOnError(HttpCommand command, HttpResponse response, ErrorMessage error) {
-      if (retryableCodes.contains(error.code()))
+      if (error.code().startsWith(THROTTLING)) {
+         Multimap<String, String> params = queryParser().apply(command.getCurrentRequest().getEndpoint().getQuery());
+         requestThrottle.onThrottled(Iterables.getFirst(params.get("RegionId"), null),
+               Iterables.getFirst(params.get("Action"), null));
          return backoffLimitedRetryHandler.shouldRetryRequest(command, response);
+      }
+      if (retryableCodes.contains(error.code())) {
+         return backoffLimitedRetryHandler.shouldRetryRequest(command, response);
+      }
       return false;
    }
-
 }
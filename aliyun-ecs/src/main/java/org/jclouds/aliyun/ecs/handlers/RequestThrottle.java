@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.handlers;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.util.concurrent.RateLimiter;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.Maps.newConcurrentMap;
+import static org.jclouds.aliyun.ecs.compute.config.ECSComputeServiceProperties.THROTTLED_REQUESTS_PER_SECOND;
+
+/**
+ * Client-side token buckets, one per region and action, fed by the throttling responses of the API.
+ * <p>
+ * Requests are not limited until the API throttles an action in a region. From then on the action is limited to the
+ * configured rate, which is halved on every further throttling response and increased by a tenth of the configured
+ * rate for every second without one. The limit is lifted once the rate doubles the configured one.
+ */
+@Singleton
+public class RequestThrottle {
+
+   private static final double MIN_RATE = 0.5;
+   private static final long RECOVERY_PERIOD = TimeUnit.SECONDS.toNanos(1);
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final double throttledRate;
+   private final Ticker ticker;
+   private final ConcurrentMap<String, Bucket> buckets = newConcurrentMap();
+
+   @Inject
+   RequestThrottle(@Named(THROTTLED_REQUESTS_PER_SECOND) double throttledRate) {
+      this(throttledRate, Ticker.systemTicker());
+   }
+
+   @VisibleForTesting
+   RequestThrottle(double throttledRate, Ticker ticker) {
+      checkArgument(throttledRate >= MIN_RATE, "the throttled rate must be at least %s", MIN_RATE);
+      this.throttledRate = throttledRate;
+      this.ticker = ticker;
+   }
+
+   /**
+    * Waits, if the action is being limited in the region, until a request can be sent.
+    */
+   public void acquire(String regionId, String action) {
+      Bucket bucket = buckets.get(key(regionId, action));
+      if (bucket != null) {
+         bucket.acquire();
+      }
+   }
+
+   /**
+    * Records a throttling response, starting to limit the action in the region or halving its rate.
+    */
+   public void onThrottled(String regionId, String action) {
+      String key = key(regionId, action);
+      Bucket bucket = buckets.get(key);
+      if (bucket == null) {
+         Bucket created = new Bucket(key);
+         bucket = buckets.putIfAbsent(key, created);
+         if (bucket == null) {
+            logger.debug(">> limiting %s to %.1f requests per second", key, throttledRate);
+            return;
+         }
+      }
+      bucket.throttled();
+   }
+
+   /**
+    * Returns the current rate of the action in the region, or absent if it is not limited.
+    */
+   @VisibleForTesting
+   Double rate(String regionId, String action) {
+      Bucket bucket = buckets.get(key(regionId, action));
+      return bucket == null ? null : bucket.limiter.getRate();
+   }
+
+   private static String key(String regionId, String action) {
+      return (regionId == null ? "*" : regionId) + "/" + action;
+   }
+
+   private class Bucket {
+      private final String key;
+      private final RateLimiter limiter = RateLimiter.create(throttledRate);
+      private volatile long lastAdjusted = ticker.read();
+
+      private Bucket(String key) {
+         this.key = key;
+      }
+
+      private void acquire() {
+         if (ticker.read() - lastAdjusted >= RECOVERY_PERIOD) {
+            recover();
+         }
+         limiter.acquire();
+      }
+
+      private synchronized void throttled() {
+         limiter.setRate(Math.max(MIN_RATE, limiter.getRate() / 2));
+         lastAdjusted = ticker.read();
+      }
+
+      private synchronized void recover() {
+         long now = ticker.read();
+         long periods = (now - lastAdjusted) / RECOVERY_PERIOD;
+         if (periods == 0) {
+            return;
+         }
+         double rate = limiter.getRate() + periods * throttledRate / 10;
+         lastAdjusted += periods * RECOVERY_PERIOD;
+         if (rate >= 2 * throttledRate) {
+            buckets.remove(key, this);
+            logger.debug(">> no longer limiting %s", key);
+         } else {
+            limiter.setRate(rate);
+         }
+      }
+   }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute;
+
+import com.google.common.base.Predicates;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
+import org.jclouds.aliyun.ecs.compute.strategy.CleanupResources;
+import org.jclouds.aliyun.ecs.compute.strategy.GroupProvisioning;
+import org.jclouds.aliyun.ecs.compute.strategy.ImageCatalog;
+import org.jclouds.aliyun.ecs.compute.strategy.InstanceTagIndex;
+import org.jclouds.aliyun.ecs.compute.strategy.InstanceTypeAvailability;
+import org.jclouds.aliyun.ecs.compute.strategy.RegionAndZoneDirectory;
+import org.jclouds.aliyun.ecs.compute.strategy.RegionFanOut;
+import org.jclouds.aliyun.ecs.domain.Instance;
+import org.jclouds.aliyun.ecs.domain.Region;
+import org.jclouds.aliyun.ecs.domain.Tag;
+import org.jclouds.aliyun.ecs.domain.regionscoped.ImageInRegion;
+import org.jclouds.aliyun.ecs.domain.options.ListInstancesOptions;
+import org.jclouds.aliyun.ecs.domain.options.PaginationOptions;
+import org.jclouds.aliyun.ecs.domain.options.TagOptions;
+import org.jclouds.aliyun.ecs.features.InstanceApi;
+import org.jclouds.collect.IterableWithMarkers;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.jclouds.aliyun.ecs.domain.options.ListInstancesOptions.MAX_INSTANCE_IDS;
+import static org.jclouds.aliyun.ecs.domain.regionscoped.RegionAndId.slashEncodeRegionAndId;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.fail;
+
+@Test(groups = "unit", testName = "ECSComputeServiceAdapterTest")
+public class ECSComputeServiceAdapterTest {
+
+   private ECSComputeServiceApi api;
+   private InstanceApi instanceApi;
+   private ECSComputeServiceAdapter adapter;
+
+   @BeforeMethod
+   public void setUp() {
+      api = createMock(ECSComputeServiceApi.class);
+      instanceApi = createMock(InstanceApi.class);
+      expect(api.instanceApi()).andReturn(instanceApi).anyTimes();
+
+      adapter = new ECSComputeServiceAdapter(api, Predicates.<String>alwaysTrue(),
+            Suppliers.<Set<String>>ofInstance(ImmutableSet.<String>of()), createNiceMock(CleanupResources.class),
+            new RegionAndZoneDirectory(api, 60), new RegionFanOut(newDirectExecutorService(), 100, 10000),
+            createNiceMock(ImageCatalog.class), new InstanceTypeAvailability(api, newDirectExecutorService(), 60),
+            new GroupProvisioning(api, 1000), new InstanceTagIndex(api, 60));
+   }
+
+   public void testListNodesByIdsQueriesOnlyTheRegionsOfTheIdsInChunks() {
+      List<String> ids = Lists.newArrayList();
+      List<String> euInstanceIds = Lists.newArrayList();
+      for (int i = 0; i < MAX_INSTANCE_IDS + 20; i++) {
+         euInstanceIds.add("i-eu-" + i);
+         ids.add(slashEncodeRegionAndId("eu-central-1", "i-eu-" + i));
+      }
+      ids.add(slashEncodeRegionAndId("us-west-1", "i-us-0"));
+
+      Instance first = createNiceMock(Instance.class);
+      Instance second = createNiceMock(Instance.class);
+      Instance third = createNiceMock(Instance.class);
+      expect(instanceApi.list("eu-central-1", instanceIds(euInstanceIds.subList(0, MAX_INSTANCE_IDS))))
+            .andReturn(IterableWithMarkers.from(ImmutableList.of(first)));
+      expect(instanceApi.list("eu-central-1", instanceIds(euInstanceIds.subList(MAX_INSTANCE_IDS, euInstanceIds.size()))))
+            .andReturn(IterableWithMarkers.from(ImmutableList.of(second)));
+      expect(instanceApi.list("us-west-1", instanceIds(ImmutableList.of("i-us-0"))))
+            .andReturn(IterableWithMarkers.from(ImmutableList.of(third)));
+      replay(api, instanceApi);
+
+      assertEquals(ImmutableSet.copyOf(adapter.listNodesByIds(ids)), ImmutableSet.of(first, second, third));
+      verify(api, instanceApi);
+   }
+
+   public void testListImagesFailsWhenARegionFails() {
+      RegionAndZoneDirectory regionAndZoneDirectory = createMock(RegionAndZoneDirectory.class);
+      expect(regionAndZoneDirectory.regions()).andReturn(
+            ImmutableList.of(Region.create("eu-central-1", "Frankfurt"), Region.create("us-west-1", "Silicon Valley")));
+      ImageCatalog imageCatalog = createMock(ImageCatalog.class);
+      ImageCatalog.RegionImages euImages = createMock(ImageCatalog.RegionImages.class);
+      expect(euImages.images()).andReturn(ImmutableList.<ImageInRegion>of()).anyTimes();
+      expect(imageCatalog.get("eu-central-1")).andReturn(euImages);
+      expect(imageCatalog.get("us-west-1")).andThrow(new IllegalStateException("us-west-1 is unavailable"));
+      replay(api, instanceApi, regionAndZoneDirectory, imageCatalog, euImages);
+
+      ECSComputeServiceAdapter adapter = new ECSComputeServiceAdapter(api, Predicates.<String>alwaysTrue(),
+            Suppliers.<Set<String>>ofInstance(ImmutableSet.<String>of()), createNiceMock(CleanupResources.class),
+            regionAndZoneDirectory, new RegionFanOut(newDirectExecutorService(), 100, 10000), imageCatalog,
+            new InstanceTypeAvailability(api, newDirectExecutorService(), 60), new GroupProvisioning(api, 1000),
+            new InstanceTagIndex(api, 60));
+      try {
+         adapter.listImages();
+         fail("the image catalog must not be memoized without the images of us-west-1");
+      } catch (IllegalStateException expected) {
+         assertEquals(expected.getMessage(), "us-west-1 is unavailable");
+      }
+      verify(regionAndZoneDirectory, imageCatalog);
+   }
+
+   public void testListNodesInGroupMergesTheTaggedAndTheNamedInstances() {
+      RegionAndZoneDirectory regionAndZoneDirectory = createMock(RegionAndZoneDirectory.class);
+      expect(regionAndZoneDirectory.regions()).andReturn(ImmutableList.of(Region.create("eu-central-1", "Frankfurt")));
+      Instance tagged = instance("i-tagged");
+      Instance untagged = instance("i-untagged");
+      expect(instanceApi.list("eu-central-1", ListInstancesOptions.Builder
+            .tagOptions(TagOptions.Builder.tag(1, Tag.NODE_GROUP, "web"))))
+            .andReturn(IterableWithMarkers.from(ImmutableList.of(tagged)));
+      expect(instanceApi.list("eu-central-1", ListInstancesOptions.Builder.instanceName("web*")))
+            .andReturn(IterableWithMarkers.from(ImmutableList.of(untagged, tagged)));
+      replay(api, instanceApi, regionAndZoneDirectory);
+
+      ECSComputeServiceAdapter adapter = new ECSComputeServiceAdapter(api, Predicates.<String>alwaysTrue(),
+            Suppliers.<Set<String>>ofInstance(ImmutableSet.<String>of()), createNiceMock(CleanupResources.class),
+            regionAndZoneDirectory, new RegionFanOut(newDirectExecutorService(), 100, 10000),
+            createNiceMock(ImageCatalog.class), new InstanceTypeAvailability(api, newDirectExecutorService(), 60),
+            new GroupProvisioning(api, 1000), new InstanceTagIndex(api, 60));
+
+      assertEquals(ImmutableList.copyOf(adapter.listNodesInGroup("web")), ImmutableList.of(tagged, untagged));
+      verify(api, instanceApi, regionAndZoneDirectory);
+   }
+
+   private static Instance instance(String id) {
+      Instance instance = createNiceMock(Instance.class);
+      expect(instance.id()).andReturn(id).anyTimes();
+      replay(instance);
+      return instance;
+   }
+
+   private static ListInstancesOptions instanceIds(List<String> instanceIds) {
+      return ListInstancesOptions.Builder.instanceIds(Iterables.toArray(instanceIds, String.class))
+            .paginationOptions(PaginationOptions.Builder.pageSize(MAX_INSTANCE_IDS));
+   }
+}
@@ -0,0 +1,660 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Ordering;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+import org.jclouds.ContextBuilder;
+import org.jclouds.aliyun.ecs.compute.internal.BaseECSComputeServiceApiMockTest;
+import org.jclouds.aliyun.ecs.compute.options.ECSServiceTemplateOptions;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.ComputeServiceContext;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.Template;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.Iterables.getFirst;
+import static com.google.common.math.IntMath.divide;
+import static java.math.RoundingMode.CEILING;
+import static org.jclouds.aliyun.ecs.domain.options.ListInstancesOptions.MAX_INSTANCE_IDS;
+import static org.jclouds.compute.config.ComputeServiceProperties.POLL_INITIAL_PERIOD;
+import static org.jclouds.compute.config.ComputeServiceProperties.POLL_MAX_PERIOD;
+import static org.jclouds.compute.predicates.NodePredicates.inGroup;
+import static org.jclouds.http.utils.Queries.queryParser;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Creates, lists and destroys groups of nodes through the compute service at several concurrency levels, against a
+ * simulated endpoint serving several regions that already hold unrelated instances. Reports the latency percentiles
+ * of every flow and the API calls each operation issues, and gates the calls of the listing paths so that full-region
+ * scans are caught.
+ * <p>
+ * Instead of enqueuing canned responses, the mock web server is given a {@link Dispatcher} that answers every request
+ * after a fixed latency, from the actions registered with {@link #respondTo}, and counts the requests received per
+ * action.
+ */
+@Test(groups = "performance", singleThreaded = true, testName = "ECSComputeServiceLoadTest")
+public class ECSComputeServiceLoadTest extends BaseECSComputeServiceApiMockTest {
+
+   private static final List<String> REGIONS = ImmutableList.of("eu-central-1", "us-west-1", "ap-southeast-1");
+   private static final int INSTANCES_PER_REGION = 250;
+   private static final int NODES_PER_GROUP = 5;
+   private static final List<Integer> CONCURRENCY_LEVELS = ImmutableList.of(1, 4, 8);
+   private static final long LATENCY_MILLIS = 5;
+   private static final int DEFAULT_PAGE_SIZE = 10;
+   private static final long POLL_INITIAL_PERIOD_MILLIS = 50;
+
+   private final JsonParser parser = new JsonParser();
+   private final Map<String, Action> actions = Maps.newConcurrentMap();
+   private final ConcurrentMap<String, AtomicInteger> requestCounts = Maps.newConcurrentMap();
+   private final ConcurrentMap<String, Queue<Long>> latencies = Maps.newConcurrentMap();
+   private final ConcurrentMap<String, Map<String, Integer>> flowRequestCounts = Maps.newConcurrentMap();
+   private final ConcurrentMap<String, Long> flowDurations = Maps.newConcurrentMap();
+   private final ConcurrentMap<String, SimulatedInstance> instances = new ConcurrentSkipListMap<String, SimulatedInstance>();
+   private final AtomicInteger instanceIds = new AtomicInteger();
+   private JsonObject instanceTemplate;
+   private JsonObject imageTemplate;
+   private JsonObject instanceTypeTemplate;
+   private ComputeServiceContext computeContext;
+   private ComputeService computeService;
+
+   @BeforeMethod
+   public void startComputeService() {
+      server.setDispatcher(new Dispatcher() {
+         @Override
+         public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            TimeUnit.MILLISECONDS.sleep(LATENCY_MILLIS);
+            String path = request.getPath();
+            Multimap<String, String> parameters = queryParser().apply(path.substring(path.indexOf('?') + 1));
+            String name = getFirst(parameters.get("Action"), "");
+            AtomicInteger count = requestCounts.putIfAbsent(name, new AtomicInteger(1));
+            if (count != null) {
+               count.incrementAndGet();
+            }
+            Action action = actions.get(name);
+            return action != null ? action.respond(parameters) : response404();
+         }
+      });
+      // status polling is shortened, as the simulated instances change status as soon as they are asked to
+      Properties overrides = overrides();
+      overrides.put(POLL_INITIAL_PERIOD, String.valueOf(POLL_INITIAL_PERIOD_MILLIS));
+      overrides.put(POLL_MAX_PERIOD, "200");
+      computeContext = ContextBuilder.newBuilder("alibaba-ecs").credentials("user", "password").endpoint(url(""))
+            .overrides(overrides).buildView(ComputeServiceContext.class);
+      computeService = computeContext.getComputeService();
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void stopComputeService() {
+      if (computeContext != null) {
+         computeContext.close();
+      }
+   }
+
+   public void testGroupCreateListAndDestroy() throws Exception {
+      simulate();
+      for (final int concurrency : CONCURRENCY_LEVELS) {
+         final List<String> groups = Lists.newArrayList();
+         for (int i = 0; i < concurrency; i++) {
+            groups.add("load-" + concurrency + "-" + i);
+         }
+
+         String create = "create@" + concurrency;
+         List<Set<? extends NodeMetadata>> created = runConcurrently(create, concurrency,
+               forEachGroup(groups, new GroupOperation<Set<? extends NodeMetadata>>() {
+                  @Override
+                  public Set<? extends NodeMetadata> apply(String group) throws Exception {
+                     return computeService.createNodesInGroup(group, NODES_PER_GROUP, template(group));
+                  }
+               }));
+         report(create);
+         for (Set<? extends NodeMetadata> nodes : created) {
+            assertEquals(nodes.size(), NODES_PER_GROUP);
+         }
+         assertStatusSweeps(create, concurrency);
+
+         String list = "list@" + concurrency;
+         List<Set<? extends NodeMetadata>> listed = runConcurrently(list, concurrency,
+               forEachGroup(groups, new GroupOperation<Set<? extends NodeMetadata>>() {
+                  @Override
+                  public Set<? extends NodeMetadata> apply(String group) {
+                     return ((ECSComputeService) computeService).listNodesDetailsInGroup(group);
+                  }
+               }));
+         report(list);
+         for (Set<? extends NodeMetadata> nodes : listed) {
+            assertEquals(nodes.size(), NODES_PER_GROUP);
+         }
+         // a group is looked up by tag and by name in each region, never by listing every instance of the region
+         assertTrue(requestCount(list, "DescribeInstances")
+                     <= concurrency * REGIONS.size() * (divide(NODES_PER_GROUP, MAX_INSTANCE_IDS, CEILING)
+                     + divide(NODES_PER_GROUP, DEFAULT_PAGE_SIZE, CEILING)),
+               requestCounts().toString());
+
+         String destroy = "destroy@" + concurrency;
+         runConcurrently(destroy, concurrency, forEachGroup(groups, new GroupOperation<Set<? extends NodeMetadata>>() {
+            @Override
+            public Set<? extends NodeMetadata> apply(String group) {
+               return computeService.destroyNodesMatching(inGroup(group));
+            }
+         }));
+         report(destroy);
+         assertStatusSweeps(destroy, concurrency);
+         assertEquals(instances.size(), REGIONS.size() * INSTANCES_PER_REGION);
+      }
+   }
+
+   /**
+    * The nodes waited on share a single paged status sweep per region and poll period, so the status requests of a
+    * flow are bounded by how long it ran, not by how many nodes it waited on.
+    */
+   private void assertStatusSweeps(String flow, int groups) {
+      int pagesPerSweep = divide(INSTANCES_PER_REGION + groups * NODES_PER_GROUP, DEFAULT_PAGE_SIZE, CEILING);
+      long sweepsPerRegion = flowDurations.get(flow) / POLL_INITIAL_PERIOD_MILLIS + 1;
+      assertTrue(requestCount(flow, "DescribeInstanceStatus") <= REGIONS.size() * sweepsPerRegion * pagesPerSweep,
+            requestCounts().toString());
+   }
+
+   private interface GroupOperation<T> {
+      T apply(String group) throws Exception;
+   }
+
+   private static <T> List<Callable<T>> forEachGroup(List<String> groups, final GroupOperation<T> operation) {
+      List<Callable<T>> operations = Lists.newArrayList();
+      for (final String group : groups) {
+         operations.add(new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+               return operation.apply(group);
+            }
+         });
+      }
+      return operations;
+   }
+
+   private Template template(String group) {
+      String regionId = REGIONS.get(Math.abs(group.hashCode()) % REGIONS.size());
+      return computeService.templateBuilder()
+            .locationId(regionId)
+            .imageId(regionId + "/" + imageTemplate.get("ImageId").getAsString())
+            .hardwareId(instanceTypeTemplate.get("InstanceTypeId").getAsString())
+            .options(ECSServiceTemplateOptions.Builder.vSwitchId(vSwitchId(regionId))
+                  .securityGroups(securityGroupId(regionId)))
+            .build();
+   }
+
+   private void simulate() {
+      instanceTemplate = template("/instances-first.json", "Instances", "Instance");
+      imageTemplate = template("/images-first.json", "Images", "Image");
+      imageTemplate.addProperty("ImageId", "centos_7_04_64_20G_alibase_20180419.vhd");
+      imageTemplate.addProperty("ImageName", "centos_7_04_64_20G_alibase_20180419.vhd");
+      imageTemplate.addProperty("OSName", "CentOS  7.4 64");
+      instanceTypeTemplate = template("/instanceTypes.json", "InstanceTypes", "InstanceType");
+      for (String regionId : REGIONS) {
+         for (int i = 0; i < INSTANCES_PER_REGION; i++) {
+            SimulatedInstance instance = new SimulatedInstance(regionId, "i-" + instanceIds.incrementAndGet(),
+                  "unrelated-" + i, Maps.<String, String>newHashMap());
+            instance.status = "Running";
+            instances.put(instance.id, instance);
+         }
+      }
+
+      respondTo("DescribeRegions", new Action() {
+         @Override
+         public MockResponse respond(Multimap<String, String> parameters) {
+            JsonArray regions = new JsonArray();
+            for (String regionId : REGIONS) {
+               JsonObject region = new JsonObject();
+               region.addProperty("RegionId", regionId);
+               region.addProperty("LocalName", regionId);
+               regions.add(region);
+            }
+            return wrapped("Regions", "Region", regions);
+         }
+      });
+      respondTo("DescribeZones", new Action() {
+         @Override
+         public MockResponse respond(Multimap<String, String> parameters) {
+            JsonObject zone = template("/zones.json", "Zones", "Zone");
+            zone.addProperty("ZoneId", zoneId(parameter(parameters, "RegionId")));
+            return wrapped("Zones", "Zone", single(zone));
+         }
+      });
+      respondTo("DescribeInstanceTypes", new Action() {
+         @Override
+         public MockResponse respond(Multimap<String, String> parameters) {
+            return wrapped("InstanceTypes", "InstanceType", single(instanceTypeTemplate));
+         }
+      });
+      respondTo("DescribeAvailableResource", new Action() {
+         @Override
+         public MockResponse respond(Multimap<String, String> parameters) {
+            String regionId = parameter(parameters, "RegionId");
+            JsonObject zone = template("/availableZones.json", "AvailableZones", "AvailableZone");
+            zone.addProperty("RegionId", regionId);
+            zone.addProperty("ZoneId", zoneId(regionId));
+            JsonObject offered = new JsonObject();
+            offered.addProperty("Status", "Available");
+            offered.addProperty("Value", instanceTypeTemplate.get("InstanceTypeId").getAsString());
+            zone.getAsJsonObject("AvailableResources").getAsJsonArray("AvailableResource").get(0)
+                  .getAsJsonObject().getAsJsonObject("SupportedResources").add("SupportedResource", single(offered));
+            return wrapped("AvailableZones", "AvailableZone", single(zone));
+         }
+      });
+      respondTo("DescribeImages", new Action() {
+         @Override
+         public MockResponse respond(Multimap<String, String> parameters) {
+            return listResponse(parameters, parameter(parameters, "RegionId"), "Images", "Image",
+                  ImmutableList.of(imageTemplate));
+         }
+      });
+      respondTo("DescribeSecurityGroups", new Action() {
+         @Override
+         public MockResponse respond(Multimap<String, String> parameters) {
+            String regionId = parameter(parameters, "RegionId");
+            JsonObject securityGroup = template("/securitygroups-first.json", "SecurityGroups", "SecurityGroup");
+            securityGroup.addProperty("SecurityGroupId", securityGroupId(regionId));
+            securityGroup.addProperty("VpcId", vpcId(regionId));
+            return listResponse(parameters, regionId, "SecurityGroups", "SecurityGroup",
+                  ImmutableList.of(securityGroup));
+         }
+      });
+      respondTo("DescribeVSwitches", new Action() {
+         @Override
+         public MockResponse respond(Multimap<String, String> parameters) {
+            String regionId = parameter(parameters, "RegionId");
+            JsonObject vSwitch = template("/vswitches-first.json", "VSwitches", "VSwitch");
+            vSwitch.addProperty("VSwitchId", vSwitchId(regionId));
+            vSwitch.addProperty("VpcId", vpcId(regionId));
+            vSwitch.addProperty("ZoneId", zoneId(regionId));
+            return listResponse(parameters, regionId, "VSwitches", "VSwitch", ImmutableList.of(vSwitch));
+         }
+      });
+      respondTo("CreateKeyPair", new Action() {
+         @Override
+         public MockResponse respond(Multimap<String, String> parameters) {
+            JsonObject keyPair = template("/keypair-create-res.json", null, null);
+            keyPair.addProperty("KeyPairName", parameter(parameters, "KeyPairName"));
+            return objectResponse(keyPair);
+         }
+      });
+      respondTo("CreateInstance", new Action() {
+         @Override
+         public MockResponse respond(Multimap<String, String> parameters) {
+            Map<String, String> tags = Maps.newHashMap();
+            for (int i = 1; parameters.containsKey("Tag." + i + ".Key"); i++) {
+               tags.put(parameter(parameters, "Tag." + i + ".Key"), parameter(parameters, "Tag." + i + ".Value"));
+            }
+            SimulatedInstance instance = new SimulatedInstance(parameter(parameters, "RegionId"),
+                  "i-" + instanceIds.incrementAndGet(), parameter(parameters, "InstanceName"), tags);
+            instances.put(instance.id, instance);
+            JsonObject body = response();
+            body.addProperty("InstanceId", instance.id);
+            return objectResponse(body);
+         }
+      });
+      respondTo("AllocatePublicIpAddress", new Action() {
+         @Override
+         public MockResponse respond(Multimap<String, String> parameters) {
+            JsonObject body = response();
+            body.addProperty("IpAddress", "47.254.152.220");
+            return objectResponse(body);
+         }
+      });
+      respondTo("StartInstance", transition("Running"));
+      respondTo("StopInstance", transition("Stopped"));
+      respondTo("DeleteInstance", new Action() {
+         @Override
+         public MockResponse respond(Multimap<String, String> parameters) {
+            return instances.remove(parameter(parameters, "InstanceId")) != null ? objectResponse(response())
+                  : response404();
+         }
+      });
+      respondTo("DescribeInstanceStatus", new Action() {
+         @Override
+         public MockResponse respond(Multimap<String, String> parameters) {
+            String regionId = parameter(parameters, "RegionId");
+            List<JsonObject> statuses = Lists.newArrayList();
+            for (SimulatedInstance instance : instances.values()) {
+               if (instance.regionId.equals(regionId)) {
+                  JsonObject status = new JsonObject();
+                  status.addProperty("InstanceId", instance.id);
+                  status.addProperty("Status", instance.status);
+                  statuses.add(status);
+               }
+            }
+            return listResponse(parameters, regionId, "InstanceStatuses", "InstanceStatus", statuses);
+         }
+      });
+      respondTo("DescribeInstances", new Action() {
+         @Override
+         public MockResponse respond(Multimap<String, String> parameters) {
+            String regionId = parameter(parameters, "RegionId");
+            String instanceIds = parameter(parameters, "InstanceIds");
+            Set<String> ids = null;
+            if (instanceIds != null) {
+               ids = Sets.newHashSet(Splitter.on(',').trimResults().omitEmptyStrings()
+                     .split(instanceIds.replaceAll("[\\[\\]\"]", "")));
+            }
+            String tagKey = parameter(parameters, "Tag.1.Key");
+            String tagValue = parameter(parameters, "Tag.1.Value");
+            String name = parameter(parameters, "InstanceName");
+            List<JsonObject> matching = Lists.newArrayList();
+            for (SimulatedInstance instance : instances.values()) {
+               if (instance.regionId.equals(regionId) && (ids == null || ids.contains(instance.id))
+                     && (tagKey == null || tagValueEquals(instance.tags.get(tagKey), tagValue))
+                     && (name == null || nameMatches(instance.name, name))) {
+                  matching.add(instance.toJson());
+               }
+            }
+            return listResponse(parameters, regionId, "Instances", "Instance", matching);
+         }
+      });
+      // the simulated network resources are shared by every group, so they are never actually deleted
+      respondTo("DeleteKeyPairs", accepted());
+      respondTo("DeleteSecurityGroup", accepted());
+      respondTo("DeleteVSwitch", accepted());
+      respondTo("DeleteVpc", accepted());
+   }
+
+   private static boolean nameMatches(String name, String pattern) {
+      return pattern.endsWith("*") ? name.startsWith(pattern.substring(0, pattern.length() - 1))
+            : name.equals(pattern);
+   }
+
+   private static boolean tagValueEquals(String value, String expected) {
+      return value != null && value.equals(expected == null ? "" : expected);
+   }
+
+   private Action transition(final String status) {
+      return new Action() {
+         @Override
+         public MockResponse respond(Multimap<String, String> parameters) {
+            SimulatedInstance instance = instances.get(parameter(parameters, "InstanceId"));
+            if (instance == null) {
+               return response404();
+            }
+            instance.status = status;
+            return objectResponse(response());
+         }
+      };
+   }
+
+   private Action accepted() {
+      return new Action() {
+         @Override
+         public MockResponse respond(Multimap<String, String> parameters) {
+            return objectResponse(response());
+         }
+      };
+   }
+
+   private MockResponse wrapped(String collection, String element, JsonArray elements) {
+      JsonObject wrapper = new JsonObject();
+      wrapper.add(element, elements);
+      JsonObject body = response();
+      body.add(collection, wrapper);
+      return objectResponse(body);
+   }
+
+   private static JsonArray single(JsonElement element) {
+      JsonArray elements = new JsonArray();
+      elements.add(element);
+      return elements;
+   }
+
+   /**
+    * Answers a request to a simulated action.
+    */
+   private interface Action {
+      MockResponse respond(Multimap<String, String> parameters);
+   }
+
+   private void respondTo(String action, Action handler) {
+      actions.put(action, handler);
+   }
+
+   /**
+    * Returns the number of requests received for each action since the simulated endpoint started.
+    */
+   private Map<String, Integer> requestCounts() {
+      ImmutableSortedMap.Builder<String, Integer> counts = ImmutableSortedMap.naturalOrder();
+      for (Map.Entry<String, AtomicInteger> count : requestCounts.entrySet()) {
+         counts.put(count.getKey(), count.getValue().get());
+      }
+      return counts.build();
+   }
+
+   /**
+    * Returns the number of requests for an action issued while a flow ran.
+    */
+   private int requestCount(String flow, String action) {
+      Integer count = flowRequestCounts.get(flow).get(action);
+      return count == null ? 0 : count;
+   }
+
+   /**
+    * Runs every operation on a pool of the given size, recording the latency of each, how long the flow ran and the
+    * requests issued by all of them under the given flow name. Flows must not overlap for their request counts to be
+    * meaningful.
+    */
+   private <T> List<T> runConcurrently(String flow, int concurrency, List<? extends Callable<T>> operations)
+         throws Exception {
+      final Queue<Long> flowLatencies = new ConcurrentLinkedQueue<Long>();
+      checkState(latencies.putIfAbsent(flow, flowLatencies) == null, "flow %s already run", flow);
+      Map<String, Integer> before = requestCounts();
+      long flowStart = System.nanoTime();
+      ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+      try {
+         List<Future<T>> futures = new ArrayList<Future<T>>();
+         for (final Callable<T> operation : operations) {
+            futures.add(executor.submit(new Callable<T>() {
+               @Override
+               public T call() throws Exception {
+                  long start = System.nanoTime();
+                  try {
+                     return operation.call();
+                  } finally {
+                     flowLatencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                  }
+               }
+            }));
+         }
+         List<T> results = new ArrayList<T>();
+         for (Future<T> future : futures) {
+            results.add(Uninterruptibles.getUninterruptibly(future, 5, TimeUnit.MINUTES));
+         }
+         return results;
+      } finally {
+         executor.shutdownNow();
+         flowDurations.put(flow, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - flowStart));
+         ImmutableSortedMap.Builder<String, Integer> counts = ImmutableSortedMap.naturalOrder();
+         for (Map.Entry<String, Integer> count : requestCounts().entrySet()) {
+            Integer previous = before.get(count.getKey());
+            int issued = count.getValue() - (previous == null ? 0 : previous);
+            if (issued > 0) {
+               counts.put(count.getKey(), issued);
+            }
+         }
+         flowRequestCounts.put(flow, counts.build());
+      }
+   }
+
+   /**
+    * Logs the 50th, 90th and 99th percentile latencies of a flow and the requests its operations issued, per
+    * operation.
+    */
+   private void report(String flow) {
+      List<Long> sorted = Ordering.natural().sortedCopy(latencies.get(flow));
+      int total = 0;
+      ImmutableSortedMap.Builder<String, String> perOperation = ImmutableSortedMap.naturalOrder();
+      for (Map.Entry<String, Integer> count : flowRequestCounts.get(flow).entrySet()) {
+         total += count.getValue();
+         perOperation.put(count.getKey(), String.format("%.1f", (double) count.getValue() / sorted.size()));
+      }
+      Logger.getAnonymousLogger().info(String.format("%s: latency p50=%d p90=%d p99=%d ms, %.1f API calls/op %s",
+            flow, percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+            (double) total / sorted.size(), perOperation.build()));
+   }
+
+   private static long percentile(List<Long> sorted, int percentile) {
+      int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+      return sorted.get(Math.max(0, index));
+   }
+
+   /**
+    * Returns a page of a list response, using the page number and size requested.
+    */
+   private MockResponse listResponse(Multimap<String, String> parameters, String regionId, String collection,
+                                     String element, List<? extends JsonElement> all) {
+      String pageNumberParameter = parameter(parameters, "pageNumber");
+      String pageSizeParameter = parameter(parameters, "pageSize");
+      int pageNumber = pageNumberParameter == null ? 1 : Integer.parseInt(pageNumberParameter);
+      int pageSize = pageSizeParameter == null ? DEFAULT_PAGE_SIZE : Integer.parseInt(pageSizeParameter);
+      int from = Math.min((pageNumber - 1) * pageSize, all.size());
+      JsonArray elements = new JsonArray();
+      for (JsonElement item : all.subList(from, Math.min(from + pageSize, all.size()))) {
+         elements.add(item);
+      }
+      JsonObject wrapper = new JsonObject();
+      wrapper.add(element, elements);
+      JsonObject body = response();
+      body.add(collection, wrapper);
+      body.addProperty("PageNumber", pageNumber);
+      body.addProperty("PageSize", pageSize);
+      body.addProperty("TotalCount", all.size());
+      body.addProperty("RegionId", regionId);
+      return objectResponse(body);
+   }
+
+   private static JsonObject response() {
+      JsonObject body = new JsonObject();
+      body.addProperty("RequestId", UUID.randomUUID().toString().toUpperCase());
+      return body;
+   }
+
+   private static MockResponse objectResponse(JsonElement body) {
+      return new MockResponse().addHeader("Content-Type", "application/json").setBody(body.toString());
+   }
+
+   /**
+    * Loads a recorded fixture, or a copy of the first element of the named list within it, to be used as a template.
+    */
+   private JsonObject template(String resource, String collection, String element) {
+      JsonObject fixture = parser.parse(stringFromResource(resource)).getAsJsonObject();
+      return collection == null ? fixture
+            : fixture.getAsJsonObject(collection).getAsJsonArray(element).get(0).getAsJsonObject();
+   }
+
+   private static String parameter(Multimap<String, String> parameters, String name) {
+      return getFirst(parameters.get(name), null);
+   }
+
+   private static String zoneId(String regionId) {
+      return regionId + "a";
+   }
+
+   private static String vpcId(String regionId) {
+      return "vpc-" + regionId;
+   }
+
+   private static String vSwitchId(String regionId) {
+      return "vsw-" + regionId;
+   }
+
+   private static String securityGroupId(String regionId) {
+      return "sg-" + regionId;
+   }
+
+   private class SimulatedInstance {
+      private final String regionId;
+      private final String id;
+      private final String name;
+      private final Map<String, String> tags;
+      private volatile String status = "Stopped";
+
+      private SimulatedInstance(String regionId, String id, String name, Map<String, String> tags) {
+         this.regionId = regionId;
+         this.id = id;
+         this.name = name;
+         this.tags = tags;
+      }
+
+      private JsonObject toJson() {
+         JsonObject instance = parser.parse(instanceTemplate.toString()).getAsJsonObject();
+         instance.addProperty("InstanceId", id);
+         instance.addProperty("InstanceName", name);
+         instance.addProperty("HostName", name);
+         instance.addProperty("Status", status);
+         instance.addProperty("RegionId", regionId);
+         instance.addProperty("ZoneId", zoneId(regionId));
+         instance.addProperty("ImageId", imageTemplate.get("ImageId").getAsString());
+         instance.addProperty("InstanceType", instanceTypeTemplate.get("InstanceTypeId").getAsString());
+         JsonArray tagList = new JsonArray();
+         for (Map.Entry<String, String> tag : tags.entrySet()) {
+            JsonObject element = new JsonObject();
+            element.addProperty("TagKey", tag.getKey());
+            element.addProperty("TagValue", tag.getValue());
+            tagList.add(element);
+         }
+         instance.getAsJsonObject("Tags").add("Tag", tagList);
+         JsonObject vpcAttributes = instance.getAsJsonObject("VpcAttributes");
+         vpcAttributes.addProperty("VSwitchId", vSwitchId(regionId));
+         vpcAttributes.addProperty("VpcId", vpcId(regionId));
+         instance.getAsJsonObject("SecurityGroupIds").add("SecurityGroupId",
+               single(new JsonPrimitive(securityGroupId(regionId))));
+         return instance;
+      }
+   }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.config;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import org.testng.annotations.Test;
+
+import static org.jclouds.aliyun.ecs.compute.config.ECSServiceContextModule.await;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit", testName = "ECSServiceContextModuleTest")
+public class ECSServiceContextModuleTest {
+
+   public void testReachedStatus() {
+      assertTrue(await(Futures.immediateFuture(true), 100));
+   }
+
+   public void testFailedPollIsNotReached() {
+      assertFalse(await(Futures.<Boolean>immediateFailedFuture(new IllegalStateException("poll failed")), 100));
+   }
+
+   public void testPendingPollIsNotReachedAfterTheTimeout() {
+      SettableFuture<Boolean> poll = SettableFuture.create();
+
+      assertFalse(await(poll, 50));
+      assertTrue(poll.isCancelled());
+   }
+
+   public void testInterruptedWaitIsNotReached() {
+      Thread.currentThread().interrupt();
+      try {
+         assertFalse(await(SettableFuture.<Boolean>create(), 10000));
+         assertTrue(Thread.currentThread().isInterrupted());
+      } finally {
+         Thread.interrupted();
+      }
+   }
+}
@@ -38,6 +38,7 @@ import java.util.Set;
 
 import static org.jclouds.aliyun.ecs.domain.Image.Status.AVAILABLE;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertSame;
 import static org.testng.AssertJUnit.assertTrue;
 
 @Test(groups = "unit", testName = "ImageInRegionToImageTest")
@@ -134,6 +135,39 @@ public class ImageInRegionToImageTest {
       assertEquals(region, image.getLocation());
    }
 
+   @Test
+   public void testConversionIsCachedByIdentity() {
+      final org.jclouds.aliyun.ecs.domain.Image ecsImage = org.jclouds.aliyun.ecs.domain.Image.builder()
+              .id("ubuntu_16_0402_64_20G_alibase_20180409.vhd")
+              .description("")
+              .productCode("")
+              .osType("linux")
+              .architecture("x86_64")
+              .osName("Ubuntu  16.04 64位")
+              .imageOwnerAlias("system")
+              .progress("100%")
+              .isSupportCloudinit(true)
+              .usage("instance")
+              .creationTime(parseDate("2018-04-09T08:30:00Z"))
+              .imageVersion("")
+              .status(AVAILABLE)
+              .name("ubuntu_16_0402_64_20G_alibase_20180409.vhd")
+              .isSupportIoOptimizeds(true)
+              .isCopied(false)
+              .isSubscribed(false)
+              .isSelfShared(false)
+              .platform("Ubuntu")
+              .size(20)
+              .diskDeviceMappings(ImmutableMap.<String, List<DiskDeviceMapping>>of())
+              .tags(ImmutableMap.<String, List<Tag>>of())
+              .build();
+      final ImageInRegion imageInRegion = ImageInRegion.create(Regions.EU_CENTRAL_1.getName(), ecsImage);
+
+      final Image image = imageInRegionToImage.apply(imageInRegion);
+      assertSame(image, imageInRegionToImage.apply(imageInRegion));
+      assertEquals(image, imageInRegionToImage.apply(ImageInRegion.create(Regions.EU_CENTRAL_1.getName(), ecsImage)));
+   }
+
    Date parseDate(final String dateString) {
       return DatatypeConverter.parseDateTime(dateString).getTime();
    }
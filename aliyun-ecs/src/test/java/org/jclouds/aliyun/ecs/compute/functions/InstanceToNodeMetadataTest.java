@@ -246,4 +246,15 @@ public class InstanceToNodeMetadataTest {
       assertEquals(node.getTags(), ImmutableSet.of("hello"));
    }
 
+   @Test
+   public void testGroupTagIsNotExposed() {
+      Instance instanceWithGroupTag = instance.toBuilder().tags(ImmutableMap.<String, List<Tag>>of("Tag",
+              ImmutableList.of(Tag.create("hello", ""), Tag.create("env", "test"), Tag.create(Tag.NODE_GROUP, "web"))))
+              .build();
+      NodeMetadata node = instanceToNodeMetadata.apply(instanceWithGroupTag);
+
+      assertEquals(node.getTags(), ImmutableSet.of("hello"));
+      assertEquals(node.getUserMetadata(), ImmutableMap.of("env", "test"));
+   }
+
 }
@@ -37,12 +37,10 @@ import org.jclouds.aliyun.ecs.domain.VPCRequest;
 import org.jclouds.aliyun.ecs.domain.VSwitch;
 import org.jclouds.aliyun.ecs.domain.VSwitchRequest;
 import org.jclouds.aliyun.ecs.domain.Zone;
-import org.jclouds.aliyun.ecs.domain.internal.PaginatedCollection;
 import org.jclouds.aliyun.ecs.domain.internal.Regions;
 import org.jclouds.aliyun.ecs.domain.options.CreateSecurityGroupOptions;
 import org.jclouds.aliyun.ecs.domain.options.CreateVPCOptions;
 import org.jclouds.aliyun.ecs.domain.options.CreateVSwitchOptions;
-import org.jclouds.aliyun.ecs.domain.options.ListVSwitchesOptions;
 import org.jclouds.aliyun.ecs.domain.options.TagOptions;
 import org.jclouds.aliyun.ecs.features.RegionAndZoneApi;
 import org.jclouds.aliyun.ecs.features.SecurityGroupApi;
@@ -144,7 +142,9 @@ public class CreateResourcesThenCreateNodesTest {
 
       createResourcesThenCreateNodes = new CreateResourcesThenCreateNodes(addNodeWithGroupStrategy,
             listNodesStrategy, factory, userExecutor,
-            customizeNodeAndAddToGoodMapOrPutExceptionIntoBadMapFactory, api);
+            customizeNodeAndAddToGoodMapOrPutExceptionIntoBadMapFactory, api, new RegionAndZoneDirectory(api, 60),
+            new InstanceTypeAvailability(api, userExecutor, 60), new KeyPairIndex(api, 60),
+            new NetworkResourceDirectory(api, 60));
 
       permission = Permission.create(
               "",
@@ -216,8 +216,8 @@ public class CreateResourcesThenCreateNodesTest {
               .andReturn(Lists.newArrayList(permission));
 
       // found VSwitch specified by user in VPC_PREFIX
-      expect(vSwitchApi.list(regionId, ListVSwitchesOptions.Builder.vSwitchId(vSwitchId).vpcId(vpcId)))
-              .andReturn(new PaginatedCollection(ImmutableMap.<String, Iterable<VSwitch>>of("VSwitch", Lists.<VSwitch> newArrayList(vswitch)), 1, 1, 1, regionId, "requestId"));
+      expect(vSwitchApi.list(regionId))
+              .andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(Lists.newArrayList(vswitch))));
 
       expect(factory.create()).andReturn(namingConvention).anyTimes();
       expect(namingConvention.sharedNameForGroup(anyString())).andReturn("group").anyTimes();
@@ -297,8 +297,8 @@ public class CreateResourcesThenCreateNodesTest {
             .andReturn(Lists.newArrayList(permission));
 
       // at least a VSwitch is available in regionId
-      expect(vSwitchApi.list(regionId, ListVSwitchesOptions.Builder.vpcId(vpcId)))
-              .andReturn(new PaginatedCollection(ImmutableMap.of("VSwitch", Lists.newArrayList(vswitch)), 1, 1, 1, regionId, "requestId"));
+      expect(vSwitchApi.list(regionId))
+              .andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(Lists.newArrayList(vswitch))));
 
       expect(factory.create()).andReturn(namingConvention).anyTimes();
       expect(namingConvention.sharedNameForGroup(anyString())).andReturn("group").anyTimes();
@@ -337,8 +337,8 @@ public class CreateResourcesThenCreateNodesTest {
               .andReturn(Lists.newArrayList(permission));
 
       // found VSwitch specified by user in VPC_PREFIX
-      expect(vSwitchApi.list(regionId, ListVSwitchesOptions.Builder.vSwitchId(vSwitchId)))
-              .andReturn(new PaginatedCollection(ImmutableMap.<String, Iterable<VSwitch>>of("VSwitch", Lists.<VSwitch> newArrayList(vswitch)), 1, 1, 1, regionId, "requestId"));
+      expect(vSwitchApi.list(regionId))
+              .andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(Lists.newArrayList(vswitch))));
 
       expect(factory.create()).andReturn(namingConvention).anyTimes();
       expect(namingConvention.sharedNameForGroup(anyString())).andReturn("group").anyTimes();
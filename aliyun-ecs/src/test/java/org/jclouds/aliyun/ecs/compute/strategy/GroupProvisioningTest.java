@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.strategy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.easymock.IAnswer;
+import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
+import org.jclouds.aliyun.ecs.domain.Instance;
+import org.jclouds.aliyun.ecs.domain.options.ListInstancesOptions;
+import org.jclouds.aliyun.ecs.domain.options.PaginationOptions;
+import org.jclouds.aliyun.ecs.features.InstanceApi;
+import org.jclouds.collect.IterableWithMarker;
+import org.jclouds.collect.IterableWithMarkers;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.jclouds.aliyun.ecs.domain.options.ListInstancesOptions.MAX_INSTANCE_IDS;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit", testName = "GroupProvisioningTest")
+public class GroupProvisioningTest {
+
+   private static final String REGION = "eu-central-1";
+
+   private ECSComputeServiceApi api;
+   private InstanceApi instanceApi;
+
+   @BeforeMethod
+   public void setUp() {
+      api = createMock(ECSComputeServiceApi.class);
+      instanceApi = createMock(InstanceApi.class);
+      expect(api.instanceApi()).andReturn(instanceApi).anyTimes();
+   }
+
+   public void testNodesRefreshedWhileADescribeIsInFlightShareTheNextOne() throws Exception {
+      final List<Instance> instances = Lists.newArrayList();
+      for (int i = 0; i < 5; i++) {
+         instances.add(instance("i-" + i));
+      }
+      final CountDownLatch firstDescribing = new CountDownLatch(1);
+      final CountDownLatch othersWaiting = new CountDownLatch(1);
+      expect(instanceApi.list(REGION, instanceIds("i-0"))).andAnswer(new IAnswer<IterableWithMarker<Instance>>() {
+         @Override
+         public IterableWithMarker<Instance> answer() throws Throwable {
+            firstDescribing.countDown();
+            assertTrue(othersWaiting.await(10, TimeUnit.SECONDS));
+            return IterableWithMarkers.from(instances.subList(0, 1));
+         }
+      }).once();
+      // the other nodes are described with a single call, whatever order they arrive in
+      expect(instanceApi.list(eq(REGION), anyObject(ListInstancesOptions.class)))
+            .andReturn(IterableWithMarkers.from(instances.subList(1, instances.size()))).once();
+      replay(api, instanceApi);
+
+      final GroupProvisioning groupProvisioning = new GroupProvisioning(api, 10000);
+      ExecutorService executor = Executors.newFixedThreadPool(instances.size());
+      try {
+         List<Future<Instance>> refreshed = Lists.newArrayList();
+         refreshed.add(executor.submit(refresh(groupProvisioning, "i-0")));
+         assertTrue(firstDescribing.await(10, TimeUnit.SECONDS));
+         for (Instance instance : instances.subList(1, instances.size())) {
+            refreshed.add(executor.submit(refresh(groupProvisioning, instance.id())));
+         }
+         // give the other nodes time to queue behind the describe in flight
+         TimeUnit.MILLISECONDS.sleep(200);
+         othersWaiting.countDown();
+         for (int i = 0; i < instances.size(); i++) {
+            assertSame(refreshed.get(i).get(10, TimeUnit.SECONDS), instances.get(i));
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+      verify(api, instanceApi);
+   }
+
+   public void testNodeIsDescribedRightAway() {
+      Instance instance = instance("i-0");
+      expect(instanceApi.list(REGION, instanceIds("i-0")))
+            .andReturn(IterableWithMarkers.from(ImmutableList.of(instance))).once();
+      replay(api, instanceApi);
+
+      assertSame(new GroupProvisioning(api, 10000).refresh(REGION, "i-0"), instance);
+      verify(api, instanceApi);
+   }
+
+   @Test(expectedExceptions = IllegalStateException.class)
+   public void testMissingInstanceFails() {
+      expect(instanceApi.list(REGION, instanceIds("i-0")))
+            .andReturn(IterableWithMarkers.from(ImmutableList.<Instance>of())).once();
+      replay(api, instanceApi);
+
+      new GroupProvisioning(api, 10000).refresh(REGION, "i-0");
+   }
+
+   private static Callable<Instance> refresh(final GroupProvisioning groupProvisioning, final String instanceId) {
+      return new Callable<Instance>() {
+         @Override
+         public Instance call() {
+            return groupProvisioning.refresh(REGION, instanceId);
+         }
+      };
+   }
+
+   private static Instance instance(String id) {
+      Instance instance = createNiceMock(Instance.class);
+      expect(instance.id()).andReturn(id).anyTimes();
+      replay(instance);
+      return instance;
+   }
+
+   private static ListInstancesOptions instanceIds(String... instanceIds) {
+      return ListInstancesOptions.Builder.instanceIds(instanceIds)
+            .paginationOptions(PaginationOptions.Builder.pageSize(MAX_INSTANCE_IDS));
+   }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.strategy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
+import org.jclouds.aliyun.ecs.domain.DiskDeviceMapping;
+import org.jclouds.aliyun.ecs.domain.Image;
+import org.jclouds.aliyun.ecs.domain.Tag;
+import org.jclouds.aliyun.ecs.features.ImageApi;
+import org.jclouds.collect.IterableWithMarkers;
+import org.jclouds.collect.PagedIterables;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+@Test(groups = "unit", testName = "ImageCatalogTest")
+public class ImageCatalogTest {
+
+   private static final String REGION = "eu-central-1";
+
+   private ECSComputeServiceApi api;
+   private ImageApi imageApi;
+
+   @BeforeMethod
+   public void setUp() {
+      api = createMock(ECSComputeServiceApi.class);
+      imageApi = createMock(ImageApi.class);
+      expect(api.imageApi()).andReturn(imageApi).anyTimes();
+   }
+
+   public void testImagesAreLoadedOnceAndIndexed() {
+      Image centos = image("centos_7", "CentOS");
+      Image ubuntu = image("ubuntu_16", "Ubuntu");
+      expect(imageApi.list(REGION)).andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(
+            ImmutableList.of(centos, ubuntu)))).once();
+      replay(api, imageApi);
+
+      ImageCatalog catalog = new ImageCatalog(api, newDirectExecutorService(), 60);
+
+      assertEquals(catalog.get(REGION).images().size(), 2);
+      assertEquals(catalog.getImage(REGION + "/ubuntu_16").get().image(), ubuntu);
+      assertFalse(catalog.getImage(REGION + "/debian_9").isPresent());
+      verify(api, imageApi);
+   }
+
+   public void testUnchangedReloadKeepsTheLoadedImages() {
+      Image centos = image("centos_7", "CentOS");
+      expect(imageApi.list(REGION)).andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(
+            ImmutableList.of(centos)))).times(2);
+      replay(api, imageApi);
+
+      ImageCatalog catalog = new ImageCatalog(api, newDirectExecutorService(), 60);
+      ImageCatalog.RegionImages loaded = catalog.get(REGION);
+      catalog.refresh(REGION);
+
+      assertSame(catalog.get(REGION), loaded);
+      verify(api, imageApi);
+   }
+
+   public void testChangedReloadKeepsUnchangedImageInstances() {
+      Image centos = image("centos_7", "CentOS");
+      Image ubuntu = image("ubuntu_16", "Ubuntu");
+      expect(imageApi.list(REGION)).andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(
+            ImmutableList.of(centos))));
+      expect(imageApi.list(REGION)).andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(
+            ImmutableList.of(centos, ubuntu))));
+      replay(api, imageApi);
+
+      ImageCatalog catalog = new ImageCatalog(api, newDirectExecutorService(), 60);
+      ImageCatalog.RegionImages loaded = catalog.get(REGION);
+      catalog.refresh(REGION);
+      ImageCatalog.RegionImages reloaded = catalog.get(REGION);
+
+      assertNotSame(reloaded, loaded);
+      assertEquals(reloaded.images().size(), 2);
+      assertSame(reloaded.imagesById().get("centos_7"), loaded.imagesById().get("centos_7"));
+      verify(api, imageApi);
+   }
+
+   public void testRefreshIgnoresRegionsNotLoaded() {
+      replay(api, imageApi);
+
+      new ImageCatalog(api, newDirectExecutorService(), 60).refresh(REGION);
+
+      verify(api, imageApi);
+   }
+
+   private static Image image(String id, String platform) {
+      return Image.builder().id(id).description("").productCode("").osType("linux").architecture("x86_64")
+            .osName(platform).imageOwnerAlias("system").progress("100%").isSupportCloudinit(true).usage("instance")
+            .creationTime(new Date(0)).imageVersion("").status(Image.Status.AVAILABLE).name(id)
+            .isSupportIoOptimizeds(true).isCopied(false).isSubscribed(false).isSelfShared(false).platform(platform)
+            .size(20).diskDeviceMappings(ImmutableMap.<String, List<DiskDeviceMapping>>of())
+            .tags(ImmutableMap.<String, List<Tag>>of()).build();
+   }
+}
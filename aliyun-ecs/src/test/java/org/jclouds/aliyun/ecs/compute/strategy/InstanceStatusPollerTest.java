@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.strategy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.easymock.IAnswer;
+import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
+import org.jclouds.aliyun.ecs.domain.InstanceStatus;
+import org.jclouds.aliyun.ecs.domain.internal.Regions;
+import org.jclouds.aliyun.ecs.domain.regionscoped.RegionAndId;
+import org.jclouds.aliyun.ecs.features.InstanceApi;
+import org.jclouds.collect.IterableWithMarkers;
+import org.jclouds.collect.PagedIterable;
+import org.jclouds.collect.PagedIterables;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.jclouds.aliyun.ecs.domain.InstanceStatus.Status.RUNNING;
+import static org.jclouds.aliyun.ecs.domain.InstanceStatus.Status.STARTING;
+import static org.jclouds.aliyun.ecs.domain.InstanceStatus.Status.STOPPED;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test(groups = "unit", testName = "InstanceStatusPollerTest", singleThreaded = true)
+public class InstanceStatusPollerTest {
+
+   private static final String REGION = Regions.EU_CENTRAL_1.getName();
+
+   private final List<InstanceStatus> statuses = new CopyOnWriteArrayList<InstanceStatus>();
+   private final AtomicInteger sweeps = new AtomicInteger();
+   private final List<String> sweepThreads = new CopyOnWriteArrayList<String>();
+   private ScheduledExecutorService scheduler;
+   private ExecutorService userExecutor;
+   private InstanceStatusPoller poller;
+
+   @BeforeMethod
+   public void setUp() {
+      statuses.clear();
+      sweeps.set(0);
+      sweepThreads.clear();
+      InstanceApi instanceApi = createMock(InstanceApi.class);
+      ECSComputeServiceApi api = createMock(ECSComputeServiceApi.class);
+      expect(api.instanceApi()).andReturn(instanceApi).anyTimes();
+      expect(instanceApi.listInstanceStatus(REGION)).andAnswer(new IAnswer<PagedIterable<InstanceStatus>>() {
+         @Override
+         public PagedIterable<InstanceStatus> answer() {
+            sweeps.incrementAndGet();
+            sweepThreads.add(Thread.currentThread().getName());
+            return PagedIterables.onlyPage(IterableWithMarkers.from(ImmutableList.copyOf(statuses)));
+         }
+      }).anyTimes();
+      replay(api, instanceApi);
+
+      scheduler = Executors.newSingleThreadScheduledExecutor();
+      userExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+         @Override
+         public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, "user-" + System.nanoTime());
+         }
+      });
+      poller = new InstanceStatusPoller(api, scheduler, userExecutor, 10, 20);
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void tearDown() {
+      scheduler.shutdownNow();
+      userExecutor.shutdownNow();
+   }
+
+   public void testSweepsRunOnTheUserExecutor() throws Exception {
+      statuses.add(InstanceStatus.create("i-1", RUNNING));
+
+      assertTrue(poller.awaitStatus(RegionAndId.create(REGION, "i-1"), RUNNING, 10000).get(10, TimeUnit.SECONDS));
+      assertFalse(sweepThreads.isEmpty());
+      for (String thread : sweepThreads) {
+         assertTrue(thread.startsWith("user-"), thread);
+      }
+   }
+
+   public void testCurrentStatus() {
+      statuses.add(InstanceStatus.create("i-1", RUNNING));
+
+      assertEquals(poller.currentStatus(RegionAndId.create(REGION, "i-1")).get(), RUNNING);
+      assertFalse(poller.currentStatus(RegionAndId.create(REGION, "i-2")).isPresent());
+      assertEquals(sweeps.get(), 1);
+   }
+
+   public void testWaitersShareOneSweepPerTick() throws Exception {
+      List<ListenableFuture<Boolean>> futures = new CopyOnWriteArrayList<ListenableFuture<Boolean>>();
+      for (int i = 0; i < 20; i++) {
+         statuses.add(InstanceStatus.create("i-" + i, STARTING));
+         futures.add(poller.awaitStatus(RegionAndId.create(REGION, "i-" + i), STOPPED, 10000));
+      }
+
+      TimeUnit.MILLISECONDS.sleep(100);
+      int sweepsWhilePending = sweeps.get();
+      assertTrue(sweepsWhilePending > 0 && sweepsWhilePending < 20, "sweeps: " + sweepsWhilePending);
+
+      statuses.clear();
+      for (int i = 0; i < 20; i++) {
+         statuses.add(InstanceStatus.create("i-" + i, STOPPED));
+      }
+      for (ListenableFuture<Boolean> future : futures) {
+         assertTrue(future.get(5, TimeUnit.SECONDS));
+      }
+   }
+
+   public void testAwaitTerminated() throws Exception {
+      statuses.add(InstanceStatus.create("i-1", STOPPED));
+      ListenableFuture<Boolean> terminated = poller.awaitTerminated(RegionAndId.create(REGION, "i-1"), 10000);
+
+      TimeUnit.MILLISECONDS.sleep(50);
+      assertFalse(terminated.isDone());
+
+      statuses.clear();
+      assertTrue(terminated.get(5, TimeUnit.SECONDS));
+   }
+
+   public void testWaitersFailWhenTheUserExecutorRejectsTheSweep() throws Exception {
+      statuses.add(InstanceStatus.create("i-1", STARTING));
+      userExecutor.shutdown();
+
+      try {
+         poller.awaitStatus(RegionAndId.create(REGION, "i-1"), RUNNING, 10000).get(5, TimeUnit.SECONDS);
+         fail("the sweep cannot run");
+      } catch (ExecutionException e) {
+         assertTrue(e.getCause() instanceof RejectedExecutionException, e.getCause().toString());
+      }
+   }
+
+   public void testAwaitTimesOut() throws Exception {
+      statuses.add(InstanceStatus.create("i-1", STARTING));
+
+      assertFalse(poller.awaitStatus(RegionAndId.create(REGION, "i-1"), RUNNING, 50).get(5, TimeUnit.SECONDS));
+   }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.strategy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
+import org.jclouds.aliyun.ecs.domain.Instance;
+import org.jclouds.aliyun.ecs.domain.Tag;
+import org.jclouds.aliyun.ecs.domain.options.ListInstancesOptions;
+import org.jclouds.aliyun.ecs.domain.options.PaginationOptions;
+import org.jclouds.aliyun.ecs.domain.options.TagOptions;
+import org.jclouds.aliyun.ecs.features.InstanceApi;
+import org.jclouds.collect.IterableWithMarkers;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.jclouds.aliyun.ecs.domain.options.ListInstancesOptions.MAX_INSTANCE_IDS;
+import static org.testng.Assert.assertEquals;
+
+@Test(groups = "unit", testName = "InstanceTagIndexTest")
+public class InstanceTagIndexTest {
+
+   private static final String REGION = "eu-central-1";
+   private static final Tag GROUP_TAG = Tag.create(Tag.GROUP, "web");
+
+   private ECSComputeServiceApi api;
+   private InstanceApi instanceApi;
+
+   @BeforeMethod
+   public void setUp() {
+      api = createMock(ECSComputeServiceApi.class);
+      instanceApi = createMock(InstanceApi.class);
+      expect(api.instanceApi()).andReturn(instanceApi).anyTimes();
+   }
+
+   public void testTagIsIndexedWithAFilteredListingThenDescribedByIdInChunks() {
+      List<Instance> tagged = Lists.newArrayList();
+      List<String> ids = Lists.newArrayList();
+      for (int i = 0; i < MAX_INSTANCE_IDS + 5; i++) {
+         tagged.add(instance("i-" + i));
+         ids.add("i-" + i);
+      }
+      expect(instanceApi.list(REGION, taggedWith(GROUP_TAG)))
+            .andReturn(IterableWithMarkers.from(tagged)).once();
+      expect(instanceApi.list(REGION, instanceIds(ids.subList(0, MAX_INSTANCE_IDS))))
+            .andReturn(IterableWithMarkers.from(tagged.subList(0, MAX_INSTANCE_IDS))).once();
+      expect(instanceApi.list(REGION, instanceIds(ids.subList(MAX_INSTANCE_IDS, ids.size()))))
+            .andReturn(IterableWithMarkers.from(tagged.subList(MAX_INSTANCE_IDS, ids.size()))).once();
+      replay(api, instanceApi);
+
+      InstanceTagIndex index = new InstanceTagIndex(api, 60);
+      assertEquals(index.instancesTagged(REGION, GROUP_TAG), tagged);
+      assertEquals(index.instancesTagged(REGION, GROUP_TAG), tagged);
+      verify(api, instanceApi);
+   }
+
+   public void testCreatedAndDestroyedInstancesUpdateTheIndexedTags() {
+      Instance first = instance("i-1");
+      Instance second = instance("i-2");
+      expect(instanceApi.list(REGION, taggedWith(GROUP_TAG)))
+            .andReturn(IterableWithMarkers.from(ImmutableList.of(first))).once();
+      expect(instanceApi.list(REGION, instanceIds(ImmutableList.of("i-1", "i-2"))))
+            .andReturn(IterableWithMarkers.from(ImmutableList.of(first, second))).once();
+      expect(instanceApi.list(REGION, instanceIds(ImmutableList.of("i-2"))))
+            .andReturn(IterableWithMarkers.from(ImmutableList.of(second))).once();
+      replay(api, instanceApi);
+
+      InstanceTagIndex index = new InstanceTagIndex(api, 60);
+      assertEquals(index.instancesTagged(REGION, GROUP_TAG), ImmutableList.of(first));
+      index.add(REGION, ImmutableMap.of(Tag.GROUP, "web", "vsw-1", ""), "i-2");
+      assertEquals(index.instancesTagged(REGION, GROUP_TAG), ImmutableList.of(first, second));
+      index.remove(REGION, "i-1");
+      assertEquals(index.instancesTagged(REGION, GROUP_TAG), ImmutableList.of(second));
+      verify(api, instanceApi);
+   }
+
+   public void testInstancesDeletedElsewhereAreDropped() {
+      Instance first = instance("i-1");
+      Instance second = instance("i-2");
+      expect(instanceApi.list(REGION, taggedWith(GROUP_TAG)))
+            .andReturn(IterableWithMarkers.from(ImmutableList.of(first, second))).once();
+      expect(instanceApi.list(REGION, instanceIds(ImmutableList.of("i-1", "i-2"))))
+            .andReturn(IterableWithMarkers.from(ImmutableList.of(second))).once();
+      expect(instanceApi.list(REGION, instanceIds(ImmutableList.of("i-2"))))
+            .andReturn(IterableWithMarkers.from(ImmutableList.of(second))).once();
+      replay(api, instanceApi);
+
+      InstanceTagIndex index = new InstanceTagIndex(api, 60);
+      index.instancesTagged(REGION, GROUP_TAG);
+      assertEquals(index.instancesTagged(REGION, GROUP_TAG), ImmutableList.of(second));
+      assertEquals(index.instancesTagged(REGION, GROUP_TAG), ImmutableList.of(second));
+      verify(api, instanceApi);
+   }
+
+   public void testEveryPageOfTheTaggedInstancesIsIndexed() {
+      Instance first = instance("i-1");
+      Instance second = instance("i-2");
+      expect(instanceApi.list(REGION, taggedWith(GROUP_TAG)))
+            .andReturn(IterableWithMarkers.from(ImmutableList.of(first), PaginationOptions.Builder.pageNumber(2)))
+            .once();
+      expect(instanceApi.list(REGION, taggedWith(GROUP_TAG).page(PaginationOptions.Builder.pageNumber(2))))
+            .andReturn(IterableWithMarkers.from(ImmutableList.of(second))).once();
+      expect(instanceApi.list(REGION, instanceIds(ImmutableList.of("i-1", "i-2"))))
+            .andReturn(IterableWithMarkers.from(ImmutableList.of(first, second))).once();
+      replay(api, instanceApi);
+
+      InstanceTagIndex index = new InstanceTagIndex(api, 60);
+      assertEquals(index.instancesTagged(REGION, GROUP_TAG), ImmutableList.of(first, second));
+      assertEquals(index.instancesTagged(REGION, GROUP_TAG), ImmutableList.of(first, second));
+      verify(api, instanceApi);
+   }
+
+   private static Instance instance(String id) {
+      Instance instance = createNiceMock(Instance.class);
+      expect(instance.id()).andReturn(id).anyTimes();
+      replay(instance);
+      return instance;
+   }
+
+   private static ListInstancesOptions taggedWith(Tag tag) {
+      return ListInstancesOptions.Builder.tagOptions(TagOptions.Builder.tag(1, tag.key(), tag.value()));
+   }
+
+   private static ListInstancesOptions instanceIds(List<String> instanceIds) {
+      return ListInstancesOptions.Builder.instanceIds(Iterables.toArray(instanceIds, String.class))
+            .paginationOptions(PaginationOptions.Builder.pageSize(MAX_INSTANCE_IDS));
+   }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.strategy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
+import org.jclouds.aliyun.ecs.domain.AvailableResource;
+import org.jclouds.aliyun.ecs.domain.AvailableZone;
+import org.jclouds.aliyun.ecs.domain.InstanceType;
+import org.jclouds.aliyun.ecs.domain.SupportedResource;
+import org.jclouds.aliyun.ecs.features.InstanceApi;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.jclouds.aliyun.ecs.domain.SupportedResource.Status.AVAILABLE;
+import static org.jclouds.aliyun.ecs.domain.SupportedResource.Status.SOLDOUT;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit", testName = "InstanceTypeAvailabilityTest")
+public class InstanceTypeAvailabilityTest {
+
+   private static final String REGION = "eu-central-1";
+
+   private ECSComputeServiceApi api;
+   private InstanceApi instanceApi;
+
+   @BeforeMethod
+   public void setUp() {
+      api = createMock(ECSComputeServiceApi.class);
+      instanceApi = createMock(InstanceApi.class);
+      expect(api.instanceApi()).andReturn(instanceApi).anyTimes();
+   }
+
+   public void testRegionIsDescribedOnceAndIndexedByType() {
+      expect(instanceApi.listInstanceTypesByAvailableZone(REGION)).andReturn(ImmutableList.of(
+            zone("eu-central-1a", SupportedResource.create(AVAILABLE, "ecs.t5-lc1m1.small"),
+                  SupportedResource.create(SOLDOUT, "ecs.g5.large")),
+            zone("eu-central-1b", SupportedResource.create(AVAILABLE, "ecs.t5-lc1m1.small"),
+                  SupportedResource.create(AVAILABLE, "ecs.g5.large"))))
+            .once();
+      replay(api, instanceApi);
+
+      InstanceTypeAvailability availability = new InstanceTypeAvailability(api, newDirectExecutorService(), 60);
+      for (int i = 0; i < 3; i++) {
+         InstanceTypeAvailability.RegionAvailability region = availability.get(REGION);
+         assertEquals(region.availableInstanceTypes(), ImmutableSet.of("ecs.t5-lc1m1.small", "ecs.g5.large"));
+         assertEquals(region.zonesOffering("ecs.g5.large"), ImmutableSet.of("eu-central-1b"));
+         assertTrue(region.zonesOffering("ecs.unknown").isEmpty());
+      }
+      verify(api, instanceApi);
+   }
+
+   public void testInstanceTypesAreDescribedOnce() {
+      InstanceType small = InstanceType.create("ecs.t5-lc1m1.small", "ecs.t5", 1, "", 1, 1.0, 0.0, "");
+      InstanceType large = InstanceType.create("ecs.g5.large", "ecs.g5", 2, "", 2, 8.0, 0.0, "");
+      expect(instanceApi.listTypes()).andReturn(ImmutableList.of(small, large)).once();
+      replay(api, instanceApi);
+
+      InstanceTypeAvailability availability = new InstanceTypeAvailability(api, newDirectExecutorService(), 60);
+      assertEquals(availability.instanceTypes(), ImmutableMap.of(small.id(), small, large.id(), large));
+      assertEquals(ImmutableList.copyOf(availability.instanceTypes().values()), ImmutableList.of(small, large));
+      verify(api, instanceApi);
+   }
+
+   private static AvailableZone zone(String zoneId, SupportedResource... supportedResources) {
+      AvailableResource instanceTypes = AvailableResource.create("InstanceType",
+            ImmutableMap.<String, List<SupportedResource>>of("SupportedResource", ImmutableList.copyOf(supportedResources)));
+      return AvailableZone.create("Available", REGION,
+            ImmutableMap.<String, List<AvailableResource>>of("AvailableResource", ImmutableList.of(instanceTypes)), zoneId);
+   }
+}
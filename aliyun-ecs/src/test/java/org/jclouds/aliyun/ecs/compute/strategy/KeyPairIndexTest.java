@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.strategy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
+import org.jclouds.aliyun.ecs.domain.KeyPair;
+import org.jclouds.aliyun.ecs.features.SshKeyPairApi;
+import org.jclouds.collect.IterableWithMarkers;
+import org.jclouds.collect.PagedIterables;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+@Test(groups = "unit", testName = "KeyPairIndexTest")
+public class KeyPairIndexTest {
+
+   private static final String REGION = "eu-central-1";
+
+   private ECSComputeServiceApi api;
+   private SshKeyPairApi sshKeyPairApi;
+
+   @BeforeMethod
+   public void setUp() {
+      api = createMock(ECSComputeServiceApi.class);
+      sshKeyPairApi = createMock(SshKeyPairApi.class);
+      expect(api.sshKeyPairApi()).andReturn(sshKeyPairApi).anyTimes();
+   }
+
+   public void testRegionIsListedOnce() {
+      KeyPair first = KeyPair.create("first", "aa11", null);
+      KeyPair second = KeyPair.create("second", "bb22", null);
+      expect(sshKeyPairApi.list(REGION)).andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(
+            ImmutableList.of(first, second)))).once();
+      replay(api, sshKeyPairApi);
+
+      KeyPairIndex index = new KeyPairIndex(api, 60);
+      for (int i = 0; i < 3; i++) {
+         assertSame(index.getOrImport(REGION, "aa11", failingImport()), first);
+         assertSame(index.getOrImport(REGION, "bb22", failingImport()), second);
+      }
+      verify(api, sshKeyPairApi);
+   }
+
+   public void testConcurrentLookupsImportAMissingKeyPairOnce() throws Exception {
+      expect(sshKeyPairApi.list(REGION)).andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(
+            ImmutableList.<KeyPair>of()))).once();
+      replay(api, sshKeyPairApi);
+
+      final KeyPairIndex index = new KeyPairIndex(api, 60);
+      final KeyPair imported = KeyPair.create("imported", "cc33", null);
+      final AtomicInteger imports = new AtomicInteger();
+      final CountDownLatch start = new CountDownLatch(1);
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+         List<Future<KeyPair>> results = Lists.newArrayList();
+         for (int i = 0; i < 8; i++) {
+            results.add(executor.submit(new Callable<KeyPair>() {
+               @Override
+               public KeyPair call() throws Exception {
+                  start.await();
+                  return index.getOrImport(REGION, "cc33", new Callable<KeyPair>() {
+                     @Override
+                     public KeyPair call() {
+                        imports.incrementAndGet();
+                        return imported;
+                     }
+                  });
+               }
+            }));
+         }
+         start.countDown();
+         for (Future<KeyPair> result : results) {
+            assertSame(result.get(), imported);
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+      assertEquals(imports.get(), 1);
+      verify(api, sshKeyPairApi);
+   }
+
+   public void testRemovedKeyPairIsImportedAgain() {
+      KeyPair keyPair = KeyPair.create("first", "aa11", null);
+      expect(sshKeyPairApi.list(REGION)).andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(
+            ImmutableList.of(keyPair)))).once();
+      replay(api, sshKeyPairApi);
+
+      KeyPairIndex index = new KeyPairIndex(api, 60);
+      assertSame(index.getOrImport(REGION, "aa11", failingImport()), keyPair);
+      index.remove(REGION, "first");
+
+      final KeyPair imported = KeyPair.create("second", "aa11", null);
+      assertSame(index.getOrImport(REGION, "aa11", new Callable<KeyPair>() {
+         @Override
+         public KeyPair call() {
+            return imported;
+         }
+      }), imported);
+      verify(api, sshKeyPairApi);
+   }
+
+   public void testFailedImportIsNotCached() {
+      expect(sshKeyPairApi.list(REGION)).andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(
+            ImmutableList.<KeyPair>of()))).once();
+      replay(api, sshKeyPairApi);
+
+      KeyPairIndex index = new KeyPairIndex(api, 60);
+      try {
+         index.getOrImport(REGION, "aa11", failingImport());
+         fail("expected an IllegalStateException");
+      } catch (IllegalStateException expected) {
+      }
+      final KeyPair imported = KeyPair.create("first", "aa11", null);
+      assertSame(index.getOrImport(REGION, "aa11", new Callable<KeyPair>() {
+         @Override
+         public KeyPair call() {
+            return imported;
+         }
+      }), imported);
+      verify(api, sshKeyPairApi);
+   }
+
+   private static Callable<KeyPair> failingImport() {
+      return new Callable<KeyPair>() {
+         @Override
+         public KeyPair call() {
+            throw new IllegalStateException("the key pair should not be imported");
+         }
+      };
+   }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.strategy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
+import org.jclouds.aliyun.ecs.domain.SecurityGroup;
+import org.jclouds.aliyun.ecs.domain.Tag;
+import org.jclouds.aliyun.ecs.domain.VSwitch;
+import org.jclouds.aliyun.ecs.features.SecurityGroupApi;
+import org.jclouds.aliyun.ecs.features.VSwitchApi;
+import org.jclouds.collect.IterableWithMarkers;
+import org.jclouds.collect.PagedIterables;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit", testName = "NetworkResourceDirectoryTest")
+public class NetworkResourceDirectoryTest {
+
+   private static final String REGION = "eu-central-1";
+
+   private ECSComputeServiceApi api;
+   private SecurityGroupApi securityGroupApi;
+   private VSwitchApi vSwitchApi;
+
+   @BeforeMethod
+   public void setUp() {
+      api = createMock(ECSComputeServiceApi.class);
+      securityGroupApi = createMock(SecurityGroupApi.class);
+      vSwitchApi = createMock(VSwitchApi.class);
+      expect(api.securityGroupApi()).andReturn(securityGroupApi).anyTimes();
+      expect(api.vSwitchApi()).andReturn(vSwitchApi).anyTimes();
+   }
+
+   public void testSecurityGroupsAreIndexedByIdAndTags() {
+      SecurityGroup web = securityGroup("sg-1", Tag.create(Tag.DEFAULT_OWNER_KEY, Tag.DEFAULT_OWNER_VALUE),
+            Tag.create(Tag.GROUP, "web"));
+      SecurityGroup db = securityGroup("sg-2", Tag.create(Tag.GROUP, "db"),
+            Tag.create(Tag.DEFAULT_OWNER_KEY, Tag.DEFAULT_OWNER_VALUE));
+      SecurityGroup untagged = SecurityGroup.create("sg-3", "", "untagged", "vpc-1",
+            ImmutableMap.<String, List<Tag>>of());
+      expect(securityGroupApi.list(REGION)).andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(
+            ImmutableList.of(web, db, untagged)))).once();
+      replay(api, securityGroupApi, vSwitchApi);
+
+      NetworkResourceDirectory directory = new NetworkResourceDirectory(api, 60);
+      assertEquals(directory.securityGroup(REGION, "sg-2").get(), db);
+      assertEquals(directory.securityGroup(REGION, "sg-3").get(), untagged);
+      assertEquals(directory.securityGroupsTagged(REGION, ImmutableSet.of(Tag.create(Tag.GROUP, "db"),
+            Tag.create(Tag.DEFAULT_OWNER_KEY, Tag.DEFAULT_OWNER_VALUE))), ImmutableList.of(db));
+      assertTrue(directory.securityGroupsTagged(REGION, ImmutableSet.of(Tag.create(Tag.GROUP, "web"))).isEmpty());
+      verify(api, securityGroupApi, vSwitchApi);
+   }
+
+   public void testMissingIdListsTheRegionAgainOnce() {
+      VSwitch vSwitch = vSwitch("vsw-1", "vpc-1");
+      VSwitch created = vSwitch("vsw-2", "vpc-1");
+      expect(vSwitchApi.list(REGION)).andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(
+            ImmutableList.of(vSwitch))));
+      expect(vSwitchApi.list(REGION)).andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(
+            ImmutableList.of(vSwitch, created))));
+      replay(api, securityGroupApi, vSwitchApi);
+
+      NetworkResourceDirectory directory = new NetworkResourceDirectory(api, 60);
+      assertEquals(directory.vSwitch(REGION, "vsw-1").get(), vSwitch);
+      assertEquals(directory.vSwitchInVPC(REGION, "vpc-1", "vsw-2").get(), created);
+      assertFalse(directory.vSwitchInVPC(REGION, "vpc-2", "vsw-1").isPresent());
+      assertEquals(directory.vSwitchesInVPC(REGION, "vpc-1"), ImmutableList.of(vSwitch, created));
+      verify(api, securityGroupApi, vSwitchApi);
+   }
+
+   public void testInvalidationListsTheRegionAgain() {
+      SecurityGroup securityGroup = securityGroup("sg-1", Tag.create(Tag.GROUP, "web"));
+      expect(securityGroupApi.list(REGION)).andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(
+            ImmutableList.of(securityGroup)))).times(2);
+      replay(api, securityGroupApi, vSwitchApi);
+
+      NetworkResourceDirectory directory = new NetworkResourceDirectory(api, 60);
+      assertTrue(directory.securityGroup(REGION, "sg-1").isPresent());
+      directory.invalidateSecurityGroups(REGION);
+      assertTrue(directory.securityGroup(REGION, "sg-1").isPresent());
+      verify(api, securityGroupApi, vSwitchApi);
+   }
+
+   private static SecurityGroup securityGroup(String id, Tag... tags) {
+      return SecurityGroup.create(id, "", id, "vpc-1",
+            ImmutableMap.<String, List<Tag>>of("Tag", ImmutableList.copyOf(tags)));
+   }
+
+   private static VSwitch vSwitch(String id, String vpcId) {
+      return VSwitch.create("", new Date(), "vSwitch", "", VSwitch.Status.AVAILABLE, 1, vpcId, id, "");
+   }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.strategy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.jclouds.aliyun.ecs.ECSComputeServiceApi;
+import org.jclouds.aliyun.ecs.domain.Region;
+import org.jclouds.aliyun.ecs.domain.ResourceInfo;
+import org.jclouds.aliyun.ecs.domain.Zone;
+import org.jclouds.aliyun.ecs.features.RegionAndZoneApi;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+
+@Test(groups = "unit", testName = "RegionAndZoneDirectoryTest")
+public class RegionAndZoneDirectoryTest {
+
+   public void testRegionsAndZonesAreDescribedOnce() {
+      Region region = Region.create("eu-central-1", "EU Central 1");
+      Zone zone = Zone.create("eu-central-1a", "EU Central 1 A",
+            ImmutableMap.<String, List<Object>>of(),
+            ImmutableMap.<String, List<String>>of(),
+            ImmutableMap.<String, List<String>>of(),
+            ImmutableMap.<String, List<ResourceInfo>>of(),
+            ImmutableMap.<String, List<String>>of(),
+            ImmutableMap.<String, List<String>>of(),
+            ImmutableMap.<String, List<String>>of());
+
+      RegionAndZoneApi regionAndZoneApi = createMock(RegionAndZoneApi.class);
+      ECSComputeServiceApi api = createMock(ECSComputeServiceApi.class);
+      expect(api.regionAndZoneApi()).andReturn(regionAndZoneApi).anyTimes();
+      expect(regionAndZoneApi.describeRegions()).andReturn(ImmutableList.of(region)).once();
+      expect(regionAndZoneApi.describeZones("eu-central-1")).andReturn(ImmutableList.of(zone)).once();
+      replay(api, regionAndZoneApi);
+
+      RegionAndZoneDirectory directory = new RegionAndZoneDirectory(api, 60);
+      for (int i = 0; i < 3; i++) {
+         assertEquals(directory.regions(), ImmutableList.of(region));
+         assertEquals(directory.zones("eu-central-1"), ImmutableList.of(zone));
+      }
+
+      verify(api, regionAndZoneApi);
+   }
+
+   public void testInvalidateZones() {
+      RegionAndZoneApi regionAndZoneApi = createMock(RegionAndZoneApi.class);
+      ECSComputeServiceApi api = createMock(ECSComputeServiceApi.class);
+      expect(api.regionAndZoneApi()).andReturn(regionAndZoneApi).anyTimes();
+      expect(regionAndZoneApi.describeZones("eu-central-1")).andReturn(ImmutableList.<Zone>of()).times(2);
+      replay(api, regionAndZoneApi);
+
+      RegionAndZoneDirectory directory = new RegionAndZoneDirectory(api, 60);
+      directory.zones("eu-central-1");
+      directory.invalidateZones("eu-central-1");
+      directory.zones("eu-central-1");
+
+      verify(api, regionAndZoneApi);
+   }
+}
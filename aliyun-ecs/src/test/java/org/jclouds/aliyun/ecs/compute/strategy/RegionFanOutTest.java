@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.compute.strategy;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit", testName = "RegionFanOutTest", singleThreaded = true)
+public class RegionFanOutTest {
+
+   private ListeningExecutorService executor;
+
+   @BeforeMethod
+   public void setUp() {
+      executor = listeningDecorator(Executors.newCachedThreadPool());
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void tearDown() {
+      executor.shutdownNow();
+   }
+
+   public void testRegionsAreListedConcurrently() {
+      final CountDownLatch allStarted = new CountDownLatch(3);
+      RegionFanOut fanOut = new RegionFanOut(executor, 100, 10000);
+
+      List<String> results = fanOut.list(ImmutableList.of("a", "b", "c"), new Function<String, List<String>>() {
+         @Override
+         public List<String> apply(String regionId) {
+            allStarted.countDown();
+            try {
+               // every region blocks until all of them have started
+               assertTrue(allStarted.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+               throw new IllegalStateException(e);
+            }
+            return ImmutableList.of(regionId + "-1", regionId + "-2");
+         }
+      }).toSortedList(String.CASE_INSENSITIVE_ORDER);
+
+      assertEquals(results, ImmutableList.of("a-1", "a-2", "b-1", "b-2", "c-1", "c-2"));
+   }
+
+   public void testFailingRegionIsSkipped() {
+      RegionFanOut fanOut = new RegionFanOut(executor, 100, 10000);
+
+      List<String> results = fanOut.list(ImmutableList.of("a", "b"), new Function<String, List<String>>() {
+         @Override
+         public List<String> apply(String regionId) {
+            if ("a".equals(regionId)) {
+               throw new IllegalStateException("region unavailable");
+            }
+            return ImmutableList.of(regionId);
+         }
+      }).toList();
+
+      assertEquals(results, ImmutableList.of("b"));
+   }
+
+   public void testSlowRegionIsSkipped() {
+      RegionFanOut fanOut = new RegionFanOut(executor, 100, 200);
+
+      List<String> results = fanOut.list(ImmutableList.of("slow", "fast"), new Function<String, List<String>>() {
+         @Override
+         public List<String> apply(String regionId) {
+            if ("slow".equals(regionId)) {
+               try {
+                  TimeUnit.SECONDS.sleep(10);
+               } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+               }
+            }
+            return ImmutableList.of(regionId);
+         }
+      }).toList();
+
+      assertEquals(results, ImmutableList.of("fast"));
+   }
+
+   public void testTheRateLimitDoesNotCountTowardsTheTimeout() {
+      // the fourth request against the region is let through 600 ms after the first one
+      RegionFanOut fanOut = new RegionFanOut(executor, 5, 300);
+
+      List<String> results = fanOut.list(ImmutableListMultimap.of("a", "1", "a", "2", "a", "3", "a", "4"),
+            new Function<Map.Entry<String, String>, List<String>>() {
+               @Override
+               public List<String> apply(Map.Entry<String, String> request) {
+                  return ImmutableList.of(request.getValue());
+               }
+            }).toSortedList(String.CASE_INSENSITIVE_ORDER);
+
+      assertEquals(results, ImmutableList.of("1", "2", "3", "4"));
+   }
+
+   @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = "region unavailable")
+   public void testFailingRequestFailsListAll() {
+      RegionFanOut fanOut = new RegionFanOut(executor, 100, 10000);
+
+      fanOut.listAll(ImmutableListMultimap.of("a", "a", "b", "b"), new Function<Map.Entry<String, String>, List<String>>() {
+         @Override
+         public List<String> apply(Map.Entry<String, String> request) {
+            if ("a".equals(request.getKey())) {
+               throw new IllegalStateException("region unavailable");
+            }
+            return ImmutableList.of(request.getValue());
+         }
+      }).toList();
+   }
+
+   @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = "region unavailable")
+   public void testFailingRegionFailsListAll() {
+      RegionFanOut fanOut = new RegionFanOut(executor, 100, 10000);
+
+      fanOut.listAll(ImmutableList.of("a", "b"), new Function<String, List<String>>() {
+         @Override
+         public List<String> apply(String regionId) {
+            if ("a".equals(regionId)) {
+               throw new IllegalStateException("region unavailable");
+            }
+            return ImmutableList.of(regionId);
+         }
+      }).toList();
+   }
+
+   @Test(expectedExceptions = UncheckedTimeoutException.class)
+   public void testSlowRequestFailsListAll() {
+      RegionFanOut fanOut = new RegionFanOut(executor, 100, 200);
+
+      fanOut.listAll(ImmutableListMultimap.of("slow", "slow", "fast", "fast"), new Function<Map.Entry<String, String>, List<String>>() {
+         @Override
+         public List<String> apply(Map.Entry<String, String> request) {
+            if ("slow".equals(request.getKey())) {
+               try {
+                  TimeUnit.SECONDS.sleep(10);
+               } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+               }
+            }
+            return ImmutableList.of(request.getValue());
+         }
+      }).toList();
+   }
+}
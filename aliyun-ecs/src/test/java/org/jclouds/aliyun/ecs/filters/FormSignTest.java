@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.filters;
+
+import com.google.common.base.Suppliers;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Multimap;
+import org.jclouds.domain.Credentials;
+import org.jclouds.encryption.internal.JCECrypto;
+import org.jclouds.http.HttpRequest;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.Instant;
+
+import static org.jclouds.http.utils.Queries.queryParser;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit", testName = "FormSignTest")
+public class FormSignTest {
+
+   private FormSign formSign;
+
+   @BeforeMethod
+   public void setUp() throws Exception {
+      formSign = new FormSign(Suppliers.ofInstance(new Credentials("testid", "testsecret")), new JCECrypto());
+   }
+
+   /**
+    * Reference values from the Alibaba Cloud signature documentation.
+    */
+   public void testSignatureMatchesReference() {
+      Multimap<String, String> params = LinkedHashMultimap.create();
+      params.put("Version", "2014-05-26");
+      params.put("Timestamp", "2016-02-23T12:46:24Z");
+      params.put("SignatureVersion", "1.0");
+      params.put("SignatureNonce", "3ee8c1b8-83d3-44af-a94f-4e0ad82fd6cf");
+      params.put("SignatureMethod", "HMAC-SHA1");
+      params.put("Format", "XML");
+      params.put("Action", "DescribeRegions");
+      params.put("AccessKeyId", "testid");
+
+      String stringToSign = formSign.createStringToSign("GET", params);
+
+      assertEquals(stringToSign, "GET&%2F&AccessKeyId%3Dtestid%26Action%3DDescribeRegions%26Format%3DXML"
+            + "%26SignatureMethod%3DHMAC-SHA1%26SignatureNonce%3D3ee8c1b8-83d3-44af-a94f-4e0ad82fd6cf"
+            + "%26SignatureVersion%3D1.0%26Timestamp%3D2016-02-23T12%253A46%253A24Z%26Version%3D2014-05-26");
+      assertEquals(formSign.sign(stringToSign, "testsecret"), "OLeaidS1JvxuMvnyHOwuJ+uX5qY=");
+   }
+
+   public void testSigningKeyFollowsCredentials() {
+      String signature = formSign.sign("payload", "testsecret");
+
+      assertTrue(!signature.equals(formSign.sign("payload", "othersecret")));
+      assertEquals(formSign.sign("payload", "testsecret"), signature);
+   }
+
+   public void testCanonicalizedQueryStringEncoding() {
+      Multimap<String, String> params = LinkedHashMultimap.create();
+      params.put("b", "a b*c~ä");
+      params.put("a", "x/y");
+
+      assertEquals(formSign.getCanonicalizedQueryString(params), "a%3Dx%252Fy%26b%3Da%2520b%252Ac~%25C3%25A4");
+   }
+
+   public void testRepeatedKeysKeepTheLastValue() {
+      Multimap<String, String> params = LinkedHashMultimap.create();
+      params.put("a", "1");
+      params.put("a", "2");
+
+      assertEquals(formSign.getCanonicalizedQueryString(params), "a%3D2");
+   }
+
+   public void testTimestampFormat() {
+      assertEquals(FormSign.formatTimestamp(Instant.ofEpochSecond(1456231584)), "2016-02-23T12:46:24Z");
+   }
+
+   public void testFilterAddsSignedParameters() {
+      HttpRequest request = HttpRequest.builder().method("GET")
+            .endpoint("https://ecs.aliyuncs.com/?Action=DescribeRegions&Format=JSON").build();
+
+      Multimap<String, String> params = queryParser().apply(formSign.filter(request).getEndpoint().getQuery());
+
+      assertEquals(params.get("AccessKeyId").iterator().next(), "testid");
+      assertTrue(params.containsKey("Timestamp"));
+      assertTrue(params.containsKey("SignatureNonce"));
+      assertTrue(params.containsKey("Signature"));
+   }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.functions;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.jclouds.aliyun.ecs.domain.internal.PaginatedCollection;
+import org.jclouds.aliyun.ecs.domain.options.PaginationOptions;
+import org.jclouds.aliyun.ecs.functions.ArgsToParallelPagedIterable.ParallelPagedIterable;
+import org.jclouds.collect.IterableWithMarker;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit", testName = "ArgsToParallelPagedIterableTest")
+public class ArgsToParallelPagedIterableTest {
+
+   private static final int PAGE_SIZE = 10;
+   private static final int TOTAL_COUNT = 45;
+
+   public void testPagesAreReturnedInOrder() {
+      List<Integer> requested = Collections.synchronizedList(Lists.<Integer>newArrayList());
+      ParallelPagedIterable<String> pages = new ParallelPagedIterable<String>(page(1), 5, fetch(requested),
+            MoreExecutors.directExecutor(), 2);
+
+      List<String> items = pages.concat().toList();
+
+      assertEquals(items.size(), TOTAL_COUNT);
+      for (int i = 0; i < TOTAL_COUNT; i++) {
+         assertEquals(items.get(i), "item-" + i);
+      }
+      assertEquals(Ordering.natural().sortedCopy(requested), ImmutableList.of(2, 3, 4, 5));
+   }
+
+   public void testReadAheadGrowsWithThePagesRead() {
+      List<Integer> requested = Collections.synchronizedList(Lists.<Integer>newArrayList());
+      ParallelPagedIterable<String> pages = new ParallelPagedIterable<String>(page(1), 6, fetch(requested),
+            MoreExecutors.directExecutor(), 2);
+
+      Iterator<IterableWithMarker<String>> iterator = pages.iterator();
+      iterator.next();
+      // a reader that stops at the first page, like firstMatch, requests nothing else
+      assertTrue(requested.isEmpty());
+      iterator.next();
+      assertEquals(Ordering.natural().sortedCopy(requested), ImmutableList.of(2, 3));
+      iterator.next();
+      // never more than the pages in flight ahead of the page being read
+      assertEquals(Ordering.natural().sortedCopy(requested), ImmutableList.of(2, 3, 4, 5));
+   }
+
+   public void testFirstMatchOnTheFirstPageRequestsNothingElse() {
+      List<Integer> requested = Collections.synchronizedList(Lists.<Integer>newArrayList());
+      ParallelPagedIterable<String> pages = new ParallelPagedIterable<String>(page(1), 5, fetch(requested),
+            MoreExecutors.directExecutor(), 4);
+
+      assertEquals(pages.concat().first().get(), "item-0");
+      assertTrue(requested.isEmpty());
+   }
+
+   public void testPagesNotStartedByTheExecutorAreFetchedByTheReader() {
+      List<Integer> requested = Collections.synchronizedList(Lists.<Integer>newArrayList());
+      Executor neverRuns = new Executor() {
+         @Override
+         public void execute(Runnable command) {
+         }
+      };
+      ParallelPagedIterable<String> pages = new ParallelPagedIterable<String>(page(1), 5, fetch(requested),
+            neverRuns, 4);
+
+      assertEquals(pages.concat().size(), TOTAL_COUNT);
+      assertEquals(requested, ImmutableList.of(2, 3, 4, 5));
+   }
+
+   @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = "page 3 failed")
+   public void testPageFailuresArePropagatedToTheReader() {
+      final List<Integer> requested = Lists.newArrayList();
+      final Function<Object, IterableWithMarker<String>> fetch = fetch(requested);
+      ParallelPagedIterable<String> pages = new ParallelPagedIterable<String>(page(1), 5,
+            new Function<Object, IterableWithMarker<String>>() {
+               @Override
+               public IterableWithMarker<String> apply(Object input) {
+                  if ("3".equals(PaginationOptions.class.cast(input).pageNumber())) {
+                     throw new IllegalStateException("page 3 failed");
+                  }
+                  return fetch.apply(input);
+               }
+            }, MoreExecutors.directExecutor(), 4);
+
+      Iterator<IterableWithMarker<String>> iterator = pages.iterator();
+      assertTrue(iterator.next().iterator().hasNext());
+      assertTrue(iterator.next().iterator().hasNext());
+      iterator.next();
+   }
+
+   private static Function<Object, IterableWithMarker<String>> fetch(final List<Integer> requested) {
+      return new Function<Object, IterableWithMarker<String>>() {
+         @Override
+         public IterableWithMarker<String> apply(Object input) {
+            int pageNumber = Integer.parseInt(PaginationOptions.class.cast(input).pageNumber());
+            requested.add(pageNumber);
+            return page(pageNumber);
+         }
+      };
+   }
+
+   private static PaginatedCollection<String> page(int pageNumber) {
+      List<String> items = Lists.newArrayList();
+      for (int i = (pageNumber - 1) * PAGE_SIZE; i < Math.min(pageNumber * PAGE_SIZE, TOTAL_COUNT); i++) {
+         items.add("item-" + i);
+      }
+      return new PaginatedCollection<String>(ImmutableMap.<String, Iterable<String>>of("Items", items), pageNumber,
+            TOTAL_COUNT, PAGE_SIZE, "eu-central-1", "request-" + pageNumber);
+   }
+}
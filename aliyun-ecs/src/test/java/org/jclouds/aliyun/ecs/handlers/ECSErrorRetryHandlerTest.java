@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.handlers;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Guice;
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.handlers.BackoffLimitedRetryHandler;
+import org.jclouds.json.Json;
+import org.jclouds.json.config.GsonModule;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit", testName = "ECSErrorRetryHandlerTest")
+public class ECSErrorRetryHandlerTest {
+
+   private static final String REGION = "eu-central-1";
+   private static final HttpRequest REQUEST = HttpRequest.builder().method("GET")
+         .endpoint("https://ecs.aliyuncs.com/?Action=DescribeInstances&RegionId=" + REGION).build();
+
+   private RequestThrottle throttle;
+   private ECSErrorRetryHandler handler;
+
+   @BeforeMethod
+   public void setUp() {
+      Json json = Guice.createInjector(new GsonModule()).getInstance(Json.class);
+      throttle = new RequestThrottle(20);
+      handler = new ECSErrorRetryHandler(json, new BackoffLimitedRetryHandler(), throttle,
+            ImmutableSet.of("InstanceNotReady"));
+   }
+
+   public void testThrottlingIsReportedAndRetried() {
+      HttpCommand command = command(1);
+      replay(command);
+
+      assertTrue(handler.shouldRetryRequest(command, response(400, "Throttling.User")));
+      assertNotNull(throttle.rate(REGION, "DescribeInstances"));
+      verify(command);
+   }
+
+   public void testRetryableCodeIsRetriedWithoutThrottling() {
+      HttpCommand command = command(1);
+      replay(command);
+
+      assertTrue(handler.shouldRetryRequest(command, response(409, "InstanceNotReady")));
+      assertNull(throttle.rate(REGION, "DescribeInstances"));
+      verify(command);
+   }
+
+   public void testOtherCodesAreNotRetried() {
+      HttpCommand command = createMock(HttpCommand.class);
+      replay(command);
+
+      assertFalse(handler.shouldRetryRequest(command, response(400, "InvalidParameter")));
+      assertFalse(handler.shouldRetryRequest(command, HttpResponse.builder().statusCode(404).build()));
+      verify(command);
+   }
+
+   public void testRequestIsDroppedOnceTheRetriesAreExhausted() {
+      HttpCommand command = command(6);
+      replay(command);
+
+      assertFalse(handler.shouldRetryRequest(command, response(400, "Throttling")));
+      assertNotNull(throttle.rate(REGION, "DescribeInstances"));
+      verify(command);
+   }
+
+   private static HttpCommand command(int failureCount) {
+      HttpCommand command = createMock(HttpCommand.class);
+      expect(command.getCurrentRequest()).andReturn(REQUEST).anyTimes();
+      expect(command.isReplayable()).andReturn(true);
+      expect(command.incrementFailureCount()).andReturn(failureCount);
+      expect(command.getFailureCount()).andReturn(failureCount).anyTimes();
+      return command;
+   }
+
+   private static HttpResponse response(int statusCode, String code) {
+      return HttpResponse.builder().statusCode(statusCode)
+            .payload("{\"RequestId\":\"request\",\"HostId\":\"ecs.aliyuncs.com\",\"Code\":\"" + code
+                  + "\",\"Message\":\"message\"}").build();
+   }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.aliyun.ecs.handlers;
+
+import com.google.common.base.Ticker;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+@Test(groups = "unit", testName = "RequestThrottleTest")
+public class RequestThrottleTest {
+
+   private static final String REGION = "eu-central-1";
+   private static final String ACTION = "DescribeInstances";
+
+   public void testActionsAreNotLimitedUntilThrottled() {
+      RequestThrottle throttle = new RequestThrottle(20, new FakeTicker());
+      throttle.acquire(REGION, ACTION);
+      assertNull(throttle.rate(REGION, ACTION));
+
+      throttle.onThrottled(REGION, ACTION);
+      assertEquals(throttle.rate(REGION, ACTION), 20.0);
+      assertNull(throttle.rate(REGION, "DescribeImages"));
+      assertNull(throttle.rate("us-west-1", ACTION));
+   }
+
+   public void testRateIsHalvedOnEveryThrottlingResponse() {
+      RequestThrottle throttle = new RequestThrottle(20, new FakeTicker());
+      throttle.onThrottled(REGION, ACTION);
+      throttle.onThrottled(REGION, ACTION);
+      assertEquals(throttle.rate(REGION, ACTION), 10.0);
+      for (int i = 0; i < 10; i++) {
+         throttle.onThrottled(REGION, ACTION);
+      }
+      assertEquals(throttle.rate(REGION, ACTION), 0.5);
+   }
+
+   public void testRateRecoversAndTheLimitIsLifted() {
+      FakeTicker ticker = new FakeTicker();
+      RequestThrottle throttle = new RequestThrottle(20, ticker);
+      throttle.onThrottled(REGION, ACTION);
+      throttle.onThrottled(REGION, ACTION);
+
+      ticker.advance(3, TimeUnit.SECONDS);
+      throttle.acquire(REGION, ACTION);
+      assertEquals(throttle.rate(REGION, ACTION), 16.0);
+
+      ticker.advance(30, TimeUnit.SECONDS);
+      throttle.acquire(REGION, ACTION);
+      assertNull(throttle.rate(REGION, ACTION));
+   }
+
+   private static class FakeTicker extends Ticker {
+      private final AtomicLong nanos = new AtomicLong();
+
+      @Override
+      public long read() {
+         return nanos.get();
+      }
+
+      void advance(long time, TimeUnit unit) {
+         nanos.addAndGet(unit.toNanos(time));
+      }
+   }
+}
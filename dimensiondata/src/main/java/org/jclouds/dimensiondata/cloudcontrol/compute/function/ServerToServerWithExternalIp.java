@@ -18,7 +18,6 @@ package org.jclouds.dimensiondata.cloudcontrol.compute.function;
 
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
-import com.google.common.base.Predicate;
 import org.jclouds.dimensiondata.cloudcontrol.DimensionDataCloudControlApi;
 import org.jclouds.dimensiondata.cloudcontrol.domain.NatRule;
 import org.jclouds.dimensiondata.cloudcontrol.domain.Server;
@@ -44,17 +43,15 @@ public class ServerToServerWithExternalIp implements Function<Server, ServerWith
       }
       ServerWithExternalIp.Builder builder = ServerWithExternalIp.builder().server(server);
 
-        if (server.networkInfo() != null) {
-            Optional<NatRule> natRuleOptional = api.getNetworkApi().listNatRules(server.networkInfo().networkDomainId())
-                  .concat().firstMatch(new Predicate<NatRule>() {
-                      @Override public boolean apply(NatRule input) {
-                          return input.internalIp().equalsIgnoreCase(server.networkInfo().primaryNic().privateIpv4());
-                      }
-                  });
-            if (natRuleOptional.isPresent()) {
-                builder.externalIp(natRuleOptional.get().externalIp());
-            }
-        }
-        return builder.build();
-    }
+      if (server.networkInfo() != null && server.networkInfo().primaryNic() != null
+            && server.networkInfo().primaryNic().privateIpv4() != null) {
+         Optional<NatRule> natRuleOptional = api.getNetworkApi()
+               .listNatRulesWithInternalIp(server.networkInfo().networkDomainId(),
+                     server.networkInfo().primaryNic().privateIpv4()).concat().first();
+         if (natRuleOptional.isPresent()) {
+            builder.externalIp(natRuleOptional.get().externalIp());
+         }
+      }
+      return builder.build();
+   }
 }
@@ -85,13 +85,8 @@ public class CleanupServer implements Function<String, Boolean> {
 
       // delete nat rules associated to the server, if any
       final NetworkApi networkApi = api.getNetworkApi();
-      List<NatRule> natRulesToBeDeleted = networkApi.listNatRules(networkDomainId).concat()
-            .filter(new Predicate<NatRule>() {
-               @Override
-               public boolean apply(NatRule natRule) {
-                  return natRule.internalIp().equals(internalIp);
-               }
-            }).toList();
+      List<NatRule> natRulesToBeDeleted = networkApi.listNatRulesWithInternalIp(networkDomainId, internalIp).concat()
+            .toList();
 
       for (final NatRule natRule : natRulesToBeDeleted) {
 
@@ -109,13 +104,8 @@ public class CleanupServer implements Function<String, Boolean> {
          }
       }
 
-      List<FirewallRule> firewallRulesToBeDeleted = networkApi.listFirewallRules(networkDomainId).concat()
-            .filter(new Predicate<FirewallRule>() {
-               @Override
-               public boolean apply(FirewallRule firewallRule) {
-                  return firewallRule.name().equals(generateFirewallRuleName(serverId));
-               }
-            }).toList();
+      List<FirewallRule> firewallRulesToBeDeleted = networkApi
+            .listFirewallRulesWithName(networkDomainId, generateFirewallRuleName(serverId)).concat().toList();
 
       for (FirewallRule firewallRule : firewallRulesToBeDeleted) {
          attemptDeleteFirewallRule(serverId, networkApi, firewallRule);
@@ -26,13 +26,18 @@ import org.jclouds.collect.Memoized;
 import org.jclouds.compute.domain.NodeMetadata;
 import org.jclouds.compute.domain.NodeMetadataBuilder;
 import org.jclouds.compute.functions.GroupNamingConvention;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.dimensiondata.cloudcontrol.compute.strategy.TagKeyRegistry;
 import org.jclouds.dimensiondata.cloudcontrol.domain.NIC;
 import org.jclouds.dimensiondata.cloudcontrol.domain.Server;
 import org.jclouds.dimensiondata.cloudcontrol.domain.State;
 import org.jclouds.dimensiondata.cloudcontrol.domain.internal.ServerWithExternalIp;
 import org.jclouds.domain.Location;
+import org.jclouds.logging.Logger;
 
+import javax.annotation.Resource;
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.inject.Singleton;
 import java.util.HashSet;
 import java.util.Map;
@@ -53,20 +58,26 @@ class ServerWithNatRuleToNodeMetadata implements Function<ServerWithExternalIp,
          .put(State.DELETED, NodeMetadata.Status.TERMINATED).put(State.NORMAL, NodeMetadata.Status.RUNNING)
          .put(State.UNRECOGNIZED, NodeMetadata.Status.UNRECOGNIZED).build();
 
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
    private final Supplier<Set<? extends Location>> locations;
    private final GroupNamingConvention nodeNamingConvention;
    private final ServerToHardware serverToHardware;
    private final OperatingSystemToOperatingSystem operatingSystemToOperatingSystem;
+   private final TagKeyRegistry tagKeyRegistry;
 
    @Inject
    ServerWithNatRuleToNodeMetadata(@Memoized final Supplier<Set<? extends Location>> locations,
          final GroupNamingConvention.Factory namingConvention, final ServerToHardware serverToHardware,
-         final OperatingSystemToOperatingSystem operatingSystemToOperatingSystem) {
+         final OperatingSystemToOperatingSystem operatingSystemToOperatingSystem, final TagKeyRegistry tagKeyRegistry) {
       this.nodeNamingConvention = checkNotNull(namingConvention, "namingConvention").createWithoutPrefix();
       this.locations = checkNotNull(locations, "locations");
       this.serverToHardware = checkNotNull(serverToHardware, "serverToHardware");
       this.operatingSystemToOperatingSystem = checkNotNull(operatingSystemToOperatingSystem,
             "operatingSystemToOperatingSystem");
+      this.tagKeyRegistry = checkNotNull(tagKeyRegistry, "tagKeyRegistry");
    }
 
    @Override
@@ -83,6 +94,7 @@ class ServerWithNatRuleToNodeMetadata implements Function<ServerWithExternalIp,
       builder.status(server.started() ?
             serverStateToNodeStatus.get(server.state()) :
             NodeMetadata.Status.SUSPENDED);
+      builder.userMetadata(userMetadataOf(server));
 
       Set<String> privateAddresses = new HashSet<String>();
       if (server.networkInfo() != null) {
@@ -105,4 +117,14 @@ class ServerWithNatRuleToNodeMetadata implements Function<ServerWithExternalIp,
       }
       return builder.build();
    }
+
+   private Map<String, String> userMetadataOf(final Server server) {
+      try {
+         return tagKeyRegistry.tagsOf(server.id());
+      } catch (RuntimeException e) {
+         // the tags are only metadata: a Tag API or permission error must not make the server unlistable
+         logger.warn(e, "Could not look up the tags of server %s", server.id());
+         return ImmutableMap.of();
+      }
+   }
 }
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.dimensiondata.cloudcontrol.compute.strategy;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.dimensiondata.cloudcontrol.DimensionDataCloudControlApi;
+import org.jclouds.dimensiondata.cloudcontrol.domain.NetworkDomain;
+import org.jclouds.dimensiondata.cloudcontrol.domain.Vlan;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.String.format;
+import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
+import static org.jclouds.dimensiondata.cloudcontrol.config.DimensionDataCloudControlComputeServiceContextModule.NETWORK_DOMAIN_NORMAL_PREDICATE;
+import static org.jclouds.dimensiondata.cloudcontrol.config.DimensionDataCloudControlComputeServiceContextModule.VLAN_NORMAL_PREDICATE;
+
+/**
+ * Resolves network domains by (datacenter, name) and VLANs by (network domain, name), deploying them when they do not
+ * exist yet.
+ * <p>
+ * Resolutions are single-flight: concurrent callers asking for the same key wait for the one lookup or deployment in
+ * progress instead of racing to deploy duplicates. Resolved ids are kept for the session interval, or until the
+ * network domain or VLAN is seen deleted by the {@code NETWORK_DOMAIN_DELETED_PREDICATE} or
+ * {@code VLAN_DELETED_PREDICATE}.
+ */
+@Singleton
+public class NetworkDomainAndVlanResolver {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final DimensionDataCloudControlApi api;
+   private final ComputeServiceConstants.Timeouts timeouts;
+   private final Predicate<String> networkDomainNormalPredicate;
+   private final Predicate<String> vlanNormalPredicate;
+   private final Cache<ScopedName, String> networkDomainIds;
+   private final Cache<ScopedName, String> vlanIds;
+
+   @Inject
+   NetworkDomainAndVlanResolver(final DimensionDataCloudControlApi api, final ComputeServiceConstants.Timeouts timeouts,
+         @Named(NETWORK_DOMAIN_NORMAL_PREDICATE) final Predicate<String> networkDomainNormalPredicate,
+         @Named(VLAN_NORMAL_PREDICATE) final Predicate<String> vlanNormalPredicate,
+         @Named(PROPERTY_SESSION_INTERVAL) final long seconds) {
+      this.api = api;
+      this.timeouts = timeouts;
+      this.networkDomainNormalPredicate = networkDomainNormalPredicate;
+      this.vlanNormalPredicate = vlanNormalPredicate;
+      this.networkDomainIds = CacheBuilder.newBuilder().expireAfterWrite(seconds, TimeUnit.SECONDS).build();
+      this.vlanIds = CacheBuilder.newBuilder().expireAfterWrite(seconds, TimeUnit.SECONDS).build();
+   }
+
+   /**
+    * Returns the id of the network domain with the given name in the datacenter, deploying it and waiting for it to
+    * become NORMAL if there is none.
+    */
+   public String getOrDeployNetworkDomain(final String datacenterId, final String networkDomainName) {
+      return resolve(networkDomainIds, ScopedName.create(datacenterId, networkDomainName), new Callable<String>() {
+         @Override
+         public String call() {
+            final Optional<NetworkDomain> networkDomain = api.getNetworkApi()
+                  .listNetworkDomainsWithDatacenterIdAndName(datacenterId, networkDomainName).concat().first();
+            if (networkDomain.isPresent()) {
+               logger.debug("Found a suitable existing network domain %s", networkDomain.get().id());
+               return networkDomain.get().id();
+            }
+            return deployNetworkDomain(datacenterId, networkDomainName);
+         }
+      });
+   }
+
+   /**
+    * Returns the id of the VLAN with the given name in the network domain, deploying it with the given private IPv4
+    * range and waiting for it to become NORMAL if there is none.
+    */
+   public String getOrDeployVlan(final String networkDomainId, final String vlanName,
+         final String privateIPv4BaseAddress, final Integer privateIPv4PrefixSize) {
+      return resolve(vlanIds, ScopedName.create(networkDomainId, vlanName), new Callable<String>() {
+         @Override
+         public String call() {
+            for (Vlan vlan : api.getNetworkApi().listVlans(networkDomainId).concat()) {
+               if (vlan.name().equals(vlanName)) {
+                  logger.debug("Found a suitable existing vlan %s", vlan.id());
+                  return vlan.id();
+               }
+            }
+            return deployVlan(networkDomainId, vlanName, privateIPv4BaseAddress, privateIPv4PrefixSize);
+         }
+      });
+   }
+
+   /**
+    * Forgets a deleted network domain, together with the VLANs resolved in it.
+    */
+   public void invalidateNetworkDomain(final String networkDomainId) {
+      checkNotNull(networkDomainId, "networkDomainId");
+      networkDomainIds.asMap().values().removeAll(Collections.singleton(networkDomainId));
+      for (ScopedName vlan : vlanIds.asMap().keySet()) {
+         if (vlan.scopeId().equals(networkDomainId)) {
+            vlanIds.invalidate(vlan);
+         }
+      }
+   }
+
+   /**
+    * Forgets a deleted VLAN.
+    */
+   public void invalidateVlan(final String vlanId) {
+      vlanIds.asMap().values().removeAll(Collections.singleton(checkNotNull(vlanId, "vlanId")));
+   }
+
+   private String deployNetworkDomain(final String datacenterId, final String networkDomainName) {
+      logger.debug("Creating a network domain '%s' in Datacenter '%s' ...", networkDomainName, datacenterId);
+      final String networkDomainId = api.getNetworkApi()
+            .deployNetworkDomain(datacenterId, networkDomainName, "network domain created by jclouds",
+                  NetworkDomain.Type.ESSENTIALS.name());
+      if (!networkDomainNormalPredicate.apply(networkDomainId)) {
+         throw new IllegalStateException(
+               format("networkDomain(%s) is not ready within %d ms.", networkDomainId, timeouts.nodeRunning));
+      }
+      return networkDomainId;
+   }
+
+   private String deployVlan(final String networkDomainId, final String vlanName, final String privateIPv4BaseAddress,
+         final Integer privateIPv4PrefixSize) {
+      logger.debug("Creating a vlan %s in network domain '%s' ...", vlanName, networkDomainId);
+      final String vlanId = api.getNetworkApi()
+            .deployVlan(networkDomainId, vlanName, "vlan created by jclouds", privateIPv4BaseAddress,
+                  privateIPv4PrefixSize);
+      if (!vlanNormalPredicate.apply(vlanId)) {
+         throw new IllegalStateException(format("vlan(%s) is not ready within %d ms.", vlanId, timeouts.nodeRunning));
+      }
+      return vlanId;
+   }
+
+   private static String resolve(final Cache<ScopedName, String> cache, final ScopedName key,
+         final Callable<String> loader) {
+      try {
+         return cache.get(key, loader);
+      } catch (ExecutionException e) {
+         throw new IllegalStateException(format("Could not resolve %s", key), e.getCause());
+      } catch (UncheckedExecutionException e) {
+         throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+      }
+   }
+
+   @AutoValue
+   abstract static class ScopedName {
+
+      abstract String scopeId();
+
+      abstract String name();
+
+      static ScopedName create(final String scopeId, final String name) {
+         return new AutoValue_NetworkDomainAndVlanResolver_ScopedName(checkNotNull(scopeId, "scopeId"),
+               checkNotNull(name, "name"));
+      }
+   }
+}
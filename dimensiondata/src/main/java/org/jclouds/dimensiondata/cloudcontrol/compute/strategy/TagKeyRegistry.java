@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.dimensiondata.cloudcontrol.compute.strategy;
+
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimaps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.dimensiondata.cloudcontrol.DimensionDataCloudControlApi;
+import org.jclouds.dimensiondata.cloudcontrol.domain.Tag;
+import org.jclouds.dimensiondata.cloudcontrol.domain.TagInfo;
+import org.jclouds.dimensiondata.cloudcontrol.domain.TagKey;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.nullToEmpty;
+import static java.lang.String.format;
+import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+
+/**
+ * Keeps the tag keys of the organisation indexed by name and applies tags to many assets at once.
+ * <p>
+ * All tag keys are listed once per session interval; names that are not known yet are created on demand, at most
+ * once even when several callers ask for them concurrently. The tags themselves are indexed by asset id once per
+ * session interval too, so that converting many servers to nodes does not cost a request per server. Tags applied
+ * through this registry are merged into the index in place, so tagging does not cost another listing.
+ */
+@Singleton
+public class TagKeyRegistry {
+
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final DimensionDataCloudControlApi api;
+   private final ListeningExecutorService userExecutor;
+   private final Supplier<Map<String, String>> existingTagKeyIds;
+   private final Cache<String, String> tagKeyIds;
+   private final long seconds;
+   private volatile TagIndex tagIndex;
+
+   @Inject
+   TagKeyRegistry(final DimensionDataCloudControlApi api,
+         @Named(PROPERTY_USER_THREADS) final ListeningExecutorService userExecutor,
+         @Named(PROPERTY_SESSION_INTERVAL) final long seconds) {
+      this.api = api;
+      this.userExecutor = userExecutor;
+      this.existingTagKeyIds = Suppliers.memoizeWithExpiration(new Supplier<Map<String, String>>() {
+         @Override
+         public Map<String, String> get() {
+            final Map<String, String> ids = Maps.newHashMap();
+            for (TagKey tagKey : api.getTagApi().listTagKeys().concat()) {
+               ids.put(tagKey.name(), tagKey.id());
+            }
+            return ImmutableMap.copyOf(ids);
+         }
+      }, seconds, TimeUnit.SECONDS);
+      this.tagKeyIds = CacheBuilder.newBuilder().expireAfterWrite(seconds, TimeUnit.SECONDS).build();
+      this.seconds = seconds;
+   }
+
+   /**
+    * Returns the id of the tag key with the given name, creating the key if it does not exist.
+    */
+   public String getOrCreateTagKeyId(final String name) {
+      checkNotNull(name, "name");
+      try {
+         return tagKeyIds.get(name, new Callable<String>() {
+            @Override
+            public String call() {
+               final String existing = existingTagKeyIds.get().get(name);
+               if (existing != null) {
+                  return existing;
+               }
+               logger.debug("Creating tag key %s", name);
+               return api.getTagApi().createTagKey(name, "tag key created by jclouds", false, false);
+            }
+         });
+      } catch (ExecutionException e) {
+         throw new IllegalStateException(format("Could not resolve tag key %s", name), e.getCause());
+      } catch (UncheckedExecutionException e) {
+         throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+      }
+   }
+
+   /**
+    * Applies the given tags (tag key name to value) to each asset, sending a single {@code applyTags} request per
+    * asset and no more than {@code maxConcurrentRequests} requests at a time. Assets without tags are not sent.
+    *
+    * @return the outcome of the request sent for each asset id.
+    */
+   public Map<String, ListenableFuture<Void>> applyTags(final String assetType,
+         final Map<String, Map<String, String>> tagsByAssetId, final int maxConcurrentRequests) {
+      checkNotNull(assetType, "assetType");
+      checkArgument(maxConcurrentRequests > 0, "maxConcurrentRequests must be positive");
+
+      final ImmutableMap.Builder<String, List<TagInfo>> requests = ImmutableMap.builder();
+      final ImmutableMap.Builder<String, ListenableFuture<Void>> responses = ImmutableMap.builder();
+      for (Map.Entry<String, Map<String, String>> asset : tagsByAssetId.entrySet()) {
+         if (asset.getValue().isEmpty()) {
+            responses.put(asset.getKey(), Futures.<Void>immediateFuture(null));
+            continue;
+         }
+         final ImmutableList.Builder<TagInfo> tagInfos = ImmutableList.builder();
+         for (Map.Entry<String, String> tag : asset.getValue().entrySet()) {
+            tagInfos.add(TagInfo.create(getOrCreateTagKeyId(tag.getKey()), tag.getValue()));
+         }
+         requests.put(asset.getKey(), tagInfos.build());
+      }
+
+      final Map<String, List<TagInfo>> tagInfosByAssetId = requests.build();
+      final Map<String, SettableFuture<Void>> pending = Maps.newLinkedHashMap();
+      for (String assetId : tagInfosByAssetId.keySet()) {
+         final SettableFuture<Void> response = SettableFuture.create();
+         pending.put(assetId, response);
+         responses.put(assetId, response);
+      }
+
+      if (pending.isEmpty()) {
+         return responses.build();
+      }
+      // each lane sends its requests one after the other, so at most maxConcurrentRequests are in flight
+      final int requestsPerLane = (pending.size() + maxConcurrentRequests - 1) / maxConcurrentRequests;
+      for (final List<String> assetIds : Iterables.partition(pending.keySet(), requestsPerLane)) {
+         userExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+               try {
+                  for (String assetId : assetIds) {
+                     try {
+                        api.getTagApi().applyTags(assetId, assetType, tagInfosByAssetId.get(assetId));
+                        final TagIndex index = tagIndex;
+                        if (index != null) {
+                           index.merge(assetId, tagsByAssetId.get(assetId));
+                        }
+                        pending.get(assetId).set(null);
+                     } catch (RuntimeException e) {
+                        logger.warn(e, "Could not apply tags to %s %s", assetType, assetId);
+                        pending.get(assetId).setException(e);
+                     }
+                  }
+               } catch (Error e) {
+                  // do not leave the callers of the rest of the lane waiting; completed futures ignore this
+                  for (String assetId : assetIds) {
+                     pending.get(assetId).setException(e);
+                  }
+                  throw e;
+               }
+            }
+         });
+      }
+      return responses.build();
+   }
+
+   /**
+    * Returns the tags (tag key name to value) of an asset, read from the index of all the tags of the organisation.
+    */
+   public Map<String, String> tagsOf(final String assetId) {
+      final Map<String, String> tags = tagIndex().tagsByAssetId.get(checkNotNull(assetId, "assetId"));
+      return tags == null ? ImmutableMap.<String, String>of() : tags;
+   }
+
+   private TagIndex tagIndex() {
+      TagIndex index = tagIndex;
+      if (index == null || index.isExpired()) {
+         synchronized (this) {
+            index = tagIndex;
+            if (index == null || index.isExpired()) {
+               final ConcurrentMap<String, Map<String, String>> tagsByAssetId = Maps.newConcurrentMap();
+               for (Map.Entry<String, Collection<Tag>> asset : tagsByAssetId().asMap().entrySet()) {
+                  final Map<String, String> tags = Maps.newLinkedHashMap();
+                  for (Tag tag : asset.getValue()) {
+                     tags.put(tag.tagKeyName(), nullToEmpty(tag.value()));
+                  }
+                  tagsByAssetId.put(asset.getKey(), ImmutableMap.copyOf(tags));
+               }
+               tagIndex = index = new TagIndex(tagsByAssetId,
+                     System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds));
+            }
+         }
+      }
+      return index;
+   }
+
+   /**
+    * Lists all the tags of the organisation once and indexes them by asset id.
+    */
+   public ImmutableListMultimap<String, Tag> tagsByAssetId() {
+      return Multimaps.index(api.getTagApi().listTags().concat(), new Function<Tag, String>() {
+         @Override
+         public String apply(final Tag input) {
+            return input.assetId();
+         }
+      });
+   }
+
+   /**
+    * The tags of every asset (tag key name to value), as listed once and updated with the tags applied since.
+    */
+   private static final class TagIndex {
+      private final ConcurrentMap<String, Map<String, String>> tagsByAssetId;
+      private final long expiresAt;
+
+      private TagIndex(final ConcurrentMap<String, Map<String, String>> tagsByAssetId, final long expiresAt) {
+         this.tagsByAssetId = tagsByAssetId;
+         this.expiresAt = expiresAt;
+      }
+
+      private boolean isExpired() {
+         return System.nanoTime() - expiresAt >= 0;
+      }
+
+      private void merge(final String assetId, final Map<String, String> applied) {
+         while (true) {
+            final Map<String, String> current = tagsByAssetId.get(assetId);
+            final Map<String, String> merged = Maps.newLinkedHashMap();
+            if (current != null) {
+               merged.putAll(current);
+            }
+            merged.putAll(applied);
+            if (current == null ? tagsByAssetId.putIfAbsent(assetId, ImmutableMap.copyOf(merged)) == null
+                  : tagsByAssetId.replace(assetId, current, ImmutableMap.copyOf(merged))) {
+               return;
+            }
+         }
+      }
+   }
+}
@@ -22,6 +22,7 @@ import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import org.jclouds.compute.reference.ComputeServiceConstants;
 import org.jclouds.dimensiondata.cloudcontrol.DimensionDataCloudControlApi;
+import org.jclouds.dimensiondata.cloudcontrol.compute.strategy.NetworkDomainAndVlanResolver;
 import org.jclouds.dimensiondata.cloudcontrol.domain.CustomerImage;
 import org.jclouds.dimensiondata.cloudcontrol.domain.NetworkDomain;
 import org.jclouds.dimensiondata.cloudcontrol.domain.Server;
@@ -64,9 +65,20 @@ public class DimensionDataCloudControlComputeServiceContextModule extends Abstra
    @Provides
    @Named(VLAN_DELETED_PREDICATE)
    protected Predicate<String> provideVlanDeletedPredicate(final DimensionDataCloudControlApi api,
-         @Named(OPERATION_TIMEOUT) final Long operationTimeout, final ComputeServiceConstants.PollPeriod pollPeriod) {
-      return retry(new VlanState(api.getNetworkApi(), State.DELETED), operationTimeout, pollPeriod.pollInitialPeriod,
-            pollPeriod.pollMaxPeriod);
+         @Named(OPERATION_TIMEOUT) final Long operationTimeout, final ComputeServiceConstants.PollPeriod pollPeriod,
+         final NetworkDomainAndVlanResolver networkDomainAndVlanResolver) {
+      final Predicate<String> vlanDeleted = retry(new VlanState(api.getNetworkApi(), State.DELETED), operationTimeout,
+            pollPeriod.pollInitialPeriod, pollPeriod.pollMaxPeriod);
+      return new Predicate<String>() {
+         @Override
+         public boolean apply(final String vlanId) {
+            if (!vlanDeleted.apply(vlanId)) {
+               return false;
+            }
+            networkDomainAndVlanResolver.invalidateVlan(vlanId);
+            return true;
+         }
+      };
    }
 
    @Provides
@@ -80,9 +92,20 @@ public class DimensionDataCloudControlComputeServiceContextModule extends Abstra
    @Provides
    @Named(NETWORK_DOMAIN_DELETED_PREDICATE)
    protected Predicate<String> provideNetworkDomainDeletedPredicate(final DimensionDataCloudControlApi api,
-         @Named(OPERATION_TIMEOUT) final Long operationTimeout, final ComputeServiceConstants.PollPeriod pollPeriod) {
-      return retry(new NetworkDomainState(api.getNetworkApi(), State.DELETED), operationTimeout,
-            pollPeriod.pollInitialPeriod, pollPeriod.pollMaxPeriod);
+         @Named(OPERATION_TIMEOUT) final Long operationTimeout, final ComputeServiceConstants.PollPeriod pollPeriod,
+         final NetworkDomainAndVlanResolver networkDomainAndVlanResolver) {
+      final Predicate<String> networkDomainDeleted = retry(new NetworkDomainState(api.getNetworkApi(), State.DELETED),
+            operationTimeout, pollPeriod.pollInitialPeriod, pollPeriod.pollMaxPeriod);
+      return new Predicate<String>() {
+         @Override
+         public boolean apply(final String networkDomainId) {
+            if (!networkDomainDeleted.apply(networkDomainId)) {
+               return false;
+            }
+            networkDomainAndVlanResolver.invalidateNetworkDomain(networkDomainId);
+            return true;
+         }
+      };
    }
 
    @Provides
@@ -18,6 +18,7 @@ package org.jclouds.dimensiondata.cloudcontrol.features;
 
 import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.gson.Gson;
 import com.google.inject.TypeLiteral;
 import org.jclouds.Fallbacks;
 import org.jclouds.Fallbacks.NullOnNotFoundOr404;
@@ -41,6 +42,7 @@ import org.jclouds.dimensiondata.cloudcontrol.domain.Vlan;
 import org.jclouds.dimensiondata.cloudcontrol.domain.Vlans;
 import org.jclouds.dimensiondata.cloudcontrol.filters.OrganisationIdFilter;
 import org.jclouds.dimensiondata.cloudcontrol.options.PaginationOptions;
+import org.jclouds.dimensiondata.cloudcontrol.utils.ParseFilteredPage;
 import org.jclouds.dimensiondata.cloudcontrol.utils.ParseResponse;
 import org.jclouds.http.filters.BasicAuthentication;
 import org.jclouds.http.functions.ParseJson;
@@ -227,6 +229,27 @@ public interface NetworkApi {
    @Fallback(Fallbacks.EmptyPagedIterableOnNotFoundOr404.class)
    PagedIterable<NatRule> listNatRules(@QueryParam("networkDomainId") String networkDomainId);
 
+   @Named("networkDomain:listNatRules")
+   @GET
+   @Path("/natRule")
+   @ResponseParser(ParseNatRulesWithInternalIp.class)
+   @Fallback(Fallbacks.EmptyIterableWithMarkerOnNotFoundOr404.class)
+   PaginatedCollection<NatRule> listNatRulesWithInternalIp(@QueryParam("networkDomainId") String networkDomainId,
+         @QueryParam("internalIp") String internalIp, PaginationOptions options);
+
+   /**
+    * Lists the NAT rules of the network domain whose internal IP matches {@code internalIp}, ignoring case. Only the
+    * matching rules of each page are bound.
+    */
+   @Named("networkDomain:listNatRules")
+   @GET
+   @Path("/natRule")
+   @Transform(ParseNatRulesWithInternalIp.ToPagedIterable.class)
+   @ResponseParser(ParseNatRulesWithInternalIp.class)
+   @Fallback(Fallbacks.EmptyPagedIterableOnNotFoundOr404.class)
+   PagedIterable<NatRule> listNatRulesWithInternalIp(@QueryParam("networkDomainId") String networkDomainId,
+         @QueryParam("internalIp") String internalIp);
+
    @Named("network:getNatRule")
    @GET
    @Path("/natRule/{id}")
@@ -269,6 +292,27 @@ public interface NetworkApi {
    @Fallback(Fallbacks.EmptyPagedIterableOnNotFoundOr404.class)
    PagedIterable<FirewallRule> listFirewallRules(@QueryParam("networkDomainId") String networkDomainId);
 
+   @Named("networkDomain:listFirewallRules")
+   @GET
+   @Path("/firewallRule")
+   @ResponseParser(ParseFirewallRulesWithName.class)
+   @Fallback(Fallbacks.EmptyIterableWithMarkerOnNotFoundOr404.class)
+   PaginatedCollection<FirewallRule> listFirewallRulesWithName(@QueryParam("networkDomainId") String networkDomainId,
+         @QueryParam("name") String name, PaginationOptions options);
+
+   /**
+    * Lists the firewall rules of the network domain named {@code name}. Only the matching rules of each page are
+    * bound.
+    */
+   @Named("networkDomain:listFirewallRules")
+   @GET
+   @Path("/firewallRule")
+   @Transform(ParseFirewallRulesWithName.ToPagedIterable.class)
+   @ResponseParser(ParseFirewallRulesWithName.class)
+   @Fallback(Fallbacks.EmptyPagedIterableOnNotFoundOr404.class)
+   PagedIterable<FirewallRule> listFirewallRulesWithName(@QueryParam("networkDomainId") String networkDomainId,
+         @QueryParam("name") String name);
+
    @Named("networkDomain:deleteFirewallRule")
    @POST
    @Path("/deleteFirewallRule")
@@ -332,6 +376,36 @@ public interface NetworkApi {
       }
    }
 
+   final class ParseFirewallRulesWithName extends ParseFilteredPage<FirewallRule> {
+
+      @Inject
+      ParseFirewallRulesWithName(Gson gson) {
+         super(gson, TypeLiteral.get(FirewallRule.class), "firewallRule", "name", false);
+      }
+
+      private static class ToPagedIterable extends Arg0ToPagedIterable<FirewallRule, ToPagedIterable> {
+
+         private DimensionDataCloudControlApi api;
+
+         @Inject
+         ToPagedIterable(DimensionDataCloudControlApi api) {
+            this.api = api;
+         }
+
+         @Override
+         protected Function<Object, IterableWithMarker<FirewallRule>> markerToNextForArg0(Optional<Object> optional) {
+            return new Function<Object, IterableWithMarker<FirewallRule>>() {
+               @Override
+               public IterableWithMarker<FirewallRule> apply(Object input) {
+                  PaginationOptions paginationOptions = PaginationOptions.class.cast(input);
+                  return api.getNetworkApi().listFirewallRulesWithName(getArgs(request).get(0).toString(),
+                        getArgs(request).get(1).toString(), paginationOptions);
+               }
+            };
+         }
+      }
+   }
+
    @Singleton
    final class ParseNatRules extends ParseJson<NatRules> {
 
@@ -362,6 +436,36 @@ public interface NetworkApi {
       }
    }
 
+   final class ParseNatRulesWithInternalIp extends ParseFilteredPage<NatRule> {
+
+      @Inject
+      ParseNatRulesWithInternalIp(Gson gson) {
+         super(gson, TypeLiteral.get(NatRule.class), "natRule", "internalIp", true);
+      }
+
+      private static class ToPagedIterable extends Arg0ToPagedIterable<NatRule, ToPagedIterable> {
+
+         private DimensionDataCloudControlApi api;
+
+         @Inject
+         ToPagedIterable(DimensionDataCloudControlApi api) {
+            this.api = api;
+         }
+
+         @Override
+         protected Function<Object, IterableWithMarker<NatRule>> markerToNextForArg0(Optional<Object> optional) {
+            return new Function<Object, IterableWithMarker<NatRule>>() {
+               @Override
+               public IterableWithMarker<NatRule> apply(Object input) {
+                  PaginationOptions paginationOptions = PaginationOptions.class.cast(input);
+                  return api.getNetworkApi().listNatRulesWithInternalIp(getArgs(request).get(0).toString(),
+                        getArgs(request).get(1).toString(), paginationOptions);
+               }
+            };
+         }
+      }
+   }
+
    @Singleton
    final class ParseNetworkDomains extends ParseJson<NetworkDomains> {
 
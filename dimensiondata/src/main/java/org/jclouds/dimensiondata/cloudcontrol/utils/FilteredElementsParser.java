@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.dimensiondata.cloudcontrol.utils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.inject.TypeLiteral;
+import org.jclouds.dimensiondata.cloudcontrol.domain.PaginatedCollection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Pulls the elements of a paginated list payload (for example the {@code natRule} array of a {@code NatRules} page)
+ * whose top-level field matches a given value, straight from the {@link JsonReader}.
+ * <p>
+ * Elements are read one at a time and only the matching ones are bound to {@code T}; the list of all the elements of
+ * the page is never built. The paging properties are kept, so the returned page can be followed to the next one.
+ */
+public class FilteredElementsParser<T> {
+
+   private final Gson gson;
+   private final TypeLiteral<T> type;
+   private final String arrayName;
+   private final String fieldName;
+   private final boolean ignoreCase;
+   private final JsonParser parser = new JsonParser();
+
+   public FilteredElementsParser(final Gson gson, final TypeLiteral<T> type, final String arrayName,
+         final String fieldName, final boolean ignoreCase) {
+      this.gson = checkNotNull(gson, "gson");
+      this.type = checkNotNull(type, "type");
+      this.arrayName = checkNotNull(arrayName, "arrayName");
+      this.fieldName = checkNotNull(fieldName, "fieldName");
+      this.ignoreCase = ignoreCase;
+   }
+
+   /**
+    * Reads one page, keeping only the elements whose field equals {@code value}.
+    */
+   public PaginatedCollection<T> parsePage(final InputStream in, final String value) throws IOException {
+      final ImmutableList.Builder<T> matches = ImmutableList.builder();
+      int pageNumber = 0;
+      int pageCount = 0;
+      int totalCount = 0;
+      int pageSize = 0;
+      try (JsonReader reader = new JsonReader(new InputStreamReader(in, UTF_8))) {
+         reader.beginObject();
+         while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+               reader.skipValue();
+            } else if (arrayName.equals(name)) {
+               reader.beginArray();
+               while (reader.hasNext()) {
+                  final JsonObject element = parser.parse(reader).getAsJsonObject();
+                  if (matches(element.get(fieldName), value)) {
+                     matches.add(gson.<T>fromJson(element, type.getType()));
+                  }
+               }
+               reader.endArray();
+            } else if ("pageNumber".equals(name)) {
+               pageNumber = reader.nextInt();
+            } else if ("pageCount".equals(name)) {
+               pageCount = reader.nextInt();
+            } else if ("totalCount".equals(name)) {
+               totalCount = reader.nextInt();
+            } else if ("pageSize".equals(name)) {
+               pageSize = reader.nextInt();
+            } else {
+               reader.skipValue();
+            }
+         }
+         reader.endObject();
+      }
+      return new FilteredPage<T>(matches.build(), pageNumber, pageCount, totalCount, pageSize);
+   }
+
+   private boolean matches(final JsonElement field, final String value) {
+      if (field == null || field.isJsonNull()) {
+         return value == null;
+      }
+      if (!field.isJsonPrimitive() || value == null) {
+         return false;
+      }
+      return ignoreCase ? field.getAsString().equalsIgnoreCase(value) : field.getAsString().equals(value);
+   }
+
+   private static final class FilteredPage<T> extends PaginatedCollection<T> {
+
+      private FilteredPage(final List<T> resources, final int pageNumber, final int pageCount, final int totalCount,
+            final int pageSize) {
+         super(resources, pageNumber, pageCount, totalCount, pageSize);
+      }
+   }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.dimensiondata.cloudcontrol.utils;
+
+import com.google.common.base.Function;
+import com.google.gson.Gson;
+import com.google.inject.TypeLiteral;
+import org.jclouds.dimensiondata.cloudcontrol.domain.PaginatedCollection;
+import org.jclouds.http.HttpRequest;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.rest.InvocationContext;
+import org.jclouds.rest.internal.GeneratedHttpRequest;
+
+import java.io.IOException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.jclouds.http.HttpUtils.releasePayload;
+
+/**
+ * Parses a page of a list call keeping only the elements whose field matches the value passed as the second argument
+ * of the invoked method, using a {@link FilteredElementsParser}.
+ */
+public abstract class ParseFilteredPage<T>
+      implements Function<HttpResponse, PaginatedCollection<T>>, InvocationContext<ParseFilteredPage<T>> {
+
+   private final FilteredElementsParser<T> parser;
+   private GeneratedHttpRequest request;
+
+   protected ParseFilteredPage(final Gson gson, final TypeLiteral<T> type, final String arrayName,
+         final String fieldName, final boolean ignoreCase) {
+      this.parser = new FilteredElementsParser<T>(gson, type, arrayName, fieldName, ignoreCase);
+   }
+
+   @Override
+   public PaginatedCollection<T> apply(final HttpResponse from) {
+      final Object value = request.getInvocation().getArgs().get(1);
+      try {
+         return parser.parsePage(from.getPayload().openStream(), value == null ? null : value.toString());
+      } catch (IOException e) {
+         throw new HttpResponseException("Error parsing input: " + e.getMessage() + ".\n" + from, null, from, e);
+      } finally {
+         releasePayload(from);
+      }
+   }
+
+   @Override
+   public ParseFilteredPage<T> setContext(final HttpRequest request) {
+      checkArgument(request instanceof GeneratedHttpRequest, "note this handler requires a GeneratedHttpRequest");
+      this.request = (GeneratedHttpRequest) request;
+      return this;
+   }
+}
@@ -20,7 +20,8 @@ import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.collect.FluentIterable;
-import com.google.inject.TypeLiteral;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import org.jclouds.dimensiondata.cloudcontrol.domain.Property;
 import org.jclouds.dimensiondata.cloudcontrol.domain.Response;
 import org.jclouds.http.HttpResponse;
@@ -29,8 +30,12 @@ import org.jclouds.json.Json;
 import org.jclouds.logging.Logger;
 
 import javax.annotation.Resource;
-import java.io.InputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
 
+import static com.google.common.base.Charsets.UTF_8;
 import static org.jclouds.http.HttpUtils.releasePayload;
 
 public class ParseResponse implements Function<HttpResponse, String> {
@@ -45,25 +50,89 @@ public class ParseResponse implements Function<HttpResponse, String> {
       this.propertyName = propertyName;
    }
 
+   /**
+    * Streams over the response looking for the requested {@code info} property, so that neither the
+    * {@link Response} nor its property lists are materialized on the happy path.
+    */
    public String apply(HttpResponse from) {
-      Response response = null;
-      try (InputStream gson = from.getPayload().openStream()) {
-         response = json.fromJson(gson, TypeLiteral.get(Response.class).getType());
-         return tryFindInfoPropertyValue(response);
+      String message = null;
+      List<Property> errors = null;
+      try (JsonReader reader = new JsonReader(new InputStreamReader(from.getPayload().openStream(), UTF_8))) {
+         boolean infoPresent = false;
+         boolean infoEmpty = true;
+         reader.beginObject();
+         while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+               reader.skipValue();
+            } else if ("info".equals(name)) {
+               infoPresent = true;
+               reader.beginArray();
+               while (reader.hasNext()) {
+                  infoEmpty = false;
+                  final Property property = readProperty(reader);
+                  if (propertyName.equals(property.name())) {
+                     return property.value();
+                  }
+               }
+               reader.endArray();
+            } else if ("message".equals(name)) {
+               message = reader.nextString();
+            } else if ("error".equals(name)) {
+               errors = readProperties(reader);
+            } else {
+               reader.skipValue();
+            }
+         }
+         reader.endObject();
+         if (!infoPresent || !infoEmpty) {
+            throw new IllegalStateException("Could not find expected property name: " + propertyName);
+         }
+         return "";
       } catch (Exception e) {
-         StringBuilder message = new StringBuilder();
-         message.append("Error parsing input: ").append(e.getMessage());
-         if (response != null) {
-            message.append(" ").append("Response Message: ").append(response.message());
-            message.append(" ").append(checkForErrorElements(response));
+         StringBuilder errorMessage = new StringBuilder();
+         errorMessage.append("Error parsing input: ").append(e.getMessage());
+         if (message != null) {
+            errorMessage.append(" ").append("Response Message: ").append(message);
+            errorMessage.append(" ").append(checkForErrorElements(errors));
          }
-         logger.error(e, message.toString());
-         throw new HttpResponseException(message.toString() + ".\n" + from, null, from, e);
+         logger.error(e, errorMessage.toString());
+         throw new HttpResponseException(errorMessage.toString() + ".\n" + from, null, from, e);
       } finally {
          releasePayload(from);
       }
    }
 
+   private static List<Property> readProperties(final JsonReader reader) throws IOException {
+      final List<Property> properties = new ArrayList<Property>();
+      reader.beginArray();
+      while (reader.hasNext()) {
+         properties.add(readProperty(reader));
+      }
+      reader.endArray();
+      return properties;
+   }
+
+   private static Property readProperty(final JsonReader reader) throws IOException {
+      String name = null;
+      String value = null;
+      reader.beginObject();
+      while (reader.hasNext()) {
+         final String field = reader.nextName();
+         if (reader.peek() == JsonToken.NULL) {
+            reader.skipValue();
+         } else if ("name".equals(field)) {
+            name = reader.nextString();
+         } else if ("value".equals(field)) {
+            value = reader.nextString();
+         } else {
+            reader.skipValue();
+         }
+      }
+      reader.endObject();
+      return Property.create(name, value);
+   }
+
    String tryFindInfoPropertyValue(Response response) {
       if (!response.info().isEmpty()) {
          Optional<String> optionalPropertyName = FluentIterable.from(response.info())
@@ -87,9 +156,13 @@ public class ParseResponse implements Function<HttpResponse, String> {
    }
 
    final String checkForErrorElements(final Response response) {
-      if (response.error() != null && !response.error().isEmpty()) {
+      return checkForErrorElements(response.error());
+   }
+
+   final String checkForErrorElements(final List<Property> errors) {
+      if (errors != null && !errors.isEmpty()) {
          StringBuilder message = new StringBuilder("Error Elements: ");
-         for (Property e : response.error()) {
+         for (Property e : errors) {
             message.append(e.name()).append(":").append(e.value()).append(", ");
          }
          return message.subSequence(0, message.length() - 2).toString() + ".";
@@ -0,0 +1,377 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.dimensiondata.cloudcontrol.compute;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+import org.jclouds.dimensiondata.cloudcontrol.compute.function.ServerToServerWithExternalIp;
+import org.jclouds.dimensiondata.cloudcontrol.compute.functions.CleanupServer;
+import org.jclouds.dimensiondata.cloudcontrol.compute.strategy.NetworkDomainAndVlanResolver;
+import org.jclouds.dimensiondata.cloudcontrol.compute.strategy.TagKeyRegistry;
+import org.jclouds.dimensiondata.cloudcontrol.domain.Server;
+import org.jclouds.dimensiondata.cloudcontrol.domain.internal.ServerWithExternalIp;
+import org.jclouds.dimensiondata.cloudcontrol.internal.BaseDimensionDataCloudControlLoadTest;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.math.IntMath.divide;
+import static java.math.RoundingMode.CEILING;
+import static java.util.Collections.nCopies;
+import static org.jclouds.dimensiondata.cloudcontrol.utils.DimensionDataCloudControlResponseUtils.generateFirewallRuleName;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Drives the compute flows concurrently against a simulated endpoint and gates the number of requests they issue,
+ * so that regressions to per-server request patterns are caught.
+ */
+@Test(groups = "performance", singleThreaded = true, testName = "DimensionDataCloudControlComputeLoadTest")
+public class DimensionDataCloudControlComputeLoadTest extends BaseDimensionDataCloudControlLoadTest {
+
+   private static final int SERVERS = 60;
+   private static final int CONCURRENCY = 10;
+
+   private final ConcurrentMap<String, Boolean> servers = new ConcurrentSkipListMap<String, Boolean>();
+   private final ConcurrentMap<String, JsonObject> natRules = new ConcurrentSkipListMap<String, JsonObject>();
+   private final ConcurrentMap<String, JsonObject> publicIpBlocks = new ConcurrentSkipListMap<String, JsonObject>();
+   private final ConcurrentMap<String, JsonObject> firewallRules = new ConcurrentSkipListMap<String, JsonObject>();
+   private final ConcurrentMap<String, JsonObject> networkDomains = new ConcurrentSkipListMap<String, JsonObject>();
+   private final ConcurrentMap<String, JsonObject> vlans = new ConcurrentSkipListMap<String, JsonObject>();
+   private final ConcurrentMap<String, JsonObject> tagKeys = new ConcurrentSkipListMap<String, JsonObject>();
+   private final List<String> serverIds = new ArrayList<String>();
+
+   @Override
+   protected void applyAdditionalServerConfig() {
+      super.applyAdditionalServerConfig();
+      populate();
+      respondTo("GET server/server", new Endpoint() {
+         @Override
+         public MockResponse respond(RecordedRequest request, String resourceId) {
+            List<JsonObject> all = new ArrayList<JsonObject>();
+            for (Map.Entry<String, Boolean> server : servers.entrySet()) {
+               all.add(server(server.getKey(), server.getValue()));
+            }
+            return listResponse(request, "server", all);
+         }
+      });
+      respondTo("GET server/server/{id}", new Endpoint() {
+         @Override
+         public MockResponse respond(RecordedRequest request, String resourceId) {
+            Boolean started = servers.get(resourceId);
+            return started == null ? response404() : objectResponse(server(resourceId, started));
+         }
+      });
+      respondTo("POST server/powerOffServer", new Endpoint() {
+         @Override
+         public MockResponse respond(RecordedRequest request, String resourceId) {
+            servers.replace(idFromBody(request), false);
+            return jsonResponse("/powerOffServer.json");
+         }
+      });
+      respondTo("POST server/deleteServer", new Endpoint() {
+         @Override
+         public MockResponse respond(RecordedRequest request, String resourceId) {
+            servers.remove(idFromBody(request));
+            return jsonResponse("/deleteServer.json");
+         }
+      });
+      respondTo("GET network/natRule", listing("natRule", natRules, "internalIp"));
+      respondTo("POST network/deleteNatRule", deleting(natRules, "deleteNatRule"));
+      respondTo("GET network/publicIpBlock", listing("publicIpBlock", publicIpBlocks));
+      respondTo("POST network/removePublicIpBlock", deleting(publicIpBlocks, "removePublicIpBlock"));
+      respondTo("GET network/firewallRule", listing("firewallRule", firewallRules, "name"));
+      respondTo("POST network/deleteFirewallRule", deleting(firewallRules, "deleteFirewallRule"));
+      respondTo("GET network/networkDomain", listing("networkDomain", networkDomains));
+      respondTo("GET network/networkDomain/{id}", new Endpoint() {
+         @Override
+         public MockResponse respond(RecordedRequest request, String resourceId) {
+            JsonObject networkDomain = networkDomains.get(resourceId);
+            return networkDomain == null ? response404() : objectResponse(networkDomain);
+         }
+      });
+      respondTo("POST network/deployNetworkDomain", new Endpoint() {
+         @Override
+         public MockResponse respond(RecordedRequest request, String resourceId) {
+            JsonObject networkDomain = template("/networkDomain.json", null);
+            String id = UUID.randomUUID().toString();
+            networkDomain.addProperty("id", id);
+            networkDomains.put(id, networkDomain);
+            return operationResponse("DEPLOY_NETWORK_DOMAIN", ImmutableMap.of("networkDomainId", id));
+         }
+      });
+      respondTo("GET network/vlan", listing("vlan", vlans));
+      respondTo("GET network/vlan/{id}", new Endpoint() {
+         @Override
+         public MockResponse respond(RecordedRequest request, String resourceId) {
+            JsonObject vlan = vlans.get(resourceId);
+            return vlan == null ? response404() : objectResponse(vlan);
+         }
+      });
+      respondTo("POST network/deployVlan", new Endpoint() {
+         @Override
+         public MockResponse respond(RecordedRequest request, String resourceId) {
+            JsonObject vlan = template("/vlan.json", null);
+            String id = UUID.randomUUID().toString();
+            vlan.addProperty("id", id);
+            vlan.addProperty("name", propertyFromBody(request, "name"));
+            vlan.getAsJsonObject("networkDomain").addProperty("id", propertyFromBody(request, "networkDomainId"));
+            vlans.put(id, vlan);
+            return operationResponse("DEPLOY_VLAN", ImmutableMap.of("vlanId", id));
+         }
+      });
+      respondTo("GET tag/tagKey", listing("tagKey", tagKeys));
+      respondTo("POST tag/createTagKey", new Endpoint() {
+         @Override
+         public MockResponse respond(RecordedRequest request, String resourceId) {
+            JsonObject tagKey = new JsonObject();
+            String id = UUID.randomUUID().toString();
+            tagKey.addProperty("id", id);
+            tagKey.addProperty("name", propertyFromBody(request, "name"));
+            tagKey.addProperty("valueRequired", false);
+            tagKey.addProperty("displayOnReport", false);
+            tagKeys.put(id, tagKey);
+            return operationResponse("CREATE_TAG_KEY", ImmutableMap.of("tagKeyId", id));
+         }
+      });
+      respondTo("POST tag/applyTags", new Endpoint() {
+         @Override
+         public MockResponse respond(RecordedRequest request, String resourceId) {
+            return operationResponse("APPLY_TAGS", ImmutableMap.<String, String>of());
+         }
+      });
+   }
+
+   public void testConcurrentNetworkDomainResolutionDeploysOnce() throws Exception {
+      final NetworkDomainAndVlanResolver resolver = ctx.utils().injector()
+            .getInstance(NetworkDomainAndVlanResolver.class);
+      List<Callable<String>> operations = new ArrayList<Callable<String>>();
+      for (int i = 0; i < SERVERS; i++) {
+         operations.add(new Callable<String>() {
+            @Override
+            public String call() {
+               return resolver.getOrDeployNetworkDomain("NA9", "jclouds-load");
+            }
+         });
+      }
+
+      List<String> networkDomainIds = runConcurrently("resolveNetworkDomain", CONCURRENCY, operations);
+      report("resolveNetworkDomain");
+
+      assertEquals(networkDomains.size(), 1);
+      assertEquals(ImmutableSet.copyOf(networkDomainIds), networkDomains.keySet());
+      assertEquals(requestCount("POST network/deployNetworkDomain"), 1);
+      assertEquals(requestCount("GET network/networkDomain"), 1);
+   }
+
+   public void testConcurrentDeployResolvesNetworkOnceAndTagsEachServerOnce() throws Exception {
+      final NetworkDomainAndVlanResolver resolver = ctx.utils().injector()
+            .getInstance(NetworkDomainAndVlanResolver.class);
+      List<Callable<String>> operations = new ArrayList<Callable<String>>();
+      for (int i = 0; i < SERVERS; i++) {
+         operations.add(new Callable<String>() {
+            @Override
+            public String call() {
+               String networkDomainId = resolver.getOrDeployNetworkDomain("NA9", "jclouds-load");
+               return resolver.getOrDeployVlan(networkDomainId, "jclouds-load-vlan", "10.0.0.0", 24);
+            }
+         });
+      }
+
+      List<String> vlanIds = runConcurrently("deploy", CONCURRENCY, operations);
+      report("deploy");
+
+      assertEquals(ImmutableSet.copyOf(vlanIds), vlans.keySet());
+      assertEquals(requestCount("POST network/deployNetworkDomain"), 1);
+      assertEquals(requestCount("GET network/networkDomain"), 1);
+      assertEquals(requestCount("POST network/deployVlan"), 1);
+      assertEquals(requestCount("GET network/vlan"), 1);
+
+      // the nodes of the group are then tagged with the user metadata of the template
+      Map<String, Map<String, String>> tagsByServerId = Maps.newLinkedHashMap();
+      for (String serverId : serverIds) {
+         tagsByServerId.put(serverId, ImmutableMap.of("owner", "jclouds", "environment", "load"));
+      }
+      Map<String, ListenableFuture<Void>> responses = ctx.utils().injector().getInstance(TagKeyRegistry.class)
+            .applyTags("SERVER", tagsByServerId, CONCURRENCY);
+      Futures.allAsList(responses.values()).get(1, TimeUnit.MINUTES);
+
+      assertEquals(requestCount("GET tag/tagKey"), 1, requestCounts().toString());
+      assertEquals(requestCount("POST tag/createTagKey"), 2, requestCounts().toString());
+      assertEquals(requestCount("POST tag/applyTags"), SERVERS, requestCounts().toString());
+   }
+
+   public void testConcurrentListWithExternalIp() throws Exception {
+      final ServerToServerWithExternalIp serverToServerWithExternalIp = ctx.utils().injector()
+            .getInstance(ServerToServerWithExternalIp.class);
+      List<Server> listed = api.getServerApi().listServers().concat().toList();
+      assertEquals(listed.size(), SERVERS);
+      assertEquals(requestCount("GET server/server"), pages(SERVERS));
+
+      List<Callable<ServerWithExternalIp>> operations = new ArrayList<Callable<ServerWithExternalIp>>();
+      for (final Server server : listed) {
+         operations.add(new Callable<ServerWithExternalIp>() {
+            @Override
+            public ServerWithExternalIp call() {
+               return serverToServerWithExternalIp.apply(server);
+            }
+         });
+      }
+
+      List<ServerWithExternalIp> results = runConcurrently("listWithExternalIp", CONCURRENCY, operations);
+      report("listWithExternalIp");
+
+      for (ServerWithExternalIp result : results) {
+         assertNotNull(result.externalIp(), "no external ip resolved for " + result.server().id());
+      }
+      // one single-page request filtered by internal IP per server, instead of a sweep of the network domain
+      assertEquals(requestCount("GET network/natRule"), SERVERS, requestCounts().toString());
+   }
+
+   public void testConcurrentCleanup() throws Exception {
+      final CleanupServer cleanupServer = ctx.utils().injector().getInstance(CleanupServer.class);
+      List<Callable<Boolean>> operations = new ArrayList<Callable<Boolean>>();
+      for (final String serverId : serverIds) {
+         operations.add(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+               return cleanupServer.apply(serverId);
+            }
+         });
+      }
+
+      List<Boolean> results = runConcurrently("cleanup", CONCURRENCY, operations);
+      report("cleanup");
+
+      assertEquals(results, nCopies(SERVERS, true));
+      assertTrue(servers.isEmpty());
+      assertTrue(natRules.isEmpty());
+      assertTrue(publicIpBlocks.isEmpty());
+      assertTrue(firewallRules.isEmpty());
+      assertEquals(requestCount("POST server/powerOffServer"), SERVERS);
+      assertEquals(requestCount("POST server/deleteServer"), SERVERS);
+      assertEquals(requestCount("POST network/deleteNatRule"), SERVERS);
+      assertEquals(requestCount("POST network/removePublicIpBlock"), SERVERS);
+      assertEquals(requestCount("POST network/deleteFirewallRule"), SERVERS);
+      // NAT rules and firewall rules are looked up with a filtered single-page request per server
+      assertEquals(requestCount("GET network/natRule"), SERVERS, requestCounts().toString());
+      assertEquals(requestCount("GET network/firewallRule"), SERVERS, requestCounts().toString());
+      // public IP blocks cannot be filtered by base IP, so each server may sweep them once, but no more
+      assertTrue(requestCount("GET network/publicIpBlock") <= SERVERS * pages(SERVERS), requestCounts().toString());
+   }
+
+   private int pages(int elements) {
+      return divide(elements, pageSize(), CEILING);
+   }
+
+   private void populate() {
+      servers.clear();
+      natRules.clear();
+      publicIpBlocks.clear();
+      firewallRules.clear();
+      networkDomains.clear();
+      vlans.clear();
+      tagKeys.clear();
+      serverIds.clear();
+      JsonObject natRuleTemplate = template("/natRules.json", "natRule");
+      JsonObject publicIpBlockTemplate = template("/publicIpBlocks.json", "publicIpBlock");
+      JsonObject firewallRuleTemplate = template("/firewallRules.json", "firewallRule");
+      for (int i = 0; i < SERVERS; i++) {
+         String serverId = UUID.randomUUID().toString();
+         serverIds.add(serverId);
+         servers.put(serverId, true);
+
+         JsonObject natRule = copy(natRuleTemplate);
+         natRule.addProperty("id", UUID.randomUUID().toString());
+         natRule.addProperty("internalIp", internalIp(serverId));
+         natRule.addProperty("externalIp", externalIp(i));
+         natRules.put(natRule.get("id").getAsString(), natRule);
+
+         JsonObject publicIpBlock = copy(publicIpBlockTemplate);
+         publicIpBlock.addProperty("id", UUID.randomUUID().toString());
+         publicIpBlock.addProperty("baseIp", externalIp(i));
+         publicIpBlocks.put(publicIpBlock.get("id").getAsString(), publicIpBlock);
+
+         JsonObject firewallRule = copy(firewallRuleTemplate);
+         firewallRule.addProperty("id", UUID.randomUUID().toString());
+         firewallRule.addProperty("name", generateFirewallRuleName(serverId));
+         firewallRules.put(firewallRule.get("id").getAsString(), firewallRule);
+      }
+   }
+
+   private JsonObject server(String serverId, boolean started) {
+      JsonObject server = template("/server.json", null);
+      server.addProperty("id", serverId);
+      server.addProperty("started", started);
+      server.getAsJsonObject("networkInfo").getAsJsonObject("primaryNic")
+            .addProperty("privateIpv4", internalIp(serverId));
+      return server;
+   }
+
+   private String internalIp(String serverId) {
+      int index = serverIds.indexOf(serverId);
+      return String.format("10.0.%d.%d", index / 250, index % 250 + 1);
+   }
+
+   private static String externalIp(int index) {
+      return String.format("165.180.%d.%d", index / 250, index % 250 + 1);
+   }
+
+   private JsonObject copy(JsonObject template) {
+      JsonObject copy = new JsonObject();
+      for (Map.Entry<String, JsonElement> property : template.entrySet()) {
+         copy.add(property.getKey(), property.getValue());
+      }
+      return copy;
+   }
+
+   private Endpoint listing(final String assetName, final ConcurrentMap<String, JsonObject> assets,
+         final String... filters) {
+      return new Endpoint() {
+         @Override
+         public MockResponse respond(RecordedRequest request, String resourceId) {
+            return listResponse(request, assetName, filter(request, ImmutableList.copyOf(assets.values()), filters));
+         }
+      };
+   }
+
+   private Endpoint deleting(final ConcurrentMap<String, JsonObject> assets, final String operation) {
+      return new Endpoint() {
+         @Override
+         public MockResponse respond(RecordedRequest request, String resourceId) {
+            assets.remove(idFromBody(request));
+            return operationResponse(operation, ImmutableMap.<String, String>of());
+         }
+      };
+   }
+}
@@ -84,10 +84,9 @@ public class ServerToServerWithExternalIpTest {
       PagedIterable<NatRule> natRules = PagedIterables.onlyPage(IterableWithMarkers.from(Lists.newArrayList(natRule)));
 
       expect(dimensionDataCloudControlApi.getNetworkApi()).andReturn(networkApi);
-      expect(networkApi.listNatRules(networkDomainId)).andReturn(natRules);
-      expect(nic.privateIpv4()).andReturn(internalIp);
+      expect(networkApi.listNatRulesWithInternalIp(networkDomainId, internalIp)).andReturn(natRules);
+      expect(nic.privateIpv4()).andReturn(internalIp).anyTimes();
       expect(natRule.externalIp()).andReturn(externalIp);
-      expect(natRule.internalIp()).andReturn(internalIp);
 
       EasyMock.replay(dimensionDataCloudControlApi, networkApi, natRule, nic);
 
@@ -119,7 +118,6 @@ public class ServerToServerWithExternalIpTest {
    @Test(dependsOnMethods = "testServerToServerWithExternalIpApplyNetworkInfoNull")
    public void testServerToServerWithExternalIpApplyNoMathingNatRuleFound() {
       String internalIp = "192.168.1.1";
-      String natIp = "192.168.1.2";
       String networkDomainId = "NetworkDomain1";
 
       server = Server.builder().id("serverId").name("serverName").datacenterId("NA1")
@@ -127,12 +125,11 @@ public class ServerToServerWithExternalIpTest {
             .state(State.NORMAL).sourceImageId("imageId").started(false).createTime(new Date()).memoryGb(1024)
             .guest(Guest.builder().osCustomization(false).operatingSystem(os).build()).build();
 
-      PagedIterable<NatRule> natRules = PagedIterables.onlyPage(IterableWithMarkers.from(Lists.newArrayList(natRule)));
+      PagedIterable<NatRule> natRules = PagedIterables.onlyPage(IterableWithMarkers.from(Lists.<NatRule>newArrayList()));
 
       expect(dimensionDataCloudControlApi.getNetworkApi()).andReturn(networkApi);
-      expect(networkApi.listNatRules(networkDomainId)).andReturn(natRules);
-      expect(nic.privateIpv4()).andReturn(internalIp);
-      expect(natRule.internalIp()).andReturn(natIp);
+      expect(networkApi.listNatRulesWithInternalIp(networkDomainId, internalIp)).andReturn(natRules);
+      expect(nic.privateIpv4()).andReturn(internalIp).anyTimes();
 
       EasyMock.replay(dimensionDataCloudControlApi, networkApi, natRule, nic);
 
@@ -160,7 +160,7 @@ public class CleanupServerTest {
       networkApiExpectations();
 
       final NatRule natRule = natRuleBuilder.state(State.FAILED_ADD).build();
-      expect(networkApi.listNatRules(jcloudsNetworkDomainId))
+      expect(networkApi.listNatRulesWithInternalIp(jcloudsNetworkDomainId, internalIp))
             .andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(Lists.newArrayList(natRule))));
 
       publicIpBlockExpectations();
@@ -196,7 +196,8 @@ public class CleanupServerTest {
       final FirewallRule firewallRule = firewallRuleBuilder.state(State.FAILED_CHANGE).destination(
             FirewallRuleTarget.builder()
                   .portList(FirewallRuleTarget.PortList.create("portListId", null, null, null, null)).build()).build();
-      expect(networkApi.listFirewallRules(jcloudsNetworkDomainId))
+      expect(networkApi.listFirewallRulesWithName(jcloudsNetworkDomainId,
+            DimensionDataCloudControlResponseUtils.generateFirewallRuleName(serverId)))
             .andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(Lists.newArrayList(firewallRule))));
 
       powerOffAndDeleteServerExpectations();
@@ -206,7 +207,8 @@ public class CleanupServerTest {
    private void firewallRuleAndPortListExpectations() {
       final FirewallRule firewallRule = firewallRuleBuilder.state(State.NORMAL).destination(FirewallRuleTarget.builder()
             .portList(FirewallRuleTarget.PortList.create("portListId", null, null, null, null)).build()).build();
-      expect(networkApi.listFirewallRules(jcloudsNetworkDomainId))
+      expect(networkApi.listFirewallRulesWithName(jcloudsNetworkDomainId,
+            DimensionDataCloudControlResponseUtils.generateFirewallRuleName(serverId)))
             .andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(Lists.newArrayList(firewallRule))));
       networkApi.deleteFirewallRule(firewallRule.id());
       expectLastCall();
@@ -224,7 +226,7 @@ public class CleanupServerTest {
 
    private void natRuleExpectations() {
       final NatRule natRule = natRuleBuilder.state(State.NORMAL).build();
-      expect(networkApi.listNatRules(jcloudsNetworkDomainId))
+      expect(networkApi.listNatRulesWithInternalIp(jcloudsNetworkDomainId, internalIp))
             .andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(Lists.newArrayList(natRule))));
       networkApi.deleteNatRule(natRule.id());
       expectLastCall();
@@ -25,6 +25,7 @@ import org.jclouds.compute.domain.Image;
 import org.jclouds.compute.domain.NodeMetadata;
 import org.jclouds.compute.domain.OsFamily;
 import org.jclouds.compute.functions.GroupNamingConvention;
+import org.jclouds.dimensiondata.cloudcontrol.compute.strategy.TagKeyRegistry;
 import org.jclouds.dimensiondata.cloudcontrol.domain.CPU;
 import org.jclouds.dimensiondata.cloudcontrol.domain.Guest;
 import org.jclouds.dimensiondata.cloudcontrol.domain.NIC;
@@ -57,6 +58,7 @@ public class ServerWithNatRuleToNodeMetadataTest {
    private GroupNamingConvention nodeNamingConvention;
    private OperatingSystemToOperatingSystem operatingSystemToOperatingSystem;
    private ServerToHardware serverToHardware;
+   private TagKeyRegistry tagKeyRegistry;
    private ServerImageApi serverImageApi;
    private Image image;
    private Hardware hardware;
@@ -95,6 +97,9 @@ public class ServerWithNatRuleToNodeMetadataTest {
       operatingSystem = EasyMock.createNiceMock(org.jclouds.compute.domain.OperatingSystem.class);
       serverToHardware = EasyMock.createNiceMock(ServerToHardware.class);
       operatingSystemToOperatingSystem = EasyMock.createNiceMock(OperatingSystemToOperatingSystem.class);
+      tagKeyRegistry = EasyMock.createMock(TagKeyRegistry.class);
+      expect(tagKeyRegistry.tagsOf("serverId")).andReturn(ImmutableMap.of("owner", "jclouds")).anyTimes();
+      EasyMock.replay(tagKeyRegistry);
 
       GroupNamingConvention.Factory conventionFactory = EasyMock.createNiceMock(GroupNamingConvention.Factory.class);
       nodeNamingConvention = EasyMock.createNiceMock(GroupNamingConvention.class);
@@ -110,7 +115,7 @@ public class ServerWithNatRuleToNodeMetadataTest {
             .guest(Guest.builder().osCustomization(false).operatingSystem(os).build()).build();
 
       serverWithNatRuleToNodeMetadata = new ServerWithNatRuleToNodeMetadata(locations, conventionFactory,
-            serverToHardware, operatingSystemToOperatingSystem);
+            serverToHardware, operatingSystemToOperatingSystem, tagKeyRegistry);
    }
 
    @Test
@@ -182,6 +187,32 @@ public class ServerWithNatRuleToNodeMetadataTest {
                   ImmutableSet.of(nic.privateIpv4()), ImmutableSet.of(externalIp));
    }
 
+   @Test
+   public void testApplyWithoutTagsWhenTheTagLookupFails() {
+      TagKeyRegistry failingTagKeyRegistry = EasyMock.createMock(TagKeyRegistry.class);
+      expect(failingTagKeyRegistry.tagsOf("serverId")).andThrow(new IllegalStateException("tag api unavailable"));
+      GroupNamingConvention.Factory conventionFactory = EasyMock.createNiceMock(GroupNamingConvention.Factory.class);
+      expect(conventionFactory.createWithoutPrefix()).andReturn(nodeNamingConvention);
+      expect(nodeNamingConvention.groupInUniqueNameOrNull(serverName)).andReturn("[" + serverName + "]").anyTimes();
+      expect(serverToHardware.apply(server)).andReturn(hardware);
+      EasyMock.replay(failingTagKeyRegistry, conventionFactory, nodeNamingConvention, nic, serverToHardware,
+            operatingSystemToOperatingSystem);
+
+      serverWithExternalIp = ServerWithExternalIp.create(server, externalIp);
+      NodeMetadata result = new ServerWithNatRuleToNodeMetadata(new Supplier<Set<? extends Location>>() {
+         @Override
+         public Set<? extends Location> get() {
+            return ImmutableSet.of(location);
+         }
+      }, conventionFactory, serverToHardware, operatingSystemToOperatingSystem, failingTagKeyRegistry)
+            .apply(serverWithExternalIp);
+
+      assertEquals(result.getId(), "serverId");
+      assertEquals(result.getStatus(), NodeMetadata.Status.RUNNING);
+      assertEquals(result.getUserMetadata(), ImmutableMap.of());
+      EasyMock.verify(failingTagKeyRegistry);
+   }
+
    private void assertNodeMetadata(NodeMetadata result, org.jclouds.compute.domain.OperatingSystem os, String imageId,
          NodeMetadata.Status status, ImmutableSet<String> privateIpAddresses, ImmutableSet<String> publicIpAddresses) {
       assertNotNull(result);
@@ -196,5 +227,6 @@ public class ServerWithNatRuleToNodeMetadataTest {
       assertEquals(result.getStatus(), status);
       assertEquals(result.getPrivateAddresses(), privateIpAddresses);
       assertEquals(result.getPublicAddresses(), publicIpAddresses);
+      assertEquals(result.getUserMetadata(), ImmutableMap.of("owner", "jclouds"));
    }
 }
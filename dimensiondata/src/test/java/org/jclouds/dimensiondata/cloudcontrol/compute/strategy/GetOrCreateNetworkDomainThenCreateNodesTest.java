@@ -17,15 +17,19 @@
 package org.jclouds.dimensiondata.cloudcontrol.compute.strategy;
 
 import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import org.easymock.EasyMock;
 import org.jclouds.collect.IterableWithMarkers;
 import org.jclouds.collect.PagedIterables;
 import org.jclouds.compute.config.CustomizationResponse;
 import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
 import org.jclouds.compute.domain.Template;
 import org.jclouds.compute.functions.GroupNamingConvention;
 import org.jclouds.compute.reference.ComputeServiceConstants;
@@ -37,17 +41,25 @@ import org.jclouds.dimensiondata.cloudcontrol.compute.options.DimensionDataCloud
 import org.jclouds.dimensiondata.cloudcontrol.domain.IpRange;
 import org.jclouds.dimensiondata.cloudcontrol.domain.NetworkDomain;
 import org.jclouds.dimensiondata.cloudcontrol.domain.State;
+import org.jclouds.dimensiondata.cloudcontrol.domain.TagInfo;
+import org.jclouds.dimensiondata.cloudcontrol.domain.TagKey;
 import org.jclouds.dimensiondata.cloudcontrol.domain.Vlan;
 import org.jclouds.dimensiondata.cloudcontrol.features.NetworkApi;
+import org.jclouds.dimensiondata.cloudcontrol.features.TagApi;
 import org.jclouds.domain.Location;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import java.util.Collections;
 import java.util.Date;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
 import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMockSupport.injectMocks;
 import static org.jclouds.dimensiondata.cloudcontrol.compute.options.DimensionDataCloudControlTemplateOptions.DEFAULT_NETWORK_DOMAIN_NAME;
@@ -55,6 +67,8 @@ import static org.jclouds.dimensiondata.cloudcontrol.compute.options.DimensionDa
 import static org.jclouds.dimensiondata.cloudcontrol.compute.options.DimensionDataCloudControlTemplateOptions.DEFAULT_PRIVATE_IPV4_PREFIX_SIZE;
 import static org.jclouds.dimensiondata.cloudcontrol.compute.options.DimensionDataCloudControlTemplateOptions.DEFAULT_VLAN_NAME;
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+import static org.testng.AssertJUnit.fail;
 
 @Test(groups = "unit", testName = "GetOrCreateNetworkDomainThenCreateNodesTest")
 public class GetOrCreateNetworkDomainThenCreateNodesTest {
@@ -102,7 +116,9 @@ public class GetOrCreateNetworkDomainThenCreateNodesTest {
 
       getOrCreateNetworkDomainThenCreateNodes = new GetOrCreateNetworkDomainThenCreateNodes(addNodeWithGroupStrategy,
             listNodesStrategy, namingConvention, userExecutor,
-            customizeNodeAndAddToGoodMapOrPutExceptionIntoBadMapFactory, api, timeouts, alwaysTrue, alwaysTrue);
+            customizeNodeAndAddToGoodMapOrPutExceptionIntoBadMapFactory,
+            new NetworkDomainAndVlanResolver(api, timeouts, alwaysTrue, alwaysTrue, 60),
+            new TagKeyRegistry(api, userExecutor, 60));
 
       networkDomain = NetworkDomain.builder().id("690de302-bb80-49c6-b401-8c02bbefb945")
             .name(DEFAULT_NETWORK_DOMAIN_NAME).build();
@@ -167,6 +183,98 @@ public class GetOrCreateNetworkDomainThenCreateNodesTest {
       executeAndAssert();
    }
 
+   @Test
+   public void testCreatedNodeIsTaggedBeforeItIsReported() throws Exception {
+      final TagApi tagApi = EasyMock.createMock(TagApi.class);
+      expectTagKeysAndTagOf(tagApi, "node1Id");
+      replay(tagApi);
+
+      final AtomicReference<NodeMetadata> created = createWithTags(registryOf(tagApi), "node1", true)
+            .get(10, TimeUnit.SECONDS);
+
+      assertEquals("node1Id", created.get().getId());
+      EasyMock.verify(tagApi);
+   }
+
+   @Test
+   public void testNodeIsReportedAsCreatedWhenItCannotBeTagged() throws Exception {
+      final TagApi tagApi = EasyMock.createMock(TagApi.class);
+      expectTagKeys(tagApi);
+      tagApi.applyTags("node1Id", "SERVER", ImmutableList.of(TagInfo.create("ownerId", "jclouds")));
+      expectLastCall().andThrow(new IllegalStateException("tag api unavailable"));
+      replay(tagApi);
+
+      final AtomicReference<NodeMetadata> created = createWithTags(registryOf(tagApi), "node1", true)
+            .get(10, TimeUnit.SECONDS);
+
+      assertEquals("node1Id", created.get().getId());
+      EasyMock.verify(tagApi);
+   }
+
+   @Test
+   public void testOnlyTheCreatedNodesOfAPartialGroupAreTagged() throws Exception {
+      final TagApi tagApi = EasyMock.createMock(TagApi.class);
+      expectTagKeysAndTagOf(tagApi, "node1Id");
+      replay(tagApi);
+
+      final TagKeyRegistry registry = registryOf(tagApi);
+      final ListenableFuture<AtomicReference<NodeMetadata>> failed = createWithTags(registry, "node2", false);
+      final AtomicReference<NodeMetadata> created = createWithTags(registry, "node1", true).get(10, TimeUnit.SECONDS);
+
+      assertEquals("node1Id", created.get().getId());
+      try {
+         failed.get(10, TimeUnit.SECONDS);
+         fail("node2 could not be created");
+      } catch (ExecutionException expected) {
+         assertTrue(expected.getCause() instanceof IllegalStateException);
+      }
+      EasyMock.verify(tagApi);
+   }
+
+   private void expectTagKeys(final TagApi tagApi) {
+      expect(tagApi.listTagKeys()).andReturn(PagedIterables.onlyPage(IterableWithMarkers
+            .from(Lists.newArrayList(TagKey.create("ownerId", "owner", null, true, false))))).once();
+   }
+
+   private void expectTagKeysAndTagOf(final TagApi tagApi, final String serverId) {
+      expectTagKeys(tagApi);
+      tagApi.applyTags(serverId, "SERVER", ImmutableList.of(TagInfo.create("ownerId", "jclouds")));
+      expectLastCall().once();
+   }
+
+   private TagKeyRegistry registryOf(final TagApi tagApi) {
+      final DimensionDataCloudControlApi tagsApi = EasyMock.createMock(DimensionDataCloudControlApi.class);
+      expect(tagsApi.getTagApi()).andReturn(tagApi).anyTimes();
+      replay(tagsApi);
+      return new TagKeyRegistry(tagsApi, newDirectExecutorService(), 60);
+   }
+
+   /**
+    * Creates a node of the group from a template tagging it with owner=jclouds, or fails to create it.
+    */
+   private ListenableFuture<AtomicReference<NodeMetadata>> createWithTags(final TagKeyRegistry registry,
+         final String name, final boolean created) {
+      final Template taggedTemplate = EasyMock.createMock(Template.class);
+      expect(taggedTemplate.getOptions())
+            .andReturn(new DimensionDataCloudControlTemplateOptions().userMetadata("owner", "jclouds")).anyTimes();
+      final CreateNodeWithGroupEncodedIntoName addNode = EasyMock.createMock(CreateNodeWithGroupEncodedIntoName.class);
+      if (created) {
+         expect(addNode.createNodeWithGroupEncodedIntoName("group", name, taggedTemplate)).andReturn(
+               new NodeMetadataBuilder().ids(name + "Id").name(name).group("group")
+                     .status(NodeMetadata.Status.RUNNING).build());
+      } else {
+         expect(addNode.createNodeWithGroupEncodedIntoName("group", name, taggedTemplate))
+               .andThrow(new IllegalStateException("out of capacity"));
+      }
+      replay(taggedTemplate, addNode);
+
+      return new GetOrCreateNetworkDomainThenCreateNodes(addNode, listNodesStrategy, namingConvention,
+            newDirectExecutorService(), customizeNodeAndAddToGoodMapOrPutExceptionIntoBadMapFactory,
+            new NetworkDomainAndVlanResolver(api, timeouts, Predicates.<String>alwaysTrue(),
+                  Predicates.<String>alwaysTrue(), 60), registry)
+            .createNodeInGroupWithNameAndTemplate("group", name, taggedTemplate);
+   }
+
    private void executeAndAssert() {
       getOrCreateNetworkDomainThenCreateNodes.execute("group", 0, template, Collections.<NodeMetadata>emptySet(),
             Collections.<NodeMetadata, Exception>emptyMap(),
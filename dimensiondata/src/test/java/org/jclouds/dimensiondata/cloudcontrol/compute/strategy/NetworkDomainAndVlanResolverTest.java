@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.dimensiondata.cloudcontrol.compute.strategy;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.easymock.EasyMock;
+import org.jclouds.collect.IterableWithMarkers;
+import org.jclouds.collect.PagedIterables;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.dimensiondata.cloudcontrol.DimensionDataCloudControlApi;
+import org.jclouds.dimensiondata.cloudcontrol.domain.IpRange;
+import org.jclouds.dimensiondata.cloudcontrol.domain.NetworkDomain;
+import org.jclouds.dimensiondata.cloudcontrol.domain.State;
+import org.jclouds.dimensiondata.cloudcontrol.domain.Vlan;
+import org.jclouds.dimensiondata.cloudcontrol.features.NetworkApi;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit", testName = "NetworkDomainAndVlanResolverTest")
+public class NetworkDomainAndVlanResolverTest {
+
+   private static final String DATACENTER_ID = "NA9";
+   private static final String NETWORK_DOMAIN_NAME = "JCLOUDS_NETWORK_DOMAIN";
+   private static final String NETWORK_DOMAIN_ID = "networkDomainId";
+
+   private DimensionDataCloudControlApi api;
+   private NetworkApi networkApi;
+   private final CountDownLatch deploying = new CountDownLatch(1);
+   private final CountDownLatch ready = new CountDownLatch(1);
+
+   private final Predicate<String> waitUntilReady = new Predicate<String>() {
+      @Override
+      public boolean apply(final String input) {
+         deploying.countDown();
+         return Uninterruptibles.awaitUninterruptibly(ready, 10, TimeUnit.SECONDS);
+      }
+   };
+
+   @BeforeMethod
+   public void setUp() {
+      networkApi = EasyMock.createMock(NetworkApi.class);
+      api = EasyMock.createMock(DimensionDataCloudControlApi.class);
+      expect(api.getNetworkApi()).andReturn(networkApi).anyTimes();
+   }
+
+   @Test
+   public void testConcurrentCallersShareOneDeployment() throws Exception {
+      expect(networkApi.listNetworkDomainsWithDatacenterIdAndName(DATACENTER_ID, NETWORK_DOMAIN_NAME))
+            .andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(Lists.<NetworkDomain>newArrayList())));
+      expect(networkApi.deployNetworkDomain(DATACENTER_ID, NETWORK_DOMAIN_NAME, "network domain created by jclouds",
+            NetworkDomain.Type.ESSENTIALS.name())).andReturn(NETWORK_DOMAIN_ID).once();
+      replay(api, networkApi);
+
+      final NetworkDomainAndVlanResolver resolver = new NetworkDomainAndVlanResolver(api,
+            new ComputeServiceConstants.Timeouts(), waitUntilReady, waitUntilReady, 60);
+      final Callable<String> resolve = new Callable<String>() {
+         @Override
+         public String call() {
+            return resolver.getOrDeployNetworkDomain(DATACENTER_ID, NETWORK_DOMAIN_NAME);
+         }
+      };
+
+      final CountDownLatch resolving = new CountDownLatch(1);
+      final ExecutorService executor = Executors.newFixedThreadPool(2);
+      try {
+         final Future<String> first = executor.submit(resolve);
+         assertTrue(deploying.await(10, TimeUnit.SECONDS));
+         final Future<String> second = executor.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+               resolving.countDown();
+               return resolve.call();
+            }
+         });
+         // the deployment is only completed once the second caller is resolving the same network domain
+         assertTrue(resolving.await(10, TimeUnit.SECONDS));
+         ready.countDown();
+
+         assertEquals(first.get(10, TimeUnit.SECONDS), NETWORK_DOMAIN_ID);
+         assertEquals(second.get(10, TimeUnit.SECONDS), NETWORK_DOMAIN_ID);
+      } finally {
+         executor.shutdownNow();
+      }
+      verify(api, networkApi);
+   }
+
+   @Test
+   public void testResolvedVlanIsCached() {
+      final Vlan vlan = Vlan.builder().networkDomain(NetworkDomain.builder().id(NETWORK_DOMAIN_ID).name(NETWORK_DOMAIN_NAME).build())
+            .id("vlanId").name("vlanName").description("").privateIpv4Range(IpRange.create("10.0.0.0", 24))
+            .ipv6Range(IpRange.create("2607:f480:111:1575:0:0:0:0", 64)).ipv4GatewayAddress("10.0.0.1")
+            .ipv6GatewayAddress("2607:f480:111:1575:0:0:0:1").createTime(new Date()).state(State.NORMAL)
+            .datacenterId(DATACENTER_ID).build();
+      expect(networkApi.listVlans(NETWORK_DOMAIN_ID))
+            .andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(Lists.newArrayList(vlan)))).once();
+      replay(api, networkApi);
+
+      final NetworkDomainAndVlanResolver resolver = new NetworkDomainAndVlanResolver(api,
+            new ComputeServiceConstants.Timeouts(), waitUntilReady, waitUntilReady, 60);
+      assertEquals(resolver.getOrDeployVlan(NETWORK_DOMAIN_ID, "vlanName", "10.0.0.0", 24), "vlanId");
+      assertEquals(resolver.getOrDeployVlan(NETWORK_DOMAIN_ID, "vlanName", "10.0.0.0", 24), "vlanId");
+      verify(api, networkApi);
+   }
+
+   @Test
+   public void testDeletedNetworkDomainIsResolvedAgain() {
+      final NetworkDomain networkDomain = NetworkDomain.builder().id(NETWORK_DOMAIN_ID).name(NETWORK_DOMAIN_NAME)
+            .build();
+      final Vlan vlan = Vlan.builder().networkDomain(networkDomain).id("vlanId").name("vlanName").description("")
+            .privateIpv4Range(IpRange.create("10.0.0.0", 24))
+            .ipv6Range(IpRange.create("2607:f480:111:1575:0:0:0:0", 64)).ipv4GatewayAddress("10.0.0.1")
+            .ipv6GatewayAddress("2607:f480:111:1575:0:0:0:1").createTime(new Date()).state(State.NORMAL)
+            .datacenterId(DATACENTER_ID).build();
+      expect(networkApi.listNetworkDomainsWithDatacenterIdAndName(DATACENTER_ID, NETWORK_DOMAIN_NAME))
+            .andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(Lists.newArrayList(networkDomain)))).times(2);
+      expect(networkApi.listVlans(NETWORK_DOMAIN_ID))
+            .andReturn(PagedIterables.onlyPage(IterableWithMarkers.from(Lists.newArrayList(vlan)))).times(2);
+      replay(api, networkApi);
+
+      final NetworkDomainAndVlanResolver resolver = new NetworkDomainAndVlanResolver(api,
+            new ComputeServiceConstants.Timeouts(), waitUntilReady, waitUntilReady, 60);
+      assertEquals(resolver.getOrDeployNetworkDomain(DATACENTER_ID, NETWORK_DOMAIN_NAME), NETWORK_DOMAIN_ID);
+      assertEquals(resolver.getOrDeployVlan(NETWORK_DOMAIN_ID, "vlanName", "10.0.0.0", 24), "vlanId");
+
+      // deleting the network domain also deletes its VLANs
+      resolver.invalidateNetworkDomain(NETWORK_DOMAIN_ID);
+      assertEquals(resolver.getOrDeployNetworkDomain(DATACENTER_ID, NETWORK_DOMAIN_NAME), NETWORK_DOMAIN_ID);
+      assertEquals(resolver.getOrDeployVlan(NETWORK_DOMAIN_ID, "vlanName", "10.0.0.0", 24), "vlanId");
+      verify(api, networkApi);
+   }
+}
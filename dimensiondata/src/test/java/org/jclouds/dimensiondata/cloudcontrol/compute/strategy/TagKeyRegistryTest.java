@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.dimensiondata.cloudcontrol.compute.strategy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import org.easymock.EasyMock;
+import org.jclouds.collect.IterableWithMarkers;
+import org.jclouds.collect.PagedIterables;
+import org.jclouds.dimensiondata.cloudcontrol.DimensionDataCloudControlApi;
+import org.jclouds.dimensiondata.cloudcontrol.domain.Tag;
+import org.jclouds.dimensiondata.cloudcontrol.domain.TagInfo;
+import org.jclouds.dimensiondata.cloudcontrol.domain.TagKey;
+import org.jclouds.dimensiondata.cloudcontrol.features.TagApi;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+@Test(groups = "unit", testName = "TagKeyRegistryTest")
+public class TagKeyRegistryTest {
+
+   private static final String ASSET_TYPE = "SERVER";
+
+   private DimensionDataCloudControlApi api;
+   private TagApi tagApi;
+
+   @BeforeMethod
+   public void setUp() {
+      tagApi = EasyMock.createMock(TagApi.class);
+      api = EasyMock.createMock(DimensionDataCloudControlApi.class);
+      expect(api.getTagApi()).andReturn(tagApi).anyTimes();
+   }
+
+   @Test
+   public void testApplyTagsResolvesEachKeyOnceAndSendsOneRequestPerAsset() throws Exception {
+      expect(tagApi.listTagKeys()).andReturn(PagedIterables.onlyPage(IterableWithMarkers
+            .from(Lists.newArrayList(TagKey.create("ownerId", "owner", null, true, false))))).once();
+      expect(tagApi.createTagKey("environment", "tag key created by jclouds", false, false))
+            .andReturn("environmentId").once();
+      for (String assetId : ImmutableList.of("server1", "server2", "server3")) {
+         tagApi.applyTags(assetId, ASSET_TYPE,
+               ImmutableList.of(TagInfo.create("ownerId", "jclouds"), TagInfo.create("environmentId", "test")));
+         expectLastCall().once();
+      }
+      replay(api, tagApi);
+
+      final Map<String, String> tags = ImmutableMap.of("owner", "jclouds", "environment", "test");
+      final Map<String, ListenableFuture<Void>> responses = new TagKeyRegistry(api, newDirectExecutorService(), 60)
+            .applyTags(ASSET_TYPE, ImmutableMap.of("server1", tags, "server2", tags, "server3", tags), 2);
+
+      assertEquals(responses.size(), 3);
+      for (ListenableFuture<Void> response : responses.values()) {
+         assertNull(response.get());
+      }
+      verify(api, tagApi);
+   }
+
+   @Test
+   public void testTagsByAssetId() {
+      final Tag serverTag = Tag.builder().assetType(ASSET_TYPE).assetId("server1").tagKeyId("ownerId")
+            .tagKeyName("owner").value("jclouds").valueRequired(true).displayOnReport(false).build();
+      final Tag otherServerTag = serverTag.toBuilder().assetId("server2").build();
+      expect(tagApi.listTags()).andReturn(
+            PagedIterables.onlyPage(IterableWithMarkers.from(Lists.newArrayList(serverTag, otherServerTag)))).once();
+      replay(api, tagApi);
+
+      final ImmutableListMultimap<String, Tag> tags = new TagKeyRegistry(api, newDirectExecutorService(), 60)
+            .tagsByAssetId();
+      assertEquals(tags.get("server1"), ImmutableList.of(serverTag));
+      assertEquals(tags.get("server2"), ImmutableList.of(otherServerTag));
+      verify(api, tagApi);
+   }
+
+   @Test
+   public void testApplyTagsSkipsAssetsWithoutTags() throws Exception {
+      replay(api, tagApi);
+
+      final Map<String, ListenableFuture<Void>> responses = new TagKeyRegistry(api, newDirectExecutorService(), 60)
+            .applyTags(ASSET_TYPE, ImmutableMap.of("server1", ImmutableMap.<String, String>of()), 2);
+
+      assertNull(responses.get("server1").get());
+      verify(api, tagApi);
+   }
+
+   @Test
+   public void testApplyTagsFailsTheRestOfTheLaneOnError() throws Exception {
+      expect(tagApi.listTagKeys()).andReturn(PagedIterables.onlyPage(IterableWithMarkers
+            .from(Lists.newArrayList(TagKey.create("ownerId", "owner", null, true, false))))).once();
+      tagApi.applyTags("server1", ASSET_TYPE, ImmutableList.of(TagInfo.create("ownerId", "jclouds")));
+      expectLastCall().andThrow(new AssertionError("lane died"));
+      replay(api, tagApi);
+
+      final ListeningExecutorService executor = listeningDecorator(Executors.newSingleThreadExecutor());
+      try {
+         final Map<String, String> tags = ImmutableMap.of("owner", "jclouds");
+         final Map<String, ListenableFuture<Void>> responses = new TagKeyRegistry(api, executor, 60)
+               .applyTags(ASSET_TYPE, ImmutableMap.of("server1", tags, "server2", tags), 1);
+         for (ListenableFuture<Void> response : responses.values()) {
+            try {
+               response.get(10, TimeUnit.SECONDS);
+               fail("the lane died, so no request should be reported as sent");
+            } catch (ExecutionException expected) {
+               assertTrue(expected.getCause() instanceof AssertionError);
+            }
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+      verify(api, tagApi);
+   }
+
+   @Test
+   public void testTagsOf() {
+      final Tag serverTag = Tag.builder().assetType(ASSET_TYPE).assetId("server1").tagKeyId("ownerId")
+            .tagKeyName("owner").value("jclouds").valueRequired(true).displayOnReport(false).build();
+      expect(tagApi.listTags()).andReturn(
+            PagedIterables.onlyPage(IterableWithMarkers.from(Lists.newArrayList(serverTag)))).once();
+      replay(api, tagApi);
+
+      final TagKeyRegistry registry = new TagKeyRegistry(api, newDirectExecutorService(), 60);
+      assertEquals(registry.tagsOf("server1"), ImmutableMap.of("owner", "jclouds"));
+      assertTrue(registry.tagsOf("server2").isEmpty());
+      verify(api, tagApi);
+   }
+
+   @Test
+   public void testAppliedTagsAreMergedIntoTheIndexWithoutListingAgain() throws Exception {
+      final Tag serverTag = Tag.builder().assetType(ASSET_TYPE).assetId("server1").tagKeyId("ownerId")
+            .tagKeyName("owner").value("jclouds").valueRequired(true).displayOnReport(false).build();
+      expect(tagApi.listTags()).andReturn(
+            PagedIterables.onlyPage(IterableWithMarkers.from(Lists.newArrayList(serverTag)))).once();
+      expect(tagApi.listTagKeys()).andReturn(PagedIterables.onlyPage(IterableWithMarkers
+            .from(Lists.newArrayList(TagKey.create("ownerId", "owner", null, true, false),
+                  TagKey.create("environmentId", "environment", null, true, false))))).once();
+      tagApi.applyTags("server1", ASSET_TYPE, ImmutableList.of(TagInfo.create("environmentId", "test")));
+      expectLastCall().once();
+      tagApi.applyTags("server2", ASSET_TYPE, ImmutableList.of(TagInfo.create("ownerId", "jclouds")));
+      expectLastCall().once();
+      replay(api, tagApi);
+
+      final TagKeyRegistry registry = new TagKeyRegistry(api, newDirectExecutorService(), 60);
+      assertTrue(registry.tagsOf("server2").isEmpty());
+      final Map<String, ListenableFuture<Void>> responses = registry.applyTags(ASSET_TYPE,
+            ImmutableMap.<String, Map<String, String>>of("server1", ImmutableMap.of("environment", "test"),
+                  "server2", ImmutableMap.of("owner", "jclouds")), 2);
+      for (ListenableFuture<Void> response : responses.values()) {
+         assertNull(response.get());
+      }
+
+      assertEquals(registry.tagsOf("server1"), ImmutableMap.of("owner", "jclouds", "environment", "test"));
+      assertEquals(registry.tagsOf("server2"), ImmutableMap.of("owner", "jclouds"));
+      verify(api, tagApi);
+   }
+}
@@ -281,6 +281,26 @@ public class NetworkApiMockTest extends BaseAccountAwareCloudControlMockTest {
       assertSent(GET, "/caas/2.4/6ac1e746-b1ea-4da5-a24e-caf1a978789d/network/natRule?networkDomainId=12345");
    }
 
+   public void testListNatRulesWithInternalIpWithPagination() throws Exception {
+      server.enqueue(jsonResponse("/natRules-page1.json"));
+      server.enqueue(jsonResponse("/natRules-page2.json"));
+      Iterable<NatRule> natRules = api().listNatRulesWithInternalIp("12345", "10.0.0.15").concat().toList();
+
+      consumeIterableAndAssertAdditionalPagesRequested(natRules, 2, 0);
+
+      assertSent(HttpMethod.GET, expectedListNatRulesUriBuilder().addQuery("internalIp", "10.0.0.15").toString());
+      assertSent(HttpMethod.GET,
+            addPageNumberToUriBuilder(expectedListNatRulesUriBuilder().addQuery("internalIp", "10.0.0.15"), 2, false)
+                  .toString());
+   }
+
+   public void testListNatRulesWithInternalIp_404() throws Exception {
+      server.enqueue(response404());
+      assertTrue(api().listNatRulesWithInternalIp("12345", "10.0.0.15").concat().isEmpty());
+      assertSent(GET, "/caas/2.4/6ac1e746-b1ea-4da5-a24e-caf1a978789d/network/natRule?networkDomainId=12345"
+            + "&internalIp=10.0.0.15");
+   }
+
    public void testGetNatRule() throws Exception {
       server.enqueue(jsonResponse("/natRule.json"));
       api().getNatRule("natRuleId");
@@ -318,6 +338,21 @@ public class NetworkApiMockTest extends BaseAccountAwareCloudControlMockTest {
       assertSent(HttpMethod.GET, addPageNumberToUriBuilder(expectedListFirewallRulesUriBuilder(), 2, false).toString());
    }
 
+   public void testListFirewallRulesWithName() throws Exception {
+      server.enqueue(jsonResponse("/firewallRules-page1.json"));
+      server.enqueue(jsonResponse("/firewallRules-page2.json"));
+      Iterable<FirewallRule> firewallRules = api()
+            .listFirewallRulesWithName("12345", "CCDEFAULT.BlockOutboundMailIPv6Secure").concat().toList();
+
+      consumeIterableAndAssertAdditionalPagesRequested(firewallRules, 15, 0);
+
+      assertSent(HttpMethod.GET, expectedListFirewallRulesUriBuilder()
+            .addQuery("name", "CCDEFAULT.BlockOutboundMailIPv6Secure").toString());
+      assertSent(HttpMethod.GET, addPageNumberToUriBuilder(
+            expectedListFirewallRulesUriBuilder().addQuery("name", "CCDEFAULT.BlockOutboundMailIPv6Secure"), 2, false)
+            .toString());
+   }
+
    public void testDeleteFirewallRule() throws Exception {
       server.enqueue(new MockResponse().setResponseCode(200).setBody(
             "{\n" + "\"operation\": \"DELETE_FIREWALL_RULE\",\n" + "\"responseCode\": \"IN_PROGRESS\",\n"
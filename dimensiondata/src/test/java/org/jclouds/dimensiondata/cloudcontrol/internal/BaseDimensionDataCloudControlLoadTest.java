@@ -0,0 +1,337 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.dimensiondata.cloudcontrol.internal;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+import org.testng.IHookCallBack;
+import org.testng.ITestResult;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Base class for load tests against a simulated CloudControl endpoint.
+ * <p>
+ * Instead of enqueuing canned responses, the mock web server is given a {@link Dispatcher} that answers every request
+ * after a configurable latency, paginates and filters list endpoints with a configurable page size, and counts the requests
+ * received per endpoint. Subclasses register the endpoints they need with {@link #respondTo} and drive concurrent
+ * flows with {@link #runConcurrently}, which records the latency of every operation.
+ */
+public abstract class BaseDimensionDataCloudControlLoadTest extends BaseDimensionDataCloudControlMockTest {
+
+   private static final String API_PREFIX = "/caas/" + VERSION + "/";
+
+   private final JsonParser parser = new JsonParser();
+   private final Map<String, Endpoint> endpoints = Maps.newLinkedHashMap();
+   private final ConcurrentMap<String, AtomicInteger> requestCounts = Maps.newConcurrentMap();
+   private final ConcurrentMap<String, Queue<Long>> latencies = Maps.newConcurrentMap();
+
+   /**
+    * Answers a request to a simulated endpoint.
+    */
+   protected interface Endpoint {
+      MockResponse respond(RecordedRequest request, String resourceId);
+   }
+
+   /**
+    * The latency added by the simulated endpoint to every response.
+    */
+   protected long latencyMillis() {
+      return 5;
+   }
+
+   /**
+    * The page size the simulated endpoint uses for list responses.
+    */
+   protected int pageSize() {
+      return 20;
+   }
+
+   @Override
+   protected void applyAdditionalServerConfig() {
+      endpoints.clear();
+      requestCounts.clear();
+      latencies.clear();
+      respondTo("GET user/myUser", new Endpoint() {
+         @Override
+         public MockResponse respond(RecordedRequest request, String resourceId) {
+            return jsonResponse("/account.json");
+         }
+      });
+      server.setDispatcher(new Dispatcher() {
+         @Override
+         public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            TimeUnit.MILLISECONDS.sleep(latencyMillis());
+            String path = request.getPath();
+            int query = path.indexOf('?');
+            String[] segments = (query < 0 ? path : path.substring(0, query)).substring(API_PREFIX.length())
+                  .split("/");
+            // skip the organisation id, which is part of every account-aware path
+            int first = "user".equals(segments[0]) ? 0 : 1;
+            StringBuilder endpoint = new StringBuilder(request.getMethod()).append(' ');
+            String resourceId = null;
+            for (int i = first; i < segments.length; i++) {
+               if (i == first + 2) {
+                  resourceId = segments[i];
+                  endpoint.append("/{id}");
+               } else {
+                  endpoint.append(i == first ? "" : "/").append(segments[i]);
+               }
+            }
+            String key = endpoint.toString();
+            AtomicInteger count = requestCounts.putIfAbsent(key, new AtomicInteger(1));
+            if (count != null) {
+               count.incrementAndGet();
+            }
+            Endpoint handler = endpoints.get(key);
+            return handler != null ? handler.respond(request, resourceId) : response404();
+         }
+      });
+   }
+
+   /**
+    * Registers the handler of an endpoint, identified by its method and its path below the organisation id, with
+    * resource ids replaced by {@code {id}}. For example {@code "GET server/server/{id}"}.
+    */
+   protected void respondTo(String endpoint, Endpoint handler) {
+      endpoints.put(endpoint, handler);
+   }
+
+   @Override
+   public void run(IHookCallBack callBack, ITestResult testResult) {
+      // requests are counted per endpoint instead of being asserted one by one
+      callBack.runTestMethod(testResult);
+   }
+
+   /**
+    * Returns the number of requests received by an endpoint.
+    */
+   protected int requestCount(String endpoint) {
+      AtomicInteger count = requestCounts.get(endpoint);
+      return count == null ? 0 : count.get();
+   }
+
+   /**
+    * Returns the number of requests received by each endpoint.
+    */
+   protected Map<String, Integer> requestCounts() {
+      ImmutableSortedMap.Builder<String, Integer> counts = ImmutableSortedMap.naturalOrder();
+      for (Map.Entry<String, AtomicInteger> count : requestCounts.entrySet()) {
+         counts.put(count.getKey(), count.getValue().get());
+      }
+      return counts.build();
+   }
+
+   /**
+    * Runs every operation on a pool of the given size, recording the latency of each under the given flow name.
+    */
+   protected <T> List<T> runConcurrently(final String flow, int concurrency, List<? extends Callable<T>> operations)
+         throws Exception {
+      final Queue<Long> flowLatencies = new ConcurrentLinkedQueue<Long>();
+      checkState(latencies.putIfAbsent(flow, flowLatencies) == null, "flow %s already run", flow);
+      ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+      try {
+         List<Future<T>> futures = new ArrayList<Future<T>>();
+         for (final Callable<T> operation : operations) {
+            futures.add(executor.submit(new Callable<T>() {
+               @Override
+               public T call() throws Exception {
+                  long start = System.nanoTime();
+                  try {
+                     return operation.call();
+                  } finally {
+                     flowLatencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                  }
+               }
+            }));
+         }
+         List<T> results = new ArrayList<T>();
+         for (Future<T> future : futures) {
+            results.add(Uninterruptibles.getUninterruptibly(future, 5, TimeUnit.MINUTES));
+         }
+         return results;
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   /**
+    * Returns the 50th, 90th and 99th percentile latencies, in milliseconds, of the operations of a flow.
+    */
+   protected Map<String, Long> latencyPercentiles(String flow) {
+      List<Long> sorted = Ordering.natural().sortedCopy(latencies.get(flow));
+      checkState(!sorted.isEmpty(), "no operations recorded for flow %s", flow);
+      return ImmutableMap.of("p50", percentile(sorted, 50), "p90", percentile(sorted, 90), "p99",
+            percentile(sorted, 99));
+   }
+
+   private static long percentile(List<Long> sorted, int percentile) {
+      int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+      return sorted.get(Math.max(0, index));
+   }
+
+   /**
+    * Logs the request counts per endpoint and the latency percentiles of a flow.
+    */
+   protected void report(String flow) {
+      Logger.getAnonymousLogger().info(String.format("%s: latency %s ms, requests %s", flow,
+            latencyPercentiles(flow), requestCounts()));
+   }
+
+   /**
+    * Returns the decoded value of a query parameter of a request, or {@code null} if it is not present.
+    */
+   protected String queryParameter(RecordedRequest request, String name) {
+      String path = request.getPath();
+      int query = path.indexOf('?');
+      if (query < 0) {
+         return null;
+      }
+      for (String parameter : path.substring(query + 1).split("&")) {
+         int equals = parameter.indexOf('=');
+         if (equals > 0 && parameter.substring(0, equals).equals(name)) {
+            try {
+               return URLDecoder.decode(parameter.substring(equals + 1), "UTF-8");
+            } catch (UnsupportedEncodingException e) {
+               throw new AssertionError(e);
+            }
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Keeps the elements whose property equals the query parameter of the same name, for each of the given properties
+    * that the request filters on, as the list endpoints of CloudControl do.
+    */
+   protected List<JsonObject> filter(RecordedRequest request, List<JsonObject> all, String... properties) {
+      ImmutableList.Builder<JsonObject> matches = ImmutableList.builder();
+      for (JsonObject element : all) {
+         boolean matching = true;
+         for (String property : properties) {
+            String value = queryParameter(request, property);
+            if (value != null && (!element.has(property) || !value.equals(element.get(property).getAsString()))) {
+               matching = false;
+            }
+         }
+         if (matching) {
+            matches.add(element);
+         }
+      }
+      return matches.build();
+   }
+
+   /**
+    * Returns a page of a list response, using the page number requested and the configured {@link #pageSize()}.
+    */
+   protected MockResponse listResponse(RecordedRequest request, String assetName, List<? extends JsonElement> all) {
+      String requestedPage = queryParameter(request, "pageNumber");
+      int pageNumber = requestedPage == null ? 1 : Integer.parseInt(requestedPage);
+      int from = Math.min((pageNumber - 1) * pageSize(), all.size());
+      List<? extends JsonElement> page = all.subList(from, Math.min(from + pageSize(), all.size()));
+
+      JsonObject body = new JsonObject();
+      JsonArray elements = new JsonArray();
+      for (JsonElement element : page) {
+         elements.add(element);
+      }
+      body.add(assetName, elements);
+      body.addProperty("pageNumber", pageNumber);
+      body.addProperty("pageCount", page.size());
+      body.addProperty("totalCount", all.size());
+      body.addProperty("pageSize", pageSize());
+      return new MockResponse().addHeader("Content-Type", "application/json").setBody(body.toString());
+   }
+
+   /**
+    * Returns an asynchronous operation response carrying the given info properties.
+    */
+   protected MockResponse operationResponse(String operation, Map<String, String> info) {
+      JsonObject body = new JsonObject();
+      body.addProperty("operation", operation);
+      body.addProperty("responseCode", "IN_PROGRESS");
+      body.addProperty("message", "Request to " + operation + " has been accepted and is being processed.");
+      JsonArray properties = new JsonArray();
+      for (Map.Entry<String, String> property : info.entrySet()) {
+         JsonObject element = new JsonObject();
+         element.addProperty("name", property.getKey());
+         element.addProperty("value", property.getValue());
+         properties.add(element);
+      }
+      body.add("info", properties);
+      body.add("warning", new JsonArray());
+      body.add("error", new JsonArray());
+      body.addProperty("requestId", operation + "-" + System.nanoTime());
+      return new MockResponse().addHeader("Content-Type", "application/json").setBody(body.toString());
+   }
+
+   /**
+    * Returns a single resource response.
+    */
+   protected MockResponse objectResponse(JsonElement element) {
+      return new MockResponse().addHeader("Content-Type", "application/json").setBody(element.toString());
+   }
+
+   /**
+    * Loads a recorded fixture, or the first element of the named array within it, to be used as a template.
+    */
+   protected JsonObject template(String resource, String assetName) {
+      JsonObject fixture = parser.parse(stringFromResource(resource)).getAsJsonObject();
+      return assetName == null ? fixture : fixture.getAsJsonArray(assetName).get(0).getAsJsonObject();
+   }
+
+   /**
+    * Reads the {@code id} property of a JSON request body.
+    */
+   protected String idFromBody(RecordedRequest request) {
+      return propertyFromBody(request, "id");
+   }
+
+   /**
+    * Reads a string property of a JSON request body.
+    */
+   protected String propertyFromBody(RecordedRequest request, String property) {
+      return parser.parse(request.getUtf8Body()).getAsJsonObject().get(property).getAsString();
+   }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.dimensiondata.cloudcontrol.utils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.io.Resources;
+import com.google.gson.Gson;
+import com.google.inject.Guice;
+import com.google.inject.TypeLiteral;
+import org.jclouds.dimensiondata.cloudcontrol.config.DimensionDataCloudControlParserModule;
+import org.jclouds.dimensiondata.cloudcontrol.domain.FirewallRule;
+import org.jclouds.dimensiondata.cloudcontrol.domain.NatRule;
+import org.jclouds.dimensiondata.cloudcontrol.domain.PaginatedCollection;
+import org.jclouds.dimensiondata.cloudcontrol.options.PaginationOptions;
+import org.jclouds.json.config.GsonModule;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@Test(groups = "unit", testName = "FilteredElementsParserTest")
+public class FilteredElementsParserTest {
+
+   private Gson gson;
+
+   @BeforeClass
+   public void setUp() {
+      gson = Guice.createInjector(new GsonModule(), new DimensionDataCloudControlParserModule()).getInstance(Gson.class);
+   }
+
+   public void testParsePageReturnsOnlyMatchingElements() throws IOException {
+      final FilteredElementsParser<NatRule> parser = new FilteredElementsParser<NatRule>(gson,
+            TypeLiteral.get(NatRule.class), "natRule", "internalIp", true);
+      final List<NatRule> natRules = ImmutableList
+            .copyOf(parser.parsePage(resource("/natRules.json"), "10.0.0.16"));
+      assertEquals(natRules.size(), 1);
+      assertEquals(natRules.get(0).id(), "2169a38e-5692-497e-a22a-701a838a6539");
+      assertEquals(natRules.get(0).externalIp(), "165.180.12.19");
+   }
+
+   public void testParsePageKeepsPagingProperties() throws IOException {
+      final FilteredElementsParser<NatRule> parser = new FilteredElementsParser<NatRule>(gson,
+            TypeLiteral.get(NatRule.class), "natRule", "internalIp", true);
+      final PaginatedCollection<NatRule> page = parser.parsePage(resource("/natRules-page1.json"), "10.0.0.15");
+      assertEquals(Iterables.size(page), 1);
+      assertEquals(page.getPageNumber(), 1);
+      assertEquals(page.getTotalCount(), 20);
+      assertEquals(page.getPageSize(), 10);
+      assertEquals(PaginationOptions.class.cast(page.nextMarker().get()).pageNumber(), "2");
+   }
+
+   public void testParsePageMatchesCase() throws IOException {
+      final FilteredElementsParser<FirewallRule> caseSensitive = new FilteredElementsParser<FirewallRule>(gson,
+            TypeLiteral.get(FirewallRule.class), "firewallRule", "name", false);
+      final FilteredElementsParser<FirewallRule> ignoreCase = new FilteredElementsParser<FirewallRule>(gson,
+            TypeLiteral.get(FirewallRule.class), "firewallRule", "name", true);
+      final String name = "ccdefault.blockoutboundmailipv6secure";
+      assertTrue(Iterables.isEmpty(caseSensitive.parsePage(resource("/firewallRules-page1.json"), name)));
+      assertEquals(Iterables.size(ignoreCase.parsePage(resource("/firewallRules-page1.json"), name)), 11);
+   }
+
+   public void testParsePageWithoutMatches() throws IOException {
+      final FilteredElementsParser<FirewallRule> parser = new FilteredElementsParser<FirewallRule>(gson,
+            TypeLiteral.get(FirewallRule.class), "firewallRule", "name", false);
+      assertTrue(Iterables.isEmpty(parser.parsePage(resource("/firewallRules.json"), "fwrule-unknown")));
+   }
+
+   private InputStream resource(final String name) throws IOException {
+      return Resources.getResource(getClass(), name).openStream();
+   }
+}
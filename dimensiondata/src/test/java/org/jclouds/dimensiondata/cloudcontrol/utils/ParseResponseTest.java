@@ -16,11 +16,16 @@
  */
 package org.jclouds.dimensiondata.cloudcontrol.utils;
 
+import com.google.common.base.Charsets;
+import com.google.common.io.Resources;
 import org.jclouds.dimensiondata.cloudcontrol.domain.Property;
 import org.jclouds.dimensiondata.cloudcontrol.domain.Response;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -67,4 +72,22 @@ public class ParseResponseTest {
             "Error Elements: propertyName1:propertyValue1, propertyName2:propertyValue2.");
    }
 
+   public void testApply() throws IOException {
+      Assert.assertEquals(new ParseResponse(null, "scsiId").apply(response("/response.json")), "11");
+   }
+
+   public void testApply_EmptyInfo() {
+      Assert.assertEquals(new ParseResponse(null, "diskId").apply(
+            HttpResponse.builder().statusCode(200).payload("{\"message\":\"message\",\"info\":[]}").build()), "");
+   }
+
+   @Test(expectedExceptions = { HttpResponseException.class })
+   public void testApply_PropertyNotFound() throws IOException {
+      new ParseResponse(null, "noProperty").apply(response("/response.json"));
+   }
+
+   private HttpResponse response(final String resource) throws IOException {
+      return HttpResponse.builder().statusCode(200)
+            .payload(Resources.toString(Resources.getResource(getClass(), resource), Charsets.UTF_8)).build();
+   }
 }
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.dimensiondata.cloudcontrol.utils;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Predicate;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Resources;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.TypeLiteral;
+import org.jclouds.dimensiondata.cloudcontrol.config.DimensionDataCloudControlParserModule;
+import org.jclouds.dimensiondata.cloudcontrol.domain.NatRule;
+import org.jclouds.dimensiondata.cloudcontrol.domain.NatRules;
+import org.jclouds.dimensiondata.cloudcontrol.domain.Property;
+import org.jclouds.dimensiondata.cloudcontrol.domain.Response;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.json.Json;
+import org.jclouds.json.config.GsonModule;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
+
+import static java.lang.String.format;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Compares the bytes allocated by the streaming parsers with the bytes allocated by binding the whole payload, using
+ * the recorded fixtures. NAT rule pages are inflated to a full page by repeating the recorded rules.
+ */
+@Test(groups = "performance", singleThreaded = true, testName = "StreamingParseAllocationTest")
+public class StreamingParseAllocationTest {
+
+   private static final int WARMUP_ITERATIONS = 2000;
+   private static final int MEASURED_ITERATIONS = 2000;
+   private static final int NAT_RULES_PER_PAGE = 250;
+
+   private Json json;
+   private Gson gson;
+   private String response;
+   private byte[] natRulesPage;
+
+   @BeforeClass
+   public void setUp() throws IOException {
+      Injector injector = Guice.createInjector(new GsonModule(), new DimensionDataCloudControlParserModule());
+      json = injector.getInstance(Json.class);
+      gson = injector.getInstance(Gson.class);
+      response = Resources.toString(Resources.getResource(getClass(), "/response.json"), Charsets.UTF_8);
+
+      JsonObject natRules = new JsonParser()
+            .parse(Resources.toString(Resources.getResource(getClass(), "/natRules.json"), Charsets.UTF_8))
+            .getAsJsonObject();
+      JsonArray recorded = natRules.getAsJsonArray("natRule");
+      JsonArray page = new JsonArray();
+      for (int i = 0; i < NAT_RULES_PER_PAGE; i++) {
+         JsonObject natRule = recorded.get(i % recorded.size()).getAsJsonObject().deepCopy();
+         natRule.addProperty("internalIp", "10.0." + (i / 250) + "." + (i % 250));
+         page.add(natRule);
+      }
+      natRules.add("natRule", page);
+      natRulesPage = natRules.toString().getBytes(Charsets.UTF_8);
+   }
+
+   public void testParseResponse() throws Exception {
+      final ParseResponse streaming = new ParseResponse(json, "speed");
+      final Callable<String> streamingParse = new Callable<String>() {
+         @Override
+         public String call() {
+            return streaming.apply(HttpResponse.builder().statusCode(200).payload(response).build());
+         }
+      };
+      final Callable<String> fullParse = new Callable<String>() {
+         @Override
+         public String call() {
+            Response parsed = json.fromJson(response, Response.class);
+            return FluentIterable.from(parsed.info()).firstMatch(new Predicate<Property>() {
+               @Override
+               public boolean apply(Property input) {
+                  return input.name().equals("speed");
+               }
+            }).get().value();
+         }
+      };
+      assertEquals(streamingParse.call(), fullParse.call());
+      report("ParseResponse", measure(fullParse), measure(streamingParse));
+   }
+
+   public void testFilterNatRules() throws Exception {
+      final String internalIp = "10.0.0.200";
+      final FilteredElementsParser<NatRule> parser = new FilteredElementsParser<NatRule>(gson,
+            TypeLiteral.get(NatRule.class), "natRule", "internalIp", true);
+      final Callable<List<NatRule>> streamingParse = new Callable<List<NatRule>>() {
+         @Override
+         public List<NatRule> call() throws IOException {
+            return ImmutableList.copyOf(parser.parsePage(new ByteArrayInputStream(natRulesPage), internalIp));
+         }
+      };
+      final Callable<List<NatRule>> fullParse = new Callable<List<NatRule>>() {
+         @Override
+         public List<NatRule> call() {
+            NatRules page = json.fromJson(new String(natRulesPage, Charsets.UTF_8), NatRules.class);
+            return FluentIterable.from(page).filter(new Predicate<NatRule>() {
+               @Override
+               public boolean apply(NatRule input) {
+                  return input.internalIp().equalsIgnoreCase(internalIp);
+               }
+            }).toList();
+         }
+      };
+      assertEquals(streamingParse.call(), fullParse.call());
+      report("NatRules filter", measure(fullParse), measure(streamingParse));
+   }
+
+   private static long measure(final Callable<?> parse) throws Exception {
+      for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+         parse.call();
+      }
+      com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+            .getThreadMXBean();
+      long threadId = Thread.currentThread().getId();
+      long before = threads.getThreadAllocatedBytes(threadId);
+      for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+         parse.call();
+      }
+      return (threads.getThreadAllocatedBytes(threadId) - before) / MEASURED_ITERATIONS;
+   }
+
+   private static void report(final String name, final long fullBytes, final long streamingBytes) {
+      Logger.getAnonymousLogger()
+            .info(format("%s: full binding %d bytes/op, streaming %d bytes/op", name, fullBytes, streamingBytes));
+   }
+}
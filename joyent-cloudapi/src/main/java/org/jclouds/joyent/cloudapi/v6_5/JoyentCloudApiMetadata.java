@@ -56,6 +56,10 @@ public class JoyentCloudApiMetadata extends BaseHttpApiMetadata {
       properties.setProperty("jclouds.ssh.max-retries", "7");
       properties.setProperty("jclouds.ssh.retry-auth", "true");
       properties.setProperty(JoyentCloudProperties.AUTOGENERATE_KEYS, "true");
+      properties.setProperty(JoyentCloudProperties.DATACENTERS_IN_FLIGHT, "8");
+      properties.setProperty(JoyentCloudProperties.DATACENTER_TIMEOUT, "60000");
+      properties.setProperty(JoyentCloudProperties.MACHINE_CALLS_IN_FLIGHT, "8");
+      properties.setProperty(JoyentCloudProperties.KEY_POOL_SIZE, "2");
       return properties;
    }
 
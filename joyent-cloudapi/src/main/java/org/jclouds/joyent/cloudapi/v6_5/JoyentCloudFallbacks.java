@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.joyent.cloudapi.v6_5;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+import static org.jclouds.util.Throwables2.getFirstThrowableOfType;
+
+import org.jclouds.Fallback;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Validated;
+import org.jclouds.rest.ResourceNotFoundException;
+
+import com.google.common.collect.ImmutableSet;
+
+public final class JoyentCloudFallbacks {
+   private JoyentCloudFallbacks() {
+   }
+
+   /**
+    * For conditional listings: {@code null} when the listing has not changed since the validators were issued, and an
+    * empty set without validators when there is nothing to list.
+    */
+   public static final class NullOnNotModifiedOrEmptySetOnNotFound implements Fallback<Object> {
+      @Override
+      public Object createOrPropagate(Throwable t) throws Exception {
+         HttpResponseException responseException = getFirstThrowableOfType(checkNotNull(t, "throwable"),
+               HttpResponseException.class);
+         if (responseException != null && responseException.getResponse() != null) {
+            if (responseException.getResponse().getStatusCode() == 304)
+               return null;
+            if (responseException.getResponse().getStatusCode() == 404)
+               return Validated.of(ImmutableSet.of(), null, null);
+         }
+         if (getFirstThrowableOfType(t, ResourceNotFoundException.class) != null)
+            return Validated.of(ImmutableSet.of(), null, null);
+         throw propagate(t);
+      }
+   }
+}
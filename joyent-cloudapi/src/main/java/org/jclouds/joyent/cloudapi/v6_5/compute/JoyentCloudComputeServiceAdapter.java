@@ -17,30 +17,32 @@
 package org.jclouds.joyent.cloudapi.v6_5.compute;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.base.Preconditions.checkState;
-import static com.google.common.collect.Iterables.contains;
 import static com.google.common.collect.Iterables.filter;
 import static com.google.common.collect.Iterables.transform;
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
 import static org.jclouds.compute.reference.ComputeServiceConstants.COMPUTE_LOGGER;
 import static org.jclouds.compute.util.ComputeServiceUtils.metadataAndTagsAsCommaDelimitedValue;
-import static org.jclouds.util.Predicates2.retry;
 
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 
 import javax.annotation.Resource;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Singleton;
 
 import org.jclouds.compute.ComputeServiceAdapter;
 import org.jclouds.compute.domain.Template;
-import org.jclouds.compute.reference.ComputeServiceConstants.Timeouts;
 import org.jclouds.domain.Location;
 import org.jclouds.domain.LoginCredentials;
 import org.jclouds.joyent.cloudapi.v6_5.JoyentCloudApi;
+import org.jclouds.joyent.cloudapi.v6_5.compute.strategy.DatacenterCatalog;
+import org.jclouds.joyent.cloudapi.v6_5.compute.strategy.DatacenterFanOut;
+import org.jclouds.joyent.cloudapi.v6_5.compute.strategy.DestroyMachines;
 import org.jclouds.joyent.cloudapi.v6_5.domain.Dataset;
 import org.jclouds.joyent.cloudapi.v6_5.domain.Machine;
-import org.jclouds.joyent.cloudapi.v6_5.domain.Machine.State;
 import org.jclouds.joyent.cloudapi.v6_5.domain.datacenterscoped.DatacenterAndId;
 import org.jclouds.joyent.cloudapi.v6_5.domain.datacenterscoped.DatasetInDatacenter;
 import org.jclouds.joyent.cloudapi.v6_5.domain.datacenterscoped.MachineInDatacenter;
@@ -52,31 +54,51 @@ import org.jclouds.logging.Logger;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.ImmutableSet.Builder;
-import com.google.common.util.concurrent.Atomics;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
 
 /**
  * The adapter used by the JoyentCloudComputeServiceContextModule to interface the
  * JoyentCloud-specific domain model to the computeService generic domain model.
  */
+@Singleton
 public class JoyentCloudComputeServiceAdapter implements
       ComputeServiceAdapter<MachineInDatacenter, PackageInDatacenter, DatasetInDatacenter, Location> {
 
+   /**
+    * Ids up to this many per datacenter are always fetched one by one.
+    */
+   private static final int MIN_GETS = 4;
+   /**
+    * Otherwise ids are fetched one by one while they are at most this fraction (1/n) of the machines last seen in the
+    * datacenter.
+    */
+   private static final int GETS_SHARE_OF_MACHINES = 10;
+
    @Resource
    @Named(COMPUTE_LOGGER)
    private Logger logger = Logger.NULL;
 
    private final JoyentCloudApi cloudApiApi;
    private final Supplier<Set<String>> datacenterIds;
-   private final Timeouts timeouts;
+   private final DatacenterFanOut datacenterFanOut;
+   private final DestroyMachines destroyMachines;
+   private final DatacenterCatalog datacenterCatalog;
+   private final ConcurrentMap<String, Integer> machineCounts = Maps.newConcurrentMap();
 
    @Inject
    public JoyentCloudComputeServiceAdapter(JoyentCloudApi cloudApiApi, @Zone Supplier<Set<String>> datacenterIds,
-         Timeouts timeouts) {
+         DatacenterFanOut datacenterFanOut, DestroyMachines destroyMachines, DatacenterCatalog datacenterCatalog) {
       this.cloudApiApi = checkNotNull(cloudApiApi, "cloudApiApi");
       this.datacenterIds = checkNotNull(datacenterIds, "datacenterIds");
-      this.timeouts = checkNotNull(timeouts, "timeouts");
+      this.datacenterFanOut = checkNotNull(datacenterFanOut, "datacenterFanOut");
+      this.destroyMachines = checkNotNull(destroyMachines, "destroyMachines");
+      this.datacenterCatalog = checkNotNull(datacenterCatalog, "datacenterCatalog");
    }
 
    @Override
@@ -111,53 +133,99 @@ public class JoyentCloudComputeServiceAdapter implements
 
    @Override
    public Iterable<PackageInDatacenter> listHardwareProfiles() {
-      Builder<PackageInDatacenter> builder = ImmutableSet.builder();
-      for (final String datacenterId : datacenterIds.get()) {
-         builder.addAll(transform(cloudApiApi.getPackageApiForDatacenter(datacenterId).list(),
-               new Function<org.jclouds.joyent.cloudapi.v6_5.domain.Package, PackageInDatacenter>() {
-                  public PackageInDatacenter apply(org.jclouds.joyent.cloudapi.v6_5.domain.Package arg0) {
-                     return new PackageInDatacenter(arg0, datacenterId);
-                  }
-               }));
-      }
-      return builder.build();
+      return ImmutableSet.copyOf(datacenterFanOut.listAll(datacenterIds.get(),
+            new Function<String, Iterable<PackageInDatacenter>>() {
+               public Iterable<PackageInDatacenter> apply(final String datacenterId) {
+                  return transform(datacenterCatalog.packages(datacenterId),
+                        new Function<org.jclouds.joyent.cloudapi.v6_5.domain.Package, PackageInDatacenter>() {
+                           public PackageInDatacenter apply(org.jclouds.joyent.cloudapi.v6_5.domain.Package arg0) {
+                              return new PackageInDatacenter(arg0, datacenterId);
+                           }
+                        });
+               }
+            }));
    }
 
    @Override
    public Iterable<DatasetInDatacenter> listImages() {
-      Builder<DatasetInDatacenter> builder = ImmutableSet.builder();
-      for (final String datacenterId : datacenterIds.get()) {
-         builder.addAll(transform(cloudApiApi.getDatasetApiForDatacenter(datacenterId).list(),
-               new Function<Dataset, DatasetInDatacenter>() {
-                  public DatasetInDatacenter apply(Dataset arg0) {
-                     return new DatasetInDatacenter(arg0, datacenterId);
-                  }
-               }));
-      }
-      return builder.build();
+      return ImmutableSet.copyOf(datacenterFanOut.listAll(datacenterIds.get(),
+            new Function<String, Iterable<DatasetInDatacenter>>() {
+               public Iterable<DatasetInDatacenter> apply(final String datacenterId) {
+                  return transform(datacenterCatalog.datasets(datacenterId),
+                        new Function<Dataset, DatasetInDatacenter>() {
+                           public DatasetInDatacenter apply(Dataset arg0) {
+                              return new DatasetInDatacenter(arg0, datacenterId);
+                           }
+                        });
+               }
+            }));
    }
 
    @Override
    public Iterable<MachineInDatacenter> listNodes() {
-      Builder<MachineInDatacenter> builder = ImmutableSet.builder();
-      for (final String datacenterId : datacenterIds.get()) {
-         builder.addAll(transform(cloudApiApi.getMachineApiForDatacenter(datacenterId).list(),
-               new Function<Machine, MachineInDatacenter>() {
-                  public MachineInDatacenter apply(Machine arg0) {
-                     return new MachineInDatacenter(arg0, datacenterId);
-                  }
-               }));
-      }
-      return builder.build();
+      return datacenterFanOut.list(datacenterIds.get(), new Function<String, Iterable<MachineInDatacenter>>() {
+         public Iterable<MachineInDatacenter> apply(String datacenterId) {
+            return listMachines(datacenterId);
+         }
+      });
    }
 
+   /**
+    * Looks the machines up in their datacenters. Where the ids are a small share of the machines last seen in a
+    * datacenter, each one is fetched on its own; otherwise the datacenter is listed once and filtered.
+    */
    @Override
-   public Iterable<MachineInDatacenter> listNodesByIds(final Iterable<String> ids) {
-      return filter(listNodes(), new Predicate<MachineInDatacenter>() {
+   public Iterable<MachineInDatacenter> listNodesByIds(Iterable<String> ids) {
+      Set<String> knownDatacenterIds = datacenterIds.get();
+      SetMultimap<String, String> machineIdsByDatacenter = LinkedHashMultimap.create();
+      for (String id : ids) {
+         DatacenterAndId datacenterAndId;
+         try {
+            datacenterAndId = DatacenterAndId.fromSlashEncoded(id);
+         } catch (IllegalArgumentException e) {
+            logger.debug(">> ignoring malformed machine id(%s)", id);
+            continue;
+         }
+         if (knownDatacenterIds.contains(datacenterAndId.getDatacenter()))
+            machineIdsByDatacenter.put(datacenterAndId.getDatacenter(), datacenterAndId.getId());
+      }
 
-         @Override
-         public boolean apply(MachineInDatacenter machine) {
-            return contains(ids, machine.slashEncode());
+      ImmutableListMultimap.Builder<String, Set<String>> requests = ImmutableListMultimap.builder();
+      for (Map.Entry<String, Set<String>> entry : Multimaps.asMap(machineIdsByDatacenter).entrySet()) {
+         Integer knownMachines = machineCounts.get(entry.getKey());
+         int maxGets = Math.max(MIN_GETS, knownMachines == null ? 0 : knownMachines / GETS_SHARE_OF_MACHINES);
+         if (entry.getValue().size() <= maxGets) {
+            for (String machineId : entry.getValue())
+               requests.put(entry.getKey(), ImmutableSet.of(machineId));
+         } else {
+            requests.put(entry.getKey(), ImmutableSet.copyOf(entry.getValue()));
+         }
+      }
+
+      return datacenterFanOut.listAll(requests.build(),
+            new Function<Map.Entry<String, Set<String>>, Iterable<MachineInDatacenter>>() {
+               public Iterable<MachineInDatacenter> apply(Map.Entry<String, Set<String>> request) {
+                  final Set<String> machineIds = request.getValue();
+                  if (machineIds.size() == 1) {
+                     MachineInDatacenter machine = getNode(DatacenterAndId.fromDatacenterAndId(request.getKey(),
+                           Iterables.getOnlyElement(machineIds)).slashEncode());
+                     return machine == null ? ImmutableSet.<MachineInDatacenter> of() : ImmutableSet.of(machine);
+                  }
+                  return filter(listMachines(request.getKey()), new Predicate<MachineInDatacenter>() {
+                     public boolean apply(MachineInDatacenter machine) {
+                        return machineIds.contains(machine.getId());
+                     }
+                  });
+               }
+            });
+   }
+
+   private Iterable<MachineInDatacenter> listMachines(final String datacenterId) {
+      Set<Machine> machines = cloudApiApi.getMachineApiForDatacenter(datacenterId).list();
+      machineCounts.put(datacenterId, machines.size());
+      return transform(machines, new Function<Machine, MachineInDatacenter>() {
+         public MachineInDatacenter apply(Machine arg0) {
+            return new MachineInDatacenter(arg0, datacenterId);
          }
       });
    }
@@ -179,32 +247,22 @@ public class JoyentCloudComputeServiceAdapter implements
    @Override
    public DatasetInDatacenter getImage(String id) {
       DatacenterAndId datacenterAndId = DatacenterAndId.fromSlashEncoded(id);
-      Dataset dataset = cloudApiApi.getDatasetApiForDatacenter(datacenterAndId.getDatacenter()).get(
-            datacenterAndId.getId());
+      Dataset dataset = datacenterCatalog.dataset(datacenterAndId.getDatacenter(), datacenterAndId.getId());
+      if (dataset == null)
+         dataset = cloudApiApi.getDatasetApiForDatacenter(datacenterAndId.getDatacenter()).get(
+               datacenterAndId.getId());
       return dataset == null ? null : new DatasetInDatacenter(dataset, datacenterAndId.getDatacenter());
    }
 
    @Override
    public void destroyNode(String id) {
-      final AtomicReference<MachineInDatacenter> machine = Atomics.newReference(getNode(id));
-      if (machine.get() == null)
-         return;
-      if (machine.get().get().getState() == State.RUNNING) {
-         logger.debug(">> stopping machine(%s) current state(%s)", machine.get().getId(), machine.get().get()
-               .getState());
-         cloudApiApi.getMachineApiForDatacenter(machine.get().getDatacenter()).stop(machine.get().getId());
+      try {
+         getUninterruptibly(destroyMachines.destroy(ImmutableSet.of(id)).get(id));
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof RuntimeException)
+            throw (RuntimeException) e.getCause();
+         throw new IllegalStateException("could not destroy machine " + id, e.getCause());
       }
-
-      checkState(retry(new Predicate<String>() {
-         public boolean apply(String id) {
-            machine.set(getNode(id));
-            return machine == null || machine.get().get().getState() != State.RUNNING;
-         }
-      }, timeouts.nodeSuspended).apply(id), "<< unable to stop machine(%s) current state(%s)", machine.get().getId(),
-            machine.get().get().getState());
-
-      logger.debug(">> deleting machine(%s) current state(%s)", machine.get().getId(), machine.get().get().getState());
-      cloudApiApi.getMachineApiForDatacenter(machine.get().getDatacenter()).delete(machine.get().getId());
    }
 
    @Override
@@ -25,6 +25,7 @@ import static org.jclouds.compute.util.ComputeServiceUtils.addMetadataAndParseTa
 import static org.jclouds.compute.util.ComputeServiceUtils.getSpace;
 import static org.jclouds.compute.util.ComputeServiceUtils.groupFromMapOrName;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -53,12 +54,24 @@ import org.jclouds.util.InetAddresses2;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 
 /**
  * A function for transforming a cloudApi-specific Machine into a generic
  * NodeMetadata object.
  */
 public class MachineInDatacenterToNodeMetadata implements Function<MachineInDatacenter, NodeMetadata> {
+   private static final Set<String> METADATA_KEYS;
+
+   static {
+      ImmutableSet.Builder<String> keys = ImmutableSet.builder();
+      for (Metadata key : Metadata.values())
+         keys.add(key.key());
+      METADATA_KEYS = keys.build();
+   }
+
    @Resource
    @Named(ComputeServiceConstants.COMPUTE_LOGGER)
    protected Logger logger = Logger.NULL;
@@ -68,6 +81,8 @@ public class MachineInDatacenterToNodeMetadata implements Function<MachineInData
    protected final Supplier<Set<? extends Image>> images;
    protected final Supplier<Set<? extends Hardware>> hardwares;
    protected final GroupNamingConvention nodeNamingConvention;
+   private final SetIndex<String, Image> imageIndex;
+   private final SetIndex<List<Object>, Hardware> hardwareIndex;
 
    @Inject
    public MachineInDatacenterToNodeMetadata(Map<Machine.State, NodeMetadata.Status> toPortableNodeStatus,
@@ -78,6 +93,19 @@ public class MachineInDatacenterToNodeMetadata implements Function<MachineInData
       this.locationIndex = checkNotNull(locationIndex, "locationIndex");
       this.images = checkNotNull(images, "images");
       this.hardwares = checkNotNull(hardwares, "hardwares");
+      this.imageIndex = new SetIndex<String, Image>(images) {
+         @Override
+         protected String keyOf(Image input) {
+            return input.getId();
+         }
+      };
+      this.hardwareIndex = new SetIndex<List<Object>, Hardware>(hardwares) {
+         @Override
+         protected List<Object> keyOf(Hardware input) {
+            return input.getLocation() == null ? null : hardwareKey(input.getLocation().getId(), input.getRam(),
+                  getSpace(input));
+         }
+      };
    }
 
    @Override
@@ -97,11 +125,7 @@ public class MachineInDatacenterToNodeMetadata implements Function<MachineInData
 
          @Override
          public boolean apply(String input) {
-            // TODO make this more efficient
-            for (Metadata key : Metadata.values())
-               if (key.key().equals(input))
-                  return false;
-            return true;
+            return !METADATA_KEYS.contains(input);
          }
 
       });
@@ -119,32 +143,75 @@ public class MachineInDatacenterToNodeMetadata implements Function<MachineInData
       return builder.build();
    }
 
-   protected Hardware findHardwareForMachineOrNull(final MachineInDatacenter machineInDatacenter) {
-      return tryFind(hardwares.get(), new Predicate<Hardware>() {
-         @Override
-         public boolean apply(Hardware input) {
-            return input.getRam() == machineInDatacenter.get().getMemorySizeMb()
-                  && getSpace(input) == machineInDatacenter.get().getDiskSizeGb()
-                  && input.getLocation().getId().equals(machineInDatacenter.getDatacenter());
-         }
-      }).orNull();
+   protected Hardware findHardwareForMachineOrNull(MachineInDatacenter machineInDatacenter) {
+      return hardwareIndex.get(hardwareKey(machineInDatacenter.getDatacenter(), machineInDatacenter.get()
+            .getMemorySizeMb(), machineInDatacenter.get().getDiskSizeGb()));
    }
 
    protected OperatingSystem findOperatingSystemForMachineOrNull(MachineInDatacenter machineInDatacenter) {
-      Image image = findObjectOfTypeForMachineOrNull(images.get(), "image", machineInDatacenter.get()
-            .getDatasetURN(), machineInDatacenter);
+      Image image = imageIndex.get(DatacenterAndName.fromDatacenterAndName(machineInDatacenter.getDatacenter(),
+            machineInDatacenter.get().getDatasetURN()).slashEncode());
       return (image != null) ? image.getOperatingSystem() : null;
    }
 
    public <T extends ComputeMetadata> T findObjectOfTypeForMachineOrNull(Set<? extends T> supply, String type,
-         final String objectId, final DatacenterAndId machineInDatacenter) {
+         String objectId, DatacenterAndId machineInDatacenter) {
+      final String id = DatacenterAndId.fromDatacenterAndId(machineInDatacenter.getDatacenter(), objectId)
+            .slashEncode();
       return tryFind(supply, new Predicate<T>() {
          @Override
          public boolean apply(T input) {
-            return input.getId().equals(
-                  DatacenterAndId.fromDatacenterAndId(machineInDatacenter.getDatacenter(), objectId).slashEncode());
+            return input.getId().equals(id);
          }
       }).orNull();
    }
 
+   private static List<Object> hardwareKey(String datacenter, int ram, double space) {
+      return ImmutableList.<Object> of(datacenter, ram, space);
+   }
+
+   /**
+    * Hash index over a memoized set, rebuilt whenever the supplier hands out a different set.
+    */
+   private abstract static class SetIndex<K, T> {
+      private final Supplier<? extends Set<? extends T>> supplier;
+      private volatile Snapshot<K, T> snapshot;
+
+      SetIndex(Supplier<? extends Set<? extends T>> supplier) {
+         this.supplier = supplier;
+      }
+
+      /**
+       * @return the key for the given element or null if it should not be indexed
+       */
+      protected abstract K keyOf(T input);
+
+      T get(K key) {
+         Set<? extends T> current = supplier.get();
+         Snapshot<K, T> snapshot = this.snapshot;
+         if (snapshot == null || snapshot.source != current) {
+            Map<K, T> index = Maps.newHashMapWithExpectedSize(current.size());
+            for (T input : current) {
+               K inputKey = keyOf(input);
+               // keep the first match, as the linear scan did
+               if (inputKey != null && !index.containsKey(inputKey))
+                  index.put(inputKey, input);
+            }
+            snapshot = new Snapshot<K, T>(current, index);
+            this.snapshot = snapshot;
+         }
+         return snapshot.index.get(key);
+      }
+   }
+
+   private static final class Snapshot<K, T> {
+      private final Set<?> source;
+      private final Map<K, T> index;
+
+      Snapshot(Set<?> source, Map<K, T> index) {
+         this.source = source;
+         this.index = index;
+      }
+   }
+
 }
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.joyent.cloudapi.v6_5.compute.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.compute.reference.ComputeServiceConstants.COMPUTE_LOGGER;
+import static org.jclouds.joyent.cloudapi.v6_5.config.JoyentCloudProperties.KEY_POOL_SIZE;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.lifecycle.Closer;
+import org.jclouds.logging.Logger;
+import org.jclouds.ssh.SshKeyPairGenerator;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Keeps a few SSH key pairs generated ahead of time, so that handing one out does not wait on RSA key generation.
+ * <p>
+ * Key pairs are generated on a dedicated low-priority thread, and the pool is topped up every time a key pair is
+ * taken. Nothing is generated until the first key pair is taken, so contexts that never generate keys, such as those
+ * with {@link org.jclouds.joyent.cloudapi.v6_5.config.JoyentCloudProperties#AUTOGENERATE_KEYS} disabled, pay nothing.
+ * When the pool is empty, the key pair is generated on the calling thread.
+ */
+@Singleton
+public class SshKeyPairPool {
+
+   @Resource
+   @Named(COMPUTE_LOGGER)
+   private Logger logger = Logger.NULL;
+
+   private final SshKeyPairGenerator sshKeyPairGenerator;
+   private final int size;
+   private final ExecutorService executor;
+   private final Queue<Map<String, String>> pool = new ConcurrentLinkedQueue<Map<String, String>>();
+   private final AtomicInteger generating = new AtomicInteger();
+
+   @Inject
+   SshKeyPairPool(SshKeyPairGenerator sshKeyPairGenerator, @Named(KEY_POOL_SIZE) int size, Closer closer) {
+      this(sshKeyPairGenerator, size, Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+            .setNameFormat("joyent-cloudapi-ssh-key-pool-%d").setDaemon(true).setPriority(Thread.MIN_PRIORITY)
+            .build()));
+      closer.addToClose(new Closeable() {
+         @Override
+         public void close() {
+            executor.shutdownNow();
+         }
+      });
+   }
+
+   @VisibleForTesting
+   SshKeyPairPool(SshKeyPairGenerator sshKeyPairGenerator, int size, ExecutorService executor) {
+      checkArgument(size >= 0, "size must not be negative");
+      this.sshKeyPairGenerator = checkNotNull(sshKeyPairGenerator, "sshKeyPairGenerator");
+      this.size = size;
+      this.executor = checkNotNull(executor, "executor");
+   }
+
+   /**
+    * Returns a key pair with the {@code public} and {@code private} keys, as {@link SshKeyPairGenerator} does.
+    */
+   public Map<String, String> take() {
+      Map<String, String> keyPair = pool.poll();
+      if (keyPair == null) {
+         logger.debug(">> no pre-generated key pair available, generating one");
+         keyPair = sshKeyPairGenerator.get();
+      }
+      refill();
+      return keyPair;
+   }
+
+   private void refill() {
+      while (reserveGeneration()) {
+         try {
+            executor.execute(new Runnable() {
+               @Override
+               public void run() {
+                  try {
+                     pool.add(sshKeyPairGenerator.get());
+                  } catch (RuntimeException e) {
+                     logger.warn(e, ">> could not pre-generate a key pair");
+                  } finally {
+                     generating.decrementAndGet();
+                  }
+               }
+            });
+         } catch (RejectedExecutionException e) {
+            // the pool is closed, key pairs are generated on the calling threads from now on
+            generating.decrementAndGet();
+            return;
+         }
+      }
+   }
+
+   private boolean reserveGeneration() {
+      while (true) {
+         int current = generating.get();
+         if (pool.size() + current >= size)
+            return false;
+         if (generating.compareAndSet(current, current + 1))
+            return true;
+      }
+   }
+}
@@ -19,6 +19,7 @@ package org.jclouds.joyent.cloudapi.v6_5.compute.loaders;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Resource;
 import javax.inject.Named;
@@ -28,29 +29,34 @@ import org.jclouds.compute.functions.GroupNamingConvention;
 import org.jclouds.compute.reference.ComputeServiceConstants;
 import org.jclouds.joyent.cloudapi.v6_5.JoyentCloudApi;
 import org.jclouds.joyent.cloudapi.v6_5.compute.internal.KeyAndPrivateKey;
+import org.jclouds.joyent.cloudapi.v6_5.compute.internal.SshKeyPairPool;
 import org.jclouds.joyent.cloudapi.v6_5.domain.Key;
 import org.jclouds.joyent.cloudapi.v6_5.domain.datacenterscoped.DatacenterAndName;
 import org.jclouds.logging.Logger;
-import org.jclouds.ssh.SshKeyPairGenerator;
 
 import com.google.common.cache.CacheLoader;
+import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 
 @Singleton
 public class CreateUniqueKey extends CacheLoader<DatacenterAndName, KeyAndPrivateKey> {
+   private static final int MAX_NAME_CANDIDATES = 100;
+   private static final int MAX_CONFLICTS = 3;
+
    @Resource
    @Named(ComputeServiceConstants.COMPUTE_LOGGER)
    protected Logger logger = Logger.NULL;
    protected final JoyentCloudApi cloudApiApi;
    protected final GroupNamingConvention.Factory namingConvention;
-   protected final SshKeyPairGenerator sshKeyPairGenerator;
+   protected final SshKeyPairPool sshKeyPairPool;
+   private volatile Set<String> keyNames;
 
    @Inject
    public CreateUniqueKey(JoyentCloudApi cloudApiApi, GroupNamingConvention.Factory namingConvention,
-            SshKeyPairGenerator sshKeyPairGenerator) {
+            SshKeyPairPool sshKeyPairPool) {
       this.cloudApiApi = checkNotNull(cloudApiApi, "cloudApiApi");
       this.namingConvention = checkNotNull(namingConvention, "namingConvention");
-      this.sshKeyPairGenerator = checkNotNull(sshKeyPairGenerator, "sshKeyPairGenerator");
+      this.sshKeyPairPool = checkNotNull(sshKeyPairPool, "sshKeyPairPool");
    }
 
    @Override
@@ -58,24 +64,53 @@ public class CreateUniqueKey extends CacheLoader<DatacenterAndName, KeyAndPrivat
       String datacenterId = checkNotNull(datacenterAndName, "datacenterAndName").getDatacenter();
       String prefix = datacenterAndName.getName();
 
-      Map<String, String> keyPair = sshKeyPairGenerator.get();
+      Map<String, String> keyPair = sshKeyPairPool.take();
       String publicKey = keyPair.get("public");
       String privateKey = keyPair.get("private");
 
       logger.debug(">> creating key datacenter(%s) prefix(%s)", datacenterId, prefix);
 
       Key key = null;
-      while (key == null) {
-         String name = namingConvention.createWithoutPrefix().uniqueNameForGroup(prefix);
+      for (int attempt = 0; key == null; attempt++) {
+         String name = unusedName(prefix);
          try {
             key = cloudApiApi.getKeyApi().create(Key.builder().name(name).key(publicKey).build());
          } catch (IllegalStateException e) {
+            // the key was created since the names were listed
             logger.trace("error creating keypair named %s, %s", name, e.getMessage());
+            if (attempt >= MAX_CONFLICTS)
+               throw e;
+            keyNames = null;
          }
       }
+      keyNames().add(key.getName());
 
       logger.debug("<< created key(%s)", key.getName());
       return KeyAndPrivateKey.fromKeyAndPrivateKey(key, privateKey);
    }
 
+   private String unusedName(String prefix) {
+      Set<String> names = keyNames();
+      for (int i = 0; i < MAX_NAME_CANDIDATES; i++) {
+         String name = namingConvention.createWithoutPrefix().uniqueNameForGroup(prefix);
+         if (!names.contains(name))
+            return name;
+      }
+      throw new IllegalStateException("could not find an unused key name for " + prefix);
+   }
+
+   /**
+    * The names of the account's keys, listed once and then kept up to date with the keys created here.
+    */
+   private Set<String> keyNames() {
+      Set<String> names = keyNames;
+      if (names == null) {
+         names = Sets.newConcurrentHashSet();
+         for (Key key : cloudApiApi.getKeyApi().list())
+            names.add(key.getName());
+         keyNames = names;
+      }
+      return names;
+   }
+
 }
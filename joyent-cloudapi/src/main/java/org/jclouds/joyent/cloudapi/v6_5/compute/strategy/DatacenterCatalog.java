@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.joyent.cloudapi.v6_5.compute.strategy;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.Constants.PROPERTY_SESSION_INTERVAL;
+import static org.jclouds.compute.reference.ComputeServiceConstants.COMPUTE_LOGGER;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.http.options.GetOptions;
+import org.jclouds.joyent.cloudapi.v6_5.JoyentCloudApi;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Dataset;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Package;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Validated;
+import org.jclouds.logging.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Maps;
+
+/**
+ * Keeps the packages and datasets of each datacenter in memory.
+ * <p>
+ * A listing is served from memory for the session interval. After that it is revalidated with a conditional request
+ * carrying the validators it was served with, and a {@code 304 Not Modified} answer keeps serving it from memory
+ * without downloading it again. If a revalidation fails, the listing in memory keeps being served.
+ */
+@Singleton
+public class DatacenterCatalog {
+
+   @Resource
+   @Named(COMPUTE_LOGGER)
+   private Logger logger = Logger.NULL;
+
+   private final JoyentCloudApi cloudApiApi;
+   private final long freshNanos;
+   private final Ticker ticker;
+   private final ConcurrentMap<String, Listing<Package>> packages = Maps.newConcurrentMap();
+   private final ConcurrentMap<String, Listing<Dataset>> datasets = Maps.newConcurrentMap();
+
+   @Inject
+   DatacenterCatalog(JoyentCloudApi cloudApiApi, @Named(PROPERTY_SESSION_INTERVAL) long seconds) {
+      this(cloudApiApi, seconds, Ticker.systemTicker());
+   }
+
+   @VisibleForTesting
+   DatacenterCatalog(JoyentCloudApi cloudApiApi, long seconds, Ticker ticker) {
+      this.cloudApiApi = checkNotNull(cloudApiApi, "cloudApiApi");
+      this.freshNanos = TimeUnit.SECONDS.toNanos(seconds);
+      this.ticker = checkNotNull(ticker, "ticker");
+   }
+
+   public Set<Package> packages(final String datacenterId) {
+      return listing(packages, datacenterId, new Listing<Package>() {
+         @Override
+         Validated<Set<Package>> listIfModified(GetOptions options) {
+            return cloudApiApi.getPackageApiForDatacenter(datacenterId).listIfModified(options);
+         }
+      }).get(datacenterId);
+   }
+
+   public Set<Dataset> datasets(final String datacenterId) {
+      return listing(datasets, datacenterId, new Listing<Dataset>() {
+         @Override
+         Validated<Set<Dataset>> listIfModified(GetOptions options) {
+            return cloudApiApi.getDatasetApiForDatacenter(datacenterId).listIfModified(options);
+         }
+      }).get(datacenterId);
+   }
+
+   /**
+    * Returns the dataset with the given urn or id from the datacenter's listing, or null if it is not listed.
+    */
+   public Dataset dataset(String datacenterId, String urnOrId) {
+      for (Dataset dataset : datasets(datacenterId)) {
+         if (urnOrId.equals(dataset.getUrn()) || urnOrId.equals(dataset.getId()))
+            return dataset;
+      }
+      return null;
+   }
+
+   private static <T> Listing<T> listing(ConcurrentMap<String, Listing<T>> listings, String datacenterId,
+         Listing<T> created) {
+      Listing<T> listing = listings.putIfAbsent(datacenterId, created);
+      return listing == null ? created : listing;
+   }
+
+   /**
+    * The listing of one kind of catalog entry in one datacenter. Revalidations of the same listing are serialized, so
+    * concurrent callers share a single request.
+    */
+   private abstract class Listing<T> {
+      private volatile Validated<Set<T>> current;
+      private volatile long validatedAt;
+
+      abstract Validated<Set<T>> listIfModified(GetOptions options);
+
+      Set<T> get(String datacenterId) {
+         Validated<Set<T>> current = this.current;
+         if (current != null && ticker.read() - validatedAt < freshNanos)
+            return current.get();
+         synchronized (this) {
+            current = this.current;
+            if (current != null && ticker.read() - validatedAt < freshNanos)
+               return current.get();
+            GetOptions options = new GetOptions();
+            if (current != null && current.getETag() != null)
+               options.ifETagDoesntMatch(current.getETag());
+            if (current != null && current.getLastModified() != null)
+               options.ifModifiedSince(current.getLastModified());
+            try {
+               Validated<Set<T>> listed = listIfModified(options);
+               if (listed == null) {
+                  logger.trace("<< catalog of datacenter(%s) not modified", datacenterId);
+               } else {
+                  this.current = current = listed;
+               }
+            } catch (RuntimeException e) {
+               if (current == null)
+                  throw e;
+               logger.warn(e, ">> could not revalidate the catalog of datacenter(%s), serving the previous one",
+                     datacenterId);
+            }
+            validatedAt = ticker.read();
+            if (current == null)
+               throw new IllegalStateException("datacenter(" + datacenterId + ") answered not modified to an "
+                     + "unconditional listing");
+            return current.get();
+         }
+      }
+   }
+}
@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.joyent.cloudapi.v6_5.compute.strategy;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Throwables.propagate;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+import static com.google.common.util.concurrent.Uninterruptibles.getUninterruptibly;
+import static org.jclouds.Constants.PROPERTY_USER_THREADS;
+import static org.jclouds.compute.reference.ComputeServiceConstants.COMPUTE_LOGGER;
+import static org.jclouds.joyent.cloudapi.v6_5.config.JoyentCloudProperties.DATACENTERS_IN_FLIGHT;
+import static org.jclouds.joyent.cloudapi.v6_5.config.JoyentCloudProperties.DATACENTER_TIMEOUT;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.logging.Logger;
+
+import com.google.common.base.Function;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+
+/**
+ * Runs a call against several datacenters concurrently on the user executor.
+ * <p>
+ * At most {@link org.jclouds.joyent.cloudapi.v6_5.config.JoyentCloudProperties#DATACENTERS_IN_FLIGHT} calls run
+ * at a time, and the results are merged in the order the datacenters answer. A call that fails, or does not answer
+ * within {@link org.jclouds.joyent.cloudapi.v6_5.config.JoyentCloudProperties#DATACENTER_TIMEOUT} of being started,
+ * is logged and left out, so that one unreachable datacenter does not stall or fail the whole call. Callers that
+ * must not take a partial result for a complete one, such as the catalogs that get memoized, use the
+ * {@code listAll} variants instead, which fail when any call does.
+ * <p>
+ * The Aliyun ECS provider has a counterpart, {@code RegionFanOut}, with the same timeout semantics: the timeout of a
+ * call starts when the call does, not while it waits for its turn. Provider modules do not depend on each other, and
+ * the two differ in how they bound the calls they start: Joyent bounds the calls in flight here, while ECS rate limits
+ * its requests per region.
+ */
+@Singleton
+public class DatacenterFanOut {
+
+   @Resource
+   @Named(COMPUTE_LOGGER)
+   private Logger logger = Logger.NULL;
+
+   private final ListeningExecutorService userExecutor;
+   private final int datacentersInFlight;
+   private final long timeoutMillis;
+
+   @Inject
+   public DatacenterFanOut(@Named(PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+         @Named(DATACENTERS_IN_FLIGHT) int datacentersInFlight, @Named(DATACENTER_TIMEOUT) long timeoutMillis) {
+      checkArgument(datacentersInFlight > 0, "datacentersInFlight must be positive");
+      this.userExecutor = checkNotNull(userExecutor, "userExecutor");
+      this.datacentersInFlight = datacentersInFlight;
+      this.timeoutMillis = timeoutMillis;
+   }
+
+   /**
+    * Starts the call against every datacenter and returns an iterable that yields the results of each datacenter as
+    * soon as they are available.
+    */
+   public <T> FluentIterable<T> list(Iterable<String> datacenterIds,
+         Function<String, ? extends Iterable<? extends T>> call) {
+      return list(byDatacenter(datacenterIds), perDatacenter(call), true);
+   }
+
+   /**
+    * Like {@link #list(Iterable, Function)}, but iterating the results fails if any datacenter fails or does not
+    * answer in time, instead of leaving its results out.
+    */
+   public <T> FluentIterable<T> listAll(Iterable<String> datacenterIds,
+         Function<String, ? extends Iterable<? extends T>> call) {
+      return list(byDatacenter(datacenterIds), perDatacenter(call), false);
+   }
+
+   /**
+    * Starts every request, each one against the datacenter it is keyed by, and returns an iterable that yields the
+    * results of each request as soon as they are available. The concurrency bound and the timeout apply per request.
+    */
+   public <R, T> FluentIterable<T> list(Multimap<String, R> requestsByDatacenter,
+         Function<Map.Entry<String, R>, ? extends Iterable<? extends T>> call) {
+      return list(requestsByDatacenter, call, true);
+   }
+
+   /**
+    * Like {@link #list(Multimap, Function)}, but iterating the results fails if any request fails or does not
+    * complete in time, instead of leaving its results out.
+    */
+   public <R, T> FluentIterable<T> listAll(Multimap<String, R> requestsByDatacenter,
+         Function<Map.Entry<String, R>, ? extends Iterable<? extends T>> call) {
+      return list(requestsByDatacenter, call, false);
+   }
+
+   private static Multimap<String, String> byDatacenter(Iterable<String> datacenterIds) {
+      ImmutableListMultimap.Builder<String, String> requests = ImmutableListMultimap.builder();
+      for (String datacenterId : datacenterIds)
+         requests.put(datacenterId, datacenterId);
+      return requests.build();
+   }
+
+   private static <T> Function<Map.Entry<String, String>, Iterable<? extends T>> perDatacenter(
+         final Function<String, ? extends Iterable<? extends T>> call) {
+      return new Function<Map.Entry<String, String>, Iterable<? extends T>>() {
+         @Override
+         public Iterable<? extends T> apply(Map.Entry<String, String> request) {
+            return call.apply(request.getKey());
+         }
+      };
+   }
+
+   private <R, T> FluentIterable<T> list(Multimap<String, R> requestsByDatacenter,
+         Function<Map.Entry<String, R>, ? extends Iterable<? extends T>> call, final boolean skipFailures) {
+      final Queue<DatacenterCall<R, T>> pending = new ConcurrentLinkedQueue<DatacenterCall<R, T>>();
+      final List<DatacenterCall<R, T>> calls = Lists.newArrayList();
+      List<ListenableFuture<List<T>>> results = Lists.newArrayList();
+      for (Map.Entry<String, R> request : requestsByDatacenter.entries()) {
+         DatacenterCall<R, T> datacenterCall = new DatacenterCall<R, T>(request, call, pending);
+         calls.add(datacenterCall);
+         results.add(datacenterCall.result);
+         pending.add(datacenterCall);
+      }
+      for (int i = 0; i < datacentersInFlight; i++) {
+         DatacenterCall<R, T> next = pending.poll();
+         if (next == null)
+            break;
+         next.start();
+      }
+      return FluentIterable.from(Futures.inCompletionOrder(results)).transformAndConcat(
+            new Function<ListenableFuture<List<T>>, List<T>>() {
+               @Override
+               public List<T> apply(ListenableFuture<List<T>> result) {
+                  return skipFailures ? getOrSkip(result, calls) : getOrFail(result, calls, pending);
+               }
+            });
+   }
+
+   private <T> List<T> getOrSkip(ListenableFuture<List<T>> result, List<? extends DatacenterCall<?, T>> calls) {
+      while (true) {
+         try {
+            return getUninterruptibly(result, nextDeadline(calls) - System.currentTimeMillis(),
+                  TimeUnit.MILLISECONDS);
+         } catch (ExecutionException e) {
+            return ImmutableList.of();
+         } catch (CancellationException e) {
+            return ImmutableList.of();
+         } catch (TimeoutException e) {
+            for (DatacenterCall<?, T> call : calls)
+               call.expireIfOverdue();
+         }
+      }
+   }
+
+   private <T> List<T> getOrFail(ListenableFuture<List<T>> result, List<? extends DatacenterCall<?, T>> calls,
+         Queue<? extends DatacenterCall<?, T>> pending) {
+      while (true) {
+         try {
+            return getUninterruptibly(result, nextDeadline(calls) - System.currentTimeMillis(),
+                  TimeUnit.MILLISECONDS);
+         } catch (ExecutionException e) {
+            cancel(calls, pending);
+            throw propagate(e.getCause());
+         } catch (TimeoutException e) {
+            List<String> overdue = Lists.newArrayList();
+            for (DatacenterCall<?, T> call : calls) {
+               if (call.isOverdue())
+                  overdue.add(call.request.getKey());
+            }
+            if (!overdue.isEmpty()) {
+               cancel(calls, pending);
+               throw new UncheckedTimeoutException(String.format("datacenters %s did not answer within %d ms",
+                     overdue, timeoutMillis), e);
+            }
+         }
+      }
+   }
+
+   private static void cancel(List<? extends DatacenterCall<?, ?>> calls,
+         Queue<? extends DatacenterCall<?, ?>> pending) {
+      // no call may take the slot freed by a cancelled one
+      pending.clear();
+      for (DatacenterCall<?, ?> call : calls)
+         call.cancel();
+   }
+
+   private long nextDeadline(List<? extends DatacenterCall<?, ?>> calls) {
+      long now = System.currentTimeMillis();
+      long next = now + timeoutMillis;
+      for (DatacenterCall<?, ?> call : calls) {
+         long startedAt = call.startedAt;
+         if (startedAt > 0 && !call.result.isDone())
+            next = Math.min(next, startedAt + timeoutMillis);
+      }
+      return next;
+   }
+
+   private class DatacenterCall<R, T> implements Runnable {
+      private final Map.Entry<String, R> request;
+      private final Function<Map.Entry<String, R>, ? extends Iterable<? extends T>> call;
+      private final SettableFuture<List<T>> result = SettableFuture.create();
+      private volatile long startedAt;
+      private volatile Future<?> running;
+
+      private DatacenterCall(Map.Entry<String, R> request,
+            Function<Map.Entry<String, R>, ? extends Iterable<? extends T>> call,
+            final Queue<DatacenterCall<R, T>> pending) {
+         this.request = request;
+         this.call = call;
+         // whatever the outcome, this call frees its slot for the next one
+         result.addListener(new Runnable() {
+            @Override
+            public void run() {
+               DatacenterCall<R, T> next = pending.poll();
+               if (next != null)
+                  next.start();
+            }
+         }, directExecutor());
+      }
+
+      private void start() {
+         startedAt = System.currentTimeMillis();
+         running = userExecutor.submit(this);
+      }
+
+      @Override
+      public void run() {
+         if (result.isDone())
+            return;
+         try {
+            result.set(ImmutableList.<T> copyOf(call.apply(request)));
+         } catch (RuntimeException e) {
+            logger.warn(e, ">> could not call datacenter(%s): %s", request.getKey(), e.getMessage());
+            result.setException(e);
+         }
+      }
+
+      private boolean isOverdue() {
+         return startedAt > 0 && !result.isDone() && System.currentTimeMillis() - startedAt >= timeoutMillis;
+      }
+
+      private void expireIfOverdue() {
+         if (isOverdue()) {
+            logger.warn(">> datacenter(%s) did not answer within %d ms, skipping it", request.getKey(),
+                  timeoutMillis);
+            cancel();
+         }
+      }
+
+      private void cancel() {
+         result.cancel(false);
+         Future<?> running = this.running;
+         if (running != null)
+            running.cancel(true);
+      }
+   }
+}
@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.joyent.cloudapi.v6_5.compute.strategy;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.jclouds.Constants.PROPERTY_SCHEDULER_THREADS;
+import static org.jclouds.compute.reference.ComputeServiceConstants.COMPUTE_LOGGER;
+import static org.jclouds.joyent.cloudapi.v6_5.config.JoyentCloudProperties.MACHINE_CALLS_IN_FLIGHT;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.compute.reference.ComputeServiceConstants.PollPeriod;
+import org.jclouds.compute.reference.ComputeServiceConstants.Timeouts;
+import org.jclouds.joyent.cloudapi.v6_5.JoyentCloudApi;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Machine;
+import org.jclouds.joyent.cloudapi.v6_5.domain.datacenterscoped.DatacenterAndId;
+import org.jclouds.joyent.cloudapi.v6_5.features.MachineApi;
+import org.jclouds.lifecycle.Closer;
+import org.jclouds.logging.Logger;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Destroys machines by stopping them and deleting each one as soon as it is no longer running.
+ * <p>
+ * The machines pending destruction in a datacenter are all watched with a single {@code MachineApi.list()} per poll
+ * tick, however many of them there are. The tick only lists the machines and dispatches the stop and delete calls
+ * they need to a dedicated executor running at most
+ * {@link org.jclouds.joyent.cloudapi.v6_5.config.JoyentCloudProperties#MACHINE_CALLS_IN_FLIGHT} calls at a time.
+ * The calls do not run on the user executor, so that callers blocking user threads on their machines cannot starve
+ * the calls they wait for, nor on the shared scheduler thread, so that they do not run one after the other.
+ */
+@Singleton
+public class DestroyMachines {
+
+   @Resource
+   @Named(COMPUTE_LOGGER)
+   private Logger logger = Logger.NULL;
+
+   private final JoyentCloudApi cloudApiApi;
+   private final ScheduledExecutorService scheduler;
+   private final ExecutorService calls;
+   private final long pollInitialPeriod;
+   private final long pollMaxPeriod;
+   private final long stopTimeout;
+   private final ConcurrentMap<String, DatacenterPoll> polls = Maps.newConcurrentMap();
+
+   @Inject
+   DestroyMachines(JoyentCloudApi cloudApiApi, @Named(PROPERTY_SCHEDULER_THREADS) ScheduledExecutorService scheduler,
+         @Named(MACHINE_CALLS_IN_FLIGHT) int callsInFlight, PollPeriod pollPeriod, Timeouts timeouts, Closer closer) {
+      this(cloudApiApi, scheduler, Executors.newFixedThreadPool(callsInFlight, new ThreadFactoryBuilder()
+            .setNameFormat("joyent-cloudapi-destroy-machines-%d").setDaemon(true).build()),
+            pollPeriod.pollInitialPeriod, pollPeriod.pollMaxPeriod, timeouts.nodeSuspended);
+      closer.addToClose(new Closeable() {
+         @Override
+         public void close() {
+            calls.shutdownNow();
+         }
+      });
+   }
+
+   @VisibleForTesting
+   DestroyMachines(JoyentCloudApi cloudApiApi, ScheduledExecutorService scheduler, ExecutorService calls,
+         long pollInitialPeriod, long pollMaxPeriod, long stopTimeout) {
+      this.cloudApiApi = checkNotNull(cloudApiApi, "cloudApiApi");
+      this.scheduler = checkNotNull(scheduler, "scheduler");
+      this.calls = checkNotNull(calls, "calls");
+      this.pollInitialPeriod = pollInitialPeriod;
+      this.pollMaxPeriod = pollMaxPeriod;
+      this.stopTimeout = stopTimeout;
+   }
+
+   /**
+    * Starts destroying the given machines and returns, keyed by slash-encoded id, a future per machine that completes
+    * once the machine is deleted or no longer exists. A future fails if its machine could not be stopped within the
+    * suspend timeout or if a stop or delete call failed.
+    */
+   public Map<String, ListenableFuture<Void>> destroy(Iterable<String> ids) {
+      Map<String, ListenableFuture<Void>> futures = Maps.newLinkedHashMap();
+      for (String id : ids) {
+         if (futures.containsKey(id))
+            continue;
+         DatacenterAndId datacenterAndId = DatacenterAndId.fromSlashEncoded(id);
+         PendingMachine pending = new PendingMachine(datacenterAndId.getId(), System.currentTimeMillis()
+               + stopTimeout);
+         futures.put(id, pending.future);
+         poll(datacenterAndId.getDatacenter()).add(pending);
+      }
+      return futures;
+   }
+
+   private DatacenterPoll poll(String datacenterId) {
+      DatacenterPoll poll = polls.get(datacenterId);
+      if (poll == null) {
+         DatacenterPoll created = new DatacenterPoll(datacenterId);
+         poll = polls.putIfAbsent(datacenterId, created);
+         if (poll == null)
+            poll = created;
+      }
+      return poll;
+   }
+
+   private static class PendingMachine {
+      private final String machineId;
+      private final long deadline;
+      private final SettableFuture<Void> future = SettableFuture.create();
+      private volatile boolean stopIssued;
+      private volatile boolean callInFlight;
+
+      private PendingMachine(String machineId, long deadline) {
+         this.machineId = machineId;
+         this.deadline = deadline;
+      }
+   }
+
+   /**
+    * The machines pending destruction in a datacenter. A tick is scheduled only while there are pending machines,
+    * and the poll period backs off from the initial to the maximum period while none of them make progress.
+    */
+   private class DatacenterPoll implements Runnable {
+      private final String datacenterId;
+      private final Queue<PendingMachine> pending = new ConcurrentLinkedQueue<PendingMachine>();
+      private final AtomicBoolean scheduled = new AtomicBoolean();
+      private volatile long period = pollInitialPeriod;
+
+      private DatacenterPoll(String datacenterId) {
+         this.datacenterId = datacenterId;
+      }
+
+      private void add(PendingMachine machine) {
+         pending.add(machine);
+         if (scheduled.compareAndSet(false, true)) {
+            period = pollInitialPeriod;
+            // the first tick issues the stop calls, so it runs right away
+            scheduler.schedule(this, 0, TimeUnit.MILLISECONDS);
+         }
+      }
+
+      @Override
+      public void run() {
+         boolean progress = false;
+         try {
+            MachineApi machineApi = cloudApiApi.getMachineApiForDatacenter(datacenterId);
+            Map<String, Machine> machines = Maps.newHashMap();
+            for (Machine machine : machineApi.list())
+               machines.put(machine.getId(), machine);
+            for (Iterator<PendingMachine> it = pending.iterator(); it.hasNext();) {
+               PendingMachine machine = it.next();
+               if (machine.future.isDone()) {
+                  it.remove();
+                  continue;
+               }
+               // its stop or delete call has not returned yet
+               if (machine.callInFlight)
+                  continue;
+               if (advance(machineApi, machine, machines.get(machine.machineId)))
+                  progress = true;
+               if (machine.future.isDone())
+                  it.remove();
+            }
+         } catch (RuntimeException e) {
+            logger.warn(e, ">> could not list the machines in datacenter(%s), will retry", datacenterId);
+            failExpired(e);
+         }
+         period = progress ? pollInitialPeriod : Math.min(period * 2, pollMaxPeriod);
+         scheduled.set(false);
+         // a machine added while this tick was running must not be left without a scheduled tick
+         if (!pending.isEmpty() && scheduled.compareAndSet(false, true))
+            scheduler.schedule(this, period, TimeUnit.MILLISECONDS);
+      }
+
+      /**
+       * Moves a machine one step towards its deletion, given its current state, and returns whether it made progress.
+       */
+      private boolean advance(final MachineApi machineApi, final PendingMachine machine, Machine current) {
+         if (current == null) {
+            machine.future.set(null);
+            return true;
+         }
+         if (current.getState() != Machine.State.RUNNING) {
+            logger.debug(">> deleting machine(%s) current state(%s)", machine.machineId, current.getState());
+            dispatch(machine, new Runnable() {
+               @Override
+               public void run() {
+                  machineApi.delete(machine.machineId);
+                  machine.future.set(null);
+               }
+            });
+            return true;
+         }
+         if (!machine.stopIssued) {
+            logger.debug(">> stopping machine(%s) current state(%s)", machine.machineId, current.getState());
+            machine.stopIssued = true;
+            dispatch(machine, new Runnable() {
+               @Override
+               public void run() {
+                  machineApi.stop(machine.machineId);
+               }
+            });
+            return true;
+         }
+         if (System.currentTimeMillis() >= machine.deadline) {
+            machine.future.setException(new IllegalStateException(String.format(
+                  "<< unable to stop machine(%s) current state(%s)", machine.machineId, current.getState())));
+         }
+         return false;
+      }
+
+      /**
+       * Runs a stop or delete call of a machine on the call executor. A call that fails fails its machine.
+       */
+      private void dispatch(final PendingMachine machine, final Runnable call) {
+         machine.callInFlight = true;
+         try {
+            calls.execute(new Runnable() {
+               @Override
+               public void run() {
+                  try {
+                     call.run();
+                  } catch (RuntimeException e) {
+                     machine.future.setException(e);
+                  } finally {
+                     machine.callInFlight = false;
+                  }
+               }
+            });
+         } catch (RejectedExecutionException e) {
+            machine.callInFlight = false;
+            machine.future.setException(e);
+         }
+      }
+
+      private void failExpired(RuntimeException e) {
+         long now = System.currentTimeMillis();
+         for (Iterator<PendingMachine> it = pending.iterator(); it.hasNext();) {
+            PendingMachine machine = it.next();
+            if (now >= machine.deadline) {
+               machine.future.setException(e);
+               it.remove();
+            }
+         }
+      }
+   }
+}
@@ -27,4 +27,24 @@ public class JoyentCloudProperties {
     */
    public static final String AUTOGENERATE_KEYS = "jclouds.joyent-cloudapi.autogenerate-keys";
 
+   /**
+    * Maximum number of datacenter calls run concurrently when listing across datacenters.
+    */
+   public static final String DATACENTERS_IN_FLIGHT = "jclouds.joyent-cloudapi.datacenters-in-flight";
+
+   /**
+    * Milliseconds to wait for a single datacenter call before leaving it out of a listing across datacenters.
+    */
+   public static final String DATACENTER_TIMEOUT = "jclouds.joyent-cloudapi.datacenter-timeout";
+
+   /**
+    * Maximum number of stop and delete calls run concurrently while destroying machines.
+    */
+   public static final String MACHINE_CALLS_IN_FLIGHT = "jclouds.joyent-cloudapi.machine-calls-in-flight";
+
+   /**
+    * Number of SSH key pairs generated ahead of time for autogenerated keys.
+    */
+   public static final String KEY_POOL_SIZE = "jclouds.joyent-cloudapi.key-pool-size";
+
 }
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.joyent.cloudapi.v6_5.domain;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Date;
+
+import org.jclouds.javax.annotation.Nullable;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+
+/**
+ * A response body together with the HTTP validators it was served with, so that it can be revalidated with a
+ * conditional request.
+ */
+public class Validated<T> {
+
+   public static <T> Validated<T> of(T value, @Nullable String eTag, @Nullable Date lastModified) {
+      return new Validated<T>(value, eTag, lastModified);
+   }
+
+   private final T value;
+   private final String eTag;
+   private final Date lastModified;
+
+   protected Validated(T value, @Nullable String eTag, @Nullable Date lastModified) {
+      this.value = checkNotNull(value, "value");
+      this.eTag = eTag;
+      this.lastModified = lastModified;
+   }
+
+   public T get() {
+      return value;
+   }
+
+   /**
+    * The {@code ETag} header of the response, if any
+    */
+   @Nullable
+   public String getETag() {
+      return eTag;
+   }
+
+   /**
+    * The {@code Last-Modified} header of the response, if any
+    */
+   @Nullable
+   public Date getLastModified() {
+      return lastModified;
+   }
+
+   @Override
+   public boolean equals(Object object) {
+      if (this == object)
+         return true;
+      if (object == null || getClass() != object.getClass())
+         return false;
+      Validated<?> that = Validated.class.cast(object);
+      return Objects.equal(value, that.value) && Objects.equal(eTag, that.eTag)
+            && Objects.equal(lastModified, that.lastModified);
+   }
+
+   @Override
+   public int hashCode() {
+      return Objects.hashCode(value, eTag, lastModified);
+   }
+
+   @Override
+   public String toString() {
+      return MoreObjects.toStringHelper("").omitNullValues().add("eTag", eTag).add("lastModified", lastModified)
+            .add("value", value).toString();
+   }
+}
@@ -29,10 +29,16 @@ import javax.ws.rs.PathParam;
 import org.jclouds.Fallbacks.EmptySetOnNotFoundOr404;
 import org.jclouds.Fallbacks.NullOnNotFoundOr404;
 import org.jclouds.http.filters.BasicAuthentication;
+import org.jclouds.http.options.GetOptions;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.joyent.cloudapi.v6_5.JoyentCloudFallbacks.NullOnNotModifiedOrEmptySetOnNotFound;
 import org.jclouds.joyent.cloudapi.v6_5.domain.Dataset;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Validated;
+import org.jclouds.joyent.cloudapi.v6_5.functions.ParseWithValidators;
 import org.jclouds.rest.annotations.Fallback;
 import org.jclouds.rest.annotations.Headers;
 import org.jclouds.rest.annotations.RequestFilters;
+import org.jclouds.rest.annotations.ResponseParser;
 
 @Headers(keys = "X-Api-Version", values = "{jclouds.api-version}")
 @RequestFilters(BasicAuthentication.class)
@@ -45,6 +51,18 @@ public interface DatasetApi {
    @Fallback(EmptySetOnNotFoundOr404.class)
    Set<Dataset> list();
 
+   /**
+    * Lists the datasets unless they still match the validators set on the options.
+    *
+    * @return the datasets and the validators they were served with, or null if they have not been modified
+    */
+   @Named("ListDatasets")
+   @GET
+   @ResponseParser(ParseWithValidators.Datasets.class)
+   @Fallback(NullOnNotModifiedOrEmptySetOnNotFound.class)
+   @Nullable
+   Validated<Set<Dataset>> listIfModified(GetOptions options);
+
    @Named("GetDataset")
    @GET
    @Path("/{id}")
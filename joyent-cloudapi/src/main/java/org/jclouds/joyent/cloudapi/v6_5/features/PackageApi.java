@@ -29,10 +29,16 @@ import javax.ws.rs.PathParam;
 import org.jclouds.Fallbacks.EmptySetOnNotFoundOr404;
 import org.jclouds.Fallbacks.NullOnNotFoundOr404;
 import org.jclouds.http.filters.BasicAuthentication;
+import org.jclouds.http.options.GetOptions;
+import org.jclouds.javax.annotation.Nullable;
+import org.jclouds.joyent.cloudapi.v6_5.JoyentCloudFallbacks.NullOnNotModifiedOrEmptySetOnNotFound;
 import org.jclouds.joyent.cloudapi.v6_5.domain.Package;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Validated;
+import org.jclouds.joyent.cloudapi.v6_5.functions.ParseWithValidators;
 import org.jclouds.rest.annotations.Fallback;
 import org.jclouds.rest.annotations.Headers;
 import org.jclouds.rest.annotations.RequestFilters;
+import org.jclouds.rest.annotations.ResponseParser;
 
 @Headers(keys = "X-Api-Version", values = "{jclouds.api-version}")
 @RequestFilters(BasicAuthentication.class)
@@ -48,6 +54,18 @@ public interface PackageApi {
    @Fallback(EmptySetOnNotFoundOr404.class)
    Set<Package> list();
 
+   /**
+    * Lists the packages unless they still match the validators set on the options.
+    *
+    * @return the packages and the validators they were served with, or null if they have not been modified
+    */
+   @Named("ListPackages")
+   @GET
+   @ResponseParser(ParseWithValidators.Packages.class)
+   @Fallback(NullOnNotModifiedOrEmptySetOnNotFound.class)
+   @Nullable
+   Validated<Set<Package>> listIfModified(GetOptions options);
+
    @Named("GetPackage")
    @GET
    @Path("/{name}")
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.joyent.cloudapi.v6_5.functions;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.net.HttpHeaders.ETAG;
+import static com.google.common.net.HttpHeaders.LAST_MODIFIED;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Date;
+import java.util.Set;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.jclouds.date.DateService;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.HttpResponseException;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Dataset;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Package;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Validated;
+import org.jclouds.json.Json;
+import org.jclouds.util.Strings2;
+
+import com.google.common.base.Function;
+import com.google.common.reflect.TypeToken;
+
+/**
+ * Parses a JSON response body and keeps the {@code ETag} and {@code Last-Modified} headers it was served with.
+ */
+public abstract class ParseWithValidators<T> implements Function<HttpResponse, Validated<T>> {
+
+   private final Json json;
+   private final DateService dateService;
+   private final Type type;
+
+   protected ParseWithValidators(Json json, DateService dateService, Type type) {
+      this.json = checkNotNull(json, "json");
+      this.dateService = checkNotNull(dateService, "dateService");
+      this.type = checkNotNull(type, "type");
+   }
+
+   @Override
+   public Validated<T> apply(HttpResponse response) {
+      T value;
+      try {
+         value = json.fromJson(Strings2.toStringAndClose(checkNotNull(response.getPayload(), "payload of %s",
+               response).openStream()), type);
+      } catch (IOException e) {
+         throw new HttpResponseException("could not parse the body of " + response, null, response, e);
+      }
+      return Validated.of(value, response.getFirstHeaderOrNull(ETAG),
+            lastModified(response.getFirstHeaderOrNull(LAST_MODIFIED)));
+   }
+
+   private Date lastModified(String header) {
+      if (header == null)
+         return null;
+      try {
+         return dateService.rfc822DateParse(header);
+      } catch (IllegalArgumentException e) {
+         // an unparseable date is no validator
+         return null;
+      }
+   }
+
+   @Singleton
+   public static class Packages extends ParseWithValidators<Set<Package>> {
+      @Inject
+      Packages(Json json, DateService dateService) {
+         super(json, dateService, new TypeToken<Set<Package>>() {
+            private static final long serialVersionUID = 1L;
+         }.getType());
+      }
+   }
+
+   @Singleton
+   public static class Datasets extends ParseWithValidators<Set<Dataset>> {
+      @Inject
+      Datasets(Json json, DateService dateService) {
+         super(json, dateService, new TypeToken<Set<Dataset>>() {
+            private static final long serialVersionUID = 1L;
+         }.getType());
+      }
+   }
+}
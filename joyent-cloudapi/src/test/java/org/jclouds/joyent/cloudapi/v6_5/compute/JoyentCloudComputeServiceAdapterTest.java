@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.joyent.cloudapi.v6_5.compute;
+
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+
+import java.util.Date;
+import java.util.Set;
+
+import org.jclouds.joyent.cloudapi.v6_5.JoyentCloudApi;
+import org.jclouds.joyent.cloudapi.v6_5.compute.strategy.DatacenterCatalog;
+import org.jclouds.joyent.cloudapi.v6_5.compute.strategy.DatacenterFanOut;
+import org.jclouds.joyent.cloudapi.v6_5.compute.strategy.DestroyMachines;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Machine;
+import org.jclouds.joyent.cloudapi.v6_5.domain.datacenterscoped.MachineInDatacenter;
+import org.jclouds.joyent.cloudapi.v6_5.features.MachineApi;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+@Test(groups = "unit", testName = "JoyentCloudComputeServiceAdapterTest")
+public class JoyentCloudComputeServiceAdapterTest {
+
+   public void testListNodesByIdsFetchesFewIdsOneByOne() {
+      JoyentCloudApi api = createMock(JoyentCloudApi.class);
+      MachineApi machineApi = createMock(MachineApi.class);
+
+      expect(api.getMachineApiForDatacenter("us-sw-1")).andReturn(machineApi).times(2);
+      expect(machineApi.get("m-1")).andReturn(machine("m-1"));
+      expect(machineApi.get("m-2")).andReturn(null);
+      replay(api, machineApi);
+
+      Iterable<MachineInDatacenter> nodes = adapter(api).listNodesByIds(ImmutableList.of("us-sw-1/m-1",
+            "us-sw-1/m-2", "unknown-1/m-3"));
+
+      assertEquals(ids(nodes), ImmutableSet.of("us-sw-1/m-1"));
+      verify(api, machineApi);
+   }
+
+   public void testListNodesByIdsListsTheDatacenterForManyIds() {
+      JoyentCloudApi api = createMock(JoyentCloudApi.class);
+      MachineApi machineApi = createMock(MachineApi.class);
+
+      ImmutableSet.Builder<Machine> machines = ImmutableSet.builder();
+      ImmutableList.Builder<String> ids = ImmutableList.builder();
+      for (int i = 0; i < 20; i++) {
+         machines.add(machine("m-" + i));
+         if (i % 2 == 0)
+            ids.add("us-sw-1/m-" + i);
+      }
+      expect(api.getMachineApiForDatacenter("us-sw-1")).andReturn(machineApi);
+      expect(machineApi.list()).andReturn(machines.build());
+      replay(api, machineApi);
+
+      Set<String> found = ids(adapter(api).listNodesByIds(ids.build()));
+
+      assertEquals(found, ImmutableSet.copyOf(ids.build()));
+      verify(api, machineApi);
+   }
+
+   private static JoyentCloudComputeServiceAdapter adapter(JoyentCloudApi api) {
+      return new JoyentCloudComputeServiceAdapter(api, Suppliers.<Set<String>> ofInstance(ImmutableSet.of("us-sw-1",
+            "us-east-1")), new DatacenterFanOut(newDirectExecutorService(), 4, 10000),
+            createNiceMock(DestroyMachines.class), createNiceMock(DatacenterCatalog.class));
+   }
+
+   private static Set<String> ids(Iterable<MachineInDatacenter> nodes) {
+      return FluentIterable.from(nodes).transform(new Function<MachineInDatacenter, String>() {
+         @Override
+         public String apply(MachineInDatacenter input) {
+            return input.slashEncode();
+         }
+      }).toSet();
+   }
+
+   private static Machine machine(String id) {
+      return Machine.builder().id(id).name("test-" + id).type(Machine.Type.VIRTUALMACHINE).state(Machine.State.RUNNING)
+            .dataset("sdc:sdc:centos-5.7:1.2.1").memorySizeMb(1024).diskSizeGb(61440)
+            .ips(ImmutableSet.of("10.224.0.63")).created(new Date()).build();
+   }
+}
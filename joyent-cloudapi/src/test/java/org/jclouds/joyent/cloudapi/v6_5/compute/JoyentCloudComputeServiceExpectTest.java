@@ -31,6 +31,7 @@ import org.jclouds.http.HttpResponse;
 import org.jclouds.joyent.cloudapi.v6_5.compute.internal.BaseJoyentCloudComputeServiceExpectTest;
 import org.jclouds.joyent.cloudapi.v6_5.compute.options.JoyentCloudTemplateOptions;
 import org.jclouds.joyent.cloudapi.v6_5.features.DatasetApiExpectTest;
+import org.jclouds.joyent.cloudapi.v6_5.features.KeyApiExpectTest;
 import org.jclouds.joyent.cloudapi.v6_5.features.MachineApiExpectTest;
 import org.jclouds.joyent.cloudapi.v6_5.features.PackageApiExpectTest;
 import org.jclouds.location.reference.LocationConstants;
@@ -57,6 +58,7 @@ public class JoyentCloudComputeServiceExpectTest extends BaseJoyentCloudComputeS
    DatasetApiExpectTest datasets = new DatasetApiExpectTest();
    PackageApiExpectTest packages = new PackageApiExpectTest();
    MachineApiExpectTest machines = new MachineApiExpectTest();
+   KeyApiExpectTest keys = new KeyApiExpectTest();
    
    @Test
    public void testCreateNodeWithGeneratedKeyPairInWestRegion() throws Exception {
@@ -81,6 +83,9 @@ public class JoyentCloudComputeServiceExpectTest extends BaseJoyentCloudComputeS
 
       requestResponseMap.put(createKey, createKeyResponse);
 
+      // names of the existing keys, so that the new key does not collide with them
+      requestResponseMap.put(keys.list, keys.listResponse);
+
       // look for number to start count at
       requestResponseMap.put(machines.list, machines.listResponse);
 
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.joyent.cloudapi.v6_5.compute.functions;
+
+import static com.google.common.collect.Iterables.tryFind;
+import static org.jclouds.compute.util.ComputeServiceUtils.getSpace;
+import static org.testng.Assert.assertEquals;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.HardwareBuilder;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.ImageBuilder;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.OsFamily;
+import org.jclouds.compute.domain.internal.VolumeImpl;
+import org.jclouds.compute.functions.GroupNamingConvention;
+import org.jclouds.domain.JsonBall;
+import org.jclouds.domain.Location;
+import org.jclouds.domain.LocationBuilder;
+import org.jclouds.domain.LocationScope;
+import org.jclouds.joyent.cloudapi.v6_5.compute.config.JoyentCloudComputeServiceContextModule;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Machine;
+import org.jclouds.joyent.cloudapi.v6_5.domain.datacenterscoped.MachineInDatacenter;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Guice;
+
+/**
+ * Converts a listing of 5,000 machines with the indexed lookups and with the linear scans they replaced.
+ */
+@Test(groups = "performance", singleThreaded = true, testName = "MachineInDatacenterToNodeMetadataBenchmarkTest")
+public class MachineInDatacenterToNodeMetadataBenchmarkTest {
+
+   private static final int MACHINES = 5000;
+   private static final int IMAGES_PER_DATACENTER = 200;
+   private static final int PACKAGES_PER_DATACENTER = 30;
+   private static final int WARMUP_ITERATIONS = 3;
+   private static final int MEASURED_ITERATIONS = 5;
+   private static final List<String> DATACENTERS = ImmutableList.of("us-east-1", "us-west-1", "eu-ams-1");
+
+   private List<MachineInDatacenter> machines;
+   private MachineInDatacenterToNodeMetadata indexed;
+   private MachineInDatacenterToNodeMetadata linearScan;
+
+   @BeforeClass
+   public void setUp() {
+      Location provider = new LocationBuilder().scope(LocationScope.PROVIDER).id("joyent-cloudapi")
+            .description("joyent-cloudapi").build();
+      ImmutableMap.Builder<String, Location> locations = ImmutableMap.builder();
+      ImmutableSet.Builder<Image> images = ImmutableSet.builder();
+      ImmutableSet.Builder<Hardware> hardwares = ImmutableSet.builder();
+      for (String datacenter : DATACENTERS) {
+         Location zone = new LocationBuilder().id(datacenter).description(datacenter).scope(LocationScope.ZONE)
+               .parent(provider).build();
+         locations.put(datacenter, zone);
+         for (int i = 0; i < IMAGES_PER_DATACENTER; i++) {
+            images.add(new ImageBuilder().id(datacenter + "/" + datasetURN(i)).providerId(datasetURN(i))
+                  .operatingSystem(OperatingSystem.builder().family(OsFamily.LINUX).description("dataset " + i)
+                        .build()).description("dataset " + i).status(Image.Status.AVAILABLE).location(zone).build());
+         }
+         for (int i = 0; i < PACKAGES_PER_DATACENTER; i++) {
+            hardwares.add(new HardwareBuilder().id(datacenter + "/package-" + i).providerId("package-" + i)
+                  .ram(ram(i)).volume(new VolumeImpl(Float.valueOf(disk(i)), true, true)).location(zone).build());
+         }
+      }
+
+      Date created = new Date();
+      ImmutableList.Builder<MachineInDatacenter> listing = ImmutableList.builder();
+      for (int i = 0; i < MACHINES; i++) {
+         Machine machine = Machine.builder().id("machine-" + i).name("group-" + (i % 50) + "-" + i)
+               .type(Machine.Type.VIRTUALMACHINE).state(Machine.State.RUNNING)
+               .dataset(datasetURN(i % IMAGES_PER_DATACENTER)).memorySizeMb(ram(i % PACKAGES_PER_DATACENTER))
+               .diskSizeGb(disk(i % PACKAGES_PER_DATACENTER)).ips(ImmutableSet.of("10.0.0.1", "165.225.1.1"))
+               .created(created)
+               .metadata(ImmutableMap.of("root_authorized_keys", new JsonBall("ssh-rsa AAAA"), "jclouds_group",
+                     new JsonBall("group-" + (i % 50)))).build();
+         listing.add(new MachineInDatacenter(machine, DATACENTERS.get(i % DATACENTERS.size())));
+      }
+      machines = listing.build();
+
+      Supplier<Map<String, Location>> locationIndex = Suppliers.<Map<String, Location>> ofInstance(locations.build());
+      Supplier<Set<? extends Image>> imageSupplier = Suppliers.<Set<? extends Image>> ofInstance(images.build());
+      Supplier<Set<? extends Hardware>> hardwareSupplier = Suppliers.<Set<? extends Hardware>> ofInstance(hardwares
+            .build());
+      GroupNamingConvention.Factory namingConvention = Guice.createInjector().getInstance(
+            GroupNamingConvention.Factory.class);
+      indexed = new MachineInDatacenterToNodeMetadata(JoyentCloudComputeServiceContextModule.toPortableNodeStatus,
+            locationIndex, imageSupplier, hardwareSupplier, namingConvention);
+      linearScan = new LinearScan(locationIndex, imageSupplier, hardwareSupplier, namingConvention);
+   }
+
+   public void testConvertListing() {
+      for (int i = 0; i < MACHINES; i += 97) {
+         NodeMetadata expected = linearScan.apply(machines.get(i));
+         NodeMetadata actual = indexed.apply(machines.get(i));
+         assertEquals(actual.getHardware(), expected.getHardware());
+         assertEquals(actual.getOperatingSystem(), expected.getOperatingSystem());
+      }
+      report("linear scan", linearScan);
+      report("indexed", indexed);
+   }
+
+   private void report(String name, MachineInDatacenterToNodeMetadata converter) {
+      for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+         convertAll(converter);
+      }
+      long start = System.nanoTime();
+      for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+         convertAll(converter);
+      }
+      long elapsed = (System.nanoTime() - start) / MEASURED_ITERATIONS;
+      Logger.getAnonymousLogger().info(String.format(
+            "MachineInDatacenterToNodeMetadata %s: %.1f ms per %d machines, %.1f us/machine", name, elapsed / 1e6,
+            MACHINES, elapsed / 1e3 / MACHINES));
+   }
+
+   private int convertAll(MachineInDatacenterToNodeMetadata converter) {
+      int withHardware = 0;
+      for (MachineInDatacenter machine : machines) {
+         if (converter.apply(machine).getHardware() != null)
+            withHardware++;
+      }
+      return withHardware;
+   }
+
+   private static String datasetURN(int i) {
+      return "sdc:sdc:dataset-" + i + ":1.0." + i;
+   }
+
+   private static int ram(int i) {
+      return 512 * (i + 1);
+   }
+
+   private static int disk(int i) {
+      return 10240 * (i + 1);
+   }
+
+   /**
+    * The lookups as they were before the indexes: a scan over the memoized sets for every machine.
+    */
+   private static class LinearScan extends MachineInDatacenterToNodeMetadata {
+
+      LinearScan(Supplier<Map<String, Location>> locationIndex, Supplier<Set<? extends Image>> images,
+            Supplier<Set<? extends Hardware>> hardwares, GroupNamingConvention.Factory namingConvention) {
+         super(JoyentCloudComputeServiceContextModule.toPortableNodeStatus, locationIndex, images, hardwares,
+               namingConvention);
+      }
+
+      @Override
+      protected Hardware findHardwareForMachineOrNull(final MachineInDatacenter machineInDatacenter) {
+         return tryFind(hardwares.get(), new Predicate<Hardware>() {
+            @Override
+            public boolean apply(Hardware input) {
+               return input.getRam() == machineInDatacenter.get().getMemorySizeMb()
+                     && getSpace(input) == machineInDatacenter.get().getDiskSizeGb()
+                     && input.getLocation().getId().equals(machineInDatacenter.getDatacenter());
+            }
+         }).orNull();
+      }
+
+      @Override
+      protected OperatingSystem findOperatingSystemForMachineOrNull(MachineInDatacenter machineInDatacenter) {
+         Image image = findObjectOfTypeForMachineOrNull(images.get(), "image", machineInDatacenter.get()
+               .getDatasetURN(), machineInDatacenter);
+         return (image != null) ? image.getOperatingSystem() : null;
+      }
+   }
+}
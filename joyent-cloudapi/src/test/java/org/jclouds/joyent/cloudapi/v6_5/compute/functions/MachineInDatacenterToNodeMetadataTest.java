@@ -18,9 +18,11 @@ package org.jclouds.joyent.cloudapi.v6_5.compute.functions;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.jclouds.compute.domain.Hardware;
 import org.jclouds.compute.domain.HardwareBuilder;
@@ -89,6 +91,46 @@ public class MachineInDatacenterToNodeMetadataTest {
             existingImage.getOperatingSystem(), existingImage);
    }
 
+   @Test
+   public void testIndexesAreRebuiltWhenSuppliersRefresh() {
+      Hardware hardware = new HardwareBuilder().id("us-sw-1/Small 1GB").providerId("Small 1GB").ram(1024)
+            .volume(new VolumeImpl(Float.valueOf(61440), true, true)).location(zone).build();
+      Image image = new ImageBuilder().id("us-sw-1/sdc:sdc:centos-5.7:1.2.1")
+            .operatingSystem(OperatingSystem.builder().family(OsFamily.LINUX).description("foobuntu").build())
+            .providerId("sdc:sdc:centos-5.7:1.2.1").description("foobuntu").status(Image.Status.AVAILABLE)
+            .location(zone).build();
+      final AtomicReference<Set<? extends Image>> images = new AtomicReference<Set<? extends Image>>(
+            ImmutableSet.<Image> of());
+      final AtomicReference<Set<? extends Hardware>> hardwares = new AtomicReference<Set<? extends Hardware>>(
+            ImmutableSet.<Hardware> of());
+
+      MachineInDatacenterToNodeMetadata converter = new MachineInDatacenterToNodeMetadata(
+            JoyentCloudComputeServiceContextModule.toPortableNodeStatus, locationIndex,
+            new Supplier<Set<? extends Image>>() {
+               @Override
+               public Set<? extends Image> get() {
+                  return images.get();
+               }
+            }, new Supplier<Set<? extends Hardware>>() {
+               @Override
+               public Set<? extends Hardware> get() {
+                  return hardwares.get();
+               }
+            }, namingConvention);
+      MachineInDatacenter machine = new MachineInDatacenter(new ParseCreatedMachineTest().expected(), "us-sw-1");
+
+      NodeMetadata beforeRefresh = converter.apply(machine);
+      assertNull(beforeRefresh.getHardware());
+      assertNull(beforeRefresh.getOperatingSystem());
+
+      images.set(ImmutableSet.of(image));
+      hardwares.set(ImmutableSet.of(hardware));
+
+      NodeMetadata afterRefresh = converter.apply(machine);
+      assertEquals(afterRefresh.getHardware(), hardware);
+      assertEquals(afterRefresh.getOperatingSystem(), image.getOperatingSystem());
+   }
+
    // TODO: clean up this syntax
    private void checkHardwareAndImageStatus(Hardware expectedHardware, Hardware existingHardware,
          String expectedImageId, OperatingSystem expectedOs, Image existingImage) {
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.joyent.cloudapi.v6_5.compute.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.ssh.SshKeyPairGenerator;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+@Test(groups = "unit", testName = "SshKeyPairPoolTest")
+public class SshKeyPairPoolTest {
+
+   public void testHandsOutPreGeneratedKeyPairsAndTopsUp() throws Exception {
+      final List<String> generatedOn = Lists.newCopyOnWriteArrayList();
+      CountingGenerator generator = new CountingGenerator(generatedOn);
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+         SshKeyPairPool pool = new SshKeyPairPool(generator, 2, executor);
+         awaitGenerations(executor);
+         // nothing is generated until a key pair is needed
+         assertTrue(generatedOn.isEmpty(), generatedOn.toString());
+
+         assertEquals(pool.take().get("public"), "public-1");
+         awaitGenerations(executor);
+         assertEquals(pool.take().get("public"), "public-2");
+         assertEquals(pool.take().get("public"), "public-3");
+         awaitGenerations(executor);
+         assertEquals(pool.take().get("public"), "public-4");
+
+         // only the first key pair was generated on the caller
+         assertEquals(generatedOn.lastIndexOf(Thread.currentThread().getName()), 0, generatedOn.toString());
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   public void testGeneratesOnTheCallerWhenEmpty() {
+      final List<String> generatedOn = Lists.newCopyOnWriteArrayList();
+      CountingGenerator generator = new CountingGenerator(generatedOn);
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      executor.shutdown();
+
+      SshKeyPairPool pool = new SshKeyPairPool(generator, 2, executor);
+
+      assertEquals(pool.take().get("public"), "public-1");
+      assertEquals(generatedOn, Lists.newArrayList(Thread.currentThread().getName()));
+   }
+
+   /**
+    * Waits for the generations submitted so far, the executor running one task at a time in order.
+    */
+   private static void awaitGenerations(ExecutorService executor) throws Exception {
+      executor.submit(new Runnable() {
+         @Override
+         public void run() {
+         }
+      }).get(5, TimeUnit.SECONDS);
+   }
+
+   private static class CountingGenerator implements SshKeyPairGenerator {
+      private final AtomicInteger count = new AtomicInteger();
+      private final List<String> generatedOn;
+
+      private CountingGenerator(List<String> generatedOn) {
+         this.generatedOn = generatedOn;
+      }
+
+      @Override
+      public Map<String, String> get() {
+         int i = count.incrementAndGet();
+         generatedOn.add(Thread.currentThread().getName());
+         return ImmutableMap.of("public", "public-" + i, "private", "private-" + i);
+      }
+   }
+}
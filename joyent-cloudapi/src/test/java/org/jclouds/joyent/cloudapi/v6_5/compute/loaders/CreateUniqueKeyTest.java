@@ -25,22 +25,22 @@ import static org.testng.Assert.assertEquals;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
-import java.util.Map;
 
 import org.jclouds.compute.functions.GroupNamingConvention;
 import org.jclouds.compute.functions.GroupNamingConvention.Factory;
 import org.jclouds.joyent.cloudapi.v6_5.JoyentCloudApi;
 import org.jclouds.joyent.cloudapi.v6_5.compute.internal.KeyAndPrivateKey;
+import org.jclouds.joyent.cloudapi.v6_5.compute.internal.SshKeyPairPool;
 import org.jclouds.joyent.cloudapi.v6_5.domain.Key;
 import org.jclouds.joyent.cloudapi.v6_5.domain.datacenterscoped.DatacenterAndName;
 import org.jclouds.joyent.cloudapi.v6_5.features.KeyApi;
-import org.jclouds.ssh.SshKeyPairGenerator;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.TypeLiteral;
@@ -68,29 +68,44 @@ public class CreateUniqueKeyTest {
    @Test
    public void testApply() {
       JoyentCloudApi cloudApiApi = createMock(JoyentCloudApi.class);
-      SshKeyPairGenerator sshKeyPairGenerator = new SshKeyPairGenerator() {
-
-         @Override
-         public Map<String, String> get() {
-            return keyPair;
-         }
-
-      };
+      SshKeyPairPool sshKeyPairPool = createMock(SshKeyPairPool.class);
       KeyApi keyApi = createMock(KeyApi.class);
       Key key = Key.builder().name("group-foo").key(keyPair.get("public")).build();
 
-      expect(cloudApiApi.getKeyApi()).andReturn(keyApi);
-
+      expect(sshKeyPairPool.take()).andReturn(keyPair);
+      expect(cloudApiApi.getKeyApi()).andReturn(keyApi).times(2);
+      expect(keyApi.list()).andReturn(ImmutableSet.of(Key.builder().name("other-foo").key("ssh-rsa BBBB").build()));
       expect(keyApi.create(key)).andReturn(key);
 
-      replay(cloudApiApi, keyApi);
+      replay(cloudApiApi, sshKeyPairPool, keyApi);
 
-      CreateUniqueKey parser = new CreateUniqueKey(cloudApiApi, namingConvention, sshKeyPairGenerator);
+      CreateUniqueKey parser = new CreateUniqueKey(cloudApiApi, namingConvention, sshKeyPairPool);
 
       assertEquals(parser.load(DatacenterAndName.fromDatacenterAndName("datacenter", "group")),
                KeyAndPrivateKey.fromKeyAndPrivateKey(key, keyPair.get("private")));
 
-      verify(cloudApiApi, keyApi);
+      verify(cloudApiApi, sshKeyPairPool, keyApi);
+   }
+
+   @Test(expectedExceptions = IllegalStateException.class)
+   public void testDoesNotTryNamesThatAreAlreadyTaken() {
+      JoyentCloudApi cloudApiApi = createMock(JoyentCloudApi.class);
+      SshKeyPairPool sshKeyPairPool = createMock(SshKeyPairPool.class);
+      KeyApi keyApi = createMock(KeyApi.class);
+
+      expect(sshKeyPairPool.take()).andReturn(keyPair);
+      expect(cloudApiApi.getKeyApi()).andReturn(keyApi);
+      // the naming convention always comes up with group-foo
+      expect(keyApi.list()).andReturn(ImmutableSet.of(Key.builder().name("group-foo").key("ssh-rsa BBBB").build()));
+
+      replay(cloudApiApi, sshKeyPairPool, keyApi);
+
+      try {
+         new CreateUniqueKey(cloudApiApi, namingConvention, sshKeyPairPool).load(DatacenterAndName
+               .fromDatacenterAndName("datacenter", "group"));
+      } finally {
+         verify(cloudApiApi, sshKeyPairPool, keyApi);
+      }
    }
 
 }
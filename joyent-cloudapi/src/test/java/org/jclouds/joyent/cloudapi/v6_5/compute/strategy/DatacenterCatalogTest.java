@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.joyent.cloudapi.v6_5.compute.strategy;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jclouds.http.options.GetOptions;
+import org.jclouds.joyent.cloudapi.v6_5.JoyentCloudApi;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Package;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Validated;
+import org.jclouds.joyent.cloudapi.v6_5.features.PackageApi;
+import org.jclouds.joyent.cloudapi.v6_5.parse.ParsePackageListTest;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Ticker;
+
+@Test(groups = "unit", testName = "DatacenterCatalogTest")
+public class DatacenterCatalogTest {
+
+   private final Set<Package> packages = new ParsePackageListTest().expected();
+
+   public void testServesFromMemoryWhileFreshAndRevalidatesWithTheETag() {
+      JoyentCloudApi api = createMock(JoyentCloudApi.class);
+      PackageApi packageApi = createMock(PackageApi.class);
+      FakeTicker ticker = new FakeTicker();
+
+      expect(api.getPackageApiForDatacenter("us-sw-1")).andReturn(packageApi).times(2);
+      expect(packageApi.listIfModified(eq(new GetOptions()))).andReturn(
+            Validated.of(packages, "\"catalog-1\"", null));
+      expect(packageApi.listIfModified(eq(GetOptions.Builder.ifETagDoesntMatch("\"catalog-1\"")))).andReturn(null);
+      replay(api, packageApi);
+
+      DatacenterCatalog catalog = new DatacenterCatalog(api, 60, ticker);
+      assertEquals(catalog.packages("us-sw-1"), packages);
+      // still fresh
+      assertEquals(catalog.packages("us-sw-1"), packages);
+
+      ticker.advance(61);
+      // not modified
+      assertSame(catalog.packages("us-sw-1"), packages);
+      // fresh again after the revalidation
+      assertSame(catalog.packages("us-sw-1"), packages);
+      verify(api, packageApi);
+   }
+
+   public void testServesThePreviousListingWhenRevalidationFails() {
+      JoyentCloudApi api = createMock(JoyentCloudApi.class);
+      PackageApi packageApi = createMock(PackageApi.class);
+      FakeTicker ticker = new FakeTicker();
+
+      expect(api.getPackageApiForDatacenter("us-sw-1")).andReturn(packageApi).times(2);
+      expect(packageApi.listIfModified(eq(new GetOptions()))).andReturn(Validated.of(packages, null, null));
+      expect(packageApi.listIfModified(eq(new GetOptions()))).andThrow(new IllegalStateException("unreachable"));
+      replay(api, packageApi);
+
+      DatacenterCatalog catalog = new DatacenterCatalog(api, 60, ticker);
+      assertEquals(catalog.packages("us-sw-1"), packages);
+      ticker.advance(61);
+      assertSame(catalog.packages("us-sw-1"), packages);
+      verify(api, packageApi);
+   }
+
+   private static class FakeTicker extends Ticker {
+      private final AtomicLong nanos = new AtomicLong();
+
+      @Override
+      public long read() {
+         return nanos.get();
+      }
+
+      void advance(long seconds) {
+         nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+      }
+   }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.joyent.cloudapi.v6_5.compute.strategy;
+
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.UncheckedTimeoutException;
+
+@Test(groups = "unit", testName = "DatacenterFanOutTest", singleThreaded = true)
+public class DatacenterFanOutTest {
+
+   private ListeningExecutorService executor;
+
+   @BeforeMethod
+   public void setUp() {
+      executor = listeningDecorator(Executors.newCachedThreadPool());
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void tearDown() {
+      executor.shutdownNow();
+   }
+
+   public void testDatacentersAreCalledConcurrently() {
+      final CountDownLatch allStarted = new CountDownLatch(3);
+      DatacenterFanOut fanOut = new DatacenterFanOut(executor, 3, 10000);
+
+      List<String> results = fanOut.list(ImmutableList.of("a", "b", "c"), new Function<String, List<String>>() {
+         @Override
+         public List<String> apply(String datacenterId) {
+            allStarted.countDown();
+            try {
+               // every datacenter blocks until all of them have started
+               assertTrue(allStarted.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+               throw new IllegalStateException(e);
+            }
+            return ImmutableList.of(datacenterId + "-1", datacenterId + "-2");
+         }
+      }).toSortedList(Ordering.natural());
+
+      assertEquals(results, ImmutableList.of("a-1", "a-2", "b-1", "b-2", "c-1", "c-2"));
+   }
+
+   public void testConcurrencyIsBounded() {
+      final AtomicInteger inFlight = new AtomicInteger();
+      final AtomicInteger maxInFlight = new AtomicInteger();
+      DatacenterFanOut fanOut = new DatacenterFanOut(executor, 2, 10000);
+
+      List<String> results = fanOut.list(ImmutableList.of("a", "b", "c", "d", "e"),
+            new Function<String, List<String>>() {
+               @Override
+               public List<String> apply(String datacenterId) {
+                  int current = inFlight.incrementAndGet();
+                  synchronized (maxInFlight) {
+                     maxInFlight.set(Math.max(maxInFlight.get(), current));
+                  }
+                  try {
+                     TimeUnit.MILLISECONDS.sleep(50);
+                  } catch (InterruptedException e) {
+                     Thread.currentThread().interrupt();
+                  } finally {
+                     inFlight.decrementAndGet();
+                  }
+                  return ImmutableList.of(datacenterId);
+               }
+            }).toSortedList(Ordering.natural());
+
+      assertEquals(results, ImmutableList.of("a", "b", "c", "d", "e"));
+      assertEquals(maxInFlight.get(), 2);
+   }
+
+   public void testFailingDatacenterIsSkipped() {
+      DatacenterFanOut fanOut = new DatacenterFanOut(executor, 2, 10000);
+
+      List<String> results = fanOut.list(ImmutableList.of("a", "b"), new Function<String, List<String>>() {
+         @Override
+         public List<String> apply(String datacenterId) {
+            if ("a".equals(datacenterId))
+               throw new IllegalStateException("datacenter unavailable");
+            return ImmutableList.of(datacenterId);
+         }
+      }).toList();
+
+      assertEquals(results, ImmutableList.of("b"));
+   }
+
+   public void testSlowDatacenterIsSkippedAndFreesItsSlot() {
+      DatacenterFanOut fanOut = new DatacenterFanOut(executor, 1, 200);
+
+      List<String> results = fanOut.list(ImmutableList.of("slow", "fast"), new Function<String, List<String>>() {
+         @Override
+         public List<String> apply(String datacenterId) {
+            if ("slow".equals(datacenterId)) {
+               try {
+                  TimeUnit.SECONDS.sleep(10);
+               } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+               }
+            }
+            return ImmutableList.of(datacenterId);
+         }
+      }).toList();
+
+      assertEquals(results, ImmutableList.of("fast"));
+   }
+
+   @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = "datacenter unavailable")
+   public void testFailingDatacenterFailsListAll() {
+      DatacenterFanOut fanOut = new DatacenterFanOut(executor, 2, 10000);
+
+      fanOut.listAll(ImmutableList.of("a", "b"), new Function<String, List<String>>() {
+         @Override
+         public List<String> apply(String datacenterId) {
+            if ("a".equals(datacenterId))
+               throw new IllegalStateException("datacenter unavailable");
+            return ImmutableList.of(datacenterId);
+         }
+      }).toList();
+   }
+
+   @Test(expectedExceptions = UncheckedTimeoutException.class)
+   public void testSlowDatacenterFailsListAll() {
+      DatacenterFanOut fanOut = new DatacenterFanOut(executor, 1, 200);
+
+      fanOut.listAll(ImmutableList.of("slow", "fast"), new Function<String, List<String>>() {
+         @Override
+         public List<String> apply(String datacenterId) {
+            if ("slow".equals(datacenterId)) {
+               try {
+                  TimeUnit.SECONDS.sleep(10);
+               } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+               }
+            }
+            return ImmutableList.of(datacenterId);
+         }
+      }).toList();
+   }
+}
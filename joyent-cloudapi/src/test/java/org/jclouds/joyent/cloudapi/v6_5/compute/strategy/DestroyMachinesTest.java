@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.joyent.cloudapi.v6_5.compute.strategy;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.easymock.IAnswer;
+import org.jclouds.joyent.cloudapi.v6_5.JoyentCloudApi;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Machine;
+import org.jclouds.joyent.cloudapi.v6_5.features.MachineApi;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ListenableFuture;
+
+@Test(groups = "unit", testName = "DestroyMachinesTest", singleThreaded = true)
+public class DestroyMachinesTest {
+
+   private ScheduledExecutorService scheduler;
+   private ExecutorService calls;
+
+   @BeforeMethod
+   public void setUp() {
+      scheduler = Executors.newSingleThreadScheduledExecutor();
+      calls = Executors.newFixedThreadPool(2);
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void tearDown() {
+      scheduler.shutdownNow();
+      calls.shutdownNow();
+   }
+
+   public void testStopsAllThenDeletesEachOnceStoppedWithOneListPerTick() throws Exception {
+      JoyentCloudApi api = createMock(JoyentCloudApi.class);
+      MachineApi machineApi = createMock(MachineApi.class);
+
+      expect(api.getMachineApiForDatacenter("us-sw-1")).andReturn(machineApi).anyTimes();
+      expect(machineApi.list()).andReturn(ImmutableSet.of(machine("m-1", Machine.State.RUNNING),
+            machine("m-2", Machine.State.STOPPED)));
+      machineApi.stop("m-1");
+      machineApi.delete("m-2");
+      // a tick may run again before the stop call of m-1 has returned
+      expect(machineApi.list()).andReturn(ImmutableSet.of(machine("m-1", Machine.State.STOPPED))).atLeastOnce();
+      machineApi.delete("m-1");
+      replay(api, machineApi);
+
+      DestroyMachines destroyMachines = new DestroyMachines(api, scheduler, calls, 10, 100, 10000);
+      Map<String, ListenableFuture<Void>> futures = destroyMachines.destroy(ImmutableList.of("us-sw-1/m-1",
+            "us-sw-1/m-2", "us-sw-1/m-3"));
+
+      assertEquals(futures.keySet(), ImmutableSet.of("us-sw-1/m-1", "us-sw-1/m-2", "us-sw-1/m-3"));
+      for (ListenableFuture<Void> future : futures.values())
+         assertNull(future.get(5, TimeUnit.SECONDS));
+      verify(api, machineApi);
+   }
+
+   public void testFailsMachinesThatDoNotStopInTime() throws Exception {
+      JoyentCloudApi api = createMock(JoyentCloudApi.class);
+      MachineApi machineApi = createMock(MachineApi.class);
+
+      expect(api.getMachineApiForDatacenter("us-sw-1")).andReturn(machineApi).anyTimes();
+      expect(machineApi.list()).andReturn(ImmutableSet.of(machine("m-1", Machine.State.RUNNING))).anyTimes();
+      machineApi.stop("m-1");
+      replay(api, machineApi);
+
+      DestroyMachines destroyMachines = new DestroyMachines(api, scheduler, calls, 10, 20, 100);
+      ListenableFuture<Void> future = destroyMachines.destroy(ImmutableList.of("us-sw-1/m-1")).get("us-sw-1/m-1");
+
+      try {
+         future.get(5, TimeUnit.SECONDS);
+         fail("machine m-1 never stops");
+      } catch (ExecutionException e) {
+         assertTrue(e.getCause() instanceof IllegalStateException, e.getCause().toString());
+      }
+      verify(api, machineApi);
+   }
+
+   public void testFailedCallFailsOnlyItsMachine() throws Exception {
+      JoyentCloudApi api = createMock(JoyentCloudApi.class);
+      MachineApi machineApi = createMock(MachineApi.class);
+
+      expect(api.getMachineApiForDatacenter("us-sw-1")).andReturn(machineApi).anyTimes();
+      expect(machineApi.list()).andReturn(ImmutableSet.of(machine("m-1", Machine.State.STOPPED),
+            machine("m-2", Machine.State.STOPPED)));
+      machineApi.delete("m-1");
+      expectLastCall().andThrow(new IllegalStateException("delete failed"));
+      machineApi.delete("m-2");
+      replay(api, machineApi);
+
+      DestroyMachines destroyMachines = new DestroyMachines(api, scheduler, calls, 10, 100, 10000);
+      Map<String, ListenableFuture<Void>> futures = destroyMachines.destroy(ImmutableList.of("us-sw-1/m-1",
+            "us-sw-1/m-2"));
+
+      try {
+         futures.get("us-sw-1/m-1").get(5, TimeUnit.SECONDS);
+         fail("deleting m-1 fails");
+      } catch (ExecutionException e) {
+         assertEquals(e.getCause().getMessage(), "delete failed");
+      }
+      assertNull(futures.get("us-sw-1/m-2").get(5, TimeUnit.SECONDS));
+      verify(api, machineApi);
+   }
+
+   public void testCallsRunConcurrentlyOffTheScheduler() throws Exception {
+      JoyentCloudApi api = createMock(JoyentCloudApi.class);
+      MachineApi machineApi = createMock(MachineApi.class);
+      final CountDownLatch stopping = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+
+      expect(api.getMachineApiForDatacenter("us-sw-1")).andReturn(machineApi).anyTimes();
+      expect(machineApi.list()).andReturn(ImmutableSet.of(machine("m-1", Machine.State.RUNNING),
+            machine("m-2", Machine.State.STOPPED))).once();
+      expect(machineApi.list()).andReturn(ImmutableSet.of(machine("m-1", Machine.State.RUNNING))).anyTimes();
+      machineApi.stop("m-1");
+      expectLastCall().andAnswer(new IAnswer<Void>() {
+         @Override
+         public Void answer() throws InterruptedException {
+            stopping.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+         }
+      });
+      machineApi.delete("m-2");
+      replay(api, machineApi);
+
+      DestroyMachines destroyMachines = new DestroyMachines(api, scheduler, calls, 10, 20, 10000);
+      Map<String, ListenableFuture<Void>> futures = destroyMachines.destroy(ImmutableList.of("us-sw-1/m-1",
+            "us-sw-1/m-2"));
+
+      try {
+         assertTrue(stopping.await(5, TimeUnit.SECONDS));
+         // m-2 is deleted while the stop call of m-1 is still running
+         assertNull(futures.get("us-sw-1/m-2").get(5, TimeUnit.SECONDS));
+         assertFalse(futures.get("us-sw-1/m-1").isDone());
+      } finally {
+         release.countDown();
+      }
+      verify(api, machineApi);
+   }
+
+   private static Machine machine(String id, Machine.State state) {
+      return Machine.builder().id(id).name("test-" + id).type(Machine.Type.VIRTUALMACHINE).state(state)
+            .dataset("sdc:sdc:centos-5.7:1.2.1").memorySizeMb(1024).diskSizeGb(61440)
+            .ips(ImmutableSet.of("10.224.0.63")).created(new Date()).build();
+   }
+}
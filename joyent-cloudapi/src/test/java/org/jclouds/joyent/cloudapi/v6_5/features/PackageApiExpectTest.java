@@ -17,10 +17,16 @@
 package org.jclouds.joyent.cloudapi.v6_5.features;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.Set;
 
 import org.jclouds.http.HttpRequest;
 import org.jclouds.http.HttpResponse;
+import org.jclouds.http.options.GetOptions;
 import org.jclouds.joyent.cloudapi.v6_5.JoyentCloudApi;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Package;
+import org.jclouds.joyent.cloudapi.v6_5.domain.Validated;
 import org.jclouds.joyent.cloudapi.v6_5.internal.BaseJoyentCloudApiExpectTest;
 import org.jclouds.joyent.cloudapi.v6_5.parse.ParsePackageListTest;
 import org.testng.annotations.Test;
@@ -52,4 +58,27 @@ public class PackageApiExpectTest extends BaseJoyentCloudApiExpectTest {
 
       assertEquals(listWhenNone.getPackageApiForDatacenter("us-sw-1").list(), ImmutableSet.of());
    }
+
+   public void testListPackagesIfModifiedKeepsTheValidators() {
+      HttpResponse listResponse = this.listResponse.toBuilder().addHeader("ETag", "\"catalog-1\"").build();
+
+      JoyentCloudApi apiWhenPackagesExists = requestsSendResponses(getDatacenters, getDatacentersResponse, list,
+            listResponse);
+
+      Validated<Set<Package>> listed = apiWhenPackagesExists.getPackageApiForDatacenter("us-sw-1").listIfModified(
+            new GetOptions());
+      assertEquals(listed.get(), new ParsePackageListTest().expected());
+      assertEquals(listed.getETag(), "\"catalog-1\"");
+   }
+
+   public void testListPackagesIfModifiedWhenResponseIs304() {
+      HttpRequest conditionalList = list.toBuilder().addHeader("If-None-Match", "\"catalog-1\"").build();
+      HttpResponse notModified = HttpResponse.builder().statusCode(304).build();
+
+      JoyentCloudApi apiWhenNotModified = requestsSendResponses(getDatacenters, getDatacentersResponse,
+            conditionalList, notModified);
+
+      assertNull(apiWhenNotModified.getPackageApiForDatacenter("us-sw-1").listIfModified(
+            GetOptions.Builder.ifETagDoesntMatch("\"catalog-1\"")));
+   }
 }